@@ -0,0 +1,176 @@
+package kz.nu.pipeline.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replicas, round-robin over the ones that passed the last health check,
+ * and everything else to the primary. With no healthy replica reads fall back to the primary.
+ * <p>
+ * After a user commits a read-write transaction, that user's reads stay on the primary for the read-your-writes
+ * window, so they are not served from a replica that has not caught up yet. Users are told apart by the name of
+ * the current {@link Authentication}. Writes committed on another thread on a user's behalf, where that user is not
+ * the current authentication, are reported with {@link #recordWrite}.
+ * <p>
+ * The routing decision is made when a connection is first obtained, so the data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager then only gets
+ * a real connection after the transaction is marked read-only.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas = new HashMap<>();
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final Set<String> healthyReplicas = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final long readYourWritesNanos;
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(
+            DataSource primary,
+            List<DataSource> replicas,
+            Duration readYourWritesWindow,
+            Duration healthCheckInterval
+    ) {
+        this.primary = primary;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            this.replicas.put(key, replicas.get(i));
+            this.replicaKeys.add(key);
+            targets.put(key, replicas.get(i));
+        }
+        this.setTargetDataSources(targets);
+        this.setDefaultTargetDataSource(primary);
+        this.setLenientFallback(false);
+        this.afterPropertiesSet();
+
+        this.readYourWritesNanos = readYourWritesWindow.toNanos();
+        this.checkHealth();
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && readYourWritesNanos > 0 && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recordWrite(user);
+                    }
+                });
+            }
+            return PRIMARY;
+        }
+        if (user != null && this.wroteRecently(user)) {
+            return PRIMARY;
+        }
+        int size = replicaKeys.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            String key = replicaKeys.get((start + i) % size);
+            if (healthyReplicas.contains(key)) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Keep the user's reads on the primary for the read-your-writes window from now.
+     * Call it after the user's write has committed.
+     */
+    public void recordWrite(String user) {
+        if (user != null && readYourWritesNanos > 0) {
+            lastWrites.put(user, System.nanoTime());
+        }
+    }
+
+    /**
+     * @return the name reads and writes are tracked under for the current thread, or {@code null} when anonymous
+     */
+    public static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * Validate a connection from every replica and update the set reads are routed to.
+     * Also forgets writes older than the read-your-writes window.
+     */
+    void checkHealth() {
+        for (String key : replicaKeys) {
+            boolean healthy;
+            try (Connection connection = replicas.get(key).getConnection()) {
+                healthy = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException | RuntimeException e) {
+                healthy = false;
+            }
+            if (healthy && healthyReplicas.add(key)) {
+                log.info("Read replica {} is healthy", key);
+            } else if (!healthy && healthyReplicas.remove(key)) {
+                log.warn("Read replica {} failed its health check, reads go to the other replicas", key);
+            }
+        }
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(writtenAt -> now - writtenAt >= readYourWritesNanos);
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        closePool(primary);
+        replicas.values().forEach(ReplicaRoutingDataSource::closePool);
+    }
+
+    private boolean wroteRecently(String user) {
+        Long writtenAt = lastWrites.get(user);
+        return writtenAt != null && System.nanoTime() - writtenAt < readYourWritesNanos;
+    }
+
+    private static void closePool(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close connection pool: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package kz.nu.pipeline.config;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.servlet.DispatcherType;
 import kz.nu.pipeline.model.User;
 import kz.nu.pipeline.repository.UserRepository;
 import kz.nu.pipeline.security.JwtAuthenticationEntryPoint;
@@ -49,6 +50,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> {
                             auth = auth
+                                    // async dispatches (SSE, deferred results) were already authorized on the original request
+                                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                     .requestMatchers("/h2-console/**").permitAll()
                                     .requestMatchers("/swagger-ui/**").permitAll()
                                     .requestMatchers("/swagger-ui/**", "/api-docs/**").permitAll()
@@ -1,10 +1,17 @@
 package kz.nu.pipeline.config;
 
+import jakarta.servlet.http.HttpServletRequest;
 import kz.nu.pipeline.security.AuthenticatedUserResolver;
 import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -28,6 +35,35 @@ public class WebConfig {
             public void addArgumentResolvers(@NonNull List<HandlerMethodArgumentResolver> resolvers) {
                 resolvers.add(authenticatedUserResolver);
             }
+
+            /**
+             * Streaming response bodies copy with blocking servlet writes for as long as the client takes.
+             * Virtual threads make that cheap, where a pool would have to be sized for the slowest downloads.
+             */
+            @Override
+            public void configureAsyncSupport(@NonNull AsyncSupportConfigurer configurer) {
+                SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mvc-async-");
+                executor.setVirtualThreads(true);
+                configurer.setTaskExecutor(executor);
+            }
+        };
+    }
+
+    /**
+     * The standard resolver, except for the streaming upload endpoint: its body must reach the controller unread,
+     * not parsed by the container into memory or temp files first.
+     */
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver(
+            @Value("${spring.servlet.multipart.resolve-lazily:false}") boolean resolveLazily
+    ) {
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(@NonNull HttpServletRequest request) {
+                return !request.getRequestURI().endsWith("/files/upload/stream") && super.isMultipart(request);
+            }
         };
+        resolver.setResolveLazily(resolveLazily);
+        return resolver;
     }
 }
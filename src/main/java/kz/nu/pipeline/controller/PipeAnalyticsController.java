@@ -0,0 +1,70 @@
+package kz.nu.pipeline.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import kz.nu.pipeline.dto.PipeScanResultDto;
+import kz.nu.pipeline.index.PipeColumnStore;
+import kz.nu.pipeline.index.PipeScanQuery;
+import kz.nu.pipeline.model.Pipe;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/pipe/analytics")
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "app.pipe.columnar", name = "enabled", havingValue = "true")
+@Tag(name = "Pipe Analytics", description = "Ad-hoc scans over the in-memory columnar pipe snapshot")
+public class PipeAnalyticsController {
+
+    private final PipeColumnStore pipeColumnStore;
+
+    @GetMapping("/scan")
+    @Operation(summary = "Scan the pipe inventory",
+            description = "Filter by measurement ranges, production date, status and attributes; returns match count, ids and aggregates")
+    public ResponseEntity<PipeScanResultDto> scan(
+            @RequestParam(required = false) BigDecimal minDiameter,
+            @RequestParam(required = false) BigDecimal maxDiameter,
+            @RequestParam(required = false) BigDecimal minWallThickness,
+            @RequestParam(required = false) BigDecimal maxWallThickness,
+            @RequestParam(required = false) BigDecimal minPressureRating,
+            @RequestParam(required = false) BigDecimal maxPressureRating,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate producedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate producedTo,
+            @RequestParam(required = false) Set<Pipe.PipeStatus> status,
+            @RequestParam(required = false) String material,
+            @RequestParam(required = false) String manufacturer,
+            @RequestParam(required = false) String location,
+            @Parameter(description = "Maximum number of matching ids to return")
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        PipeScanQuery query = PipeScanQuery.builder()
+                .minDiameter(minDiameter)
+                .maxDiameter(maxDiameter)
+                .minWallThickness(minWallThickness)
+                .maxWallThickness(maxWallThickness)
+                .minPressureRating(minPressureRating)
+                .maxPressureRating(maxPressureRating)
+                .producedFrom(producedFrom)
+                .producedTo(producedTo)
+                .statuses(status)
+                .material(material)
+                .manufacturer(manufacturer)
+                .location(location)
+                .build();
+        log.info("Scanning columnar pipe snapshot of {} rows", pipeColumnStore.size());
+        return ResponseEntity.ok(pipeColumnStore.scan(query, limit));
+    }
+}
@@ -4,18 +4,41 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import kz.nu.pipeline.dto.ExcelUploadResponseDto;
+import kz.nu.pipeline.dto.PipeBulkRequestDto;
+import kz.nu.pipeline.dto.PipeBulkResponseDto;
 import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.dto.PipeField;
+import kz.nu.pipeline.dto.PipeLookupRequestDto;
+import kz.nu.pipeline.dto.PipeLookupResponseDto;
+import kz.nu.pipeline.dto.PipeSearchResponseDto;
+import kz.nu.pipeline.dto.PipeSuggestionDto;
+import kz.nu.pipeline.dto.PipeSyncResponseDto;
+import kz.nu.pipeline.index.PipeSuggestionIndex;
 import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.repository.PipeJsonStreamer;
+import kz.nu.pipeline.repository.PipeSpecifications;
+import kz.nu.pipeline.service.PipeChangeFeed;
+import kz.nu.pipeline.service.PipeCreateCoalescer;
 import kz.nu.pipeline.service.PipeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/pipe")
@@ -24,7 +47,19 @@ import java.util.Optional;
 @Tag(name = "Pipe Management", description = "API for managing pipe inventory")
 public class PipeController {
 
+    private static final String FIELDS_DESCRIPTION = "Comma separated subset of pipe fields to return, e.g. pipeNumber,status,location; the id is always included";
+
     private final PipeService pipeService;
+    private final PipeChangeFeed pipeChangeFeed;
+    private final PipeSuggestionIndex pipeSuggestionIndex;
+    private final PipeJsonStreamer pipeJsonStreamer;
+    private final PipeCreateCoalescer pipeCreateCoalescer;
+
+    @Value("${app.pipe.suggest.max-limit:50}")
+    private int suggestMaxLimit;
+
+    @Value("${app.excel.max-file-size:10MB}")
+    private DataSize excelMaxFileSize;
 
     @PostMapping("/upload-excel")
     @Operation(summary = "Upload Excel file with pipe data",
@@ -45,6 +80,11 @@ public class PipeController {
                     .body(ExcelUploadResponseDto.failure("Invalid file format. Please upload Excel file (.xlsx or .xls)", null));
         }
 
+        if (file.getSize() > excelMaxFileSize.toBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(ExcelUploadResponseDto.failure("Excel file must not be larger than " + excelMaxFileSize, null));
+        }
+
         try {
             ExcelUploadResponseDto response = pipeService.processExcelFile(file);
 
@@ -68,37 +108,103 @@ public class PipeController {
     @Operation(summary = "Create a new pipe", description = "Add a new pipe to the inventory")
     public ResponseEntity<PipeDto> createPipe(@RequestBody PipeDto pipeDto) {
         log.info("Creating new pipe: {}", pipeDto.getPipeNumber());
-        return ResponseEntity.status(HttpStatus.CREATED).body(pipeService.createPipe(pipeDto));
+        return ResponseEntity.status(HttpStatus.CREATED).body(pipeCreateCoalescer.create(pipeDto));
+    }
+
+    @PostMapping("/bulk")
+    @Operation(summary = "Bulk create, update and delete pipes",
+            description = "Apply many create/update/delete operations in chunked transactions; returns one result per operation")
+    public ResponseEntity<PipeBulkResponseDto> applyBulk(@RequestBody PipeBulkRequestDto request) {
+        log.info("Applying bulk request: {} operations, atomic: {}",
+                request.getOperations() == null ? 0 : request.getOperations().size(), request.isAtomic());
+        return ResponseEntity.ok(pipeService.applyBulk(request));
     }
 
     @GetMapping
     @Operation(summary = "Get all pipes", description = "Retrieve all pipes from the inventory")
-    public ResponseEntity<List<PipeDto>> getAllPipes() {
+    public ResponseEntity<List<?>> getAllPipes(
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
+    ) {
         log.info("Retrieving all pipes");
-        return ResponseEntity.ok(pipeService.getAllPipes());
+        return this.listResponse(fields, null, pipeService::getAllPipes);
+
+    }
 
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Stream pipes",
+            description = "Low-allocation equivalent of the list endpoints: pipes matching all given filters, ordered by id, "
+                    + "written to the response row by row")
+    public ResponseEntity<StreamingResponseBody> streamPipes(
+            @RequestParam(required = false) Pipe.PipeStatus status,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String material,
+            @RequestParam(required = false) String manufacturer,
+            @RequestParam(required = false) String batchNumber
+    ) {
+        log.info("Streaming pipes: status={}, location={}, material={}, manufacturer={}, batch={}",
+                status, location, material, manufacturer, batchNumber);
+        StreamingResponseBody body = out -> pipeJsonStreamer.stream(status, location, material, manufacturer, batchNumber, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream pipe changes",
+            description = "Server-Sent Events feed of committed pipe creates, updates, deletes and imports; supports Last-Event-ID resume")
+    public SseEmitter streamChanges(
+            @Parameter(description = "Only changes of pipes in this status") @RequestParam(required = false) Pipe.PipeStatus status,
+            @Parameter(description = "Only changes of pipes at this location") @RequestParam(required = false) String location,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId
+    ) {
+        log.info("Opening pipe change stream, status: {}, location: {}, last event: {}", status, location, lastEventId);
+        return pipeChangeFeed.subscribe(status, location, lastEventId);
+    }
+
+    @GetMapping("/sync")
+    @Operation(summary = "Delta sync",
+            description = "Pipes changed and deleted after the given change sequence number, with the new high-water mark; "
+                    + "resyncRequired asks for a full download when the number is older than the tombstone retention")
+    public ResponseEntity<PipeSyncResponseDto> getChangesSince(
+            @Parameter(description = "High-water mark from the previous sync, 0 for a full download")
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit
+    ) {
+        log.info("Delta sync since: {}, limit: {}", since, limit);
+        return ResponseEntity.ok(pipeService.getChangesSince(since, limit));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get pipe by ID", description = "Retrieve a specific pipe by its ID")
-    public ResponseEntity<PipeDto> getPipeById(@PathVariable Long id) {
+    public ResponseEntity<Object> getPipeById(
+            @PathVariable Long id,
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
+    ) {
         log.info("Retrieving pipe with ID: {}", id);
-        Optional<PipeDto> pipe = pipeService.getPipeById(id);
-        return pipe.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        return this.singleResponse(fields, PipeSpecifications.hasId(id), () -> pipeService.getPipeById(id));
 
     }
 
     @GetMapping("/number/{pipeNumber}")
     @Operation(summary = "Get pipe by number", description = "Retrieve a specific pipe by its pipe number")
-    public ResponseEntity<PipeDto> getPipeByNumber(@PathVariable String pipeNumber) {
+    public ResponseEntity<Object> getPipeByNumber(
+            @PathVariable String pipeNumber,
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
+    ) {
         log.info("Retrieving pipe with number: {}", pipeNumber);
-        Optional<PipeDto> pipe = pipeService.getPipeByNumber(pipeNumber);
-        return pipe.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        return this.singleResponse(fields, PipeSpecifications.hasPipeNumber(pipeNumber),
+                () -> pipeService.getPipeByNumber(pipeNumber));
 
     }
 
+    @PostMapping("/lookup")
+    @Operation(summary = "Look up many pipes",
+            description = "Resolve a list of ids and/or pipe numbers in one request; returns found pipes and missing keys in request order")
+    public ResponseEntity<PipeLookupResponseDto> lookupPipes(@RequestBody PipeLookupRequestDto request) {
+        log.info("Looking up pipes: {} ids, {} pipe numbers",
+                request.getIds() == null ? 0 : request.getIds().size(),
+                request.getPipeNumbers() == null ? 0 : request.getPipeNumbers().size());
+        return ResponseEntity.ok(pipeService.lookupPipes(request));
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update pipe", description = "Update an existing pipe")
     public ResponseEntity<PipeDto> updatePipe(@PathVariable Long id, @RequestBody PipeDto pipeDto) {
@@ -116,47 +222,125 @@ public class PipeController {
 
     @GetMapping("/status/{status}")
     @Operation(summary = "Get pipes by status", description = "Retrieve pipes filtered by status")
-    public ResponseEntity<List<PipeDto>> getPipesByStatus(@PathVariable Pipe.PipeStatus status) {
+    public ResponseEntity<List<?>> getPipesByStatus(
+            @PathVariable Pipe.PipeStatus status,
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
+    ) {
         log.info("Retrieving pipes with status: {}", status);
-        return ResponseEntity.ok(pipeService.getPipesByStatus(status));
+        return this.listResponse(fields, PipeSpecifications.hasStatus(status),
+                () -> pipeService.getPipesByStatus(status));
     }
 
     @GetMapping("/material/{material}")
     @Operation(summary = "Get pipes by material", description = "Retrieve pipes filtered by material")
-    public ResponseEntity<List<PipeDto>> getPipesByMaterial(@PathVariable String material) {
+    public ResponseEntity<List<?>> getPipesByMaterial(
+            @PathVariable String material,
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
+    ) {
         log.info("Retrieving pipes with material: {}", material);
-        return ResponseEntity.ok(pipeService.getPipesByMaterial(material));
+        return this.listResponse(fields, PipeSpecifications.hasMaterial(material),
+                () -> pipeService.getPipesByMaterial(material));
     }
 
     @GetMapping("/location/{location}")
     @Operation(summary = "Get pipes by location", description = "Retrieve pipes filtered by location")
-    public ResponseEntity<List<PipeDto>> getPipesByLocation(@PathVariable String location) {
+    public ResponseEntity<List<?>> getPipesByLocation(
+            @PathVariable String location,
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
+    ) {
         log.info("Retrieving pipes at location: {}", location);
-        return ResponseEntity.ok(pipeService.getPipesByLocation(location));
+        return this.listResponse(fields, PipeSpecifications.hasLocation(location),
+                () -> pipeService.getPipesByLocation(location));
     }
 
     @GetMapping("/manufacturer/{manufacturer}")
     @Operation(summary = "Get pipes by manufacturer", description = "Retrieve pipes filtered by manufacturer")
-    public ResponseEntity<List<PipeDto>> getPipesByManufacturer(@PathVariable String manufacturer) {
+    public ResponseEntity<List<?>> getPipesByManufacturer(
+            @PathVariable String manufacturer,
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
+    ) {
         log.info("Retrieving pipes from manufacturer: {}", manufacturer);
-        return ResponseEntity.ok(pipeService.getPipesByManufacturer(manufacturer));
+        return this.listResponse(fields, PipeSpecifications.hasManufacturer(manufacturer),
+                () -> pipeService.getPipesByManufacturer(manufacturer));
     }
 
     @GetMapping("/diameter-range")
     @Operation(summary = "Get pipes by diameter range", description = "Retrieve pipes within specified diameter range")
-    public ResponseEntity<List<PipeDto>> getPipesByDiameterRange(
-            @RequestParam Double minDiameter,
-            @RequestParam Double maxDiameter
+    public ResponseEntity<List<?>> getPipesByDiameterRange(
+            @RequestParam BigDecimal minDiameter,
+            @RequestParam BigDecimal maxDiameter,
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
     ) {
         log.info("Retrieving pipes with diameter range: {} - {}", minDiameter, maxDiameter);
-        return ResponseEntity.ok(pipeService.getPipesByDiameterRange(minDiameter, maxDiameter));
+        return this.listResponse(fields, PipeSpecifications.diameterBetween(minDiameter, maxDiameter),
+                () -> pipeService.getPipesByDiameterRange(minDiameter, maxDiameter));
+    }
+
+    @GetMapping("/range")
+    @Operation(summary = "Get pipes by measurement ranges",
+            description = "Retrieve pipes matching all given inclusive bounds on diameter, pressure rating and wall thickness; "
+                    + "at least one bound is required")
+    public ResponseEntity<List<?>> getPipesByRanges(
+            @RequestParam(required = false) BigDecimal minDiameter,
+            @RequestParam(required = false) BigDecimal maxDiameter,
+            @RequestParam(required = false) BigDecimal minPressureRating,
+            @RequestParam(required = false) BigDecimal maxPressureRating,
+            @RequestParam(required = false) BigDecimal minWallThickness,
+            @RequestParam(required = false) BigDecimal maxWallThickness,
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
+    ) {
+        log.info("Retrieving pipes with diameter {} - {}, pressure rating {} - {}, wall thickness {} - {}",
+                minDiameter, maxDiameter, minPressureRating, maxPressureRating, minWallThickness, maxWallThickness);
+        if (Stream.of(minDiameter, maxDiameter, minPressureRating, maxPressureRating, minWallThickness, maxWallThickness)
+                .allMatch(Objects::isNull)) {
+            // Without a bound this would read the whole table into one response
+            throw new IllegalArgumentException("At least one range bound is required");
+        }
+        Specification<Pipe> specification = PipeSpecifications.measurementRanges(
+                minDiameter, maxDiameter, minPressureRating, maxPressureRating, minWallThickness, maxWallThickness);
+        return this.listResponse(fields, specification, () -> pipeService.getPipes(specification));
     }
 
     @GetMapping("/batch/{batchNumber}")
     @Operation(summary = "Get pipes by batch number", description = "Retrieve pipes from specific batch")
-    public ResponseEntity<List<PipeDto>> getPipesByBatch(@PathVariable String batchNumber) {
+    public ResponseEntity<List<?>> getPipesByBatch(
+            @PathVariable String batchNumber,
+            @Parameter(description = FIELDS_DESCRIPTION) @RequestParam(required = false) String fields
+    ) {
         log.info("Retrieving pipes from batch: {}", batchNumber);
-        return ResponseEntity.ok(pipeService.getPipesByBatch(batchNumber));
+        return this.listResponse(fields, PipeSpecifications.hasBatchNumber(batchNumber),
+                () -> pipeService.getPipesByBatch(batchNumber));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Full-text search",
+            description = "Rank pipes by words in remarks, material, manufacturer and coating type; Russian and English are stemmed")
+    public ResponseEntity<PipeSearchResponseDto> searchPipes(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        log.info("Searching pipes for: {}", q);
+        return ResponseEntity.ok(pipeService.searchPipes(q, page, size));
+    }
+
+    @GetMapping("/suggest/number")
+    @Operation(summary = "Suggest pipe numbers", description = "Pipe numbers starting with the prefix, in lexicographic order")
+    public ResponseEntity<List<PipeSuggestionDto>> suggestPipeNumbers(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(pipeSuggestionIndex.suggestPipeNumbers(prefix, this.checkSuggestLimit(limit)));
+    }
+
+    @GetMapping("/suggest/batch")
+    @Operation(summary = "Suggest batch numbers",
+            description = "Batch numbers starting with the prefix, in lexicographic order, with their pipe counts")
+    public ResponseEntity<List<PipeSuggestionDto>> suggestBatchNumbers(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(pipeSuggestionIndex.suggestBatchNumbers(prefix, this.checkSuggestLimit(limit)));
     }
 
     @GetMapping("/count/status/{status}")
@@ -173,6 +357,37 @@ public class PipeController {
         return ResponseEntity.ok(pipeService.pipeNumberExists(pipeNumber));
     }
 
+    private int checkSuggestLimit(int limit) {
+        if (limit < 1 || limit > suggestMaxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + suggestMaxLimit);
+        }
+        return limit;
+    }
+
+    /**
+     * Serve a list read either as full DTOs or, when {@code fields} is given, as a projection of just those columns.
+     */
+    private ResponseEntity<List<?>> listResponse(
+            String fields, Specification<Pipe> specification, Supplier<List<PipeDto>> fullRead
+    ) {
+        if (fields == null) {
+            return ResponseEntity.ok(fullRead.get());
+        }
+        return ResponseEntity.ok(pipeService.getPipeFields(specification, PipeField.parse(fields)));
+    }
+
+    private ResponseEntity<Object> singleResponse(
+            String fields, Specification<Pipe> specification, Supplier<Optional<PipeDto>> fullRead
+    ) {
+        Optional<?> pipe = fields == null
+                ? fullRead.get()
+                : pipeService.getPipeFields(specification, PipeField.parse(fields)).stream().findFirst();
+        if (pipe.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(pipe.get());
+    }
+
     private boolean isValidExcelFile(MultipartFile file) {
         String contentType = file.getContentType();
         return contentType != null && (
@@ -0,0 +1,114 @@
+package kz.nu.pipeline.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import kz.nu.pipeline.dto.PipeDistanceDto;
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.index.PipeSpatialIndex;
+import kz.nu.pipeline.service.PipeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/pipe/geo")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Pipe Geo", description = "Spatial queries over pipe coordinates")
+public class PipeSpatialController {
+
+    private final PipeSpatialIndex pipeSpatialIndex;
+    private final PipeService pipeService;
+
+    @Value("${app.pipe.spatial.max-results:1000}")
+    private int maxResults;
+
+    @GetMapping("/radius")
+    @Operation(summary = "Pipes within a radius", description = "Pipes within the given distance of a point, nearest first")
+    public ResponseEntity<List<PipeDistanceDto>> getPipesWithinRadius(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @Parameter(description = "Search radius in meters") @RequestParam double radius,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        validatePoint(lat, lon);
+        if (radius < 0) {
+            throw new IllegalArgumentException("radius must not be negative");
+        }
+        log.info("Retrieving pipes within {} m of {}, {}", radius, lat, lon);
+        return ResponseEntity.ok(this.withPipes(pipeSpatialIndex.withinRadius(lat, lon, radius, this.checkLimit(limit))));
+    }
+
+    @GetMapping("/bbox")
+    @Operation(summary = "Pipes within a bounding box",
+            description = "Pipes inside the box, ordered by id; minLon greater than maxLon crosses the antimeridian")
+    public ResponseEntity<List<PipeDto>> getPipesWithinBox(
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        validatePoint(minLat, minLon);
+        validatePoint(maxLat, maxLon);
+        if (minLat > maxLat) {
+            throw new IllegalArgumentException("minLat must not be greater than maxLat");
+        }
+        log.info("Retrieving pipes within box {}, {} - {}, {}", minLat, minLon, maxLat, maxLon);
+        List<Long> ids = pipeSpatialIndex.withinBox(minLat, minLon, maxLat, maxLon, this.checkLimit(limit)).stream()
+                .map(PipeSpatialIndex.Hit::id)
+                .toList();
+        return ResponseEntity.ok(pipeService.getPipesByIds(ids));
+    }
+
+    @GetMapping("/nearest")
+    @Operation(summary = "Nearest pipes", description = "The k pipes nearest to a point, nearest first")
+    public ResponseEntity<List<PipeDistanceDto>> getNearestPipes(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "10") int k
+    ) {
+        validatePoint(lat, lon);
+        log.info("Retrieving {} pipes nearest to {}, {}", k, lat, lon);
+        return ResponseEntity.ok(this.withPipes(pipeSpatialIndex.nearest(lat, lon, this.checkLimit(k))));
+    }
+
+    private List<PipeDistanceDto> withPipes(List<PipeSpatialIndex.Hit> hits) {
+        Map<Long, PipeDto> pipesById = pipeService.getPipesByIds(hits.stream().map(PipeSpatialIndex.Hit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(PipeDto::getId, Function.identity()));
+        List<PipeDistanceDto> result = new ArrayList<>(hits.size());
+        for (PipeSpatialIndex.Hit hit : hits) {
+            PipeDto pipe = pipesById.get(hit.id());
+            if (pipe != null) {
+                result.add(new PipeDistanceDto(pipe, hit.distanceMeters()));
+            }
+        }
+        return result;
+    }
+
+    private int checkLimit(int limit) {
+        if (limit < 1 || limit > maxResults) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxResults);
+        }
+        return limit;
+    }
+
+    private static void validatePoint(double lat, double lon) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            throw new IllegalArgumentException("Coordinates out of range: " + lat + ", " + lon);
+        }
+    }
+}
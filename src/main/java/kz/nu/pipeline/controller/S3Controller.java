@@ -7,21 +7,46 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import kz.nu.pipeline.dto.FileBatchRequestDto;
+import kz.nu.pipeline.dto.FileBatchResultDto;
+import kz.nu.pipeline.dto.PresignedUploadRequestDto;
+import kz.nu.pipeline.dto.PresignedUrlDto;
+import kz.nu.pipeline.dto.StoredFileDto;
+import kz.nu.pipeline.model.User;
+import kz.nu.pipeline.service.PhotoService;
+import kz.nu.pipeline.service.S3BatchService;
+import kz.nu.pipeline.service.S3ObjectCache;
 import kz.nu.pipeline.service.S3Service;
+import kz.nu.pipeline.service.StreamingMultipartReader;
+import kz.nu.pipeline.storage.ObjectContent;
+import kz.nu.pipeline.storage.ObjectMetadata;
+import kz.nu.pipeline.storage.ObjectNotFoundException;
+import kz.nu.pipeline.storage.StorageException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/files")
@@ -31,32 +56,45 @@ import java.util.Map;
 public class S3Controller {
 
     private final S3Service s3Service;
+    private final S3ObjectCache s3ObjectCache;
+    private final PhotoService photoService;
+    private final S3BatchService s3BatchService;
 
-    @Operation(summary = "Upload a file to S3", description = "Upload a file to AWS S3 bucket using multipart/form-data")
+    @Operation(summary = "Upload a file to S3", description = "Upload a file to AWS S3 bucket using multipart/form-data. "
+            + "The request thread is released while the file is sent to S3")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "File uploaded successfully",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Map.class))),
             @ApiResponse(responseCode = "400", description = "Bad request - invalid file or empty file"),
-            @ApiResponse(responseCode = "500", description = "Internal server error - S3 upload failed")
+            @ApiResponse(responseCode = "500", description = "Internal server error - S3 upload failed"),
+            @ApiResponse(responseCode = "503", description = "Too many transfers in progress")
     })
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, Object>> uploadFile(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> uploadFile(
             @Parameter(description = "File to upload", required = true)
             @RequestParam("file") MultipartFile file
     ) {
-        try {
-            log.info("Received file upload request. Filename: {}, Size: {} bytes",
-                    file.getOriginalFilename(), file.getSize());
+        log.info("Received file upload request. Filename: {}, Size: {} bytes",
+                file.getOriginalFilename(), file.getSize());
 
-            if (file.isEmpty()) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("success", false);
-                errorResponse.put("message", "File cannot be empty");
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
+        if (file.isEmpty()) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "File cannot be empty");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        }
 
-            String filename = s3Service.uploadFile(file);
+        CompletableFuture<String> upload;
+        try {
+            upload = s3Service.uploadFileAsync(file);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(this.uploadFailure(e));
+        }
+        return upload.handle((filename, error) -> {
+            if (error != null) {
+                return this.uploadFailure(unwrap(error));
+            }
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -68,66 +106,359 @@ public class S3Controller {
 
             log.info("File uploaded successfully. S3 Key: {}", filename);
             return ResponseEntity.ok(response);
-        } catch (IllegalArgumentException e) {
+        });
+    }
+
+    private ResponseEntity<Map<String, Object>> uploadFailure(Throwable e) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        if (e instanceof IllegalArgumentException) {
             log.error("Invalid file upload request: {}", e.getMessage());
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("success", false);
             errorResponse.put("message", e.getMessage());
             return ResponseEntity.badRequest().body(errorResponse);
-        } catch (IOException e) {
+        }
+        if (e instanceof StorageException storageException && storageException.getStatusCode() == 503) {
+            log.warn("File upload refused: {}", e.getMessage());
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+        }
+        if (e instanceof IOException) {
             log.error("IO error during file upload: {}", e.getMessage(), e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("success", false);
             errorResponse.put("message", "Failed to process file: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+        log.error("Unexpected error during file upload: {}", e.getMessage(), e);
+        errorResponse.put("message", "Failed to upload file: " + e.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+    }
 
+    @Operation(summary = "Upload a file to S3 as a stream",
+            description = "Upload a file using multipart/form-data like /upload, but pipe the file part straight "
+                    + "to S3 as it arrives instead of buffering the whole request first. The file part must be named 'file'")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File uploaded successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request - not multipart, no file part or broken stream"),
+            @ApiResponse(responseCode = "413", description = "File too large"),
+            @ApiResponse(responseCode = "500", description = "Internal server error - S3 upload failed")
+    })
+    @PostMapping(value = "/upload/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> uploadFileStream(HttpServletRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            StreamingMultipartReader reader = new StreamingMultipartReader(
+                    request.getInputStream(), StreamingMultipartReader.boundary(request.getContentType()));
+            for (StreamingMultipartReader.Part part = reader.nextPart(); part != null; part = reader.nextPart()) {
+                if (!"file".equals(part.name()) || part.filename() == null) {
+                    continue;
+                }
+                log.info("Received streaming file upload request. Filename: {}, Content-Length: {}",
+                        part.filename(), request.getContentLengthLong());
+                String filename = s3Service.uploadStream(part, part.filename(), part.contentType(), request.getContentLengthLong());
+
+                response.put("success", true);
+                response.put("message", "File uploaded successfully");
+                response.put("filename", filename);
+                response.put("originalFilename", part.filename());
+                response.put("size", part.bytesRead());
+                response.put("contentType", part.contentType());
+                log.info("File uploaded successfully. S3 Key: {}", filename);
+                return ResponseEntity.ok(response);
+            }
+            response.put("success", false);
+            response.put("message", "Request has no file part named 'file'");
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid streaming upload request: {}", e.getMessage());
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (ResponseStatusException e) {
+            response.put("success", false);
+            response.put("message", e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(response);
+        } catch (IOException e) {
+            log.error("IO error during streaming upload: {}", e.getMessage());
+            response.put("success", false);
+            response.put("message", "Failed to read file: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
-            log.error("Unexpected error during file upload: {}", e.getMessage(), e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("success", false);
-            errorResponse.put("message", "Failed to upload file: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            log.error("Unexpected error during streaming upload: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "Failed to upload file: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
 
-    @Operation(summary = "Download a file from S3", description = "Download a file from AWS S3 bucket by filename")
+    @Operation(summary = "Download a file from S3",
+            description = "Download a file from AWS S3 bucket by filename, or a downscaled variant of an image. "
+                    + "Supports a single byte Range and conditional requests with If-None-Match / If-Modified-Since")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "File downloaded successfully",
                     content = @Content(mediaType = "application/octet-stream")),
+            @ApiResponse(responseCode = "206", description = "Requested range of the file"),
+            @ApiResponse(responseCode = "304", description = "File not modified since the client copy"),
+            @ApiResponse(responseCode = "400", description = "Unknown size variant"),
             @ApiResponse(responseCode = "404", description = "File not found"),
-            @ApiResponse(responseCode = "500", description = "Internal server error - S3 download failed")
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable"),
+            @ApiResponse(responseCode = "500", description = "Internal server error - S3 download failed"),
+            @ApiResponse(responseCode = "503", description = "Too many transfers in progress")
     })
     @GetMapping("/download/{filename}")
-    public ResponseEntity<InputStreamResource> downloadFile(
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> downloadFile(
             @Parameter(description = "Name of the file to download", required = true)
-            @PathVariable String filename
+            @PathVariable String filename,
+            @Parameter(description = "Image size variant: thumbnail, medium or original (default). "
+                    + "Falls back to the original while the variant is being generated")
+            @RequestParam(required = false) String size,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince
     ) {
+        log.info("Received file download request. Filename: {}, Size: {}, Range: {}", filename, size, range);
+
+        String key;
         try {
-            log.info("Received file download request. Filename: {}", filename);
+            key = size == null ? filename : photoService.variantKey(filename, size);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
 
-            if (!s3Service.fileExists(filename)) {
-                log.warn("File not found: {}", filename);
-                return ResponseEntity.notFound().build();
+        Optional<S3ObjectCache.CachedObject> cached;
+        try {
+            cached = s3ObjectCache.get(key);
+        } catch (ObjectNotFoundException e) {
+            log.warn("File not found: {}", key);
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            log.warn("Disk cache unavailable for {}, reading from S3: {}", key, e.getMessage());
+            cached = Optional.empty();
+        }
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(
+                    this.serveCached(key, cached.get(), range, ifNoneMatch, ifModifiedSince));
+        }
+
+        CompletableFuture<ObjectContent> download;
+        try {
+            download = s3Service.downloadFileAsync(key, singleByteRange(range), ifNoneMatch, parseHttpDate(ifModifiedSince));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(this.downloadFailure(key, e));
+        }
+        CompletableFuture<ResponseEntity<StreamingResponseBody>> response = download.handle((object, error) -> error != null
+                ? this.downloadFailure(key, unwrap(error))
+                : this.streamed(key, object));
+        // Spring cancels the returned future when the async request times out: give up the download as well,
+        // and drop content that was already opened, as its body will never be written
+        response.whenComplete((entity, error) -> {
+            if (response.isCancelled() && !download.cancel(false)) {
+                download.thenAccept(ObjectContent::abort);
             }
+        });
+        return response;
+    }
 
-            InputStream fileStream = s3Service.downloadFile(filename);
-            InputStreamResource resource = new InputStreamResource(fileStream);
+    /**
+     * Stream an opened object to the client. The body is copied on an async thread; the content is closed
+     * when it is written, or aborted if the client goes away.
+     */
+    private ResponseEntity<StreamingResponseBody> streamed(String key, ObjectContent object) {
+        ObjectMetadata metadata = object.metadata();
+        HttpHeaders headers = downloadHeaders(key, metadata.contentType(), metadata.eTag(), metadata.lastModified());
+        if (object.contentLength() >= 0) {
+            headers.setContentLength(object.contentLength());
+        }
+        if (object.contentRange() != null) {
+            headers.add(HttpHeaders.CONTENT_RANGE, object.contentRange());
+        }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
-            headers.add(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate");
-            headers.add(HttpHeaders.PRAGMA, "no-cache");
-            headers.add(HttpHeaders.EXPIRES, "0");
+        StreamingResponseBody body = outputStream -> {
+            try (object) {
+                object.transferTo(outputStream);
+            } catch (IOException e) {
+                // The client went away: drop the connection instead of draining the rest of the object
+                object.abort();
+                throw e;
+            }
+        };
+        return ResponseEntity.status(object.contentRange() != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .headers(headers)
+                .body(body);
+    }
 
-            log.info("File download initiated successfully. Filename: {}", filename);
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
+    private ResponseEntity<StreamingResponseBody> downloadFailure(String key, Throwable e) {
+        if (e instanceof ObjectNotFoundException) {
+            log.warn("File not found: {}", key);
+            return ResponseEntity.notFound().build();
+        }
+        if (e instanceof StorageException storageException) {
+            HttpStatus status = HttpStatus.resolve(storageException.getStatusCode());
+            if (status == HttpStatus.NOT_MODIFIED || status == HttpStatus.PRECONDITION_FAILED
+                    || status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE || status == HttpStatus.SERVICE_UNAVAILABLE) {
+                ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+                if (storageException.getETag() != null) {
+                    response.eTag(storageException.getETag());
+                }
+                if (status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE && storageException.getObjectSize() >= 0) {
+                    response.header(HttpHeaders.CONTENT_RANGE, "bytes */" + storageException.getObjectSize());
+                }
+                return response.build();
+            }
+        }
+        log.error("Error downloading file: {}", e.getMessage(), e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    }
 
-        } catch (Exception e) {
-            log.error("Error downloading file: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    /**
+     * Serve a file from the disk cache, answering Range and conditional requests locally.
+     * Releases the cached object once the response is written.
+     */
+    private ResponseEntity<StreamingResponseBody> serveCached(
+            String filename, S3ObjectCache.CachedObject cached, String range, String ifNoneMatch, String ifModifiedSince
+    ) {
+        HttpHeaders headers = downloadHeaders(filename, cached.contentType(), cached.eTag(), cached.lastModified());
+        if (isNotModified(cached, ifNoneMatch, parseHttpDate(ifModifiedSince))) {
+            cached.release();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        long size = cached.size();
+        long start = 0;
+        long end = size - 1;
+        List<HttpRange> ranges = List.of();
+        if (singleByteRange(range) != null) {
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                // Malformed ranges are ignored, as with S3
+            }
+        }
+        if (ranges.size() == 1) {
+            try {
+                start = ranges.get(0).getRangeStart(size);
+                end = ranges.get(0).getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                start = size;
+            }
+            if (start >= size || start > end) {
+                cached.release();
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+            headers.add(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        headers.setContentLength(end - start + 1);
+
+        long position = start;
+        long count = end - start + 1;
+        StreamingResponseBody body = outputStream -> {
+            try {
+                s3ObjectCache.transferTo(cached, position, count, outputStream);
+            } finally {
+                cached.release();
+            }
+        };
+        return ResponseEntity.status(ranges.size() == 1 ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .headers(headers)
+                .body(body);
+    }
+
+    @Operation(summary = "Upload a file by its content hash",
+            description = "Register a file whose content you have already uploaded, identified by its SHA-256, "
+                    + "so that the content is not transferred again. Requires deduplicating uploads to be enabled")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File registered without transfer"),
+            @ApiResponse(responseCode = "400", description = "Invalid hash or deduplication disabled"),
+            @ApiResponse(responseCode = "404", description = "You have no stored content with this hash - upload the file instead")
+    })
+    @PostMapping("/upload/by-hash")
+    public ResponseEntity<Map<String, Object>> uploadByHash(
+            @Parameter(description = "Hex SHA-256 of the content", required = true)
+            @RequestParam String sha256,
+            @Parameter(description = "Name of the file on the client", required = true)
+            @RequestParam String filename,
+            @RequestParam(required = false) String contentType,
+            @Parameter(hidden = true) User user
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Optional<String> stored = s3Service.uploadByHash(sha256, filename, contentType, user.getUsername());
+            if (stored.isEmpty()) {
+                response.put("success", false);
+                response.put("message", "Content not found, upload the file");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            response.put("success", true);
+            response.put("message", "File uploaded successfully");
+            response.put("filename", stored.get());
+            response.put("originalFilename", filename);
+            response.put("deduplicated", true);
+            log.info("File registered by hash. S3 Key: {}", stored.get());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @Operation(summary = "Get a presigned upload URL",
+            description = "Issue a short-lived URL to PUT one file straight to S3 with the given content type and size. "
+                    + "Call the complete endpoint afterwards to register the file")
+    @PostMapping("/presign/upload")
+    public ResponseEntity<PresignedUrlDto> presignUpload(
+            @RequestBody PresignedUploadRequestDto request,
+            @Parameter(hidden = true) User user
+    ) {
+        log.info("Presigning upload. Filename: {}, Size: {} bytes", request.getFilename(), request.getSize());
+        return ResponseEntity.ok(s3Service.presignUpload(request, user.getUsername()));
+    }
+
+    @Operation(summary = "Complete a presigned upload",
+            description = "Register a file uploaded through a presigned URL once it is in S3")
+    @PostMapping("/presign/complete/{filename}")
+    public ResponseEntity<StoredFileDto> completeUpload(
+            @Parameter(description = "Filename returned with the presigned upload URL", required = true)
+            @PathVariable String filename,
+            @Parameter(hidden = true) User user
+    ) {
+        return ResponseEntity.ok(s3Service.completeUpload(filename, user.getUsername()));
+    }
+
+    @Operation(summary = "Get a presigned download URL",
+            description = "Issue a short-lived URL to GET a file straight from S3")
+    @GetMapping("/presign/download/{filename}")
+    public ResponseEntity<PresignedUrlDto> presignDownload(
+            @Parameter(description = "Name of the file to download", required = true)
+            @PathVariable String filename
+    ) {
+        return ResponseEntity.ok(s3Service.presignDownload(filename));
+    }
+
+    @Operation(summary = "Check if files exist",
+            description = "Check up to app.aws.s3.batch.max-keys files at once, with concurrent HEAD requests")
+    @PostMapping("/batch/exists")
+    public ResponseEntity<List<FileBatchResultDto>> checkFilesExist(@RequestBody FileBatchRequestDto request) {
+        try {
+            log.info("Checking existence of {} files", request.getFilenames() != null ? request.getFilenames().size() : 0);
+            return ResponseEntity.ok(s3BatchService.filesExist(request.getFilenames()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Delete files",
+            description = "Delete up to app.aws.s3.batch.max-keys files at once with S3 multi-object delete, "
+                    + "including the derivatives of photos. Deleting a missing file succeeds")
+    @PostMapping("/batch/delete")
+    public ResponseEntity<List<FileBatchResultDto>> deleteFiles(@RequestBody FileBatchRequestDto request) {
+        try {
+            log.info("Received batch deletion request for {} files", request.getFilenames() != null ? request.getFilenames().size() : 0);
+            return ResponseEntity.ok(s3BatchService.deleteFiles(request.getFilenames()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
     }
 
@@ -188,6 +519,8 @@ public class S3Controller {
             }
 
             s3Service.deleteFile(filename);
+            s3ObjectCache.invalidate(filename);
+            photoService.deleteDerivatives(filename).forEach(s3ObjectCache::invalidate);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -196,6 +529,12 @@ public class S3Controller {
 
             log.info("File deleted successfully. Filename: {}", filename);
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid file deletion request: {}", e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             log.error("Error deleting file: {}", e.getMessage(), e);
             Map<String, Object> errorResponse = new HashMap<>();
@@ -204,4 +543,67 @@ public class S3Controller {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * S3 serves one range per request; anything else is ignored and the whole file is returned.
+     */
+    private static String singleByteRange(String range) {
+        if (range == null || !range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        return range;
+    }
+
+    private static Instant parseHttpDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static HttpHeaders downloadHeaders(String filename, String contentType, String eTag, Instant lastModified) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        headers.setContentType(Optional.ofNullable(contentType)
+                .map(MediaType::parseMediaType)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM));
+        if (eTag != null) {
+            headers.setETag(eTag);
+        }
+        if (lastModified != null) {
+            headers.setLastModified(lastModified);
+        }
+        return headers;
+    }
+
+    /**
+     * If-None-Match takes precedence over If-Modified-Since, as in RFC 9110.
+     */
+    private static boolean isNotModified(S3ObjectCache.CachedObject cached, String ifNoneMatch, Instant ifModifiedSince) {
+        if (ifNoneMatch != null) {
+            if (cached.eTag() == null) {
+                return false;
+            }
+            String eTag = cached.eTag().replaceFirst("^W/", "");
+            for (String candidate : ifNoneMatch.split(",")) {
+                String trimmed = candidate.trim();
+                if (trimmed.equals("*") || trimmed.replaceFirst("^W/", "").equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return ifModifiedSince != null && cached.lastModified() != null
+                && cached.lastModified().getEpochSecond() <= ifModifiedSince.getEpochSecond();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,15 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileBatchRequestDto {
+
+    private List<String> filenames;
+}
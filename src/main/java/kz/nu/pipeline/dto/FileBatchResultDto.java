@@ -0,0 +1,30 @@
+package kz.nu.pipeline.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FileBatchResultDto {
+
+    private String filename;
+    private Boolean exists;
+    private Boolean deleted;
+    private String error;
+
+    public static FileBatchResultDto exists(String filename, boolean exists) {
+        return new FileBatchResultDto(filename, exists, null, null);
+    }
+
+    public static FileBatchResultDto deleted(String filename) {
+        return new FileBatchResultDto(filename, null, true, null);
+    }
+
+    public static FileBatchResultDto failure(String filename, String error) {
+        return new FileBatchResultDto(filename, null, null, error);
+    }
+}
@@ -0,0 +1,23 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeBulkOperationDto {
+
+    private OperationType type;
+    /** Target pipe for UPDATE and DELETE. */
+    private Long id;
+    /** Pipe data for CREATE and UPDATE. */
+    private PipeDto pipe;
+
+    public enum OperationType {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+}
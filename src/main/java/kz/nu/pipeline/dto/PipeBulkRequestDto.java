@@ -0,0 +1,20 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeBulkRequestDto {
+
+    /**
+     * When true, all operations are applied in one transaction and any failure rolls everything back.
+     * Otherwise each chunk commits on its own and every operation gets its own outcome.
+     */
+    private boolean atomic;
+    private List<PipeBulkOperationDto> operations;
+}
@@ -0,0 +1,24 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeBulkResponseDto {
+
+    private int total;
+    private int succeeded;
+    private int failed;
+    /** One result per requested operation, in request order. */
+    private List<PipeBulkResultDto> results;
+
+    public static PipeBulkResponseDto of(List<PipeBulkResultDto> results) {
+        int succeeded = (int) results.stream().filter(PipeBulkResultDto::isSuccess).count();
+        return new PipeBulkResponseDto(results.size(), succeeded, results.size() - succeeded, results);
+    }
+}
@@ -0,0 +1,28 @@
+package kz.nu.pipeline.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PipeBulkResultDto {
+
+    private int index;
+    private PipeBulkOperationDto.OperationType type;
+    private Long id;
+    private boolean success;
+    private String error;
+    private PipeDto pipe;
+
+    public static PipeBulkResultDto success(int index, PipeBulkOperationDto.OperationType type, Long id, PipeDto pipe) {
+        return new PipeBulkResultDto(index, type, id, true, null, pipe);
+    }
+
+    public static PipeBulkResultDto failure(int index, PipeBulkOperationDto.OperationType type, Long id, String error) {
+        return new PipeBulkResultDto(index, type, id, false, error, null);
+    }
+}
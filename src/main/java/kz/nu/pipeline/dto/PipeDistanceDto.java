@@ -0,0 +1,15 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeDistanceDto {
+
+    private PipeDto pipe;
+    /** Great-circle distance from the query point. */
+    private double distanceMeters;
+}
@@ -1,11 +1,11 @@
 package kz.nu.pipeline.dto;
 
+import io.swagger.v3.oas.annotations.media.Schema;
 import kz.nu.pipeline.model.Pipe;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDate;
-import java.math.BigDecimal;
 
 @Data
 @NoArgsConstructor
@@ -14,21 +14,33 @@ public class PipeDto {
     
     private Long id;
     private String pipeNumber;
-    private BigDecimal diameter;
-    private BigDecimal length;
-    private BigDecimal wallThickness;
+    @Scaled(Pipe.DIAMETER_SCALE)
+    @Schema(type = "number")
+    private Long diameter;
+    @Scaled(Pipe.LENGTH_SCALE)
+    @Schema(type = "number")
+    private Long length;
+    @Scaled(Pipe.WALL_THICKNESS_SCALE)
+    @Schema(type = "number")
+    private Long wallThickness;
     private String material;
     private String grade;
     private String manufacturer;
     private LocalDate productionDate;
-    private BigDecimal weight;
+    @Scaled(Pipe.WEIGHT_SCALE)
+    @Schema(type = "number")
+    private Long weight;
     private String location;
     private Pipe.PipeStatus status;
     private String remarks;
     private String batchNumber;
     private String qualityClass;
     private String coatingType;
-    private BigDecimal pressureRating;
+    @Scaled(Pipe.PRESSURE_RATING_SCALE)
+    @Schema(type = "number")
+    private Long pressureRating;
     private LocalDate createdDate;
     private LocalDate updatedDate;
+    private Double latitude;
+    private Double longitude;
 } 
\ No newline at end of file
@@ -0,0 +1,100 @@
+package kz.nu.pipeline.dto;
+
+import kz.nu.pipeline.model.FixedPoint;
+import kz.nu.pipeline.model.Pipe;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Whitelist of pipe properties that can be requested through the {@code fields} parameter.
+ * The property name is shared by {@link PipeDto} and the {@code Pipe} entity attribute.
+ * Measurements carry the scale of their fixed-point column.
+ */
+@Getter
+public enum PipeField {
+    ID("id"),
+    PIPE_NUMBER("pipeNumber"),
+    DIAMETER("diameter", Pipe.DIAMETER_SCALE),
+    LENGTH("length", Pipe.LENGTH_SCALE),
+    WALL_THICKNESS("wallThickness", Pipe.WALL_THICKNESS_SCALE),
+    MATERIAL("material"),
+    GRADE("grade"),
+    MANUFACTURER("manufacturer"),
+    PRODUCTION_DATE("productionDate"),
+    WEIGHT("weight", Pipe.WEIGHT_SCALE),
+    LOCATION("location"),
+    STATUS("status"),
+    REMARKS("remarks"),
+    BATCH_NUMBER("batchNumber"),
+    QUALITY_CLASS("qualityClass"),
+    COATING_TYPE("coatingType"),
+    PRESSURE_RATING("pressureRating", Pipe.PRESSURE_RATING_SCALE),
+    CREATED_DATE("createdDate"),
+    UPDATED_DATE("updatedDate"),
+    LATITUDE("latitude"),
+    LONGITUDE("longitude");
+
+    private static final Map<String, PipeField> BY_PROPERTY = Arrays.stream(values())
+            .collect(Collectors.toMap(PipeField::getProperty, Function.identity()));
+
+    private static final int NOT_SCALED = -1;
+
+    private final String property;
+    private final int scale;
+
+    PipeField(String property) {
+        this(property, NOT_SCALED);
+    }
+
+    PipeField(String property, int scale) {
+        this.property = property;
+        this.scale = scale;
+    }
+
+    /**
+     * Convert an entity attribute value to its API representation; fixed-point measurements become decimals.
+     */
+    public Object toApiValue(Object value) {
+        return scale == NOT_SCALED || value == null ? value : FixedPoint.toDecimal((Long) value, scale);
+    }
+
+    /**
+     * Parse a comma separated list of property names, e.g. {@code pipeNumber,status,location}.
+     * The id is always included, so that clients can tell the returned pipes apart.
+     *
+     * @param fields the raw request parameter
+     * @return the id followed by the requested fields in request order, without duplicates
+     * @throws IllegalArgumentException if the list is empty or contains an unknown property
+     */
+    public static List<PipeField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            throw new IllegalArgumentException("fields must not be empty");
+        }
+        Set<PipeField> result = new LinkedHashSet<>();
+        result.add(ID);
+        boolean requested = false;
+        for (String name : fields.split(",")) {
+            String property = name.trim();
+            if (property.isEmpty()) {
+                continue;
+            }
+            PipeField field = BY_PROPERTY.get(property);
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown pipe field: " + property);
+            }
+            result.add(field);
+            requested = true;
+        }
+        if (!requested) {
+            throw new IllegalArgumentException("fields must not be empty");
+        }
+        return List.copyOf(result);
+    }
+}
@@ -0,0 +1,16 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeLookupRequestDto {
+
+    private List<Long> ids;
+    private List<String> pipeNumbers;
+}
@@ -0,0 +1,18 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeLookupResponseDto {
+
+    /** Pipes that were found, ids first and then pipe numbers, each in request order. */
+    private List<PipeDto> found;
+    /** Requested ids and pipe numbers that do not exist, in request order. */
+    private List<String> missing;
+}
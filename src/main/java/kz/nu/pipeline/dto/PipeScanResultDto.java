@@ -0,0 +1,32 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeScanResultDto {
+
+    private int count;
+    /** Ids of the first matching pipes, capped by the requested limit. */
+    private List<Long> ids;
+    /** Aggregates over all matching pipes, keyed by property name. */
+    private Map<String, ColumnStats> stats;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ColumnStats {
+        private int count;
+        private BigDecimal min;
+        private BigDecimal max;
+        private BigDecimal sum;
+        private BigDecimal avg;
+    }
+}
@@ -0,0 +1,14 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeSearchHitDto {
+
+    private PipeDto pipe;
+    private float score;
+}
@@ -0,0 +1,20 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeSearchResponseDto {
+
+    /** Total number of matching pipes. */
+    private long total;
+    private int page;
+    private int size;
+    /** Hits of the requested page, best match first. */
+    private List<PipeSearchHitDto> results;
+}
@@ -0,0 +1,15 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeSuggestionDto {
+
+    private String value;
+    /** Number of pipes carrying the value. */
+    private int count;
+}
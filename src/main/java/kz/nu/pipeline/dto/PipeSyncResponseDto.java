@@ -0,0 +1,30 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeSyncResponseDto {
+
+    /** Pipes created or updated after the requested sequence number, in change order. */
+    private List<PipeDto> upserted;
+    /** Pipes deleted after the requested sequence number, in change order. */
+    private List<PipeTombstoneDto> deleted;
+    /** Pass this as {@code since} on the next request. */
+    private long highWaterMark;
+    private boolean hasMore;
+    /**
+     * The requested sequence number is older than the tombstone retention window, so deletions may have been
+     * missed: discard the local copy and sync again from {@code 0}.
+     */
+    private boolean resyncRequired;
+
+    public static PipeSyncResponseDto resyncRequired() {
+        return new PipeSyncResponseDto(List.of(), List.of(), 0, false, true);
+    }
+}
@@ -0,0 +1,18 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipeTombstoneDto {
+
+    private Long pipeId;
+    private String pipeNumber;
+    private Long changeSeq;
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,16 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedUploadRequestDto {
+
+    private String filename;
+    private String contentType;
+    /** Size of the file in bytes. */
+    private long size;
+}
@@ -0,0 +1,22 @@
+package kz.nu.pipeline.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedUrlDto {
+
+    /** Object key, the filename used by the other file endpoints. */
+    private String filename;
+    private String method;
+    private String url;
+    /** Headers the client must send with the request, exactly as given. */
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
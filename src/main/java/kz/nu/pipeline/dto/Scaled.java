@@ -0,0 +1,24 @@
+package kz.nu.pipeline.dto;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code Long} property holding a fixed-point value with the given scale.
+ * It is written to and read from JSON as a plain decimal number, e.g. {@code 32550} with scale 2 as {@code 325.50}.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@JacksonAnnotationsInside
+@JsonSerialize(using = ScaledJsonSerializer.class)
+@JsonDeserialize(using = ScaledJsonDeserializer.class)
+public @interface Scaled {
+
+    int value();
+}
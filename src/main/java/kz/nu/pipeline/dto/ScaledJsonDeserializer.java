@@ -0,0 +1,52 @@
+package kz.nu.pipeline.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import kz.nu.pipeline.model.FixedPoint;
+
+import java.io.IOException;
+
+/**
+ * Reads a decimal JSON number (or numeric string) into a {@link Scaled} property, rounding half up to its scale.
+ */
+public class ScaledJsonDeserializer extends StdDeserializer<Long> implements ContextualDeserializer {
+
+    private final int scale;
+
+    public ScaledJsonDeserializer() {
+        this(0);
+    }
+
+    private ScaledJsonDeserializer(int scale) {
+        super(Long.class);
+        this.scale = scale;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext context, BeanProperty property) {
+        Scaled scaled = property == null ? null : property.getAnnotation(Scaled.class);
+        return scaled == null ? this : new ScaledJsonDeserializer(scaled.value());
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_STRING) {
+            return (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+        String text = parser.getText().trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return FixedPoint.parse(text, scale);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw context.weirdStringException(text, Long.class, "not a decimal with scale " + scale);
+        }
+    }
+}
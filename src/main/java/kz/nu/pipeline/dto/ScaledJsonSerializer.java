@@ -0,0 +1,39 @@
+package kz.nu.pipeline.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import kz.nu.pipeline.model.FixedPoint;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link Scaled} property as a JSON number without going through {@link java.math.BigDecimal}.
+ */
+public class ScaledJsonSerializer extends StdSerializer<Long> implements ContextualSerializer {
+
+    private final int scale;
+
+    public ScaledJsonSerializer() {
+        this(0);
+    }
+
+    private ScaledJsonSerializer(int scale) {
+        super(Long.class);
+        this.scale = scale;
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) {
+        Scaled scaled = property == null ? null : property.getAnnotation(Scaled.class);
+        return scaled == null ? this : new ScaledJsonSerializer(scaled.value());
+    }
+
+    @Override
+    public void serialize(Long value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeNumber(FixedPoint.format(value, scale));
+    }
+}
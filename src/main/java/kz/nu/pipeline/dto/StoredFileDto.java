@@ -0,0 +1,24 @@
+package kz.nu.pipeline.dto;
+
+import kz.nu.pipeline.model.StoredFile;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFileDto {
+
+    private Long id;
+    private String filename;
+    private String originalFilename;
+    private String contentType;
+    private Long size;
+    private String etag;
+    private String uploadedBy;
+    private StoredFile.Status status;
+    private LocalDateTime uploadedAt;
+}
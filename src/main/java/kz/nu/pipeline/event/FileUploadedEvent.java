@@ -0,0 +1,16 @@
+package kz.nu.pipeline.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code S3Service} once a file is stored in the bucket, whichever way it was uploaded.
+ */
+@Getter
+@AllArgsConstructor
+public class FileUploadedEvent {
+
+    private final String filename;
+    private final String contentType;
+    private final long size;
+}
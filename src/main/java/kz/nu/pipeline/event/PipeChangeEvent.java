@@ -0,0 +1,37 @@
+package kz.nu.pipeline.event;
+
+import kz.nu.pipeline.dto.PipeDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code PipeService} for every pipe mutation and delivered to listeners after commit.
+ */
+@Getter
+@AllArgsConstructor
+public class PipeChangeEvent {
+
+    private final ChangeType type;
+    private final Long pipeId;
+    /**
+     * State after the change. For deletes this is the last known state, which for set-based
+     * bulk deletes only carries the id.
+     */
+    private final PipeDto pipe;
+    /**
+     * State before the change, or {@code null} for creates. Lets filtering listeners notice a pipe
+     * that has just left the set they watch.
+     */
+    private final PipeDto previous;
+
+    public PipeChangeEvent(ChangeType type, Long pipeId, PipeDto pipe) {
+        this(type, pipeId, pipe, null);
+    }
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED,
+        IMPORTED
+    }
+}
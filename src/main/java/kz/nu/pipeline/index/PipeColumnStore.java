@@ -0,0 +1,361 @@
+package kz.nu.pipeline.index;
+
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.dto.PipeScanResultDto;
+import kz.nu.pipeline.event.PipeChangeEvent;
+import kz.nu.pipeline.model.FixedPoint;
+import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.repository.PipeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory columnar snapshot of the pipe inventory for ad-hoc filters and aggregates.
+ * Numeric measurements are kept as the fixed-point {@code long}s stored on {@link Pipe},
+ * dates as epoch days and strings as dictionary ids, one primitive array per column.
+ * The snapshot is loaded on startup and then follows committed {@link PipeChangeEvent}s.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.pipe.columnar", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class PipeColumnStore {
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final int NULL_STATUS = 31;
+    private static final int ANY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Rows filtered before the matches are consumed, which bounds the per-scan buffer regardless of the row count. */
+    private static final int SCAN_CHUNK = 4096;
+
+    private final PipeRepository pipeRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final Dictionary materials = new Dictionary();
+    private final Dictionary manufacturers = new Dictionary();
+    private final Dictionary locations = new Dictionary();
+
+    private int size;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] diameters = new long[INITIAL_CAPACITY];
+    private long[] wallThicknesses = new long[INITIAL_CAPACITY];
+    private long[] pressureRatings = new long[INITIAL_CAPACITY];
+    private int[] productionDays = new int[INITIAL_CAPACITY];
+    private int[] statuses = new int[INITIAL_CAPACITY];
+    private int[] materialIds = new int[INITIAL_CAPACITY];
+    private int[] manufacturerIds = new int[INITIAL_CAPACITY];
+    private int[] locationIds = new int[INITIAL_CAPACITY];
+
+    /**
+     * Rebuild the snapshot from the database. Writers are held back until the load completes,
+     * so changes committed meanwhile are applied on top of the loaded rows.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            slotById.clear();
+            size = 0;
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = pipeRepository.streamColumnarRows()) {
+                    rows.forEach(row -> this.put(
+                            (Long) row[0], (Long) row[1], (Long) row[2], (Long) row[3],
+                            (LocalDate) row[4], (Pipe.PipeStatus) row[5],
+                            (String) row[6], (String) row[7], (String) row[8]
+                    ));
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Columnar pipe snapshot loaded: {} rows in {} ms", size, System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPipeChange(PipeChangeEvent event) {
+        if (event.getType() == PipeChangeEvent.ChangeType.DELETED) {
+            this.remove(event.getPipeId());
+        } else {
+            this.upsert(event.getPipe());
+        }
+    }
+
+    public void upsert(PipeDto pipe) {
+        lock.writeLock().lock();
+        try {
+            this.put(pipe.getId(), pipe.getDiameter(), pipe.getWallThickness(), pipe.getPressureRating(),
+                    pipe.getProductionDate(), pipe.getStatus(),
+                    pipe.getMaterial(), pipe.getManufacturer(), pipe.getLocation());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            int last = --size;
+            if (slot != last) {
+                ids[slot] = ids[last];
+                diameters[slot] = diameters[last];
+                wallThicknesses[slot] = wallThicknesses[last];
+                pressureRatings[slot] = pressureRatings[last];
+                productionDays[slot] = productionDays[last];
+                statuses[slot] = statuses[last];
+                materialIds[slot] = materialIds[last];
+                manufacturerIds[slot] = manufacturerIds[last];
+                locationIds[slot] = locationIds[last];
+                slotById.put(ids[slot], slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Filter the snapshot and aggregate the numeric columns of the matching rows.
+     *
+     * @param query the filter
+     * @param limit how many matching ids to return
+     * @return match count, the first matching ids and per-column statistics
+     */
+    public PipeScanResultDto scan(PipeScanQuery query, int limit) {
+        long[] diameterBounds = bounds(query.getMinDiameter(), query.getMaxDiameter(), Pipe.DIAMETER_SCALE);
+        long[] wallThicknessBounds = bounds(query.getMinWallThickness(), query.getMaxWallThickness(),
+                Pipe.WALL_THICKNESS_SCALE);
+        long[] pressureRatingBounds = bounds(query.getMinPressureRating(), query.getMaxPressureRating(),
+                Pipe.PRESSURE_RATING_SCALE);
+        int[] dayBounds = dayBounds(query.getProducedFrom(), query.getProducedTo());
+        int statusMask = statusMask(query.getStatuses());
+
+        lock.readLock().lock();
+        try {
+            int materialId = materials.filterId(query.getMaterial());
+            int manufacturerId = manufacturers.filterId(query.getManufacturer());
+            int locationId = locations.filterId(query.getLocation());
+            if (materialId == NULL_INT || manufacturerId == NULL_INT || locationId == NULL_INT) {
+                return new PipeScanResultDto(0, List.of(), Map.of());
+            }
+
+            long dMin = diameterBounds[0], dMax = diameterBounds[1];
+            long wMin = wallThicknessBounds[0], wMax = wallThicknessBounds[1];
+            long pMin = pressureRatingBounds[0], pMax = pressureRatingBounds[1];
+            int dayMin = dayBounds[0], dayMax = dayBounds[1];
+            long[] d = diameters, w = wallThicknesses, p = pressureRatings;
+            int[] days = productionDays, st = statuses, mat = materialIds, man = manufacturerIds, loc = locationIds;
+
+            int n = size;
+            int limitIds = Math.max(limit, 0);
+            List<Long> matchedIds = new ArrayList<>(Math.min(limitIds, n));
+            ColumnStats diameterStats = new ColumnStats();
+            ColumnStats wallThicknessStats = new ColumnStats();
+            ColumnStats pressureRatingStats = new ColumnStats();
+            int[] matches = new int[Math.min(n, SCAN_CHUNK)];
+            int count = 0;
+            for (int from = 0; from < n; from += SCAN_CHUNK) {
+                int to = Math.min(from + SCAN_CHUNK, n);
+                int matched = 0;
+                // Non-short-circuit '&' keeps the loop body free of data-dependent branches
+                for (int i = from; i < to; i++) {
+                    boolean match = (d[i] >= dMin) & (d[i] <= dMax)
+                            & (w[i] >= wMin) & (w[i] <= wMax)
+                            & (p[i] >= pMin) & (p[i] <= pMax)
+                            & (days[i] >= dayMin) & (days[i] <= dayMax)
+                            & (((statusMask >>> st[i]) & 1) != 0)
+                            & ((materialId == ANY) | (mat[i] == materialId))
+                            & ((manufacturerId == ANY) | (man[i] == manufacturerId))
+                            & ((locationId == ANY) | (loc[i] == locationId));
+                    matches[matched] = i;
+                    matched += match ? 1 : 0;
+                }
+                for (int k = 0; k < matched; k++) {
+                    int i = matches[k];
+                    if (matchedIds.size() < limitIds) {
+                        matchedIds.add(ids[i]);
+                    }
+                    diameterStats.add(d[i]);
+                    wallThicknessStats.add(w[i]);
+                    pressureRatingStats.add(p[i]);
+                }
+                count += matched;
+            }
+
+            Map<String, PipeScanResultDto.ColumnStats> stats = new LinkedHashMap<>();
+            stats.put("diameter", diameterStats.toDto(Pipe.DIAMETER_SCALE));
+            stats.put("wallThickness", wallThicknessStats.toDto(Pipe.WALL_THICKNESS_SCALE));
+            stats.put("pressureRating", pressureRatingStats.toDto(Pipe.PRESSURE_RATING_SCALE));
+            return new PipeScanResultDto(count, matchedIds, stats);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(
+            Long id, Long diameter, Long wallThickness, Long pressureRating,
+            LocalDate productionDate, Pipe.PipeStatus status, String material, String manufacturer, String location
+    ) {
+        Integer slot = slotById.get(id);
+        int i;
+        if (slot == null) {
+            this.ensureCapacity(size + 1);
+            i = size++;
+            slotById.put(id, i);
+            ids[i] = id;
+        } else {
+            i = slot;
+        }
+        diameters[i] = diameter == null ? NULL_LONG : diameter;
+        wallThicknesses[i] = wallThickness == null ? NULL_LONG : wallThickness;
+        pressureRatings[i] = pressureRating == null ? NULL_LONG : pressureRating;
+        productionDays[i] = productionDate == null ? NULL_INT : (int) productionDate.toEpochDay();
+        statuses[i] = status == null ? NULL_STATUS : status.ordinal();
+        materialIds[i] = materials.encode(material);
+        manufacturerIds[i] = manufacturers.encode(manufacturer);
+        locationIds[i] = locations.encode(location);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        diameters = Arrays.copyOf(diameters, newCapacity);
+        wallThicknesses = Arrays.copyOf(wallThicknesses, newCapacity);
+        pressureRatings = Arrays.copyOf(pressureRatings, newCapacity);
+        productionDays = Arrays.copyOf(productionDays, newCapacity);
+        statuses = Arrays.copyOf(statuses, newCapacity);
+        materialIds = Arrays.copyOf(materialIds, newCapacity);
+        manufacturerIds = Arrays.copyOf(manufacturerIds, newCapacity);
+        locationIds = Arrays.copyOf(locationIds, newCapacity);
+    }
+
+    /**
+     * Inclusive fixed-point bounds. When a column is filtered at all, nulls are excluded by starting above the null marker.
+     */
+    private static long[] bounds(BigDecimal min, BigDecimal max, int scale) {
+        if (min == null && max == null) {
+            return new long[]{Long.MIN_VALUE, Long.MAX_VALUE};
+        }
+        return new long[]{
+                min == null ? NULL_LONG + 1 : FixedPoint.fromDecimal(min, scale, RoundingMode.CEILING),
+                max == null ? Long.MAX_VALUE : FixedPoint.fromDecimal(max, scale, RoundingMode.FLOOR)
+        };
+    }
+
+    private static int[] dayBounds(LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE};
+        }
+        return new int[]{
+                from == null ? NULL_INT + 1 : (int) from.toEpochDay(),
+                to == null ? Integer.MAX_VALUE : (int) to.toEpochDay()
+        };
+    }
+
+    private static int statusMask(Set<Pipe.PipeStatus> statuses) {
+        if (statuses == null || statuses.isEmpty()) {
+            return -1;
+        }
+        int mask = 0;
+        for (Pipe.PipeStatus status : statuses) {
+            mask |= 1 << status.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Running aggregate of a fixed-point column over the matching rows, skipping nulls.
+     */
+    private static class ColumnStats {
+        private int nonNull;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private long sum;
+
+        private void add(long value) {
+            if (value == NULL_LONG) {
+                return;
+            }
+            nonNull++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+
+        private PipeScanResultDto.ColumnStats toDto(int scale) {
+            if (nonNull == 0) {
+                return new PipeScanResultDto.ColumnStats(0, null, null, null, null);
+            }
+            BigDecimal total = BigDecimal.valueOf(sum, scale);
+            return new PipeScanResultDto.ColumnStats(
+                    nonNull,
+                    BigDecimal.valueOf(min, scale),
+                    BigDecimal.valueOf(max, scale),
+                    total,
+                    total.divide(BigDecimal.valueOf(nonNull), scale, RoundingMode.HALF_UP)
+            );
+        }
+    }
+
+    /**
+     * Maps the distinct values of a string column to dense ids.
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> idsByValue = new HashMap<>();
+
+        private int encode(String value) {
+            if (value == null) {
+                return NULL_INT;
+            }
+            return idsByValue.computeIfAbsent(value, v -> idsByValue.size());
+        }
+
+        /**
+         * @return {@code ANY} when not filtering, {@code NULL_INT} when the value never occurs
+         */
+        private int filterId(String value) {
+            if (value == null) {
+                return ANY;
+            }
+            return idsByValue.getOrDefault(value, NULL_INT);
+        }
+    }
+}
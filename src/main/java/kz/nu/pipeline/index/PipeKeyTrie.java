@@ -0,0 +1,135 @@
+package kz.nu.pipeline.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Character trie over pipe keys counting how many pipes carry each key.
+ * Children are kept in sorted parallel arrays, so suggestions come out in lexicographic order
+ * and a lookup visits only the prefix path plus the nodes of the returned keys.
+ * Empty branches are pruned on removal. Not thread-safe.
+ */
+class PipeKeyTrie {
+
+    private final Node root = new Node();
+    private int size;
+
+    /** A key and the number of pipes that carry it. */
+    record Entry(String key, int count) {
+    }
+
+    void add(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+        }
+        if (node.count++ == 0) {
+            size++;
+        }
+    }
+
+    void remove(String key) {
+        if (this.remove(root, key, 0)) {
+            size--;
+        }
+    }
+
+    /**
+     * @return number of distinct keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the first {@code limit} keys starting with {@code prefix}, in lexicographic order
+     */
+    List<Entry> startingWith(String prefix, int limit) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        List<Entry> entries = new ArrayList<>(Math.min(limit, 16));
+        if (node != null) {
+            collect(node, new StringBuilder(prefix), limit, entries);
+        }
+        return entries;
+    }
+
+    private static void collect(Node node, StringBuilder key, int limit, List<Entry> entries) {
+        if (node.count > 0 && entries.size() < limit) {
+            entries.add(new Entry(key.toString(), node.count));
+        }
+        for (int i = 0; i < node.size && entries.size() < limit; i++) {
+            key.append(node.keys[i]);
+            collect(node.children[i], key, limit, entries);
+            key.setLength(key.length() - 1);
+        }
+    }
+
+    /**
+     * @return whether the key lost its last pipe
+     */
+    private boolean remove(Node node, String key, int depth) {
+        if (depth == key.length()) {
+            if (node.count == 0) {
+                return false;
+            }
+            return --node.count == 0;
+        }
+        int index = node.indexOf(key.charAt(depth));
+        if (index < 0) {
+            return false;
+        }
+        Node child = node.children[index];
+        boolean removed = this.remove(child, key, depth + 1);
+        if (child.count == 0 && child.size == 0) {
+            node.removeAt(index);
+        }
+        return removed;
+    }
+
+    private static class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int size;
+        private int count;
+
+        private int indexOf(char c) {
+            return Arrays.binarySearch(keys, 0, size, c);
+        }
+
+        private Node child(char c) {
+            int index = this.indexOf(c);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node childOrCreate(char c) {
+            int index = this.indexOf(c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            if (size == keys.length) {
+                int capacity = Math.max(2, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, size - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, size - insertAt);
+            Node child = new Node();
+            keys[insertAt] = c;
+            children[insertAt] = child;
+            size++;
+            return child;
+        }
+
+        private void removeAt(int index) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(children, index + 1, children, index, size - index - 1);
+            size--;
+            children[size] = null;
+        }
+    }
+}
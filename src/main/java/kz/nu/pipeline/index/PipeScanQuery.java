@@ -0,0 +1,30 @@
+package kz.nu.pipeline.index;
+
+import kz.nu.pipeline.model.Pipe;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Filter for {@link PipeColumnStore#scan}. Every criterion is optional; bounds are inclusive.
+ */
+@Getter
+@Builder
+public class PipeScanQuery {
+
+    private final BigDecimal minDiameter;
+    private final BigDecimal maxDiameter;
+    private final BigDecimal minWallThickness;
+    private final BigDecimal maxWallThickness;
+    private final BigDecimal minPressureRating;
+    private final BigDecimal maxPressureRating;
+    private final LocalDate producedFrom;
+    private final LocalDate producedTo;
+    private final Set<Pipe.PipeStatus> statuses;
+    private final String material;
+    private final String manufacturer;
+    private final String location;
+}
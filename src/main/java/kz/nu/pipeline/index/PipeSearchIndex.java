@@ -0,0 +1,262 @@
+package kz.nu.pipeline.index;
+
+import jakarta.annotation.PreDestroy;
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.event.PipeChangeEvent;
+import kz.nu.pipeline.repository.PipeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.custom.CustomAnalyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Embedded Lucene index over the free-text pipe attributes: remarks, material, manufacturer and coating type.
+ * The text is indexed twice, with the Russian and with the English analyzer, so that both languages are stemmed;
+ * manufacturer names are also indexed as edge n-grams to match partial names.
+ * <p>
+ * Each instance keeps its index in a fresh subdirectory of {@code app.pipe.search.index-dir}, deleted on shutdown,
+ * so that several instances or application contexts on one host never open the same Lucene directory.
+ * The index is rebuilt from the database on startup and then follows committed {@link PipeChangeEvent}s. Searches see changes after the next near-real-time refresh,
+ * every {@code app.pipe.search.refresh-interval-ms}.
+ */
+@Service
+@Slf4j
+public class PipeSearchIndex {
+
+    private static final String ID = "id";
+    private static final String TEXT_RU = "text_ru";
+    private static final String TEXT_EN = "text_en";
+    private static final String MANUFACTURER_PREFIX = "manufacturer_prefix";
+    private static final float PREFIX_BOOST = 0.5f;
+
+    private final PipeRepository pipeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Analyzer russianAnalyzer = new RussianAnalyzer();
+    private final Analyzer englishAnalyzer = new EnglishAnalyzer();
+    private final Analyzer prefixQueryAnalyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+    private final Path indexDir;
+    private final FSDirectory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ScheduledExecutorService refresher;
+
+    /** Writes take the read side, the startup rebuild the write side, so that no event is lost or overwritten. */
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    public PipeSearchIndex(
+            PipeRepository pipeRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.pipe.search.index-dir:${java.io.tmpdir}/pipeline-search-index}") Path indexParentDir,
+            @Value("${app.pipe.search.refresh-interval-ms:500}") long refreshIntervalMs
+    ) throws IOException {
+        this.pipeRepository = pipeRepository;
+        this.transactionTemplate = transactionTemplate;
+
+        Analyzer prefixIndexAnalyzer = CustomAnalyzer.builder()
+                .withTokenizer("standard")
+                .addTokenFilter("lowercase")
+                .addTokenFilter("edgeNGram", "minGramSize", "2", "maxGramSize", "20")
+                .build();
+        Analyzer analyzer = new PerFieldAnalyzerWrapper(prefixQueryAnalyzer, Map.of(
+                TEXT_RU, russianAnalyzer,
+                TEXT_EN, englishAnalyzer,
+                MANUFACTURER_PREFIX, prefixIndexAnalyzer
+        ));
+
+        // OpenMode.CREATE would fail on the write.lock of an index directory shared with another instance
+        Files.createDirectories(indexParentDir);
+        this.indexDir = Files.createTempDirectory(indexParentDir, "index-");
+        this.directory = FSDirectory.open(indexDir);
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipe-search-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A matching pipe and its relevance score.
+     */
+    public record Hit(long id, float score) {
+    }
+
+    /**
+     * One page of hits and the total number of matching pipes.
+     */
+    public record Page(long total, List<Hit> hits) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() throws IOException {
+        long started = System.currentTimeMillis();
+        rebuildLock.writeLock().lock();
+        try {
+            writer.deleteAll();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = pipeRepository.streamSearchRows()) {
+                    rows.forEach(row -> this.index(
+                            (Long) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+                }
+            });
+            writer.commit();
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+        searcherManager.maybeRefresh();
+        log.info("Pipe search index built: {} documents in {} ms",
+                writer.getDocStats().numDocs, System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPipeChange(PipeChangeEvent event) {
+        rebuildLock.readLock().lock();
+        try {
+            if (event.getType() == PipeChangeEvent.ChangeType.DELETED) {
+                writer.deleteDocuments(new Term(ID, String.valueOf(event.getPipeId())));
+            } else {
+                PipeDto pipe = event.getPipe();
+                this.index(pipe.getId(), pipe.getRemarks(), pipe.getMaterial(), pipe.getManufacturer(), pipe.getCoatingType());
+            }
+        } catch (IOException e) {
+            log.error("Failed to update search index for pipe {}: {}", event.getPipeId(), e.getMessage());
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rank pipes against free text. The text is escaped, so query syntax has no special meaning.
+     *
+     * @param text the words to look for
+     * @param page zero-based page number
+     * @param size page size
+     */
+    public Page search(String text, int page, int size) {
+        int offset;
+        int depth;
+        try {
+            offset = Math.multiplyExact(page, size);
+            depth = Math.addExact(offset, size);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("page " + page + " of size " + size + " is out of range");
+        }
+        Query query = this.buildQuery(text);
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, depth);
+                StoredFields storedFields = searcher.storedFields();
+                List<Hit> hits = new ArrayList<>(size);
+                for (int i = offset; i < topDocs.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                    long id = Long.parseLong(storedFields.document(scoreDoc.doc).get(ID));
+                    hits.add(new Hit(id, scoreDoc.score));
+                }
+                return new Page(searcher.count(query), hits);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        refresher.shutdownNow();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+        FileSystemUtils.deleteRecursively(indexDir);
+    }
+
+    private Query buildQuery(String text) {
+        String escaped = QueryParser.escape(text);
+        try {
+            return new BooleanQuery.Builder()
+                    .add(new QueryParser(TEXT_RU, russianAnalyzer).parse(escaped), BooleanClause.Occur.SHOULD)
+                    .add(new QueryParser(TEXT_EN, englishAnalyzer).parse(escaped), BooleanClause.Occur.SHOULD)
+                    .add(new BoostQuery(new QueryParser(MANUFACTURER_PREFIX, prefixQueryAnalyzer).parse(escaped), PREFIX_BOOST),
+                            BooleanClause.Occur.SHOULD)
+                    .build();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid search text: " + text);
+        }
+    }
+
+    private void index(Long id, String remarks, String material, String manufacturer, String coatingType) {
+        String text = Stream.of(remarks, material, manufacturer, coatingType)
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining("\n"));
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(id), Field.Store.YES));
+        document.add(new TextField(TEXT_RU, text, Field.Store.NO));
+        document.add(new TextField(TEXT_EN, text, Field.Store.NO));
+        if (manufacturer != null) {
+            document.add(new TextField(MANUFACTURER_PREFIX, manufacturer, Field.Store.NO));
+        }
+        try {
+            writer.updateDocument(new Term(ID, String.valueOf(id)), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("Failed to refresh search index: {}", e.getMessage());
+        }
+    }
+}
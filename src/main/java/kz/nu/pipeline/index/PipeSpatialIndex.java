@@ -0,0 +1,362 @@
+package kz.nu.pipeline.index;
+
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.event.PipeChangeEvent;
+import kz.nu.pipeline.repository.PipeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory spatial index over pipe coordinates for radius, bounding-box and nearest-neighbour queries.
+ * Points are bucketed into a uniform latitude/longitude grid of {@code app.pipe.spatial.cell-degrees};
+ * a query only visits the cells its search area overlaps. The index is loaded on startup and then follows
+ * committed {@link PipeChangeEvent}s.
+ */
+@Service
+@Slf4j
+public class PipeSpatialIndex {
+
+    static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_METERS;
+
+    private final PipeRepository pipeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final double cellDegrees;
+    private final int latCells;
+    private final int lonCells;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Map<Long, Long> cellKeyById = new HashMap<>();
+
+    public PipeSpatialIndex(
+            PipeRepository pipeRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.pipe.spatial.cell-degrees:0.01}") double cellDegrees
+    ) {
+        this.pipeRepository = pipeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.cellDegrees = cellDegrees;
+        this.latCells = (int) Math.ceil(180 / cellDegrees);
+        this.lonCells = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    /**
+     * A pipe found by a query and its distance from the query point, or 0 for bounding-box queries.
+     */
+    public record Hit(long id, double distanceMeters) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            cellKeyById.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = pipeRepository.streamCoordinates()) {
+                    rows.forEach(row -> this.put((Long) row[0], (Double) row[1], (Double) row[2]));
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Pipe spatial index loaded: {} points in {} cells in {} ms",
+                this.size(), cells.size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPipeChange(PipeChangeEvent event) {
+        if (event.getType() == PipeChangeEvent.ChangeType.DELETED) {
+            this.remove(event.getPipeId());
+        } else {
+            this.upsert(event.getPipe());
+        }
+    }
+
+    public void upsert(PipeDto pipe) {
+        lock.writeLock().lock();
+        try {
+            this.removeUnlocked(pipe.getId());
+            if (pipe.getLatitude() != null && pipe.getLongitude() != null) {
+                this.put(pipe.getId(), pipe.getLatitude(), pipe.getLongitude());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            this.removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return cellKeyById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return pipes within {@code radiusMeters} of the point, nearest first, at most {@code limit}
+     */
+    public List<Hit> withinRadius(double lat, double lon, double radiusMeters, int limit) {
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + dLat)));
+        double dLon = cosLat < 1e-9 ? 180 : Math.min(180, dLat / cosLat);
+
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            this.forEachCell(lat - dLat, lon - dLon, lat + dLat, lon + dLon, cell -> {
+                for (int i = 0; i < cell.size; i++) {
+                    double distance = distanceMeters(lat, lon, cell.lats[i], cell.lons[i]);
+                    if (distance <= radiusMeters) {
+                        hits.add(new Hit(cell.ids[i], distance));
+                    }
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distanceMeters));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * @return pipes inside the box, ordered by id, at most {@code limit}; {@code minLon > maxLon} crosses the antimeridian
+     */
+    public List<Hit> withinBox(double minLat, double minLon, double maxLat, double maxLon, int limit) {
+        boolean wraps = minLon > maxLon;
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            this.forEachCell(minLat, minLon, maxLat, wraps ? maxLon + 360 : maxLon, cell -> {
+                for (int i = 0; i < cell.size; i++) {
+                    double pointLat = cell.lats[i];
+                    double pointLon = cell.lons[i];
+                    boolean inLon = wraps ? pointLon >= minLon || pointLon <= maxLon : pointLon >= minLon && pointLon <= maxLon;
+                    if (inLon && pointLat >= minLat && pointLat <= maxLat) {
+                        hits.add(new Hit(cell.ids[i], 0));
+                    }
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(Comparator.comparingLong(Hit::id));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * Expand square rings of cells around the point until no unvisited cell can hold a closer pipe.
+     *
+     * @return the {@code k} pipes nearest to the point, nearest first
+     */
+    public List<Hit> nearest(double lat, double lon, int k) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble(Hit::distanceMeters).reversed());
+        lock.readLock().lock();
+        try {
+            if (k <= 0 || cells.isEmpty()) {
+                return List.of();
+            }
+            int centerLat = this.latCell(lat);
+            int centerLon = this.lonCell(lon);
+            int visited = 0;
+            for (int ring = 0; ring <= Math.max(latCells, lonCells / 2); ring++) {
+                if (best.size() == k && best.peek().distanceMeters() <= this.ringLowerBound(lat, ring)) {
+                    break;
+                }
+                if (visited == cells.size()) {
+                    break;
+                }
+                if ((long) (2 * ring + 1) * (2 * ring + 1) > 4L * cells.size()) {
+                    // The ring got larger than the populated part of the grid: finish with a pass over every cell
+                    best.clear();
+                    for (Cell cell : cells.values()) {
+                        this.offer(best, k, lat, lon, cell);
+                    }
+                    break;
+                }
+                for (int latIndex = centerLat - ring; latIndex <= centerLat + ring; latIndex++) {
+                    if (latIndex < 0 || latIndex >= latCells) {
+                        continue;
+                    }
+                    boolean edgeRow = latIndex == centerLat - ring || latIndex == centerLat + ring;
+                    int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                    for (int lonIndex = centerLon - ring; lonIndex <= centerLon + ring; lonIndex += step) {
+                        Cell cell = cells.get(this.cellKey(latIndex, Math.floorMod(lonIndex, lonCells)));
+                        if (cell != null) {
+                            visited++;
+                            this.offer(best, k, lat, lon, cell);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Hit[] hits = best.toArray(new Hit[0]);
+        Arrays.sort(hits, Comparator.comparingDouble(Hit::distanceMeters));
+        return List.of(hits);
+    }
+
+    static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void offer(PriorityQueue<Hit> best, int k, double lat, double lon, Cell cell) {
+        for (int i = 0; i < cell.size; i++) {
+            double distance = distanceMeters(lat, lon, cell.lats[i], cell.lons[i]);
+            if (best.size() < k) {
+                best.add(new Hit(cell.ids[i], distance));
+            } else if (distance < best.peek().distanceMeters()) {
+                best.poll();
+                best.add(new Hit(cell.ids[i], distance));
+            }
+        }
+    }
+
+    /**
+     * Lower bound of the distance from a point in the center cell to any cell of ring {@code ring} or beyond:
+     * such cells are at least {@code ring - 1} whole cells away in latitude or in longitude.
+     */
+    private double ringLowerBound(double lat, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double gap = Math.toRadians((ring - 1) * cellDegrees);
+        double cosLat = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + (ring + 1) * cellDegrees)));
+        double lonBound = EARTH_RADIUS_METERS * Math.asin(Math.min(1, cosLat * Math.sin(Math.min(Math.PI / 2, gap))));
+        return Math.min(gap * EARTH_RADIUS_METERS, lonBound);
+    }
+
+    private void forEachCell(double minLat, double minLon, double maxLat, double maxLon, Consumer<Cell> action) {
+        int fromLat = this.latCell(Math.max(-90, minLat));
+        int toLat = this.latCell(Math.min(90, maxLat));
+        boolean allLongitudes = maxLon - minLon >= 360;
+        int fromLon = (int) Math.floor((minLon + 180) / cellDegrees);
+        int toLon = allLongitudes ? fromLon + lonCells - 1 : (int) Math.floor((maxLon + 180) / cellDegrees);
+        long gridCells = (long) (toLat - fromLat + 1) * (toLon - fromLon + 1);
+        if (gridCells > cells.size()) {
+            // Cheaper to test the populated cells than to probe every grid position
+            for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+                int latIndex = (int) (entry.getKey() / lonCells);
+                int lonIndex = (int) (entry.getKey() % lonCells);
+                if (latIndex >= fromLat && latIndex <= toLat && this.lonInRange(lonIndex, fromLon, toLon)) {
+                    action.accept(entry.getValue());
+                }
+            }
+            return;
+        }
+        for (int latIndex = fromLat; latIndex <= toLat; latIndex++) {
+            for (int lonIndex = fromLon; lonIndex <= toLon; lonIndex++) {
+                Cell cell = cells.get(this.cellKey(latIndex, Math.floorMod(lonIndex, lonCells)));
+                if (cell != null) {
+                    action.accept(cell);
+                }
+            }
+        }
+    }
+
+    private boolean lonInRange(int lonIndex, int fromLon, int toLon) {
+        if (toLon - fromLon + 1 >= lonCells) {
+            return true;
+        }
+        int offset = Math.floorMod(lonIndex - fromLon, lonCells);
+        return offset <= toLon - fromLon;
+    }
+
+    private void put(long id, double lat, double lon) {
+        long key = this.cellKey(this.latCell(lat), this.lonCell(lon));
+        cells.computeIfAbsent(key, k -> new Cell()).add(id, lat, lon);
+        cellKeyById.put(id, key);
+    }
+
+    private void removeUnlocked(Long id) {
+        Long key = cellKeyById.remove(id);
+        if (key == null) {
+            return;
+        }
+        Cell cell = cells.get(key);
+        if (cell != null && cell.remove(id) && cell.size == 0) {
+            cells.remove(key);
+        }
+    }
+
+    private int latCell(double lat) {
+        return Math.min(latCells - 1, (int) Math.floor((lat + 90) / cellDegrees));
+    }
+
+    private int lonCell(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180) / cellDegrees), lonCells);
+    }
+
+    private long cellKey(int latIndex, int lonIndex) {
+        return (long) latIndex * lonCells + lonIndex;
+    }
+
+    /**
+     * Points of one grid cell in parallel primitive arrays.
+     */
+    private static class Cell {
+        private long[] ids = new long[4];
+        private double[] lats = new double[4];
+        private double[] lons = new double[4];
+        private int size;
+
+        private void add(long id, double lat, double lon) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                lats = Arrays.copyOf(lats, size * 2);
+                lons = Arrays.copyOf(lons, size * 2);
+            }
+            ids[size] = id;
+            lats[size] = lat;
+            lons[size] = lon;
+            size++;
+        }
+
+        private boolean remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    lats[i] = lats[size];
+                    lons[i] = lons[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
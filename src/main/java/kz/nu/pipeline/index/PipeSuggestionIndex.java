@@ -0,0 +1,117 @@
+package kz.nu.pipeline.index;
+
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.dto.PipeSuggestionDto;
+import kz.nu.pipeline.event.PipeChangeEvent;
+import kz.nu.pipeline.repository.PipeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Prefix suggestions for pipe numbers and batch numbers from in-memory tries.
+ * The tries are loaded on startup and then follow committed {@link PipeChangeEvent}s;
+ * the keys last seen per pipe are remembered so that an update can retract the old ones.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PipeSuggestionIndex {
+
+    private final PipeRepository pipeRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PipeKeyTrie pipeNumbers = new PipeKeyTrie();
+    private final PipeKeyTrie batchNumbers = new PipeKeyTrie();
+    private final Map<Long, Keys> keysById = new HashMap<>();
+
+    private record Keys(String pipeNumber, String batchNumber) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = pipeRepository.streamKeys()) {
+                    rows.forEach(row -> this.put((Long) row[0], new Keys((String) row[1], (String) row[2])));
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Pipe suggestion index loaded: {} pipe numbers, {} batch numbers in {} ms",
+                pipeNumbers.size(), batchNumbers.size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPipeChange(PipeChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == PipeChangeEvent.ChangeType.DELETED) {
+                this.put(event.getPipeId(), null);
+            } else {
+                PipeDto pipe = event.getPipe();
+                this.put(pipe.getId(), new Keys(pipe.getPipeNumber(), pipe.getBatchNumber()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<PipeSuggestionDto> suggestPipeNumbers(String prefix, int limit) {
+        return this.suggest(pipeNumbers, prefix, limit);
+    }
+
+    public List<PipeSuggestionDto> suggestBatchNumbers(String prefix, int limit) {
+        return this.suggest(batchNumbers, prefix, limit);
+    }
+
+    private List<PipeSuggestionDto> suggest(PipeKeyTrie trie, String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return trie.startingWith(prefix, limit).stream()
+                    .map(entry -> new PipeSuggestionDto(entry.key(), entry.count()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the keys of a pipe, {@code null} removing it.
+     */
+    private void put(Long id, Keys keys) {
+        Keys previous = keys == null ? keysById.remove(id) : keysById.put(id, keys);
+        String oldPipeNumber = previous == null ? null : previous.pipeNumber();
+        String oldBatchNumber = previous == null ? null : previous.batchNumber();
+        this.replace(pipeNumbers, oldPipeNumber, keys == null ? null : keys.pipeNumber());
+        this.replace(batchNumbers, oldBatchNumber, keys == null ? null : keys.batchNumber());
+    }
+
+    private void replace(PipeKeyTrie trie, String oldKey, String newKey) {
+        if (Objects.equals(oldKey, newKey)) {
+            return;
+        }
+        if (oldKey != null) {
+            trie.remove(oldKey);
+        }
+        if (newKey != null && !newKey.isEmpty()) {
+            trie.add(newKey);
+        }
+    }
+}
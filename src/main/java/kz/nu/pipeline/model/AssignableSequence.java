@@ -0,0 +1,21 @@
+package kz.nu.pipeline.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an identifier drawn from a database sequence unless the application has already assigned it,
+ * see {@link AssignableSequenceGenerator}.
+ */
+@IdGeneratorType(AssignableSequenceGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface AssignableSequence {
+
+    /** Name of the sequence, incremented by one per value. */
+    String value();
+}
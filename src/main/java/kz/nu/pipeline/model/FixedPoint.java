@@ -0,0 +1,123 @@
+package kz.nu.pipeline.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between decimal measurements and the scaled {@code long}s they are stored as.
+ * A value {@code v} with scale {@code s} is stored as {@code v * 10^s}, e.g. 325.5 with scale 2 as 32550.
+ * Only the API and spreadsheet edges convert; everything in between works on the scaled value.
+ */
+public final class FixedPoint {
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    private FixedPoint() {
+    }
+
+    public static BigDecimal toDecimal(Long scaled, int scale) {
+        return scaled == null ? null : BigDecimal.valueOf(scaled, scale);
+    }
+
+    /**
+     * @throws ArithmeticException if the value needs rounding or does not fit in a {@code long}
+     */
+    public static Long fromDecimal(BigDecimal value, int scale) {
+        return fromDecimal(value, scale, RoundingMode.UNNECESSARY);
+    }
+
+    public static Long fromDecimal(BigDecimal value, int scale, RoundingMode roundingMode) {
+        return value == null ? null : value.setScale(scale, roundingMode).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Round a spreadsheet double to the scale, half up on the shortest decimal that reads back as the same double,
+     * i.e. the number the spreadsheet shows: 0.285 becomes 0.29, where rounding {@code 0.285 * 100} gives 28.
+     *
+     * @throws ArithmeticException if the value is not finite or does not fit in a {@code long}
+     */
+    public static long fromDouble(double value, int scale) {
+        if (!Double.isFinite(value)) {
+            throw new ArithmeticException("Value out of range: " + value);
+        }
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Parse a plain decimal such as {@code -12.345}, rounding extra fraction digits half up.
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(CharSequence text, int scale) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        long result = 0;
+        int fractionDigits = -1;
+        boolean digits = false;
+        boolean truncated = false;
+        boolean roundUp = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                // Exponent notation takes the slow path
+                return fromDecimal(new BigDecimal(text.toString()), scale, RoundingMode.HALF_UP);
+            }
+            digits = true;
+            if (fractionDigits == scale) {
+                if (!truncated) {
+                    truncated = true;
+                    roundUp = c >= '5';
+                }
+                continue;
+            }
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+            result = Math.addExact(Math.multiplyExact(result, 10), c - '0');
+        }
+        if (!digits) {
+            throw new NumberFormatException("Not a number: " + text);
+        }
+        result = Math.multiplyExact(result, POWERS_OF_TEN[scale - Math.max(fractionDigits, 0)]);
+        if (roundUp) {
+            result = Math.incrementExact(result);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Format the scaled value as a plain decimal with exactly {@code scale} fraction digits.
+     */
+    public static String format(long scaled, int scale) {
+        if (scaled == Long.MIN_VALUE) {
+            return BigDecimal.valueOf(scaled, scale).toPlainString();
+        }
+        long abs = Math.abs(scaled);
+        long unit = POWERS_OF_TEN[scale];
+        StringBuilder text = new StringBuilder(21);
+        if (scaled < 0) {
+            text.append('-');
+        }
+        text.append(abs / unit);
+        if (scale > 0) {
+            long fraction = abs % unit;
+            text.append('.');
+            for (long digit = unit / 10; digit > 1 && fraction < digit; digit /= 10) {
+                text.append('0');
+            }
+            text.append(fraction);
+        }
+        return text.toString();
+    }
+}
@@ -6,6 +6,12 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
+/**
+ * An uploaded image and its downscaled derivatives, which are stored next to the original in the bucket.
+ * Derivatives are generated in the background, so the keys stay null until the photo is {@link Status#READY}.
+ */
 @Data
 @Builder
 @NoArgsConstructor
@@ -16,4 +22,50 @@ public class Photo {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    @Column(name = "object_key", unique = true, nullable = false)
+    private String objectKey;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    private Integer width;
+
+    private Integer height;
+
+    @Column(name = "thumbnail_key")
+    private String thumbnailKey;
+
+    @Column(name = "medium_key")
+    private String mediumKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public enum Status {
+        PENDING, READY, FAILED
+    }
+
+    public enum Variant {
+        THUMBNAIL, MEDIUM, ORIGINAL
+    }
+
+    /**
+     * The key to serve for a variant, falling back to the original while the variant is not generated.
+     */
+    public String keyOf(Variant variant) {
+        String key = switch (variant) {
+            case THUMBNAIL -> thumbnailKey;
+            case MEDIUM -> mediumKey;
+            case ORIGINAL -> objectKey;
+        };
+        return key != null ? key : objectKey;
+    }
 }
@@ -5,14 +5,30 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDate;
-import java.math.BigDecimal;
 
 @Entity
-@Table(name = "pipe")
+@Table(name = "pipe", indexes = {
+        @Index(name = "idx_pipe_change_seq", columnList = "change_seq"),
+        // Range predicates on each measurement can use its own index; PostgreSQL combines them with a bitmap AND
+        @Index(name = "idx_pipe_diameter", columnList = "diameter"),
+        @Index(name = "idx_pipe_pressure_rating", columnList = "pressure_rating"),
+        @Index(name = "idx_pipe_wall_thickness", columnList = "wall_thickness")
+})
+@EntityListeners(PipeAttributeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Pipe {
+
+    /** Database sequence ordering pipe changes and tombstones for delta sync. */
+    public static final String CHANGE_SEQUENCE = "pipe_change_seq";
+
+    /** Fraction digits kept by each measurement; the columns store the value times 10^scale, see {@link FixedPoint}. */
+    public static final int DIAMETER_SCALE = 2;
+    public static final int LENGTH_SCALE = 3;
+    public static final int WALL_THICKNESS_SCALE = 2;
+    public static final int WEIGHT_SCALE = 3;
+    public static final int PRESSURE_RATING_SCALE = 2;
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,30 +38,34 @@ public class Pipe {
     private String pipeNumber;
     
     @Column(name = "diameter")
-    private BigDecimal diameter;
+    private Long diameter;
     
     @Column(name = "length")
-    private BigDecimal length;
+    private Long length;
     
     @Column(name = "wall_thickness")
-    private BigDecimal wallThickness;
+    private Long wallThickness;
     
-    @Column(name = "material")
+    @Column(name = "material_id")
+    @Convert(converter = PipeAttributeConverter.Material.class)
     private String material;
     
-    @Column(name = "grade")
+    @Column(name = "grade_id")
+    @Convert(converter = PipeAttributeConverter.Grade.class)
     private String grade;
     
-    @Column(name = "manufacturer")
+    @Column(name = "manufacturer_id")
+    @Convert(converter = PipeAttributeConverter.Manufacturer.class)
     private String manufacturer;
     
     @Column(name = "production_date")
     private LocalDate productionDate;
     
     @Column(name = "weight")
-    private BigDecimal weight;
+    private Long weight;
     
-    @Column(name = "location")
+    @Column(name = "location_id")
+    @Convert(converter = PipeAttributeConverter.Location.class)
     private String location;
     
     @Column(name = "status")
@@ -58,20 +78,31 @@ public class Pipe {
     @Column(name = "batch_number")
     private String batchNumber;
     
-    @Column(name = "quality_class")
+    @Column(name = "quality_class_id")
+    @Convert(converter = PipeAttributeConverter.QualityClass.class)
     private String qualityClass;
     
-    @Column(name = "coating_type")
+    @Column(name = "coating_type_id")
+    @Convert(converter = PipeAttributeConverter.CoatingType.class)
     private String coatingType;
     
     @Column(name = "pressure_rating")
-    private BigDecimal pressureRating;
+    private Long pressureRating;
     
     @Column(name = "created_date")
     private LocalDate createdDate;
     
     @Column(name = "updated_date")
     private LocalDate updatedDate;
+
+    @Column(name = "latitude")
+    private Double latitude;
+
+    @Column(name = "longitude")
+    private Double longitude;
+
+    @Column(name = "change_seq")
+    private Long changeSeq;
     
     @PrePersist
     protected void onCreate() {
@@ -0,0 +1,71 @@
+package kz.nu.pipeline.model;
+
+import jakarta.persistence.AttributeConverter;
+import kz.nu.pipeline.model.PipeAttributeValue.Kind;
+import kz.nu.pipeline.service.PipeAttributeDictionary;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Stores a pipe attribute as its {@link PipeAttributeValue} id. Values are interned by
+ * {@link PipeAttributeListener} before a write, so conversion itself never touches the table;
+ * a query parameter that was never interned converts to {@link PipeAttributeDictionary#UNKNOWN_ID}.
+ * <p>
+ * Instances are created by Hibernate through the Spring bean container; the dictionary is looked up
+ * lazily because it depends on the entity manager factory being built.
+ */
+public abstract class PipeAttributeConverter implements AttributeConverter<String, Integer> {
+
+    private final Kind kind;
+    private final ObjectProvider<PipeAttributeDictionary> dictionary;
+
+    protected PipeAttributeConverter(Kind kind, ObjectProvider<PipeAttributeDictionary> dictionary) {
+        this.kind = kind;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String value) {
+        return value == null ? null : dictionary.getObject().idOf(kind, value);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : dictionary.getObject().valueOf(id);
+    }
+
+    public static class Material extends PipeAttributeConverter {
+        public Material(ObjectProvider<PipeAttributeDictionary> dictionary) {
+            super(Kind.MATERIAL, dictionary);
+        }
+    }
+
+    public static class Grade extends PipeAttributeConverter {
+        public Grade(ObjectProvider<PipeAttributeDictionary> dictionary) {
+            super(Kind.GRADE, dictionary);
+        }
+    }
+
+    public static class Manufacturer extends PipeAttributeConverter {
+        public Manufacturer(ObjectProvider<PipeAttributeDictionary> dictionary) {
+            super(Kind.MANUFACTURER, dictionary);
+        }
+    }
+
+    public static class Location extends PipeAttributeConverter {
+        public Location(ObjectProvider<PipeAttributeDictionary> dictionary) {
+            super(Kind.LOCATION, dictionary);
+        }
+    }
+
+    public static class CoatingType extends PipeAttributeConverter {
+        public CoatingType(ObjectProvider<PipeAttributeDictionary> dictionary) {
+            super(Kind.COATING_TYPE, dictionary);
+        }
+    }
+
+    public static class QualityClass extends PipeAttributeConverter {
+        public QualityClass(ObjectProvider<PipeAttributeDictionary> dictionary) {
+            super(Kind.QUALITY_CLASS, dictionary);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package kz.nu.pipeline.model;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import kz.nu.pipeline.service.PipeAttributeDictionary;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Interns the dictionary-encoded attributes of a pipe before it is written, covering every write path
+ * (single, bulk and Excel import).
+ */
+public class PipeAttributeListener {
+
+    private final ObjectProvider<PipeAttributeDictionary> dictionary;
+
+    public PipeAttributeListener(ObjectProvider<PipeAttributeDictionary> dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void intern(Pipe pipe) {
+        dictionary.getObject().intern(pipe);
+    }
+}
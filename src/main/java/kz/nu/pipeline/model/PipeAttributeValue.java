@@ -0,0 +1,41 @@
+package kz.nu.pipeline.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lookup row for a low-cardinality pipe attribute. {@link Pipe} stores only the id of the row.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "pipe_attribute_value", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_pipe_attribute_value", columnNames = {"kind", "attribute_value"})
+})
+public class PipeAttributeValue {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "kind", nullable = false, length = 32)
+    @Enumerated(EnumType.STRING)
+    private Kind kind;
+
+    @Column(name = "attribute_value", nullable = false)
+    private String value;
+
+    public enum Kind {
+        MATERIAL,
+        GRADE,
+        MANUFACTURER,
+        LOCATION,
+        COATING_TYPE,
+        QUALITY_CLASS
+    }
+}
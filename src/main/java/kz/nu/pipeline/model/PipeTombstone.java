@@ -0,0 +1,59 @@
+package kz.nu.pipeline.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record of a deleted pipe, so that delta sync clients can learn about deletions.
+ * Its key is drawn from the same sequence as {@link Pipe#getChangeSeq()}, through
+ * {@link kz.nu.pipeline.repository.PipeChangeSequence} so that it is tracked until commit like the pipes' values.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "pipe_tombstone", indexes = @Index(name = "idx_pipe_tombstone_deleted_at", columnList = "deleted_at"))
+public class PipeTombstone implements Persistable<Long> {
+
+    @Id
+    @AssignableSequence(Pipe.CHANGE_SEQUENCE)
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
+    @Column(name = "pipe_id", nullable = false)
+    private Long pipeId;
+
+    @Column(name = "pipe_number")
+    private String pipeNumber;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    /** The key is assigned before saving, so this tells a new tombstone from a loaded one without a select. */
+    @Transient
+    @Builder.Default
+    private boolean persisted = false;
+
+    @Override
+    public Long getId() {
+        return changeSeq;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
@@ -0,0 +1,61 @@
+package kz.nu.pipeline.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An S3 object stored under the SHA-256 of its content, shared by every {@link StoredFile} with that content.
+ * <p>
+ * The object is written and deleted outside the transaction that changes the row, so the row records where that
+ * stands: {@link State#PENDING} until the object has been written, {@link State#DELETING} once the last file
+ * referencing it is gone and until the object has been deleted. Content uploaded again while its blob is being
+ * deleted gets a new {@link #generation} and with it a new key, which the pending deletion does not touch.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "stored_blob")
+public class StoredBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Lowercase hex SHA-256 of the content. */
+    @Column(unique = true, nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "object_key", nullable = false)
+    private String objectKey;
+
+    private Long size;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    /** Number of {@link StoredFile}s pointing at the blob. */
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private State state;
+
+    /** Number of times the blob was uploaded again while being deleted; part of the object key when non-zero. */
+    @Column(nullable = false)
+    private int generation;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum State {
+        PENDING, STORED, DELETING
+    }
+}
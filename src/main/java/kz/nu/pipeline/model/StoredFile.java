@@ -0,0 +1,69 @@
+package kz.nu.pipeline.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadata of an object in the S3 bucket. Objects uploaded through a presigned URL are registered as
+ * {@link Status#PENDING} when the URL is issued and become {@link Status#UPLOADED} once the client
+ * reports the upload complete and the object is found in the bucket.
+ * <p>
+ * Files uploaded in content-addressed mode have no object of their own: they point at a {@link StoredBlob}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "stored_file")
+public class StoredFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "object_key", unique = true, nullable = false)
+    private String objectKey;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    /** Size in bytes: the announced size while pending, the stored size once uploaded. */
+    private Long size;
+
+    private String etag;
+
+    @Column(name = "uploaded_by")
+    private String uploadedBy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "uploaded_at")
+    private LocalDateTime uploadedAt;
+
+    /** The shared content of a content-addressed file; null when the file is stored under its own key. */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private StoredBlob blob;
+
+    public enum Status {
+        PENDING, UPLOADED
+    }
+}
@@ -0,0 +1,22 @@
+package kz.nu.pipeline.repository;
+
+import kz.nu.pipeline.model.Photo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for Photo entity.
+ */
+@Repository
+public interface PhotoRepository extends JpaRepository<Photo, Long> {
+
+    Optional<Photo> findByObjectKey(String objectKey);
+
+    List<Photo> findByObjectKeyIn(Collection<String> objectKeys);
+
+    boolean existsByThumbnailKeyInOrMediumKeyIn(Collection<String> thumbnailKeys, Collection<String> mediumKeys);
+}
@@ -0,0 +1,86 @@
+package kz.nu.pipeline.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import kz.nu.pipeline.model.Pipe;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hands out values of the shared pipe change sequence used for delta sync.
+ * <p>
+ * Values are drawn when a write happens but become visible when its transaction commits, so a higher value can
+ * be committed while a lower one is still in flight. The values handed out inside a transaction are therefore
+ * tracked until it completes, and {@link #visibleHighWaterMark()} tells readers how far they can safely go.
+ * Only writes made through this instance are tracked, so all writers have to run in the same application.
+ */
+@Component
+public class PipeChangeSequence {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final NavigableSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    private final AtomicLong lastDrawn = new AtomicLong();
+    // Drawing a value and registering it happen under the read lock, so a reader never misses one in between
+    private final ReadWriteLock registration = new ReentrantReadWriteLock();
+
+    private volatile String nextValueSql;
+
+    public long next() {
+        registration.readLock().lock();
+        try {
+            long value = ((Number) entityManager.createNativeQuery(this.getNextValueSql()).getSingleResult()).longValue();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                inFlight.add(value);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        inFlight.remove(value);
+                    }
+                });
+            }
+            lastDrawn.accumulateAndGet(value, Math::max);
+            return value;
+        } finally {
+            registration.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the highest value up to which every write has committed or rolled back; changes above it may
+     * still be joined by lower, not yet committed ones
+     */
+    public long visibleHighWaterMark() {
+        if (lastDrawn.get() == 0) {
+            // Nothing drawn since startup: draw once so that everything committed before is covered
+            this.next();
+        }
+        registration.writeLock().lock();
+        try {
+            return inFlight.isEmpty() ? lastDrawn.get() : inFlight.first() - 1;
+        } finally {
+            registration.writeLock().unlock();
+        }
+    }
+
+    private String getNextValueSql() {
+        if (nextValueSql == null) {
+            nextValueSql = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect()
+                    .getSequenceSupport()
+                    .getSequenceNextValString(Pipe.CHANGE_SEQUENCE);
+        }
+        return nextValueSql;
+    }
+}
@@ -0,0 +1,120 @@
+package kz.nu.pipeline.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import kz.nu.pipeline.model.FixedPoint;
+import kz.nu.pipeline.model.Pipe;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.IntFunction;
+
+/**
+ * Writes a {@code pipe} row as the JSON object of a {@code PipeDto}, straight from the {@link ResultSet}.
+ * Field names are pre-serialized, measurements are formatted from their fixed-point value and
+ * dictionary-encoded attributes are resolved to their canonical strings, so no entity or DTO is built.
+ */
+public class PipeJsonRowWriter {
+
+    /** Select list matching {@link #write}; column positions are fixed. */
+    public static final String COLUMNS = "id, pipe_number, diameter, length, wall_thickness, material_id, grade_id, "
+            + "manufacturer_id, production_date, weight, location_id, status, remarks, batch_number, quality_class_id, "
+            + "coating_type_id, pressure_rating, created_date, updated_date, latitude, longitude";
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString PIPE_NUMBER = new SerializedString("pipeNumber");
+    private static final SerializedString DIAMETER = new SerializedString("diameter");
+    private static final SerializedString LENGTH = new SerializedString("length");
+    private static final SerializedString WALL_THICKNESS = new SerializedString("wallThickness");
+    private static final SerializedString MATERIAL = new SerializedString("material");
+    private static final SerializedString GRADE = new SerializedString("grade");
+    private static final SerializedString MANUFACTURER = new SerializedString("manufacturer");
+    private static final SerializedString PRODUCTION_DATE = new SerializedString("productionDate");
+    private static final SerializedString WEIGHT = new SerializedString("weight");
+    private static final SerializedString LOCATION = new SerializedString("location");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString REMARKS = new SerializedString("remarks");
+    private static final SerializedString BATCH_NUMBER = new SerializedString("batchNumber");
+    private static final SerializedString QUALITY_CLASS = new SerializedString("qualityClass");
+    private static final SerializedString COATING_TYPE = new SerializedString("coatingType");
+    private static final SerializedString PRESSURE_RATING = new SerializedString("pressureRating");
+    private static final SerializedString CREATED_DATE = new SerializedString("createdDate");
+    private static final SerializedString UPDATED_DATE = new SerializedString("updatedDate");
+    private static final SerializedString LATITUDE = new SerializedString("latitude");
+    private static final SerializedString LONGITUDE = new SerializedString("longitude");
+
+    private final IntFunction<String> attributeValues;
+
+    /**
+     * @param attributeValues resolves a dictionary id to its value
+     */
+    public PipeJsonRowWriter(IntFunction<String> attributeValues) {
+        this.attributeValues = attributeValues;
+    }
+
+    public void write(ResultSet rs, JsonGenerator generator) throws SQLException, IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        generator.writeNumber(rs.getLong(1));
+        this.writeString(generator, PIPE_NUMBER, rs.getString(2));
+        this.writeScaled(generator, DIAMETER, rs, 3, Pipe.DIAMETER_SCALE);
+        this.writeScaled(generator, LENGTH, rs, 4, Pipe.LENGTH_SCALE);
+        this.writeScaled(generator, WALL_THICKNESS, rs, 5, Pipe.WALL_THICKNESS_SCALE);
+        this.writeAttribute(generator, MATERIAL, rs, 6);
+        this.writeAttribute(generator, GRADE, rs, 7);
+        this.writeAttribute(generator, MANUFACTURER, rs, 8);
+        // DATE columns render as ISO yyyy-MM-dd, the same as the DTO's LocalDate
+        this.writeString(generator, PRODUCTION_DATE, rs.getString(9));
+        this.writeScaled(generator, WEIGHT, rs, 10, Pipe.WEIGHT_SCALE);
+        this.writeAttribute(generator, LOCATION, rs, 11);
+        this.writeString(generator, STATUS, rs.getString(12));
+        this.writeString(generator, REMARKS, rs.getString(13));
+        this.writeString(generator, BATCH_NUMBER, rs.getString(14));
+        this.writeAttribute(generator, QUALITY_CLASS, rs, 15);
+        this.writeAttribute(generator, COATING_TYPE, rs, 16);
+        this.writeScaled(generator, PRESSURE_RATING, rs, 17, Pipe.PRESSURE_RATING_SCALE);
+        this.writeString(generator, CREATED_DATE, rs.getString(18));
+        this.writeString(generator, UPDATED_DATE, rs.getString(19));
+        this.writeDouble(generator, LATITUDE, rs, 20);
+        this.writeDouble(generator, LONGITUDE, rs, 21);
+        generator.writeEndObject();
+    }
+
+    private void writeString(JsonGenerator generator, SerializedString name, String value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    private void writeScaled(JsonGenerator generator, SerializedString name, ResultSet rs, int column, int scale)
+            throws SQLException, IOException {
+        long value = rs.getLong(column);
+        generator.writeFieldName(name);
+        if (rs.wasNull()) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(FixedPoint.format(value, scale));
+        }
+    }
+
+    private void writeAttribute(JsonGenerator generator, SerializedString name, ResultSet rs, int column)
+            throws SQLException, IOException {
+        int id = rs.getInt(column);
+        this.writeString(generator, name, rs.wasNull() ? null : attributeValues.apply(id));
+    }
+
+    private void writeDouble(JsonGenerator generator, SerializedString name, ResultSet rs, int column)
+            throws SQLException, IOException {
+        double value = rs.getDouble(column);
+        generator.writeFieldName(name);
+        if (rs.wasNull()) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
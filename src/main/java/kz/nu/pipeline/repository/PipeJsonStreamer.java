@@ -0,0 +1,105 @@
+package kz.nu.pipeline.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.model.PipeAttributeValue.Kind;
+import kz.nu.pipeline.service.PipeAttributeDictionary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Low-allocation list read: runs one prepared statement and writes every row straight to the response
+ * as a JSON array of pipes, bypassing entity hydration, DTO conversion and the buffered list.
+ */
+@Component
+public class PipeJsonStreamer {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final PipeAttributeDictionary pipeAttributeDictionary;
+    private final ObjectMapper objectMapper;
+    private final PipeJsonRowWriter rowWriter;
+    private final int fetchSize;
+
+    public PipeJsonStreamer(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            PipeAttributeDictionary pipeAttributeDictionary,
+            ObjectMapper objectMapper,
+            @Value("${app.pipe.stream.fetch-size:1000}") int fetchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.pipeAttributeDictionary = pipeAttributeDictionary;
+        this.objectMapper = objectMapper;
+        this.rowWriter = new PipeJsonRowWriter(pipeAttributeDictionary::valueOf);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Write the pipes matching every given filter, ordered by id. {@code null} filters are ignored.
+     */
+    public void stream(
+            Pipe.PipeStatus status, String location, String material, String manufacturer, String batchNumber,
+            OutputStream out
+    ) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(PipeJsonRowWriter.COLUMNS).append(" FROM pipe WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND status = ?");
+            params.add(status.name());
+        }
+        this.addAttributeFilter(sql, params, "location_id", Kind.LOCATION, location);
+        this.addAttributeFilter(sql, params, "material_id", Kind.MATERIAL, material);
+        this.addAttributeFilter(sql, params, "manufacturer_id", Kind.MANUFACTURER, manufacturer);
+        if (batchNumber != null) {
+            sql.append(" AND batch_number = ?");
+            params.add(batchNumber);
+        }
+        sql.append(" ORDER BY id");
+
+        // A transaction lets the driver use a server-side cursor (required by PostgreSQL for the fetch size to apply)
+        readOnlyTransaction.executeWithoutResult(transaction -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql.toString());
+                    statement.setFetchSize(fetchSize);
+                    for (int i = 0; i < params.size(); i++) {
+                        statement.setObject(i + 1, params.get(i));
+                    }
+                    return statement;
+                }, rs -> {
+                    try {
+                        rowWriter.write(rs, generator);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void addAttributeFilter(StringBuilder sql, List<Object> params, String column, Kind kind, String value) {
+        if (value != null) {
+            sql.append(" AND ").append(column).append(" = ?");
+            params.add(pipeAttributeDictionary.idOf(kind, value));
+        }
+    }
+}
@@ -1,17 +1,26 @@
 package kz.nu.pipeline.repository;
 
+import jakarta.persistence.QueryHint;
 import kz.nu.pipeline.model.Pipe;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface PipeRepository extends JpaRepository<Pipe, Long> {
+public interface PipeRepository extends JpaRepository<Pipe, Long>, JpaSpecificationExecutor<Pipe>, PipeRepositoryCustom {
     
     Optional<Pipe> findByPipeNumber(String pipeNumber);
+
+    List<Pipe> findByPipeNumberIn(Collection<String> pipeNumbers);
     
     List<Pipe> findByStatus(Pipe.PipeStatus status);
     
@@ -22,7 +31,7 @@ public interface PipeRepository extends JpaRepository<Pipe, Long> {
     List<Pipe> findByManufacturer(String manufacturer);
     
     @Query("SELECT p FROM Pipe p WHERE p.diameter BETWEEN :minDiameter AND :maxDiameter")
-    List<Pipe> findByDiameterRange(@Param("minDiameter") Double minDiameter, @Param("maxDiameter") Double maxDiameter);
+    List<Pipe> findByDiameterRange(@Param("minDiameter") Long minDiameter, @Param("maxDiameter") Long maxDiameter);
     
     @Query("SELECT p FROM Pipe p WHERE p.batchNumber = :batchNumber")
     List<Pipe> findByBatchNumber(@Param("batchNumber") String batchNumber);
@@ -31,4 +40,38 @@ public interface PipeRepository extends JpaRepository<Pipe, Long> {
     Long countByStatus(@Param("status") Pipe.PipeStatus status);
     
     boolean existsByPipeNumber(String pipeNumber);
+
+    @Query("SELECT p.pipeNumber FROM Pipe p WHERE p.pipeNumber IN :pipeNumbers")
+    List<String> findExistingPipeNumbers(@Param("pipeNumbers") Collection<String> pipeNumbers);
+
+    List<PipeKey> findKeysByIdIn(Collection<Long> ids);
+
+    @Query("SELECT p FROM Pipe p WHERE p.changeSeq > :since AND p.changeSeq <= :upTo ORDER BY p.changeSeq")
+    List<Pipe> findChangedBetween(@Param("since") Long since, @Param("upTo") Long upTo, Pageable pageable);
+
+    @Query("SELECT p.id, p.diameter, p.wallThickness, p.pressureRating, p.productionDate, p.status, " +
+            "p.material, p.manufacturer, p.location FROM Pipe p")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamColumnarRows();
+
+    @Query("SELECT p.id, p.pipeNumber, p.batchNumber FROM Pipe p")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamKeys();
+
+    @Query("SELECT p.id, p.remarks, p.material, p.manufacturer, p.coatingType FROM Pipe p")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamSearchRows();
+
+    @Query("SELECT p.id, p.latitude, p.longitude FROM Pipe p WHERE p.latitude IS NOT NULL AND p.longitude IS NOT NULL")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamCoordinates();
+
+    /**
+     * Projection of the identifying columns of a pipe.
+     */
+    interface PipeKey {
+        Long getId();
+
+        String getPipeNumber();
+    }
 } 
\ No newline at end of file
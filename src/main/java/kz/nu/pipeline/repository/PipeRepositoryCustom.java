@@ -0,0 +1,23 @@
+package kz.nu.pipeline.repository;
+
+import kz.nu.pipeline.dto.PipeField;
+import kz.nu.pipeline.model.Pipe;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom queries for {@link PipeRepository} that Spring Data cannot derive.
+ */
+public interface PipeRepositoryCustom {
+
+    /**
+     * Select only the requested columns of the pipes matching the specification.
+     *
+     * @param specification the filter, or {@code null} to read all pipes
+     * @param fields        the columns to select
+     * @return one map per pipe, keyed by property name in the requested order
+     */
+    List<Map<String, Object>> findFields(Specification<Pipe> specification, List<PipeField> fields);
+}
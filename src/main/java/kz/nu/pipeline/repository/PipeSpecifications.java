@@ -0,0 +1,87 @@
+package kz.nu.pipeline.repository;
+
+import kz.nu.pipeline.model.FixedPoint;
+import kz.nu.pipeline.model.Pipe;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Query predicates mirroring the finders of {@link PipeRepository}, for use with projected reads.
+ */
+public final class PipeSpecifications {
+
+    private PipeSpecifications() {
+    }
+
+    public static Specification<Pipe> hasId(Long id) {
+        return (root, query, cb) -> cb.equal(root.get("id"), id);
+    }
+
+    public static Specification<Pipe> hasPipeNumber(String pipeNumber) {
+        return (root, query, cb) -> cb.equal(root.get("pipeNumber"), pipeNumber);
+    }
+
+    public static Specification<Pipe> hasStatus(Pipe.PipeStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Pipe> hasMaterial(String material) {
+        return (root, query, cb) -> cb.equal(root.get("material"), material);
+    }
+
+    public static Specification<Pipe> hasLocation(String location) {
+        return (root, query, cb) -> cb.equal(root.get("location"), location);
+    }
+
+    public static Specification<Pipe> hasManufacturer(String manufacturer) {
+        return (root, query, cb) -> cb.equal(root.get("manufacturer"), manufacturer);
+    }
+
+    public static Specification<Pipe> hasBatchNumber(String batchNumber) {
+        return (root, query, cb) -> cb.equal(root.get("batchNumber"), batchNumber);
+    }
+
+    public static Specification<Pipe> diameterBetween(BigDecimal minDiameter, BigDecimal maxDiameter) {
+        return measurementBetween("diameter", Pipe.DIAMETER_SCALE, minDiameter, maxDiameter);
+    }
+
+    /**
+     * Inclusive range over a fixed-point measurement. Bounds are rounded inward to the column scale and bound as
+     * {@code Long}, the column type, so that an index on the column can be used. A {@code null} bound is open.
+     *
+     * @return the range predicate, or {@code null} (no restriction) when both bounds are {@code null}
+     */
+    public static Specification<Pipe> measurementBetween(String attribute, int scale, BigDecimal min, BigDecimal max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        Long low = FixedPoint.fromDecimal(min, scale, RoundingMode.CEILING);
+        Long high = FixedPoint.fromDecimal(max, scale, RoundingMode.FLOOR);
+        return (root, query, cb) -> {
+            if (low == null) {
+                return cb.lessThanOrEqualTo(root.<Long>get(attribute), high);
+            }
+            if (high == null) {
+                return cb.greaterThanOrEqualTo(root.<Long>get(attribute), low);
+            }
+            return cb.between(root.<Long>get(attribute), low, high);
+        };
+    }
+
+    /**
+     * Conjunction of the measurement ranges that have at least one bound.
+     */
+    public static Specification<Pipe> measurementRanges(
+            BigDecimal minDiameter, BigDecimal maxDiameter,
+            BigDecimal minPressureRating, BigDecimal maxPressureRating,
+            BigDecimal minWallThickness, BigDecimal maxWallThickness
+    ) {
+        return Specification.allOf(
+                measurementBetween("diameter", Pipe.DIAMETER_SCALE, minDiameter, maxDiameter),
+                measurementBetween("pressureRating", Pipe.PRESSURE_RATING_SCALE, minPressureRating, maxPressureRating),
+                measurementBetween("wallThickness", Pipe.WALL_THICKNESS_SCALE, minWallThickness, maxWallThickness)
+        );
+    }
+}
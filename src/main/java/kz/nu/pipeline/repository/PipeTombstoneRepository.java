@@ -0,0 +1,26 @@
+package kz.nu.pipeline.repository;
+
+import kz.nu.pipeline.model.PipeTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PipeTombstoneRepository extends JpaRepository<PipeTombstone, Long> {
+
+    List<PipeTombstone> findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeq(
+            Long since, Long upTo, Pageable pageable);
+
+    @Query("SELECT MAX(t.changeSeq) FROM PipeTombstone t WHERE t.deletedAt < :cutoff")
+    Long findMaxChangeSeqDeletedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM PipeTombstone t WHERE t.deletedAt < :cutoff AND t.changeSeq < :below")
+    int deleteDeletedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("below") Long below);
+}
@@ -0,0 +1,26 @@
+package kz.nu.pipeline.repository;
+
+import jakarta.persistence.LockModeType;
+import kz.nu.pipeline.model.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for StoredBlob entity.
+ */
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    /**
+     * Find a blob and lock its row until the end of the transaction, so that changes of its reference count
+     * and state are serialized per content hash. The S3 object itself is never written or deleted under the lock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from StoredBlob b where b.sha256 = :sha256")
+    Optional<StoredBlob> lockBySha256(@Param("sha256") String sha256);
+}
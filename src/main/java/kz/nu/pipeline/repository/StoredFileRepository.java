@@ -0,0 +1,29 @@
+package kz.nu.pipeline.repository;
+
+import kz.nu.pipeline.model.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for StoredFile entity.
+ */
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+
+    Optional<StoredFile> findByObjectKey(String objectKey);
+
+    /**
+     * Whether the user has uploaded a file with the content of the given blob.
+     */
+    boolean existsByBlobIdAndUploadedBy(Long blobId, String uploadedBy);
+
+    /**
+     * The S3 key of the blob behind a content-addressed file.
+     */
+    @Query("select b.objectKey from StoredFile f join f.blob b where f.objectKey = :objectKey")
+    Optional<String> findBlobKey(@Param("objectKey") String objectKey);
+}
@@ -0,0 +1,288 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.model.StoredBlob;
+import kz.nu.pipeline.model.StoredFile;
+import kz.nu.pipeline.repository.StoredBlobRepository;
+import kz.nu.pipeline.repository.StoredFileRepository;
+import kz.nu.pipeline.storage.ObjectStorage;
+import kz.nu.pipeline.storage.StorageException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed storage: every distinct content is stored once, under {@code blobs/sha256/<hash>},
+ * and {@link StoredFile}s map the logical filenames handed out to clients onto these {@link StoredBlob}s.
+ * <p>
+ * Reference counts and blob states are changed under the blob row lock, in short transactions; the object is
+ * written and deleted between them, with no transaction open. A new blob is {@link StoredBlob.State#PENDING}
+ * while its object is written and becomes {@link StoredBlob.State#STORED} together with the first reference.
+ * Dropping the last reference marks it {@link StoredBlob.State#DELETING}, and the row goes once the object
+ * has been deleted. An upload that finds its content being deleted writes it again under the key of a new
+ * generation, so the deletion in flight cannot remove it.
+ */
+@Component
+@Slf4j
+public class ContentAddressedStore {
+
+    /** Prefix of the blob objects, which are only reachable through the files referencing them. */
+    public static final String BLOB_PREFIX = "blobs/";
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final int ATTEMPTS = 3;
+
+    private final ObjectStorage objectStorage;
+    private final StoredBlobRepository storedBlobRepository;
+    private final StoredFileRepository storedFileRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public ContentAddressedStore(
+            ObjectStorage objectStorage,
+            StoredBlobRepository storedBlobRepository,
+            StoredFileRepository storedFileRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.objectStorage = objectStorage;
+        this.storedBlobRepository = storedBlobRepository;
+        this.storedFileRepository = storedFileRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Writes the content of a new blob to the given key.
+     */
+    @FunctionalInterface
+    public interface BlobWriter {
+        void write(String key) throws IOException;
+    }
+
+    /**
+     * What an upload has to do after looking up its blob: nothing, if the file was linked to stored content,
+     * or write the content to {@code key}. {@code staleKey} is the object of an earlier generation, if any.
+     */
+    private record Reservation(String key, String staleKey) {
+
+        static final Reservation LINKED = new Reservation(null, null);
+    }
+
+    /**
+     * Compute the lowercase hex SHA-256 of a stream, reading it to the end.
+     */
+    public static String sha256(InputStream input) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (DigestInputStream digestInput = new DigestInputStream(input, digest)) {
+            digestInput.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Register a file with the given content, writing the blob only if no file has that content yet.
+     * A failed write leaves the blob pending; the next upload of the content writes it again.
+     *
+     * @param file   the logical file to register, without a blob
+     * @param sha256 the content hash
+     * @param writer writes the content when the blob is new
+     * @return true if the content was already stored and nothing was written
+     */
+    public boolean store(StoredFile file, String sha256, BlobWriter writer) throws IOException {
+        String hash = checkedHash(sha256);
+        for (int attempt = 1; ; attempt++) {
+            Reservation reservation;
+            try {
+                reservation = transactionTemplate.execute(status -> this.reserve(file, hash));
+            } catch (DataIntegrityViolationException e) {
+                // The same content was inserted concurrently: lock that row on the next attempt
+                if (attempt >= ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            if (reservation == Reservation.LINKED) {
+                log.info("Duplicate content, upload skipped. Key: {}, SHA-256: {}", file.getObjectKey(), hash);
+                return true;
+            }
+
+            writer.write(reservation.key());
+            if (reservation.staleKey() != null) {
+                this.deleteObject(reservation.staleKey());
+            }
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> this.complete(file, hash, reservation.key())))) {
+                return false;
+            }
+            // The blob was deleted while the content was written: reserve it again
+            if (attempt >= ATTEMPTS) {
+                throw new IllegalStateException("Content kept being deleted while uploading it. SHA-256: " + hash);
+            }
+        }
+    }
+
+    /**
+     * Register a file with content that is already stored, without any transfer. Only content the same user has
+     * uploaded before is linked, so knowing a hash does not give access to someone else's file.
+     *
+     * @param file   the logical file to register, without a blob, with the user in {@link StoredFile#getUploadedBy()}
+     * @param sha256 the content hash
+     * @return true if the file was registered, false if the client has to upload the content
+     */
+    public boolean storeExisting(StoredFile file, String sha256) {
+        String hash = checkedHash(sha256);
+        if (file.getUploadedBy() == null) {
+            return false;
+        }
+        Boolean linked = transactionTemplate.execute(status -> {
+            StoredBlob blob = storedBlobRepository.lockBySha256(hash).orElse(null);
+            if (blob == null || blob.getState() != StoredBlob.State.STORED
+                    || !storedFileRepository.existsByBlobIdAndUploadedBy(blob.getId(), file.getUploadedBy())) {
+                return false;
+            }
+            this.link(file, blob);
+            return true;
+        });
+        return Boolean.TRUE.equals(linked);
+    }
+
+    /**
+     * The storage key holding the content of a file: its blob key for content-addressed files, else the filename itself.
+     */
+    public String resolve(String filename) {
+        return storedFileRepository.findBlobKey(filename).orElse(filename);
+    }
+
+    /**
+     * Delete a content-addressed file, and its blob with the stored object once no other file references it.
+     * If the object cannot be deleted, the blob stays marked as deleting and the object is deleted when
+     * the content is uploaded again.
+     *
+     * @return false if the file is not content-addressed and has to be deleted by key
+     */
+    public boolean delete(String filename) {
+        Optional<StoredBlob> unreferenced = transactionTemplate.execute(status -> {
+            Optional<StoredFile> file = storedFileRepository.findByObjectKey(filename)
+                    .filter(storedFile -> storedFile.getBlob() != null);
+            if (file.isEmpty()) {
+                return null;
+            }
+            StoredBlob blob = storedBlobRepository.lockBySha256(file.get().getBlob().getSha256()).orElseThrow();
+            storedFileRepository.delete(file.get());
+            blob.setRefCount(blob.getRefCount() - 1);
+            if (blob.getRefCount() > 0) {
+                return Optional.empty();
+            }
+            blob.setState(StoredBlob.State.DELETING);
+            return Optional.of(blob);
+        });
+        if (unreferenced == null) {
+            return false;
+        }
+        if (unreferenced.isPresent() && this.deleteObject(unreferenced.get().getObjectKey())) {
+            String sha256 = unreferenced.get().getSha256();
+            String key = unreferenced.get().getObjectKey();
+            transactionTemplate.executeWithoutResult(status -> storedBlobRepository.lockBySha256(sha256)
+                    // Uploaded again in the meantime under a new key: the row is in use
+                    .filter(blob -> blob.getState() == StoredBlob.State.DELETING && blob.getObjectKey().equals(key))
+                    .ifPresent(storedBlobRepository::delete));
+            log.info("Blob deleted with its last reference. SHA-256: {}", sha256);
+        }
+        return true;
+    }
+
+    /**
+     * First step of an upload, under the blob row lock: link the file if the content is stored,
+     * else find the key to write the content to, inserting or reviving the blob as pending.
+     */
+    private Reservation reserve(StoredFile file, String sha256) {
+        StoredBlob blob = storedBlobRepository.lockBySha256(sha256).orElse(null);
+        if (blob == null) {
+            // Flushed at once so that a concurrent upload of the same content fails here, not after writing
+            blob = storedBlobRepository.saveAndFlush(StoredBlob.builder()
+                    .sha256(sha256)
+                    .objectKey(objectKey(sha256, 0))
+                    .size(file.getSize())
+                    .contentType(file.getContentType())
+                    .state(StoredBlob.State.PENDING)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            return new Reservation(blob.getObjectKey(), null);
+        }
+        switch (blob.getState()) {
+            case STORED -> {
+                this.link(file, blob);
+                return Reservation.LINKED;
+            }
+            case DELETING -> {
+                String staleKey = blob.getObjectKey();
+                blob.setGeneration(blob.getGeneration() + 1);
+                blob.setObjectKey(objectKey(sha256, blob.getGeneration()));
+                blob.setState(StoredBlob.State.PENDING);
+                return new Reservation(blob.getObjectKey(), staleKey);
+            }
+            default -> {
+                // Another upload of the same content is writing it: write the same object as well
+                return new Reservation(blob.getObjectKey(), null);
+            }
+        }
+    }
+
+    /**
+     * Last step of an upload, under the blob row lock: mark the blob stored and link the file,
+     * unless the blob has meanwhile been deleted or moved to another key.
+     */
+    private boolean complete(StoredFile file, String sha256, String key) {
+        StoredBlob blob = storedBlobRepository.lockBySha256(sha256).orElse(null);
+        if (blob == null || blob.getState() == StoredBlob.State.DELETING || !blob.getObjectKey().equals(key)) {
+            return false;
+        }
+        blob.setState(StoredBlob.State.STORED);
+        this.link(file, blob);
+        return true;
+    }
+
+    private void link(StoredFile file, StoredBlob blob) {
+        blob.setRefCount(blob.getRefCount() + 1);
+        file.setBlob(blob);
+        file.setSize(blob.getSize());
+        storedFileRepository.save(file);
+    }
+
+    private boolean deleteObject(String key) {
+        try {
+            objectStorage.delete(key);
+            return true;
+        } catch (StorageException e) {
+            log.warn("Could not delete blob object. Key: {}, error: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String objectKey(String sha256, int generation) {
+        String key = BLOB_PREFIX + "sha256/" + sha256;
+        return generation == 0 ? key : key + "." + generation;
+    }
+
+    private static String checkedHash(String sha256) {
+        String hash = sha256 == null ? "" : sha256.trim().toLowerCase();
+        if (!SHA256.matcher(hash).matches()) {
+            throw new IllegalArgumentException("SHA-256 must be 64 hex characters");
+        }
+        return hash;
+    }
+}
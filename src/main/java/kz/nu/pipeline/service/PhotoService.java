@@ -0,0 +1,297 @@
+package kz.nu.pipeline.service;
+
+import jakarta.annotation.PreDestroy;
+import kz.nu.pipeline.event.FileUploadedEvent;
+import kz.nu.pipeline.model.Photo;
+import kz.nu.pipeline.repository.PhotoRepository;
+import kz.nu.pipeline.storage.ObjectContent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates thumbnail and medium derivatives of uploaded images on a bounded background pool, so that list
+ * screens download a few kilobytes instead of the original.
+ * <p>
+ * Derivatives are JPEG (PNG when the image has transparency) stored next to the original as
+ * {@code <name>_thumbnail.<ext>} and {@code <name>_medium.<ext>}. Large images are decoded with source
+ * subsampling, so a photo is never held in memory at much more than twice the medium size; images over
+ * {@code app.photo.derivatives.max-source-size} or {@code max-source-pixels} are not processed.
+ * When the queue is full the photo is marked failed and its variants fall back to the original.
+ */
+@Service
+@Slf4j
+public class PhotoService {
+
+    private final S3Service s3Service;
+    private final PhotoRepository photoRepository;
+    private final boolean enabled;
+    private final int thumbnailSize;
+    private final int mediumSize;
+    private final long maxSourceSize;
+    private final long maxSourcePixels;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor executor;
+
+    public PhotoService(
+            S3Service s3Service,
+            PhotoRepository photoRepository,
+            @Value("${app.photo.derivatives.enabled:true}") boolean enabled,
+            @Value("${app.photo.derivatives.threads:2}") int threads,
+            @Value("${app.photo.derivatives.queue-capacity:100}") int queueCapacity,
+            @Value("${app.photo.derivatives.thumbnail-size:256}") int thumbnailSize,
+            @Value("${app.photo.derivatives.medium-size:1280}") int mediumSize,
+            @Value("${app.photo.derivatives.max-source-size:50MB}") DataSize maxSourceSize,
+            @Value("${app.photo.derivatives.max-source-pixels:100000000}") long maxSourcePixels,
+            @Value("${app.photo.derivatives.jpeg-quality:0.8}") float jpegQuality
+    ) {
+        this.s3Service = s3Service;
+        this.photoRepository = photoRepository;
+        this.enabled = enabled;
+        this.thumbnailSize = thumbnailSize;
+        this.mediumSize = mediumSize;
+        this.maxSourceSize = maxSourceSize.toBytes();
+        this.maxSourcePixels = maxSourcePixels;
+        this.jpegQuality = jpegQuality;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "photo-derivatives-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Register an uploaded image and queue its derivatives. Other files are ignored.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileUploaded(FileUploadedEvent event) {
+        if (!enabled || event.getContentType() == null || !event.getContentType().startsWith("image/")) {
+            return;
+        }
+        Photo photo = photoRepository.findByObjectKey(event.getFilename()).orElseGet(() -> photoRepository.save(Photo.builder()
+                .objectKey(event.getFilename())
+                .contentType(event.getContentType())
+                .status(Photo.Status.PENDING)
+                .createdAt(LocalDateTime.now())
+                .build()));
+        try {
+            executor.execute(() -> this.generate(photo.getId()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Derivative queue full, serving the original for {}", photo.getObjectKey());
+            this.finish(photo, Photo.Status.FAILED);
+        }
+    }
+
+    /**
+     * The key to download for a size variant of a file: the derivative once generated, else the file itself.
+     *
+     * @param filename the original key
+     * @param size     {@code thumbnail}, {@code medium} or {@code original}; null for the original
+     * @throws IllegalArgumentException if the size is unknown
+     */
+    public String variantKey(String filename, String size) {
+        Photo.Variant variant = parseVariant(size);
+        if (variant == null || variant == Photo.Variant.ORIGINAL) {
+            return filename;
+        }
+        return photoRepository.findByObjectKey(filename)
+                .map(photo -> photo.keyOf(variant))
+                .orElse(filename);
+    }
+
+    /**
+     * Delete the derivatives of a file, if it is a photo.
+     *
+     * @return the deleted derivative keys
+     */
+    public List<String> deleteDerivatives(String filename) {
+        Optional<Photo> photo = photoRepository.findByObjectKey(filename);
+        if (photo.isEmpty()) {
+            return List.of();
+        }
+        List<String> deleted = new ArrayList<>();
+        for (String key : new String[]{photo.get().getThumbnailKey(), photo.get().getMediumKey()}) {
+            if (key != null) {
+                s3Service.deleteFile(key);
+                deleted.add(key);
+            }
+        }
+        photoRepository.delete(photo.get());
+        return deleted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(Long photoId) {
+        Photo photo = photoRepository.findById(photoId).orElse(null);
+        if (photo == null) {
+            return;
+        }
+        try (ObjectContent original = s3Service.downloadFile(photo.getObjectKey(), null, null, null)) {
+            long size = original.metadata().size();
+            if (size > maxSourceSize) {
+                original.abort();
+                log.info("Image too large for derivatives: {} ({} bytes)", photo.getObjectKey(), size);
+                this.finish(photo, Photo.Status.FAILED);
+                return;
+            }
+
+            BufferedImage source = this.read(photo, original);
+            if (source == null) {
+                this.finish(photo, Photo.Status.FAILED);
+                return;
+            }
+            boolean alpha = source.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpg";
+            String base = photo.getObjectKey().contains(".")
+                    ? photo.getObjectKey().substring(0, photo.getObjectKey().lastIndexOf('.'))
+                    : photo.getObjectKey();
+
+            // The medium size is scaled from the source and the thumbnail from the medium, which is cheaper
+            BufferedImage medium = scale(source, mediumSize, alpha);
+            BufferedImage thumbnail = scale(medium, thumbnailSize, alpha);
+            String mediumKey = base + "_medium." + format;
+            String thumbnailKey = base + "_thumbnail." + format;
+            s3Service.putObject(mediumKey, this.encode(medium, format), alpha ? "image/png" : "image/jpeg");
+            s3Service.putObject(thumbnailKey, this.encode(thumbnail, format), alpha ? "image/png" : "image/jpeg");
+
+            photo.setMediumKey(mediumKey);
+            photo.setThumbnailKey(thumbnailKey);
+            this.finish(photo, Photo.Status.READY);
+            log.info("Derivatives generated for {}: {}x{}", photo.getObjectKey(), photo.getWidth(), photo.getHeight());
+        } catch (Exception e) {
+            log.error("Failed to generate derivatives for {}: {}", photo.getObjectKey(), e.getMessage(), e);
+            this.finish(photo, Photo.Status.FAILED);
+        }
+    }
+
+    /**
+     * Decode the image, subsampled so that it is at least twice the medium size for a clean downscale.
+     *
+     * @return the image, or null if it cannot be decoded or has too many pixels
+     */
+    private BufferedImage read(Photo photo, ObjectContent original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.inputStream())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                log.info("Unsupported image format: {}", photo.getObjectKey());
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                photo.setWidth(width);
+                photo.setHeight(height);
+                if ((long) width * height > maxSourcePixels) {
+                    log.info("Image has too many pixels for derivatives: {} ({}x{})", photo.getObjectKey(), width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (mediumSize * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale an image to fit within a square of the given size, halving step by step for quality.
+     */
+    private static BufferedImage scale(BufferedImage image, int maxSide, boolean alpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double ratio = Math.min(1.0, (double) maxSide / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if ("png".equals(format)) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private void finish(Photo photo, Photo.Status status) {
+        photo.setStatus(status);
+        photo.setProcessedAt(LocalDateTime.now());
+        photoRepository.save(photo);
+    }
+
+    private static Photo.Variant parseVariant(String size) {
+        if (size == null || size.isBlank()) {
+            return null;
+        }
+        try {
+            return Photo.Variant.valueOf(size.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown size: " + size + ", expected thumbnail, medium or original");
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.model.PipeAttributeValue;
+import kz.nu.pipeline.model.PipeAttributeValue.Kind;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * In-memory bidirectional dictionary over {@link PipeAttributeValue}.
+ * Every pipe attribute read from the database resolves to the single {@link String} instance held here,
+ * so loaded pipes share their attribute strings instead of carrying a copy each.
+ * <p>
+ * Lookups and inserts run over JDBC on the connection of the current transaction, so interning during a flush
+ * never needs a second pooled connection. A row inserted by a transaction is only shared with other threads once
+ * that transaction commits; if it rolls back, the value is simply inserted again by the next write. A value
+ * another instance has added is picked up from the table on the first miss.
+ */
+@Component
+@Slf4j
+public class PipeAttributeDictionary {
+
+    /** Id bound for values that are not in the table, so that lookups by them match no pipe. */
+    public static final int UNKNOWN_ID = -1;
+
+    private static final String SELECT_ALL = "SELECT id, kind, attribute_value FROM pipe_attribute_value";
+    private static final String SELECT_ID = "SELECT id FROM pipe_attribute_value WHERE kind = ? AND attribute_value = ?";
+    private static final String SELECT_ROW = "SELECT id, kind, attribute_value FROM pipe_attribute_value WHERE id = ?";
+    private static final String INSERT = "INSERT INTO pipe_attribute_value (kind, attribute_value) VALUES (?, ?)";
+    private static final String INTEGRITY_VIOLATION_CLASS = "23";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Kind, Map<String, Integer>> idsByValue = new EnumMap<>(Kind.class);
+    private final Map<Integer, String> valuesById = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public PipeAttributeDictionary(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        for (Kind kind : Kind.values()) {
+            idsByValue.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * @return the id of the value, or {@link #UNKNOWN_ID} if it is not in the table
+     */
+    public int idOf(Kind kind, String value) {
+        this.ensureLoaded();
+        Integer id = idsByValue.get(kind).get(value);
+        if (id != null) {
+            return id;
+        }
+        PipeAttributeValue pending = this.pending(row -> row.getKind() == kind && row.getValue().equals(value));
+        if (pending != null) {
+            return pending.getId();
+        }
+        // Possibly added by another instance since the load
+        List<Integer> ids = jdbcTemplate.queryForList(SELECT_ID, Integer.class, kind.name(), value);
+        if (ids.isEmpty()) {
+            return UNKNOWN_ID;
+        }
+        this.put(new PipeAttributeValue(ids.get(0), kind, value));
+        return ids.get(0);
+    }
+
+    /**
+     * @return the canonical string for the id
+     * @throws IllegalStateException if no such id exists in the table
+     */
+    public String valueOf(int id) {
+        this.ensureLoaded();
+        String value = valuesById.get(id);
+        if (value != null) {
+            return value;
+        }
+        PipeAttributeValue pending = this.pending(row -> row.getId() == id);
+        if (pending != null) {
+            return pending.getValue();
+        }
+        List<PipeAttributeValue> rows = jdbcTemplate.query(SELECT_ROW, (rs, rowNum) -> toRow(rs), id);
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("Unknown pipe attribute id: " + id);
+        }
+        this.put(rows.get(0));
+        return valuesById.get(id);
+    }
+
+    /**
+     * Return the id of the value, adding it to the table first if needed.
+     */
+    public int intern(Kind kind, String value) {
+        int id = this.idOf(kind, value);
+        if (id != UNKNOWN_ID) {
+            return id;
+        }
+        PipeAttributeValue row = new PipeAttributeValue(this.insert(kind, value), kind, value);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            this.pendingRows().add(row);
+        } else {
+            this.put(row);
+        }
+        log.debug("Interned pipe {} '{}' as {}", kind, value, row.getId());
+        return row.getId();
+    }
+
+    /**
+     * Intern every dictionary-encoded attribute of the pipe.
+     */
+    public void intern(Pipe pipe) {
+        this.internIfPresent(Kind.MATERIAL, pipe.getMaterial());
+        this.internIfPresent(Kind.GRADE, pipe.getGrade());
+        this.internIfPresent(Kind.MANUFACTURER, pipe.getManufacturer());
+        this.internIfPresent(Kind.LOCATION, pipe.getLocation());
+        this.internIfPresent(Kind.COATING_TYPE, pipe.getCoatingType());
+        this.internIfPresent(Kind.QUALITY_CLASS, pipe.getQualityClass());
+    }
+
+    private void internIfPresent(Kind kind, String value) {
+        if (value != null) {
+            this.intern(kind, value);
+        }
+    }
+
+    /**
+     * Insert the value under a savepoint: when a concurrent transaction inserted it first, the unique constraint
+     * fails only the insert, and the row the other transaction committed is used instead.
+     */
+    private int insert(Kind kind, String value) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT, new String[]{"id"})) {
+                insert.setString(1, kind.name());
+                insert.setString(2, value);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    return keys.getInt(1);
+                }
+            } catch (SQLException e) {
+                if (e.getSQLState() == null || !e.getSQLState().startsWith(INTEGRITY_VIOLATION_CLASS)) {
+                    throw e;
+                }
+                if (savepoint != null) {
+                    connection.rollback(savepoint);
+                }
+                try (PreparedStatement select = connection.prepareStatement(SELECT_ID)) {
+                    select.setString(1, kind.name());
+                    select.setString(2, value);
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (!rs.next()) {
+                            throw e;
+                        }
+                        return rs.getInt(1);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to intern pipe " + kind + " '" + value + "'", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private PipeAttributeValue pending(Predicate<PipeAttributeValue> matches) {
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            return null;
+        }
+        for (PipeAttributeValue row : this.pendingRows()) {
+            if (matches.test(row)) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rows inserted by the current transaction, published to the shared maps once it commits.
+     */
+    @SuppressWarnings("unchecked")
+    private List<PipeAttributeValue> pendingRows() {
+        List<PipeAttributeValue> rows = (List<PipeAttributeValue>) TransactionSynchronizationManager.getResource(this);
+        if (rows == null) {
+            List<PipeAttributeValue> newRows = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, newRows);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    newRows.forEach(PipeAttributeDictionary.this::put);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PipeAttributeDictionary.this);
+                }
+            });
+            rows = newRows;
+        }
+        return rows;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            this.load();
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        jdbcTemplate.query(SELECT_ALL, (rs, rowNum) -> toRow(rs)).forEach(this::put);
+        loaded = true;
+        log.info("Pipe attribute dictionary loaded: {} values", valuesById.size());
+    }
+
+    private void put(PipeAttributeValue row) {
+        String canonical = valuesById.computeIfAbsent(row.getId(), id -> row.getValue());
+        idsByValue.get(row.getKind()).putIfAbsent(canonical, row.getId());
+    }
+
+    private static PipeAttributeValue toRow(ResultSet rs) throws SQLException {
+        return new PipeAttributeValue(rs.getInt("id"), Kind.valueOf(rs.getString("kind")), rs.getString("attribute_value"));
+    }
+}
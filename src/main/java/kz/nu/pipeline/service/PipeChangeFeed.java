@@ -0,0 +1,217 @@
+package kz.nu.pipeline.service;
+
+import jakarta.annotation.PreDestroy;
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.event.PipeChangeEvent;
+import kz.nu.pipeline.model.Pipe;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans committed pipe changes out to Server-Sent Events subscribers.
+ * Every subscriber has a bounded buffer drained on a small shared pool, so a slow client only loses
+ * its own oldest events (and is told so with an {@code overflow} event) instead of blocking writers.
+ * A short in-memory replay log lets reconnecting clients resume from {@code Last-Event-ID}; a client whose
+ * id is no longer covered, or was issued before a restart, gets a {@code reset} event and has to reload.
+ * Event ids start from the startup time so that ids of an earlier run are never mistaken for current ones.
+ */
+@Service
+@Slf4j
+public class PipeChangeFeed {
+
+    private final Deque<FeedEntry> replayLog = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService dispatcher;
+    private final int replaySize;
+    private final int subscriberBuffer;
+    private final long emitterTimeoutMs;
+    private final long firstEventId;
+    private long lastEventId;
+
+    public PipeChangeFeed(
+            @Value("${app.pipe.changes.replay-size:1000}") int replaySize,
+            @Value("${app.pipe.changes.subscriber-buffer:256}") int subscriberBuffer,
+            @Value("${app.pipe.changes.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+            @Value("${app.pipe.changes.heartbeat-interval-ms:15000}") long heartbeatIntervalMs,
+            @Value("${app.pipe.changes.dispatch-threads:4}") int dispatchThreads
+    ) {
+        this.replaySize = replaySize;
+        this.subscriberBuffer = subscriberBuffer;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        // Leaves room for about a million events per millisecond of uptime before ids of two runs could meet
+        this.lastEventId = System.currentTimeMillis() << 20;
+        this.firstEventId = this.lastEventId + 1;
+        this.dispatcher = Executors.newScheduledThreadPool(dispatchThreads);
+        this.dispatcher.scheduleAtFixedRate(this::sendHeartbeats, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record a committed change and hand it to every matching subscriber.
+     * Runs without a transaction too, for writes made outside one.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onPipeChange(PipeChangeEvent event) {
+        FeedEntry entry = new FeedEntry(++lastEventId, event);
+        replayLog.addLast(entry);
+        if (replayLog.size() > replaySize) {
+            replayLog.removeFirst();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(entry);
+        }
+    }
+
+    /**
+     * Open a change stream.
+     *
+     * @param status      only deliver changes of pipes in this status, or {@code null} for all
+     * @param location    only deliver changes of pipes at this location, or {@code null} for all
+     * @param lastEventId resume after this event id, or {@code null} to only receive new changes
+     * @return the emitter bound to the HTTP response
+     */
+    public SseEmitter subscribe(Pipe.PipeStatus status, String location, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, status, location);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        synchronized (this) {
+            if (lastEventId != null) {
+                long oldestId = replayLog.isEmpty() ? this.lastEventId + 1 : replayLog.peekFirst().id();
+                if (lastEventId < firstEventId - 1 || lastEventId > this.lastEventId || oldestId > lastEventId + 1) {
+                    // Issued by an earlier run or part of the history is gone: the client has to reload
+                    subscriber.reset.set(true);
+                } else {
+                    replayLog.stream()
+                            .filter(entry -> entry.id() > lastEventId)
+                            .forEach(subscriber::offer);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        if (subscriber.reset.get()) {
+            subscriber.scheduleDrain();
+        }
+        log.info("Change feed subscriber added, status: {}, location: {}, resume after: {}", status, location, lastEventId);
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            dispatcher.execute(() -> subscriber.send(SseEmitter.event().comment("heartbeat")));
+        }
+    }
+
+    private record FeedEntry(long id, PipeChangeEvent event) {
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final Pipe.PipeStatus status;
+        private final String location;
+        private final BlockingQueue<FeedEntry> buffer = new ArrayBlockingQueue<>(subscriberBuffer);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+        private final AtomicBoolean reset = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, Pipe.PipeStatus status, String location) {
+            this.emitter = emitter;
+            this.status = status;
+            this.location = location;
+        }
+
+        private void offer(FeedEntry entry) {
+            if (!this.matches(entry.event())) {
+                return;
+            }
+            while (!buffer.offer(entry)) {
+                buffer.poll();
+                overflowed.set(true);
+            }
+            this.scheduleDrain();
+        }
+
+        private boolean matches(PipeChangeEvent event) {
+            if (event.getType() == PipeChangeEvent.ChangeType.DELETED || event.getPipe() == null) {
+                return true;
+            }
+            // A pipe moving out of the filter is a change the subscriber has to see too
+            return this.matches(event.getPipe()) || (event.getPrevious() != null && this.matches(event.getPrevious()));
+        }
+
+        private boolean matches(PipeDto pipe) {
+            return (status == null || status == pipe.getStatus())
+                    && (location == null || Objects.equals(location, pipe.getLocation()));
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    if (reset.getAndSet(false) && !this.send(SseEmitter.event().name("reset").data("reload required"))) {
+                        return;
+                    }
+                    if (overflowed.getAndSet(false) && !this.send(SseEmitter.event().name("overflow").data("events dropped"))) {
+                        return;
+                    }
+                    FeedEntry entry = buffer.poll();
+                    if (entry == null) {
+                        break;
+                    }
+                    if (!this.send(SseEmitter.event()
+                            .id(String.valueOf(entry.id()))
+                            .name(entry.event().getType().name().toLowerCase())
+                            .data(entry.event(), MediaType.APPLICATION_JSON))) {
+                        return;
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            if (!buffer.isEmpty() || overflowed.get() || reset.get()) {
+                this.scheduleDrain();
+            }
+        }
+
+        private boolean send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping change feed subscriber: {}", e.getMessage());
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package kz.nu.pipeline.service;
+
+import jakarta.annotation.PreDestroy;
+import kz.nu.pipeline.config.ReplicaRoutingDataSource;
+import kz.nu.pipeline.dto.PipeBulkResultDto;
+import kz.nu.pipeline.dto.PipeDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit for single-pipe creates. Concurrent {@link #create} calls are queued and a dispatcher thread
+ * inserts them together through {@link PipeService#createPipes}, one transaction per group: it takes what is queued,
+ * then waits at most {@code max-wait-micros} for more, up to {@code max-batch-size} pipes.
+ * Each caller gets its own pipe or error back, and gives up after {@code timeout-ms}.
+ * <p>
+ * With a single dispatcher, groups are committed one after another, so the pipe number check of a group
+ * also sees every earlier group.
+ * <p>
+ * The dispatcher thread commits on behalf of other users, so with read replicas it reports each caller's committed
+ * create to {@link ReplicaRoutingDataSource#recordWrite} before handing the result back; the caller's next reads
+ * then stay on the primary.
+ */
+@Component
+@Slf4j
+public class PipeCreateCoalescer {
+
+    private final PipeService pipeService;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long timeoutMillis;
+    private final BlockingQueue<PendingCreate> queue;
+    private final Thread dispatcher;
+
+    /**
+     * @param user the caller, captured on the request thread
+     */
+    private record PendingCreate(PipeDto pipe, String user, CompletableFuture<PipeDto> result) {
+    }
+
+    public PipeCreateCoalescer(
+            PipeService pipeService,
+            ObjectProvider<ReplicaRoutingDataSource> replicaRouting,
+            @Value("${app.pipe.create-coalescing.enabled:true}") boolean enabled,
+            @Value("${app.pipe.create-coalescing.max-batch-size:200}") int maxBatchSize,
+            @Value("${app.pipe.create-coalescing.max-wait-micros:500}") long maxWaitMicros,
+            @Value("${app.pipe.create-coalescing.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.pipe.create-coalescing.timeout-ms:30000}") long timeoutMillis
+    ) {
+        this.pipeService = pipeService;
+        this.replicaRouting = replicaRouting;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.timeoutMillis = timeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.dispatcher = new Thread(this::dispatch, "pipe-create-coalescer");
+        this.dispatcher.setDaemon(true);
+        if (enabled) {
+            this.dispatcher.start();
+        }
+    }
+
+    /**
+     * Create a pipe as part of the next group and wait for the group to commit.
+     *
+     * @return the created pipe
+     * @throws IllegalArgumentException if the pipe is invalid or its number is taken
+     */
+    public PipeDto create(PipeDto pipeDto) {
+        if (!enabled) {
+            return pipeService.createPipe(pipeDto);
+        }
+        PendingCreate pending = new PendingCreate(pipeDto, ReplicaRoutingDataSource.currentUser(), new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many pipe creates in flight, retry later");
+        }
+        try {
+            return pending.result().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // A group that has not started yet skips a cancelled create; one already in flight may still commit it
+            pending.result().cancel(false);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Timed out waiting for pipe create, check whether the pipe exists before retrying");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for pipe create", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.interrupt();
+        List<PendingCreate> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        failPending(remaining, new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down"));
+    }
+
+    private void dispatch() {
+        List<PendingCreate> group = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                group.add(queue.take());
+                queue.drainTo(group, maxBatchSize - group.size());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (group.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingCreate next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                    queue.drainTo(group, maxBatchSize - group.size());
+                }
+                this.commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failPending(group, new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down"));
+            } catch (Throwable e) {
+                // Keep the dispatcher alive: only this group's callers see the failure
+                log.error("Create group of {} failed", group.size(), e);
+                failPending(group, e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingCreate> group) {
+        // Callers that timed out before their group started are not created
+        group.removeIf(pending -> pending.result().isDone());
+        if (group.isEmpty()) {
+            return;
+        }
+        List<PipeBulkResultDto> results;
+        try {
+            results = pipeService.createPipes(group.stream().map(PendingCreate::pipe).toList());
+        } catch (RuntimeException e) {
+            // The group transaction failed as a whole: retry one by one so only the culprit fails
+            log.warn("Create group of {} rolled back, retrying individually: {}", group.size(), e.getMessage());
+            for (PendingCreate pending : group) {
+                if (pending.result().isDone()) {
+                    continue;
+                }
+                try {
+                    PipeDto created = pipeService.createPipe(pending.pipe());
+                    this.recordWrite(pending);
+                    pending.result().complete(created);
+                } catch (RuntimeException createException) {
+                    pending.result().completeExceptionally(createException);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            PipeBulkResultDto result = results.get(i);
+            if (result.isSuccess()) {
+                this.recordWrite(group.get(i));
+                group.get(i).result().complete(result.getPipe());
+            } else {
+                group.get(i).result().completeExceptionally(new IllegalArgumentException(result.getError()));
+            }
+        }
+    }
+
+    private void recordWrite(PendingCreate pending) {
+        ReplicaRoutingDataSource routing = replicaRouting.getIfAvailable();
+        if (routing != null) {
+            routing.recordWrite(pending.user());
+        }
+    }
+
+    private static void failPending(List<PendingCreate> group, Throwable cause) {
+        for (PendingCreate pending : group) {
+            if (!pending.result().isDone()) {
+                pending.result().completeExceptionally(cause);
+            }
+        }
+    }
+}
@@ -1,22 +1,46 @@
 package kz.nu.pipeline.service;
 
 import kz.nu.pipeline.dto.ExcelUploadResponseDto;
+import kz.nu.pipeline.dto.PipeBulkOperationDto;
+import kz.nu.pipeline.dto.PipeBulkRequestDto;
+import kz.nu.pipeline.dto.PipeBulkResponseDto;
+import kz.nu.pipeline.dto.PipeBulkResultDto;
 import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.dto.PipeField;
+import kz.nu.pipeline.dto.PipeLookupRequestDto;
+import kz.nu.pipeline.dto.PipeLookupResponseDto;
+import kz.nu.pipeline.dto.PipeSearchHitDto;
+import kz.nu.pipeline.dto.PipeSearchResponseDto;
+import kz.nu.pipeline.dto.PipeSyncResponseDto;
+import kz.nu.pipeline.dto.PipeTombstoneDto;
+import kz.nu.pipeline.event.PipeChangeEvent;
+import kz.nu.pipeline.index.PipeSearchIndex;
+import kz.nu.pipeline.model.FixedPoint;
 import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.model.PipeTombstone;
+import kz.nu.pipeline.repository.PipeChangeSequence;
 import kz.nu.pipeline.repository.PipeRepository;
+import kz.nu.pipeline.repository.PipeTombstoneRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -26,9 +50,37 @@ import java.util.stream.Collectors;
 public class PipeService {
 
     private final PipeRepository pipeRepository;
+    private final PipeTombstoneRepository pipeTombstoneRepository;
+    private final PipeChangeSequence pipeChangeSequence;
+    private final PipeTombstoneSweeper pipeTombstoneSweeper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PipeSearchIndex pipeSearchIndex;
+
+    @Value("${app.pipe.lookup.max-keys:5000}")
+    private int lookupMaxKeys;
+
+    @Value("${app.pipe.lookup.chunk-size:500}")
+    private int lookupChunkSize;
+
+    @Value("${app.pipe.bulk.max-operations:50000}")
+    private int bulkMaxOperations;
+
+    @Value("${app.pipe.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    @Value("${app.pipe.sync.max-page-size:1000}")
+    private int syncMaxPageSize;
+
+    @Value("${app.pipe.search.max-page-size:100}")
+    private int searchMaxPageSize;
 
     @Transactional
     public PipeDto createPipe(PipeDto pipeDto) {
+        return this.createPipe(pipeDto, PipeChangeEvent.ChangeType.CREATED);
+    }
+
+    private PipeDto createPipe(PipeDto pipeDto, PipeChangeEvent.ChangeType changeType) {
         Optional.ofNullable(pipeDto.getPipeNumber())
                 .filter(StringUtils::isNotBlank)
                 .filter(this::pipeNumberExists)
@@ -38,8 +90,11 @@ public class PipeService {
                 });
         pipeDto.setId(null);
         Pipe pipe = this.convertToEntity(pipeDto);
+        pipe.setChangeSeq(pipeChangeSequence.next());
         Pipe savedPipe = pipeRepository.save(pipe);
-        return this.convertToDto(savedPipe);
+        PipeDto savedPipeDto = this.convertToDto(savedPipe);
+        this.publishChange(changeType, savedPipeDto);
+        return savedPipeDto;
     }
 
     @Transactional
@@ -47,30 +102,264 @@ public class PipeService {
         Pipe existingPipe = pipeRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("Pipe not found with id: " + id));
 
+        PipeDto previousPipeDto = this.convertToDto(existingPipe);
         this.updatePipeFields(existingPipe, pipeDto);
-        Pipe updatedPipe = pipeRepository.save(existingPipe);
-        return this.convertToDto(updatedPipe);
+        existingPipe.setChangeSeq(pipeChangeSequence.next());
+        Pipe updatedPipe = pipeRepository.saveAndFlush(existingPipe);
+        PipeDto updatedPipeDto = this.convertToDto(updatedPipe);
+        this.publishChange(PipeChangeEvent.ChangeType.UPDATED, updatedPipeDto, previousPipeDto);
+        return updatedPipeDto;
     }
 
+    @Transactional(readOnly = true)
     public Optional<PipeDto> getPipeById(Long id) {
         return pipeRepository.findById(id)
                 .map(this::convertToDto);
     }
 
+    @Transactional(readOnly = true)
     public Optional<PipeDto> getPipeByNumber(String pipeNumber) {
         return pipeRepository.findByPipeNumber(pipeNumber)
                 .map(this::convertToDto);
     }
 
+    /**
+     * Load pipes by id, keeping the order of the given ids and skipping ids that no longer exist.
+     */
+    @Transactional(readOnly = true)
+    public List<PipeDto> getPipesByIds(List<Long> ids) {
+        Map<Long, Pipe> pipesById = new HashMap<>();
+        for (List<Long> chunk : partition(ids, lookupChunkSize)) {
+            pipeRepository.findAllById(chunk).forEach(pipe -> pipesById.put(pipe.getId(), pipe));
+        }
+        List<PipeDto> pipes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Pipe pipe = pipesById.get(id);
+            if (pipe != null) {
+                pipes.add(this.convertToDto(pipe));
+            }
+        }
+        return pipes;
+    }
+
+    /**
+     * Full-text search over remarks, material, manufacturer and coating type.
+     *
+     * @param text free text, in Russian or English
+     * @param page zero-based page number
+     * @param size page size, at most {@code app.pipe.search.max-page-size}
+     * @return the ranked page of pipes
+     */
+    @Transactional(readOnly = true)
+    public PipeSearchResponseDto searchPipes(String text, int page, int size) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Search text must not be empty");
+        }
+        if (page < 0 || size < 1 || size > searchMaxPageSize) {
+            throw new IllegalArgumentException("page must not be negative and size must be between 1 and " + searchMaxPageSize);
+        }
+        PipeSearchIndex.Page hits = pipeSearchIndex.search(text, page, size);
+        Map<Long, PipeDto> pipesById = this.getPipesByIds(hits.hits().stream().map(PipeSearchIndex.Hit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(PipeDto::getId, pipe -> pipe));
+        List<PipeSearchHitDto> results = new ArrayList<>(hits.hits().size());
+        for (PipeSearchIndex.Hit hit : hits.hits()) {
+            PipeDto pipe = pipesById.get(hit.id());
+            if (pipe != null) {
+                results.add(new PipeSearchHitDto(pipe, hit.score()));
+            }
+        }
+        return new PipeSearchResponseDto(hits.total(), page, size, results);
+    }
+
+    @Transactional(readOnly = true)
     public List<PipeDto> getAllPipes() {
         return pipeRepository.findAll().stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Resolve many ids and pipe numbers at once using chunked {@code IN} queries.
+     *
+     * @param request the ids and pipe numbers to resolve
+     * @return found pipes and missing keys, both in request order
+     * @throws IllegalArgumentException if there are too many keys, or a null id or a blank pipe number
+     */
+    @Transactional(readOnly = true)
+    public PipeLookupResponseDto lookupPipes(PipeLookupRequestDto request) {
+        List<Long> ids = Optional.ofNullable(request.getIds()).orElse(List.of());
+        List<String> pipeNumbers = Optional.ofNullable(request.getPipeNumbers()).orElse(List.of());
+        if (ids.size() + pipeNumbers.size() > lookupMaxKeys) {
+            throw new IllegalArgumentException("At most " + lookupMaxKeys + " keys can be looked up in one request");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("ids must not contain null");
+        }
+        if (pipeNumbers.stream().anyMatch(StringUtils::isBlank)) {
+            throw new IllegalArgumentException("pipeNumbers must not contain blank values");
+        }
+
+        Map<Long, Pipe> pipesById = new HashMap<>();
+        for (List<Long> chunk : partition(ids.stream().distinct().toList(), lookupChunkSize)) {
+            pipeRepository.findAllById(chunk).forEach(pipe -> pipesById.put(pipe.getId(), pipe));
+        }
+        Map<String, Pipe> pipesByNumber = new HashMap<>();
+        for (List<String> chunk : partition(pipeNumbers.stream().distinct().toList(), lookupChunkSize)) {
+            pipeRepository.findByPipeNumberIn(chunk).forEach(pipe -> pipesByNumber.put(pipe.getPipeNumber(), pipe));
+        }
+
+        List<PipeDto> found = new ArrayList<>(ids.size() + pipeNumbers.size());
+        List<String> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Pipe pipe = pipesById.get(id);
+            if (pipe == null) {
+                missing.add(String.valueOf(id));
+            } else {
+                found.add(this.convertToDto(pipe));
+            }
+        }
+        for (String pipeNumber : pipeNumbers) {
+            Pipe pipe = pipesByNumber.get(pipeNumber);
+            if (pipe == null) {
+                missing.add(pipeNumber);
+            } else {
+                found.add(this.convertToDto(pipe));
+            }
+        }
+        return new PipeLookupResponseDto(found, missing);
+    }
+
+    /**
+     * Insert a group of new pipes in one transaction, checking their pipe numbers against the database
+     * and each other with a single query. Validation failures are reported per pipe; if the transaction
+     * itself fails, the exception propagates and none of the pipes is inserted.
+     *
+     * @param pipeDtos the pipes to create
+     * @return one result per pipe, in order
+     */
+    public List<PipeBulkResultDto> createPipes(List<PipeDto> pipeDtos) {
+        PipeBulkResultDto[] results = new PipeBulkResultDto[pipeDtos.size()];
+        Map<Integer, PipeDto> creates = new LinkedHashMap<>();
+        for (int index = 0; index < pipeDtos.size(); index++) {
+            creates.put(index, pipeDtos.get(index));
+        }
+        transactionTemplate.executeWithoutResult(status -> this.applyBulkCreates(creates, results));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Apply create/update/delete operations in chunks of {@code app.pipe.bulk.chunk-size}.
+     * Within a chunk creates are inserted first, then updates are flushed as one JDBC batch,
+     * then deletes run as a single set-based statement.
+     *
+     * @param request the operations and whether they must succeed or fail together
+     * @return one result per operation, in request order
+     */
+    public PipeBulkResponseDto applyBulk(PipeBulkRequestDto request) {
+        List<PipeBulkOperationDto> operations = Optional.ofNullable(request.getOperations()).orElse(List.of());
+        if (operations.size() > bulkMaxOperations) {
+            throw new IllegalArgumentException("At most " + bulkMaxOperations + " operations can be applied in one request");
+        }
+        PipeBulkResultDto[] results = new PipeBulkResultDto[operations.size()];
+
+        if (request.isAtomic()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (int from = 0; from < operations.size(); from += bulkChunkSize) {
+                        int to = Math.min(from + bulkChunkSize, operations.size());
+                        this.applyBulkChunk(operations, from, to, results);
+                        if (Arrays.stream(results, from, to).anyMatch(result -> !result.isSuccess())) {
+                            status.setRollbackOnly();
+                            return;
+                        }
+                    }
+                });
+                if (Arrays.stream(results).anyMatch(result -> result == null || !result.isSuccess())) {
+                    this.markRolledBack(operations, results, 0, results.length, "another operation failed");
+                }
+            } catch (RuntimeException e) {
+                log.error("Bulk request rolled back: {}", e.getMessage());
+                this.markRolledBack(operations, results, 0, results.length, e.getMessage());
+            }
+        } else {
+            for (int from = 0; from < operations.size(); from += bulkChunkSize) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(from + bulkChunkSize, operations.size());
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            this.applyBulkChunk(operations, chunkFrom, chunkTo, results));
+                } catch (RuntimeException e) {
+                    log.error("Bulk chunk {}-{} rolled back: {}", chunkFrom, chunkTo - 1, e.getMessage());
+                    this.markRolledBack(operations, results, chunkFrom, chunkTo, e.getMessage());
+                }
+            }
+        }
+        return PipeBulkResponseDto.of(Arrays.asList(results));
+    }
+
     @Transactional
     public void deletePipe(Long id) {
-        pipeRepository.deleteById(id);
+        pipeRepository.findById(id).ifPresent(pipe -> {
+            PipeDto deletedPipe = this.convertToDto(pipe);
+            pipeRepository.delete(pipe);
+            pipeTombstoneRepository.save(this.tombstoneOf(pipe.getId(), pipe.getPipeNumber()));
+            this.publishChange(PipeChangeEvent.ChangeType.DELETED, deletedPipe);
+        });
+    }
+
+    /**
+     * Return everything that changed after the given change sequence number, oldest first.
+     * Sequence numbers are drawn when a write happens but become visible at commit, so only changes up to
+     * {@link PipeChangeSequence#visibleHighWaterMark()} are returned; a later sync picks up the rest.
+     * Clients should keep requesting until {@code hasMore} is false and then continue from the returned
+     * high-water mark.
+     * <p>
+     * Runs in a read-write transaction so it is served by the primary: a replica may already show a change
+     * committed after one it has not replayed yet.
+     *
+     * @param since the high-water mark of the previous sync, {@code 0} for a full download
+     * @param limit the maximum number of changes to return
+     * @return upserted pipes, tombstones and the new high-water mark, or a resync request when {@code since}
+     * is older than the tombstone retention window
+     */
+    @Transactional
+    public PipeSyncResponseDto getChangesSince(long since, int limit) {
+        if (since > 0 && since < pipeTombstoneSweeper.getPurgedThrough()) {
+            return PipeSyncResponseDto.resyncRequired();
+        }
+        int pageSize = Math.max(1, Math.min(limit, syncMaxPageSize));
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        long upTo = pipeChangeSequence.visibleHighWaterMark();
+        List<Pipe> changedPipes = pipeRepository.findChangedBetween(since, upTo, page);
+        List<PipeTombstone> tombstones = pipeTombstoneRepository
+                .findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeq(since, upTo, page);
+
+        List<PipeDto> upserted = new ArrayList<>();
+        List<PipeTombstoneDto> deleted = new ArrayList<>();
+        long highWaterMark = since;
+        int p = 0;
+        int t = 0;
+        while (upserted.size() + deleted.size() < pageSize && (p < changedPipes.size() || t < tombstones.size())) {
+            boolean takePipe = t >= tombstones.size()
+                    || p < changedPipes.size() && changedPipes.get(p).getChangeSeq() < tombstones.get(t).getChangeSeq();
+            if (takePipe) {
+                Pipe pipe = changedPipes.get(p++);
+                upserted.add(this.convertToDto(pipe));
+                highWaterMark = pipe.getChangeSeq();
+            } else {
+                PipeTombstone tombstone = tombstones.get(t++);
+                deleted.add(new PipeTombstoneDto(tombstone.getPipeId(), tombstone.getPipeNumber(),
+                        tombstone.getChangeSeq(), tombstone.getDeletedAt()));
+                highWaterMark = tombstone.getChangeSeq();
+            }
+        }
+        boolean hasMore = p < changedPipes.size() || t < tombstones.size();
+        if (!hasMore) {
+            // Everything up to the visible mark has been returned, later syncs need not look below it again
+            highWaterMark = Math.max(highWaterMark, upTo);
+        }
+        return new PipeSyncResponseDto(upserted, deleted, highWaterMark, hasMore, false);
     }
 
     @Transactional
@@ -105,7 +394,7 @@ public class PipeService {
                         continue;
                     }
 
-                    PipeDto savedPipe = createPipe(pipeDto);
+                    PipeDto savedPipe = this.createPipe(pipeDto, PipeChangeEvent.ChangeType.IMPORTED);
                     processedPipes.add(savedPipe);
                     successfulRecords++;
 
@@ -137,21 +426,24 @@ public class PipeService {
         try {
             // Assuming column order based on typical pipe inventory sheets
             pipeDto.setPipeNumber(getCellValueAsString(row.getCell(0)));
-            pipeDto.setDiameter(getCellValueAsBigDecimal(row.getCell(1)));
-            pipeDto.setLength(getCellValueAsBigDecimal(row.getCell(2)));
-            pipeDto.setWallThickness(getCellValueAsBigDecimal(row.getCell(3)));
+            pipeDto.setDiameter(getCellValueAsScaled(row.getCell(1), Pipe.DIAMETER_SCALE));
+            pipeDto.setLength(getCellValueAsScaled(row.getCell(2), Pipe.LENGTH_SCALE));
+            pipeDto.setWallThickness(getCellValueAsScaled(row.getCell(3), Pipe.WALL_THICKNESS_SCALE));
             pipeDto.setMaterial(getCellValueAsString(row.getCell(4)));
             pipeDto.setGrade(getCellValueAsString(row.getCell(5)));
             pipeDto.setManufacturer(getCellValueAsString(row.getCell(6)));
             pipeDto.setProductionDate(getCellValueAsLocalDate(row.getCell(7)));
-            pipeDto.setWeight(getCellValueAsBigDecimal(row.getCell(8)));
+            pipeDto.setWeight(getCellValueAsScaled(row.getCell(8), Pipe.WEIGHT_SCALE));
             pipeDto.setLocation(getCellValueAsString(row.getCell(9)));
             pipeDto.setStatus(parseStatus(getCellValueAsString(row.getCell(10))));
             pipeDto.setRemarks(getCellValueAsString(row.getCell(11)));
             pipeDto.setBatchNumber(getCellValueAsString(row.getCell(12)));
             pipeDto.setQualityClass(getCellValueAsString(row.getCell(13)));
             pipeDto.setCoatingType(getCellValueAsString(row.getCell(14)));
-            pipeDto.setPressureRating(getCellValueAsBigDecimal(row.getCell(15)));
+            pipeDto.setPressureRating(getCellValueAsScaled(row.getCell(15), Pipe.PRESSURE_RATING_SCALE));
+            // Optional coordinate columns
+            pipeDto.setLatitude(getCellValueAsDouble(row.getCell(16)));
+            pipeDto.setLongitude(getCellValueAsDouble(row.getCell(17)));
 
         } catch (Exception e) {
             throw new RuntimeException("Error parsing row data: " + e.getMessage());
@@ -181,17 +473,36 @@ public class PipeService {
         }
     }
 
-    private BigDecimal getCellValueAsBigDecimal(Cell cell) {
+    static Long getCellValueAsScaled(Cell cell, int scale) {
         if (cell == null) {
             return null;
         }
         
         try {
             return switch (cell.getCellType()) {
-                case NUMERIC -> BigDecimal.valueOf(cell.getNumericCellValue());
+                case NUMERIC -> FixedPoint.fromDouble(cell.getNumericCellValue(), scale);
                 case STRING -> {
                     String stringValue = cell.getStringCellValue().trim();
-                    yield stringValue.isEmpty() ? null : new BigDecimal(stringValue);
+                    yield stringValue.isEmpty() ? null : FixedPoint.parse(stringValue, scale);
+                }
+                default -> null;
+            };
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new RuntimeException("Invalid numeric value: " + cell);
+        }
+    }
+
+    private Double getCellValueAsDouble(Cell cell) {
+        if (cell == null) {
+            return null;
+        }
+
+        try {
+            return switch (cell.getCellType()) {
+                case NUMERIC -> cell.getNumericCellValue();
+                case STRING -> {
+                    String stringValue = cell.getStringCellValue().trim();
+                    yield stringValue.isEmpty() ? null : Double.valueOf(stringValue);
                 }
                 default -> null;
             };
@@ -240,50 +551,265 @@ public class PipeService {
         }
     }
 
+    @Transactional(readOnly = true)
     public List<PipeDto> getPipesByStatus(Pipe.PipeStatus status) {
         return pipeRepository.findByStatus(status).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<PipeDto> getPipesByMaterial(String material) {
         return pipeRepository.findByMaterial(material).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<PipeDto> getPipesByLocation(String location) {
         return pipeRepository.findByLocation(location).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<PipeDto> getPipesByManufacturer(String manufacturer) {
         return pipeRepository.findByManufacturer(manufacturer).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
-    public List<PipeDto> getPipesByDiameterRange(Double minDiameter, Double maxDiameter) {
-        return pipeRepository.findByDiameterRange(minDiameter, maxDiameter).stream()
+    @Transactional(readOnly = true)
+    public List<PipeDto> getPipesByDiameterRange(BigDecimal minDiameter, BigDecimal maxDiameter) {
+        return pipeRepository.findByDiameterRange(
+                        FixedPoint.fromDecimal(minDiameter, Pipe.DIAMETER_SCALE, RoundingMode.CEILING),
+                        FixedPoint.fromDecimal(maxDiameter, Pipe.DIAMETER_SCALE, RoundingMode.FLOOR)).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public List<PipeDto> getPipes(Specification<Pipe> specification) {
+        return pipeRepository.findAll(specification).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
     public List<PipeDto> getPipesByBatch(String batchNumber) {
         return pipeRepository.findByBatchNumber(batchNumber).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Read only the requested fields of the matching pipes, narrowing the SQL select list accordingly.
+     *
+     * @param specification the filter, or {@code null} for all pipes
+     * @param fields        the whitelisted fields to select
+     * @return one property map per pipe
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getPipeFields(Specification<Pipe> specification, List<PipeField> fields) {
+        return pipeRepository.findFields(specification, fields);
+    }
+
+    @Transactional(readOnly = true)
     public Long countPipesByStatus(Pipe.PipeStatus status) {
         return pipeRepository.countByStatus(status);
     }
 
+    @Transactional(readOnly = true)
     public boolean pipeNumberExists(String pipeNumber) {
         return pipeRepository.existsByPipeNumber(pipeNumber);
     }
 
+    private void applyBulkChunk(List<PipeBulkOperationDto> operations, int from, int to, PipeBulkResultDto[] results) {
+        Map<Integer, PipeDto> creates = new LinkedHashMap<>();
+        Map<Integer, PipeBulkOperationDto> updates = new LinkedHashMap<>();
+        Map<Integer, Long> deletes = new LinkedHashMap<>();
+
+        for (int index = from; index < to; index++) {
+            PipeBulkOperationDto operation = operations.get(index);
+            PipeBulkOperationDto.OperationType type = operation.getType();
+            if (type == null) {
+                results[index] = PipeBulkResultDto.failure(index, null, operation.getId(), "Operation type is required");
+            } else if (type != PipeBulkOperationDto.OperationType.DELETE && operation.getPipe() == null) {
+                results[index] = PipeBulkResultDto.failure(index, type, operation.getId(), "Pipe data is required");
+            } else if (type != PipeBulkOperationDto.OperationType.CREATE && operation.getId() == null) {
+                results[index] = PipeBulkResultDto.failure(index, type, null, "Pipe id is required");
+            } else {
+                switch (type) {
+                    case CREATE -> creates.put(index, operation.getPipe());
+                    case UPDATE -> updates.put(index, operation);
+                    case DELETE -> deletes.put(index, operation.getId());
+                }
+            }
+        }
+
+        this.applyBulkCreates(creates, results);
+        this.applyBulkUpdates(updates, results);
+        this.applyBulkDeletes(deletes, results);
+    }
+
+    private void applyBulkCreates(Map<Integer, PipeDto> creates, PipeBulkResultDto[] results) {
+        if (creates.isEmpty()) {
+            return;
+        }
+        Set<String> requestedNumbers = creates.values().stream()
+                .map(PipeDto::getPipeNumber)
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.toSet());
+        Set<String> takenNumbers = requestedNumbers.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(pipeRepository.findExistingPipeNumbers(requestedNumbers));
+
+        List<Integer> indexes = new ArrayList<>(creates.size());
+        List<Pipe> pipes = new ArrayList<>(creates.size());
+        creates.forEach((index, pipeDto) -> {
+            pipeDto.setId(null);
+            Pipe pipe;
+            try {
+                pipe = this.convertToEntity(pipeDto);
+            } catch (IllegalArgumentException e) {
+                results[index] = PipeBulkResultDto.failure(index, PipeBulkOperationDto.OperationType.CREATE, null,
+                        e.getMessage());
+                return;
+            }
+            String pipeNumber = pipeDto.getPipeNumber();
+            if (StringUtils.isNotBlank(pipeNumber) && !takenNumbers.add(pipeNumber)) {
+                results[index] = PipeBulkResultDto.failure(index, PipeBulkOperationDto.OperationType.CREATE, null,
+                        "Pipe number already exists: " + pipeNumber);
+                return;
+            }
+            pipe.setChangeSeq(pipeChangeSequence.next());
+            indexes.add(index);
+            pipes.add(pipe);
+        });
+
+        List<Pipe> savedPipes = pipeRepository.saveAll(pipes);
+        for (int i = 0; i < savedPipes.size(); i++) {
+            Pipe savedPipe = savedPipes.get(i);
+            int index = indexes.get(i);
+            PipeDto savedPipeDto = this.convertToDto(savedPipe);
+            results[index] = PipeBulkResultDto.success(index, PipeBulkOperationDto.OperationType.CREATE,
+                    savedPipe.getId(), savedPipeDto);
+            this.publishChange(PipeChangeEvent.ChangeType.CREATED, savedPipeDto);
+        }
+    }
+
+    private void applyBulkUpdates(Map<Integer, PipeBulkOperationDto> updates, PipeBulkResultDto[] results) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        List<Long> ids = updates.values().stream().map(PipeBulkOperationDto::getId).distinct().toList();
+        Map<Long, Pipe> pipesById = pipeRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Pipe::getId, pipe -> pipe));
+
+        Map<Integer, Pipe> updatedPipes = new LinkedHashMap<>();
+        Map<Integer, PipeDto> previousPipes = new HashMap<>();
+        updates.forEach((index, operation) -> {
+            Pipe pipe = pipesById.get(operation.getId());
+            if (pipe == null) {
+                results[index] = PipeBulkResultDto.failure(index, PipeBulkOperationDto.OperationType.UPDATE,
+                        operation.getId(), "Pipe not found with id: " + operation.getId());
+                return;
+            }
+            PipeDto previousPipe = this.convertToDto(pipe);
+            try {
+                this.updatePipeFields(pipe, operation.getPipe());
+            } catch (IllegalArgumentException e) {
+                results[index] = PipeBulkResultDto.failure(index, PipeBulkOperationDto.OperationType.UPDATE,
+                        operation.getId(), e.getMessage());
+                return;
+            }
+            previousPipes.put(index, previousPipe);
+            pipe.setChangeSeq(pipeChangeSequence.next());
+            updatedPipes.put(index, pipe);
+        });
+
+        // Dirty entities are written as one JDBC batch here, which also runs @PreUpdate
+        pipeRepository.flush();
+        updatedPipes.forEach((index, pipe) -> {
+            PipeDto updatedPipeDto = this.convertToDto(pipe);
+            results[index] = PipeBulkResultDto.success(index, PipeBulkOperationDto.OperationType.UPDATE,
+                    pipe.getId(), updatedPipeDto);
+            this.publishChange(PipeChangeEvent.ChangeType.UPDATED, updatedPipeDto, previousPipes.get(index));
+        });
+    }
+
+    private void applyBulkDeletes(Map<Integer, Long> deletes, PipeBulkResultDto[] results) {
+        if (deletes.isEmpty()) {
+            return;
+        }
+        Map<Long, String> existingPipes = new HashMap<>();
+        pipeRepository.findKeysByIdIn(new HashSet<>(deletes.values()))
+                .forEach(key -> existingPipes.put(key.getId(), key.getPipeNumber()));
+        Set<Long> idsToDelete = new LinkedHashSet<>();
+        deletes.forEach((index, id) -> {
+            if (!existingPipes.containsKey(id)) {
+                results[index] = PipeBulkResultDto.failure(index, PipeBulkOperationDto.OperationType.DELETE,
+                        id, "Pipe not found with id: " + id);
+                return;
+            }
+            idsToDelete.add(id);
+            results[index] = PipeBulkResultDto.success(index, PipeBulkOperationDto.OperationType.DELETE, id, null);
+        });
+        if (!idsToDelete.isEmpty()) {
+            pipeRepository.deleteAllByIdInBatch(idsToDelete);
+            pipeTombstoneRepository.saveAll(idsToDelete.stream()
+                    .map(id -> this.tombstoneOf(id, existingPipes.get(id)))
+                    .toList());
+            for (Long id : idsToDelete) {
+                PipeDto deletedPipe = new PipeDto();
+                deletedPipe.setId(id);
+                deletedPipe.setPipeNumber(existingPipes.get(id));
+                this.publishChange(PipeChangeEvent.ChangeType.DELETED, deletedPipe);
+            }
+        }
+    }
+
+    private void markRolledBack(
+            List<PipeBulkOperationDto> operations, PipeBulkResultDto[] results, int from, int to, String reason
+    ) {
+        for (int index = from; index < to; index++) {
+            PipeBulkResultDto result = results[index];
+            if (result == null || result.isSuccess()) {
+                PipeBulkOperationDto operation = operations.get(index);
+                results[index] = PipeBulkResultDto.failure(index, operation.getType(), operation.getId(),
+                        "Rolled back: " + reason);
+            }
+        }
+    }
+
+    private PipeTombstone tombstoneOf(Long pipeId, String pipeNumber) {
+        return PipeTombstone.builder()
+                .changeSeq(pipeChangeSequence.next())
+                .pipeId(pipeId)
+                .pipeNumber(pipeNumber)
+                .deletedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Publish a change; transactional listeners receive it only once the surrounding transaction commits.
+     */
+    private void publishChange(PipeChangeEvent.ChangeType type, PipeDto pipe) {
+        this.publishChange(type, pipe, null);
+    }
+
+    private void publishChange(PipeChangeEvent.ChangeType type, PipeDto pipe, PipeDto previous) {
+        eventPublisher.publishEvent(new PipeChangeEvent(type, pipe.getId(), pipe, previous));
+    }
+
+    private static <T> List<List<T>> partition(List<T> values, int size) {
+        List<List<T>> chunks = new ArrayList<>((values.size() + size - 1) / size);
+        for (int from = 0; from < values.size(); from += size) {
+            chunks.add(values.subList(from, Math.min(from + size, values.size())));
+        }
+        return chunks;
+    }
+
     private PipeDto convertToDto(Pipe pipe) {
         return new PipeDto(
                 pipe.getId(),
@@ -304,7 +830,9 @@ public class PipeService {
                 pipe.getCoatingType(),
                 pipe.getPressureRating(),
                 pipe.getCreatedDate(),
-                pipe.getUpdatedDate()
+                pipe.getUpdatedDate(),
+                pipe.getLatitude(),
+                pipe.getLongitude()
         );
     }
 
@@ -327,10 +855,20 @@ public class PipeService {
         pipe.setQualityClass(pipeDto.getQualityClass());
         pipe.setCoatingType(pipeDto.getCoatingType());
         pipe.setPressureRating(pipeDto.getPressureRating());
+        pipe.setLatitude(pipeDto.getLatitude());
+        pipe.setLongitude(pipeDto.getLongitude());
+        validateCoordinates(pipe);
         return pipe;
     }
 
+    /**
+     * Copy the non-null fields of the DTO onto the pipe. The resulting coordinates are validated before anything
+     * is copied, so a rejected update leaves a managed pipe untouched rather than half-updated for the next flush.
+     */
     private void updatePipeFields(Pipe existingPipe, PipeDto pipeDto) {
+        validateCoordinates(
+                pipeDto.getLatitude() != null ? pipeDto.getLatitude() : existingPipe.getLatitude(),
+                pipeDto.getLongitude() != null ? pipeDto.getLongitude() : existingPipe.getLongitude());
         if (pipeDto.getPipeNumber() != null) existingPipe.setPipeNumber(pipeDto.getPipeNumber());
         if (pipeDto.getDiameter() != null) existingPipe.setDiameter(pipeDto.getDiameter());
         if (pipeDto.getLength() != null) existingPipe.setLength(pipeDto.getLength());
@@ -347,5 +885,23 @@ public class PipeService {
         if (pipeDto.getQualityClass() != null) existingPipe.setQualityClass(pipeDto.getQualityClass());
         if (pipeDto.getCoatingType() != null) existingPipe.setCoatingType(pipeDto.getCoatingType());
         if (pipeDto.getPressureRating() != null) existingPipe.setPressureRating(pipeDto.getPressureRating());
+        if (pipeDto.getLatitude() != null) existingPipe.setLatitude(pipeDto.getLatitude());
+        if (pipeDto.getLongitude() != null) existingPipe.setLongitude(pipeDto.getLongitude());
+    }
+
+    private static void validateCoordinates(Pipe pipe) {
+        validateCoordinates(pipe.getLatitude(), pipe.getLongitude());
+    }
+
+    private static void validateCoordinates(Double latitude, Double longitude) {
+        if ((latitude == null) != (longitude == null)) {
+            throw new IllegalArgumentException("latitude and longitude must be given together");
+        }
+        if (latitude != null && (latitude < -90 || latitude > 90)) {
+            throw new IllegalArgumentException("latitude must be between -90 and 90: " + latitude);
+        }
+        if (longitude != null && (longitude < -180 || longitude > 180)) {
+            throw new IllegalArgumentException("longitude must be between -180 and 180: " + longitude);
+        }
     }
 } 
\ No newline at end of file
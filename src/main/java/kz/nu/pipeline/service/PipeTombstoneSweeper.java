@@ -0,0 +1,83 @@
+package kz.nu.pipeline.service;
+
+import jakarta.annotation.PreDestroy;
+import kz.nu.pipeline.repository.PipeTombstoneRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes tombstones older than the retention window, so that the tombstone table does not grow forever.
+ * <p>
+ * A delta sync client whose high-water mark is below a purged tombstone could miss that deletion and has to
+ * download everything again, see {@link #getPurgedThrough()}. The newest expired tombstone is kept as the
+ * marker of how far the table has been purged, which makes the boundary survive restarts.
+ */
+@Component
+@Slf4j
+public class PipeTombstoneSweeper {
+
+    private final PipeTombstoneRepository pipeTombstoneRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final ScheduledExecutorService sweeper;
+    private volatile long purgedThrough;
+
+    public PipeTombstoneSweeper(
+            PipeTombstoneRepository pipeTombstoneRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.pipe.sync.tombstone-retention:30d}") Duration retention,
+            @Value("${app.pipe.sync.tombstone-sweep-interval:1h}") Duration sweepInterval
+    ) {
+        this.pipeTombstoneRepository = pipeTombstoneRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipe-tombstone-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = sweepInterval.toMillis();
+        this.sweeper.scheduleWithFixedDelay(this::sweep, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the change sequence number up to which tombstones may have been purged; a delta sync starting
+     * below it has to start over from {@code 0}
+     */
+    public long getPurgedThrough() {
+        return purgedThrough;
+    }
+
+    void sweep() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+            Integer deleted = transactionTemplate.execute(status -> {
+                Long marker = pipeTombstoneRepository.findMaxChangeSeqDeletedBefore(cutoff);
+                if (marker == null) {
+                    return 0;
+                }
+                purgedThrough = Math.max(purgedThrough, marker);
+                return pipeTombstoneRepository.deleteDeletedBefore(cutoff, marker);
+            });
+            if (deleted != null && deleted > 0) {
+                log.info("Purged {} tombstones deleted before {}", deleted, cutoff);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Tombstone sweep failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
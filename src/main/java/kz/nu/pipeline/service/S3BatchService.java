@@ -0,0 +1,169 @@
+package kz.nu.pipeline.service;
+
+import jakarta.annotation.PreDestroy;
+import kz.nu.pipeline.dto.FileBatchResultDto;
+import kz.nu.pipeline.model.Photo;
+import kz.nu.pipeline.repository.PhotoRepository;
+import kz.nu.pipeline.storage.ObjectStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Operations on many files at once, with a result per file.
+ * <p>
+ * Deletes are handed to the storage backend in bulk, the files first and then the derivatives of the photos
+ * among them that were deleted; S3 sends them as {@code DeleteObjects} requests of up to 1000 keys.
+ * Only files can be named: shared blob objects and photo derivatives are refused, as they belong to other files. Existence checks fan out HEAD requests on a shared pool of
+ * {@code app.aws.s3.batch.concurrency} threads, which bounds the requests in flight across all callers.
+ */
+@Service
+@Slf4j
+public class S3BatchService {
+
+    private final ObjectStorage objectStorage;
+    private final ContentAddressedStore contentAddressedStore;
+    private final PhotoRepository photoRepository;
+    private final S3ObjectCache s3ObjectCache;
+    private final int maxKeys;
+    private final ExecutorService executor;
+
+    public S3BatchService(
+            ObjectStorage objectStorage,
+            ContentAddressedStore contentAddressedStore,
+            PhotoRepository photoRepository,
+            S3ObjectCache s3ObjectCache,
+            @Value("${app.aws.s3.batch.max-keys:1000}") int maxKeys,
+            @Value("${app.aws.s3.batch.concurrency:16}") int concurrency
+    ) {
+        this.objectStorage = objectStorage;
+        this.contentAddressedStore = contentAddressedStore;
+        this.photoRepository = photoRepository;
+        this.s3ObjectCache = s3ObjectCache;
+        this.maxKeys = maxKeys;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "s3-batch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Check which of the given files exist.
+     *
+     * @param filenames the keys (filenames) to check
+     * @return one result per distinct filename, in request order
+     * @throws IllegalArgumentException if the list is empty, longer than {@code app.aws.s3.batch.max-keys}
+     *                                  or names a blob or a derivative
+     */
+    public List<FileBatchResultDto> filesExist(List<String> filenames) {
+        List<String> keys = this.validated(filenames);
+        List<CompletableFuture<FileBatchResultDto>> checks = keys.stream()
+                .map(key -> CompletableFuture.supplyAsync(() -> this.exists(key), executor))
+                .toList();
+        return checks.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Delete the given files, and the derivatives of those that are photos.
+     * Deleting a file that does not exist succeeds.
+     *
+     * @param filenames the keys (filenames) to delete
+     * @return one result per distinct filename, in request order
+     * @throws IllegalArgumentException if the list is empty, longer than {@code app.aws.s3.batch.max-keys}
+     *                                  or names a blob or a derivative
+     */
+    public List<FileBatchResultDto> deleteFiles(List<String> filenames) {
+        List<String> keys = this.validated(filenames);
+        Map<String, FileBatchResultDto> results = new HashMap<>();
+
+        // Content-addressed files only drop a reference; the rest are objects of their own
+        List<String> objectKeys = new ArrayList<>();
+        for (String key : keys) {
+            try {
+                if (contentAddressedStore.delete(key)) {
+                    results.put(key, FileBatchResultDto.deleted(key));
+                } else {
+                    objectKeys.add(key);
+                }
+            } catch (RuntimeException e) {
+                log.error("Error deleting file {}: {}", key, e.getMessage(), e);
+                results.put(key, FileBatchResultDto.failure(key, e.getMessage()));
+            }
+        }
+
+        Map<String, String> errors = objectStorage.deleteAll(objectKeys);
+        for (String key : objectKeys) {
+            results.put(key, errors.containsKey(key)
+                    ? FileBatchResultDto.failure(key, errors.get(key))
+                    : FileBatchResultDto.deleted(key));
+        }
+
+        // Derivatives go only with their original, so a photo whose original is kept still has them
+        List<Photo> photos = photoRepository.findByObjectKeyIn(keys).stream()
+                .filter(photo -> Boolean.TRUE.equals(results.get(photo.getObjectKey()).getDeleted()))
+                .toList();
+        List<String> derivativeKeys = photos.stream()
+                .flatMap(photo -> Stream.of(photo.getThumbnailKey(), photo.getMediumKey()))
+                .filter(Objects::nonNull)
+                .toList();
+        Map<String, String> derivativeErrors = derivativeKeys.isEmpty() ? Map.of() : objectStorage.deleteAll(derivativeKeys);
+        derivativeErrors.forEach((key, error) -> log.warn("Error deleting derivative {}: {}", key, error));
+
+        photoRepository.deleteAll(photos);
+        keys.forEach(s3ObjectCache::invalidate);
+        derivativeKeys.forEach(s3ObjectCache::invalidate);
+        log.info("Batch delete completed. Files: {}, derivatives: {}, errors: {}",
+                keys.size(), derivativeKeys.size(), errors.size() + derivativeErrors.size());
+        return keys.stream().map(results::get).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private FileBatchResultDto exists(String filename) {
+        try {
+            boolean exists = objectStorage.head(contentAddressedStore.resolve(filename)).isPresent();
+            return FileBatchResultDto.exists(filename, exists);
+        } catch (RuntimeException e) {
+            log.error("Error checking file existence: {}", e.getMessage(), e);
+            return FileBatchResultDto.failure(filename, e.getMessage());
+        }
+    }
+
+    private List<String> validated(List<String> filenames) {
+        if (filenames == null || filenames.isEmpty()) {
+            throw new IllegalArgumentException("Filenames are required");
+        }
+        List<String> keys = new ArrayList<>(new LinkedHashSet<>(filenames));
+        if (keys.stream().anyMatch(key -> key == null || key.isBlank())) {
+            throw new IllegalArgumentException("Filenames must not be blank");
+        }
+        if (keys.size() > maxKeys) {
+            throw new IllegalArgumentException("At most " + maxKeys + " filenames per request");
+        }
+        // Blobs are shared by the files referencing them, and telling whether one exists reveals stored content
+        if (keys.stream().anyMatch(key -> key.startsWith(ContentAddressedStore.BLOB_PREFIX))) {
+            throw new IllegalArgumentException("Filenames must not start with " + ContentAddressedStore.BLOB_PREFIX);
+        }
+        if (photoRepository.existsByThumbnailKeyInOrMediumKeyIn(keys, keys)) {
+            throw new IllegalArgumentException("Photo derivatives go with their original and cannot be named");
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,221 @@
+package kz.nu.pipeline.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Uploads large objects to S3 with the multipart API. The stream is read sequentially into parts of
+ * {@code app.aws.s3.multipart.part-size} that are uploaded concurrently on a shared pool of
+ * {@code app.aws.s3.multipart.concurrency} threads. A failed part is retried with exponential backoff up to
+ * {@code app.aws.s3.multipart.max-attempts} times; if it still fails, the upload is aborted so that no orphaned
+ * parts are left in the bucket.
+ * <p>
+ * Each upload holds at most {@value #PARTS_PER_UPLOAD} parts in memory, the one being read from its stream
+ * included, so a slow client only stalls its own upload. Across all uploads, at most twice as many parts as
+ * there are threads are queued or being uploaded at once.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3", matchIfMissing = true)
+@Slf4j
+public class S3MultipartUploader {
+
+    static final long MIN_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+    private static final int MAX_PARTS = 10_000;
+    static final int PARTS_PER_UPLOAD = 2;
+
+    private final S3Client s3Client;
+    private final long partSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final ExecutorService executor;
+    private final Semaphore partsInFlight;
+
+    public S3MultipartUploader(
+            S3Client s3Client,
+            @Value("${app.aws.s3.multipart.part-size:8MB}") DataSize partSize,
+            @Value("${app.aws.s3.multipart.concurrency:4}") int concurrency,
+            @Value("${app.aws.s3.multipart.max-attempts:3}") int maxAttempts,
+            @Value("${app.aws.s3.multipart.retry-backoff-ms:200}") long retryBackoffMs
+    ) {
+        this.s3Client = s3Client;
+        this.partSize = Math.max(partSize.toBytes(), MIN_PART_SIZE);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.retryBackoffMs = retryBackoffMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-upload-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.partsInFlight = new Semaphore(concurrency * 2);
+    }
+
+    /**
+     * Upload a stream as one object.
+     *
+     * @param bucket      the bucket
+     * @param key         the object key
+     * @param contentType the content type, may be null
+     * @param input       the content, read to the end but not closed
+     * @param size        the content length, used to keep the number of parts within the S3 limit
+     * @return the ETag of the completed object
+     * @throws IOException if the stream cannot be read
+     */
+    public String upload(String bucket, String key, String contentType, InputStream input, long size) throws IOException {
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+        int effectivePartSize = (int) Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Semaphore partBuffers = new Semaphore(PARTS_PER_UPLOAD);
+        try {
+            for (int partNumber = 1; failure.get() == null; partNumber++) {
+                // The stream may be a client socket: reading waits on this upload's own buffers only
+                partBuffers.acquire();
+                byte[] part;
+                try {
+                    part = input.readNBytes(effectivePartSize);
+                } catch (IOException | RuntimeException e) {
+                    partBuffers.release();
+                    throw e;
+                }
+                if (part.length == 0 && partNumber > 1) {
+                    partBuffers.release();
+                    break;
+                }
+                try {
+                    partsInFlight.acquire();
+                } catch (InterruptedException e) {
+                    partBuffers.release();
+                    throw e;
+                }
+                int number = partNumber;
+                parts.add(CompletableFuture
+                        .supplyAsync(() -> this.uploadPart(bucket, key, uploadId, number, part), executor)
+                        .whenComplete((completed, e) -> {
+                            partsInFlight.release();
+                            partBuffers.release();
+                            if (e != null) {
+                                failure.compareAndSet(null, e);
+                            }
+                        }));
+                if (part.length < effectivePartSize) {
+                    break;
+                }
+            }
+            CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).join();
+
+            List<CompletedPart> completedParts = parts.stream()
+                    .map(CompletableFuture::join)
+                    .sorted(Comparator.comparingInt(CompletedPart::partNumber))
+                    .toList();
+            CompleteMultipartUploadResponse response = s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+            log.info("Multipart upload completed. Key: {}, parts: {}, ETag: {}", key, completedParts.size(), response.eTag());
+            return response.eTag();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.abort(bucket, key, uploadId, parts);
+            throw new IOException("Interrupted during multipart upload of " + key, e);
+        } catch (IOException | RuntimeException e) {
+            this.abort(bucket, key, uploadId, parts);
+            if (e instanceof CompletionException && e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber, byte[] part) {
+        UploadPartRequest request = UploadPartRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) part.length)
+                .build();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                String eTag = s3Client.uploadPart(request, RequestBody.fromBytes(part)).eTag();
+                return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+            } catch (SdkException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                log.warn("Part {} of {} failed (attempt {}/{}): {}", partNumber, key, attempt, maxAttempts, e.getMessage());
+                try {
+                    Thread.sleep(retryBackoffMs << (attempt - 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for the parts still in flight, then abort so that S3 discards every uploaded part.
+     */
+    private void abort(String bucket, String key, String uploadId, List<CompletableFuture<CompletedPart>> parts) {
+        parts.forEach(part -> part.handle((completed, e) -> null).join());
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            log.warn("Multipart upload aborted. Key: {}", key);
+        } catch (SdkException e) {
+            log.error("Failed to abort multipart upload {} of {}: {}", uploadId, key, e.getMessage(), e);
+        }
+    }
+
+    private static boolean isRetryable(SdkException e) {
+        if (e instanceof S3Exception s3Exception) {
+            int status = s3Exception.statusCode();
+            return status >= 500 || status == 408 || status == 429;
+        }
+        return e instanceof SdkClientException;
+    }
+}
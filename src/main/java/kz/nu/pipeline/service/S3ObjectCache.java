@@ -0,0 +1,400 @@
+package kz.nu.pipeline.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.nu.pipeline.storage.ObjectContent;
+import kz.nu.pipeline.storage.ObjectMetadata;
+import kz.nu.pipeline.storage.ObjectNotFoundException;
+import kz.nu.pipeline.storage.ObjectStorage;
+import kz.nu.pipeline.storage.StorageException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache of S3 objects on the local disk, bounded by {@code app.aws.s3.cache.max-size} and evicting
+ * the least recently used objects. Objects larger than {@code app.aws.s3.cache.max-object-size} are not cached.
+ * <p>
+ * An entry is trusted for {@code app.aws.s3.cache.revalidate-after}; after that the next read revalidates it
+ * with a conditional GetObject on its ETag, which costs no transfer while the object is unchanged.
+ * Concurrent misses and revalidations of one key share a single S3 request.
+ * <p>
+ * Cached files are streamed to the client from the local file, sparing the S3 round trip; the servlet output stream
+ * is not a socket channel, so the bytes are still copied through a buffer. An evicted file is deleted only after
+ * the last reader has released it.
+ * <p>
+ * The files live in the {@code objects} subdirectory of {@code app.aws.s3.cache.dir}, marked as the cache's own;
+ * that subdirectory is cleared on startup, and nothing else in the configured directory is touched.
+ * <p>
+ * The cache stays off with the local storage backend, whose files are served the same way already.
+ * <p>
+ * Metrics: {@code s3.cache.requests} tagged {@code result=hit|miss}, {@code s3.cache.bytes.served},
+ * {@code s3.cache.evictions}, {@code s3.cache.size}, {@code s3.cache.entries} and {@code s3.cache.hit.ratio}.
+ */
+@Component
+@Slf4j
+public class S3ObjectCache {
+
+    private static final int UNCACHEABLE_KEYS = 10_000;
+    static final String SUBDIRECTORY = "objects";
+    static final String MARKER = ".pipeline-s3-cache";
+
+    private final S3Service s3Service;
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxSize;
+    private final long maxObjectSize;
+    private final Duration revalidateAfter;
+
+    /** Access-ordered, guarded by itself. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    /** Keys of objects too large to cache, so that they are not fetched twice on every download. */
+    private final Map<String, Boolean> uncacheable = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > UNCACHEABLE_KEYS;
+        }
+    };
+    private final Map<String, CompletableFuture<Entry>> inflight = new ConcurrentHashMap<>();
+    private long totalSize;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesServed;
+    private final Counter evictions;
+
+    public S3ObjectCache(
+            S3Service s3Service,
+            ObjectStorage objectStorage,
+            MeterRegistry meterRegistry,
+            @Value("${app.aws.s3.cache.enabled:true}") boolean enabled,
+            @Value("${app.aws.s3.cache.dir:${java.io.tmpdir}/pipeline-s3-cache}") Path directory,
+            @Value("${app.aws.s3.cache.max-size:2GB}") DataSize maxSize,
+            @Value("${app.aws.s3.cache.max-object-size:64MB}") DataSize maxObjectSize,
+            @Value("${app.aws.s3.cache.revalidate-after:60s}") Duration revalidateAfter
+    ) throws IOException {
+        this.s3Service = s3Service;
+        this.enabled = enabled && !objectStorage.isLocal();
+        this.directory = directory.resolve(SUBDIRECTORY);
+        this.maxSize = maxSize.toBytes();
+        this.maxObjectSize = maxObjectSize.toBytes();
+        this.revalidateAfter = revalidateAfter;
+        if (this.enabled) {
+            prepareDirectory(this.directory);
+        }
+
+        this.hits = Counter.builder("s3.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("s3.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.bytesServed = Counter.builder("s3.cache.bytes.served").baseUnit("bytes").register(meterRegistry);
+        this.evictions = Counter.builder("s3.cache.evictions").register(meterRegistry);
+        Gauge.builder("s3.cache.size", this, S3ObjectCache::size).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("s3.cache.entries", this, S3ObjectCache::entryCount).register(meterRegistry);
+        Gauge.builder("s3.cache.hit.ratio", this, S3ObjectCache::hitRatio).register(meterRegistry);
+    }
+
+    /**
+     * A cached object, pinned until {@link #release()} is called. Must be released exactly once.
+     */
+    public static final class CachedObject {
+
+        private final Entry entry;
+
+        private CachedObject(Entry entry) {
+            this.entry = entry;
+        }
+
+        public long size() {
+            return entry.size;
+        }
+
+        public String eTag() {
+            return entry.eTag;
+        }
+
+        public String contentType() {
+            return entry.contentType;
+        }
+
+        public Instant lastModified() {
+            return entry.lastModified;
+        }
+
+        public void release() {
+            entry.release();
+        }
+    }
+
+    private final class Entry {
+        private final Path file;
+        private final long size;
+        private final String eTag;
+        private final String contentType;
+        private final Instant lastModified;
+        private volatile long validatedAt = System.nanoTime();
+        /** One reference held by the cache itself, one per reader. */
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Entry(Path file, long size, String eTag, String contentType, Instant lastModified) {
+            this.file = file;
+            this.size = size;
+            this.eTag = eTag;
+            this.contentType = contentType;
+            this.lastModified = lastModified;
+        }
+
+        private boolean acquire() {
+            for (int current = references.get(); current > 0; current = references.get()) {
+                if (references.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Failed to delete cached file {}: {}", file, e.getMessage());
+                }
+            }
+        }
+
+        private boolean isFresh() {
+            return System.nanoTime() - validatedAt < revalidateAfter.toNanos();
+        }
+    }
+
+    /**
+     * Get an object from the cache, fetching or revalidating it first when needed.
+     *
+     * @param key the object key
+     * @return the pinned object, or empty if the cache is disabled or the object is too large to cache
+     * @throws ObjectNotFoundException if the object does not exist
+     */
+    public Optional<CachedObject> get(String key) {
+        if (!enabled || this.isUncacheable(key)) {
+            return Optional.empty();
+        }
+        while (true) {
+            Entry entry;
+            synchronized (entries) {
+                entry = entries.get(key);
+            }
+            if (entry != null && entry.isFresh() && entry.acquire()) {
+                hits.increment();
+                return Optional.of(new CachedObject(entry));
+            }
+
+            Entry stale = entry;
+            boolean[] leader = new boolean[1];
+            CompletableFuture<Entry> fill = inflight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return new CompletableFuture<>();
+            });
+            if (leader[0]) {
+                try {
+                    fill.complete(this.fill(key, stale));
+                } catch (RuntimeException e) {
+                    fill.completeExceptionally(e);
+                } finally {
+                    inflight.remove(key, fill);
+                }
+            }
+
+            Entry filled;
+            try {
+                filled = fill.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            if (filled == null) {
+                return Optional.empty();
+            }
+            if (filled.acquire()) {
+                (filled == stale ? hits : misses).increment();
+                return Optional.of(new CachedObject(filled));
+            }
+            // Evicted between the fill and this read: look again
+        }
+    }
+
+    /**
+     * Drop an object, e.g. after it was deleted from the bucket.
+     */
+    public void invalidate(String key) {
+        Entry removed;
+        synchronized (entries) {
+            removed = entries.remove(key);
+            if (removed != null) {
+                totalSize -= removed.size;
+            }
+        }
+        if (removed != null) {
+            removed.release();
+        }
+    }
+
+    /**
+     * Write a byte range of a cached object.
+     */
+    public void transferTo(CachedObject object, long position, long count, OutputStream outputStream) throws IOException {
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        try (FileChannel channel = FileChannel.open(object.entry.file, StandardOpenOption.READ)) {
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+                bytesServed.increment(transferred);
+            }
+        }
+    }
+
+    /**
+     * Fetch the object, or revalidate the stale entry with its ETag.
+     *
+     * @return the entry to serve, or null if the object is too large to cache
+     */
+    private Entry fill(String key, Entry stale) {
+        ObjectContent object;
+        try {
+            object = s3Service.downloadFile(key, null, stale != null ? stale.eTag : null, null);
+        } catch (StorageException e) {
+            if (stale != null && e.getStatusCode() == 304) {
+                stale.validatedAt = System.nanoTime();
+                return stale;
+            }
+            if (e instanceof ObjectNotFoundException) {
+                this.invalidate(key);
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to fetch " + key, e);
+        }
+
+        ObjectMetadata metadata = object.metadata();
+        if (object.contentLength() < 0 || object.contentLength() > maxObjectSize) {
+            object.abort();
+            synchronized (uncacheable) {
+                uncacheable.put(key, Boolean.TRUE);
+            }
+            this.invalidate(key);
+            return null;
+        }
+
+        Path file = directory.resolve(UUID.randomUUID().toString());
+        try (object) {
+            Files.copy(object.inputStream(), file);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // best effort
+            }
+            throw new UncheckedIOException("Failed to cache " + key, e);
+        }
+        Entry entry = new Entry(file, object.contentLength(), metadata.eTag(), metadata.contentType(), metadata.lastModified());
+        this.put(key, entry);
+        return entry;
+    }
+
+    private void put(String key, Entry entry) {
+        Entry replaced;
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (entries) {
+            replaced = entries.put(key, entry);
+            if (replaced != null) {
+                totalSize -= replaced.size;
+            }
+            totalSize += entry.size;
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalSize > maxSize && eldest.hasNext()) {
+                Entry candidate = eldest.next().getValue();
+                if (candidate == entry) {
+                    continue;
+                }
+                eldest.remove();
+                totalSize -= candidate.size;
+                evicted.add(candidate);
+            }
+        }
+        if (replaced != null) {
+            replaced.release();
+        }
+        evicted.forEach(Entry::release);
+        evictions.increment(evicted.size());
+    }
+
+    /**
+     * Entries are not persisted, so files left by a previous run are unknown and dropped. A directory without the
+     * marker is not ours to clear.
+     */
+    private static void prepareDirectory(Path directory) throws IOException {
+        if (Files.isDirectory(directory) && !Files.exists(directory.resolve(MARKER))) {
+            try (Stream<Path> files = Files.list(directory)) {
+                if (files.findAny().isPresent()) {
+                    throw new IllegalStateException("Refusing to clear " + directory
+                            + ": it is not empty and was not created by the S3 object cache");
+                }
+            }
+        }
+        FileSystemUtils.deleteRecursively(directory);
+        Files.createDirectories(directory);
+        Files.createFile(directory.resolve(MARKER));
+    }
+
+    private boolean isUncacheable(String key) {
+        synchronized (uncacheable) {
+            return uncacheable.containsKey(key);
+        }
+    }
+
+    private long size() {
+        synchronized (entries) {
+            return totalSize;
+        }
+    }
+
+    private int entryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+}
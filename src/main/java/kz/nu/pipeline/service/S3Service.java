@@ -1,32 +1,86 @@
 package kz.nu.pipeline.service;
 
+import kz.nu.pipeline.config.ReplicaRoutingDataSource;
+import kz.nu.pipeline.dto.PresignedUploadRequestDto;
+import kz.nu.pipeline.dto.PresignedUrlDto;
+import kz.nu.pipeline.dto.StoredFileDto;
+import kz.nu.pipeline.event.FileUploadedEvent;
+import kz.nu.pipeline.model.StoredFile;
+import kz.nu.pipeline.repository.StoredFileRepository;
+import kz.nu.pipeline.storage.ObjectContent;
+import kz.nu.pipeline.storage.ObjectMetadata;
+import kz.nu.pipeline.storage.ObjectNotFoundException;
+import kz.nu.pipeline.storage.ObjectStorage;
+import kz.nu.pipeline.storage.StorageException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.*;
+import org.springframework.web.server.ResponseStatusException;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class S3Service {
 
-    private final S3Client s3Client;
+    private final ObjectStorage objectStorage;
+    /** Only available with the S3 storage backend. */
+    private final ObjectProvider<S3Presigner> s3Presigner;
+    private final StoredFileRepository storedFileRepository;
+    private final ContentAddressedStore contentAddressedStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.aws.s3.bucket-name}")
     private String bucketName;
 
+    @Value("${app.aws.s3.dedup.enabled:false}")
+    private boolean dedupEnabled;
+
+    @Value("${app.aws.s3.multipart.threshold:16MB}")
+    private DataSize multipartThreshold;
+
+    @Value("${app.aws.s3.stream.max-size:5GB}")
+    private DataSize streamMaxSize;
+
+    @Value("${app.aws.s3.presign.upload-ttl:15m}")
+    private Duration presignUploadTtl;
+
+    @Value("${app.aws.s3.presign.download-ttl:5m}")
+    private Duration presignDownloadTtl;
+
+    @Value("${app.aws.s3.presign.max-upload-size:5GB}")
+    private DataSize presignMaxUploadSize;
+
     /**
-     * Upload a file to S3 bucket
+     * Upload a file to the storage backend.
+     * In S3, files larger than {@code app.aws.s3.multipart.threshold} are uploaded in parallel parts.
+     * With {@code app.aws.s3.dedup.enabled} the content is stored under its SHA-256 and is not written again
+     * if another file already has it.
      *
      * @param file MultipartFile to upload
      * @return The key (filename) of the uploaded file
@@ -37,95 +91,391 @@ public class S3Service {
             throw new IllegalArgumentException("File cannot be empty");
         }
 
-        String uniqueFilename = Optional.ofNullable(file.getOriginalFilename())
-                .filter(name -> name.contains("."))
-                .map(name -> name.substring(name.lastIndexOf(".")))
-                .map(fileExtension -> UUID.randomUUID() + fileExtension)
-                .orElseGet(() -> UUID.randomUUID().toString());
+        String uniqueFilename = uniqueFilename(file.getOriginalFilename());
 
         try {
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(uniqueFilename)
-                    .contentType(file.getContentType())
-                    .contentLength(file.getSize())
-                    .build();
-
-            PutObjectResponse response = s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
-            log.info("File uploaded successfully to S3. Key: {}, ETag: {}", uniqueFilename, response.eTag());
+            if (dedupEnabled) {
+                String sha256;
+                try (InputStream input = file.getInputStream()) {
+                    sha256 = ContentAddressedStore.sha256(input);
+                }
+                StoredFile storedFile = this.uploadedFile(uniqueFilename, file.getOriginalFilename(),
+                        file.getContentType(), file.getSize());
+                // The uploader may register the same content again by its hash
+                storedFile.setUploadedBy(ReplicaRoutingDataSource.currentUser());
+                contentAddressedStore.store(storedFile, sha256, key -> this.putObject(key, file));
+            } else {
+                this.putObject(uniqueFilename, file);
+            }
+            eventPublisher.publishEvent(new FileUploadedEvent(uniqueFilename, file.getContentType(), file.getSize()));
             return uniqueFilename;
-        } catch (S3Exception e) {
-            log.error("Error uploading file to S3: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to upload file to S3: " + e.getMessage(), e);
+        } catch (StorageException e) {
+            log.error("Error uploading file: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to upload file: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Download a file from S3 bucket
+     * {@link #uploadFile} without holding the calling thread while the content is sent to storage.
+     * Content-addressed uploads complete before this returns, as the blob is only marked stored once written.
      *
-     * @param filename The key (filename) of the file to download
-     * @return InputStream of the file content
+     * @param file MultipartFile to upload
+     * @return a future of the key (filename) of the uploaded file
+     * @throws IOException if the file cannot be read
+     */
+    public CompletableFuture<String> uploadFileAsync(MultipartFile file) throws IOException {
+        if (dedupEnabled) {
+            return CompletableFuture.completedFuture(this.uploadFile(file));
+        }
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File cannot be empty");
+        }
+
+        String uniqueFilename = uniqueFilename(file.getOriginalFilename());
+        return objectStorage.putAsync(uniqueFilename, file.getInputStream(), file.getSize(), file.getContentType())
+                .thenApply(metadata -> {
+                    eventPublisher.publishEvent(new FileUploadedEvent(uniqueFilename, file.getContentType(), file.getSize()));
+                    return uniqueFilename;
+                });
+    }
+
+    /**
+     * Upload a file streamed straight from the request, without a buffered copy in memory or on disk.
+     * Bodies known to be within {@code app.aws.s3.multipart.threshold} are read first and stored with their size,
+     * which S3 takes in one PutObject; anything larger, or of unknown length, is stored as it is read,
+     * through the multipart uploader in S3.
+     * Content-addressed mode does not apply: the hash is only known once the content has been sent.
+     *
+     * @param content          the file content, read to the end but not closed
+     * @param originalFilename the name of the file on the client
+     * @param contentType      the content type, may be null
+     * @param sizeHint         an upper bound of the content length, e.g. the request Content-Length; -1 if unknown
+     * @return The key (filename) of the uploaded file
+     * @throws IOException if the stream cannot be read
+     * @throws ResponseStatusException 413 if the content exceeds {@code app.aws.s3.stream.max-size}
      */
-    public InputStream downloadFile(String filename) {
+    public String uploadStream(InputStream content, String originalFilename, String contentType, long sizeHint) throws IOException {
+        long maxSize = streamMaxSize.toBytes();
+        if (sizeHint > maxSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "File must not be larger than " + streamMaxSize);
+        }
+
+        String uniqueFilename = uniqueFilename(originalFilename);
+        LimitedInputStream input = new LimitedInputStream(content, maxSize);
         try {
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(filename)
-                    .build();
+            if (sizeHint >= 0 && sizeHint <= multipartThreshold.toBytes()) {
+                byte[] bytes = input.readAllBytes();
+                if (bytes.length == 0) {
+                    throw new IllegalArgumentException("File cannot be empty");
+                }
+                this.putObject(uniqueFilename, bytes, contentType);
+            } else {
+                objectStorage.put(uniqueFilename, input, -1, contentType);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Backends may wrap the failed read of the body in their own exception: the count tells it was over the limit
+            if (input.count > maxSize) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "File must not be larger than " + streamMaxSize, e);
+            }
+            if (e instanceof StorageException) {
+                log.error("Error uploading file: {}", e.getMessage(), e);
+                throw new RuntimeException("Failed to upload file: " + e.getMessage(), e);
+            }
+            throw e;
+        }
+        log.info("Streamed upload completed. Key: {}, size: {}", uniqueFilename, input.count);
+        eventPublisher.publishEvent(new FileUploadedEvent(uniqueFilename, contentType, input.count));
+        return uniqueFilename;
+    }
 
-            ResponseInputStream<GetObjectResponse> response = s3Client.getObject(getObjectRequest);
-            log.info("File downloaded successfully from S3. Key: {}", filename);
-            return response;
-        } catch (NoSuchKeyException e) {
-            log.error("File not found in S3: {}", filename);
-            throw new RuntimeException("File not found: " + filename, e);
-        } catch (S3Exception e) {
-            log.error("Error downloading file from S3: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to download file from S3: " + e.getMessage(), e);
+    /**
+     * Register a file whose content is already stored, identified by its SHA-256, without transferring it again.
+     * Only content the user has uploaded before is found, so a hash does not give access to other users' files.
+     *
+     * @param sha256           the hex SHA-256 of the content
+     * @param originalFilename the name of the file on the client
+     * @param contentType      the content type, may be null
+     * @param username         the user registering the file
+     * @return the key (filename) of the new file, or empty if the user has no stored content with this hash
+     */
+    public Optional<String> uploadByHash(String sha256, String originalFilename, String contentType, String username) {
+        if (!dedupEnabled) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Deduplicating uploads are disabled");
         }
+        String uniqueFilename = uniqueFilename(originalFilename);
+        StoredFile storedFile = this.uploadedFile(uniqueFilename, originalFilename, contentType, 0);
+        storedFile.setUploadedBy(username);
+        return contentAddressedStore.storeExisting(storedFile, sha256)
+                ? Optional.of(uniqueFilename)
+                : Optional.empty();
+    }
+
+    /**
+     * Download a file, or a single byte range of it, with one request to the storage backend.
+     * The optional range and validators are passed through, so the backend answers with the requested part
+     * or rejects the request with the matching HTTP status.
+     *
+     * @param filename        The key (filename) of the file to download
+     * @param range           a single {@code bytes=} range, or null for the whole file
+     * @param ifNoneMatch     the ETag(s) the client already has, or null
+     * @param ifModifiedSince the modification time the client already has, or null
+     * @return the content together with the object metadata; the caller must close it
+     * @throws ObjectNotFoundException if the file does not exist
+     * @throws StorageException        with status 304 if the client copy is current, 416 if the range cannot be satisfied
+     */
+    public ObjectContent downloadFile(
+            String filename, String range, String ifNoneMatch, Instant ifModifiedSince
+    ) throws IOException {
+        return objectStorage.get(contentAddressedStore.resolve(filename), range, ifNoneMatch, ifModifiedSince);
+    }
+
+    /**
+     * {@link #downloadFile} without holding the calling thread until the storage backend responds.
+     *
+     * @return a future of the content, which the caller must close; fails as {@link #downloadFile} throws
+     */
+    public CompletableFuture<ObjectContent> downloadFileAsync(
+            String filename, String range, String ifNoneMatch, Instant ifModifiedSince
+    ) {
+        return objectStorage.getAsync(contentAddressedStore.resolve(filename), range, ifNoneMatch, ifModifiedSince);
     }
 
     /**
-     * Check if a file exists in the S3 bucket
+     * Check if a file exists in the storage backend
      *
      * @param filename The key (filename) to check
      * @return true if a file exists, false otherwise
      */
     public boolean fileExists(String filename) {
         try {
-            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(filename)
-                    .build();
-
-            s3Client.headObject(headObjectRequest);
-            return true;
-        } catch (NoSuchKeyException e) {
-            return false;
-        } catch (S3Exception e) {
-            log.error("Error checking file existence in S3: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to check file existence in S3: " + e.getMessage(), e);
+            return objectStorage.head(contentAddressedStore.resolve(filename)).isPresent();
+        } catch (StorageException e) {
+            log.error("Error checking file existence: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to check file existence: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Delete a file from the S3 bucket
+     * Delete a file from the storage backend.
+     * A deduplicated file only drops its reference; the content is deleted with the last one.
      *
      * @param filename The key (filename) of the file to delete
      */
     public void deleteFile(String filename) {
+        if (filename.startsWith(ContentAddressedStore.BLOB_PREFIX)) {
+            throw new IllegalArgumentException("Filenames must not start with " + ContentAddressedStore.BLOB_PREFIX);
+        }
         try {
-            DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(filename)
-                    .build();
+            if (contentAddressedStore.delete(filename)) {
+                log.info("File deleted successfully. Key: {}", filename);
+                return;
+            }
+            objectStorage.delete(filename);
+        } catch (StorageException e) {
+            log.error("Error deleting file: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to delete file: " + e.getMessage(), e);
+        }
+    }
 
-            s3Client.deleteObject(deleteObjectRequest);
-            log.info("File deleted successfully from S3. Key: {}", filename);
+    /**
+     * Store a small generated object, such as an image derivative, under the given key.
+     *
+     * @param key         the object key
+     * @param content     the content
+     * @param contentType the content type
+     */
+    public void putObject(String key, byte[] content, String contentType) {
+        try {
+            objectStorage.put(key, new ByteArrayInputStream(content), content.length, contentType);
+        } catch (IOException | StorageException e) {
+            log.error("Error storing object: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to store object: " + e.getMessage(), e);
+        }
+    }
 
-        } catch (S3Exception e) {
-            log.error("Error deleting file from S3: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to delete file from S3: " + e.getMessage(), e);
+    /**
+     * Issue a presigned PUT URL for one new object, so that the client uploads straight to S3.
+     * The URL is bound to a fresh key, the given content type and size; the object is registered as pending
+     * until {@link #completeUpload} is called.
+     *
+     * @param request  the original filename, content type and size of the file
+     * @param username the user the upload is issued to
+     * @return the URL with the headers the client has to send
+     */
+    public PresignedUrlDto presignUpload(PresignedUploadRequestDto request, String username) {
+        if (request.getContentType() == null || request.getContentType().isBlank()) {
+            throw new IllegalArgumentException("Content type is required");
+        }
+        String contentType = MediaType.parseMediaType(request.getContentType()).toString();
+        if (request.getSize() <= 0 || request.getSize() > presignMaxUploadSize.toBytes()) {
+            throw new IllegalArgumentException("File size must be between 1 byte and " + presignMaxUploadSize);
+        }
+
+        String key = uniqueFilename(request.getFilename());
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(request.getSize())
+                .build();
+        PresignedPutObjectRequest presigned = this.presigner().presignPutObject(presign -> presign
+                .signatureDuration(presignUploadTtl)
+                .putObjectRequest(putObjectRequest));
+
+        storedFileRepository.save(StoredFile.builder()
+                .objectKey(key)
+                .originalFilename(request.getFilename())
+                .contentType(contentType)
+                .size(request.getSize())
+                .uploadedBy(username)
+                .status(StoredFile.Status.PENDING)
+                .createdAt(LocalDateTime.now())
+                .build());
+        log.info("Presigned upload issued. Key: {}, user: {}, expires: {}", key, username, presigned.expiration());
+        return new PresignedUrlDto(key, "PUT", presigned.url().toString(),
+                signedHeaders(presigned.signedHeaders()), presigned.expiration());
+    }
+
+    /**
+     * Issue a presigned GET URL for an existing object.
+     *
+     * @param filename The key (filename) of the file to download
+     * @return the URL, valid for {@code app.aws.s3.presign.download-ttl}
+     */
+    public PresignedUrlDto presignDownload(String filename) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(contentAddressedStore.resolve(filename))
+                .responseContentDisposition("attachment; filename=\"" + filename + "\"")
+                .build();
+        PresignedGetObjectRequest presigned = this.presigner().presignGetObject(presign -> presign
+                .signatureDuration(presignDownloadTtl)
+                .getObjectRequest(getObjectRequest));
+        return new PresignedUrlDto(filename, "GET", presigned.url().toString(),
+                signedHeaders(presigned.signedHeaders()), presigned.expiration());
+    }
+
+    /**
+     * Register an object uploaded through a presigned URL, after checking that it is in the bucket.
+     * Completing an upload twice returns the registered file again.
+     *
+     * @param filename The key (filename) returned by {@link #presignUpload}
+     * @param username the user completing the upload, who must be the one it was issued to
+     * @return the registered file
+     */
+    public StoredFileDto completeUpload(String filename, String username) {
+        StoredFile storedFile = storedFileRepository.findByObjectKey(filename)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found: " + filename));
+        if (storedFile.getUploadedBy() != null && !storedFile.getUploadedBy().equals(username)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Upload was issued to another user");
+        }
+        if (storedFile.getStatus() == StoredFile.Status.UPLOADED) {
+            return toDto(storedFile);
         }
+
+        ObjectMetadata head = objectStorage.head(filename)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "File has not been uploaded yet: " + filename));
+        storedFile.setSize(head.size());
+        storedFile.setEtag(head.eTag());
+        storedFile.setStatus(StoredFile.Status.UPLOADED);
+        storedFile.setUploadedAt(LocalDateTime.now());
+        log.info("Presigned upload completed. Key: {}, size: {}", filename, head.size());
+        StoredFile saved = storedFileRepository.save(storedFile);
+        eventPublisher.publishEvent(new FileUploadedEvent(filename, saved.getContentType(), head.size()));
+        return toDto(saved);
+    }
+
+    private void putObject(String key, MultipartFile file) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            objectStorage.put(key, input, file.getSize(), file.getContentType());
+        }
+    }
+
+    private S3Presigner presigner() {
+        S3Presigner presigner = s3Presigner.getIfAvailable();
+        if (presigner == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "Presigned URLs need the S3 storage backend");
+        }
+        return presigner;
+    }
+
+    private StoredFile uploadedFile(String key, String originalFilename, String contentType, long size) {
+        return StoredFile.builder()
+                .objectKey(key)
+                .originalFilename(originalFilename)
+                .contentType(contentType)
+                .size(size)
+                .status(StoredFile.Status.UPLOADED)
+                .createdAt(LocalDateTime.now())
+                .uploadedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Counts the bytes read and fails once more than the limit is read.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+
+        private LimitedInputStream(InputStream input, long limit) {
+            super(input);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                this.count(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                this.count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws IOException {
+            count += read;
+            if (count > limit) {
+                throw new IOException("Upload exceeds the maximum size of " + limit + " bytes");
+            }
+        }
+    }
+
+    private static String uniqueFilename(String originalFilename) {
+        return Optional.ofNullable(originalFilename)
+                .filter(name -> name.contains("."))
+                .map(name -> name.substring(name.lastIndexOf(".")))
+                .map(fileExtension -> UUID.randomUUID() + fileExtension)
+                .orElseGet(() -> UUID.randomUUID().toString());
+    }
+
+    /**
+     * The headers the client has to repeat; the host comes from the URL itself.
+     */
+    private static Map<String, String> signedHeaders(Map<String, List<String>> headers) {
+        Map<String, String> result = new LinkedHashMap<>();
+        headers.forEach((name, values) -> {
+            if (!"host".equalsIgnoreCase(name)) {
+                result.put(name, String.join(",", values));
+            }
+        });
+        return result;
+    }
+
+    private static StoredFileDto toDto(StoredFile storedFile) {
+        return new StoredFileDto(
+                storedFile.getId(), storedFile.getObjectKey(), storedFile.getOriginalFilename(),
+                storedFile.getContentType(), storedFile.getSize(), storedFile.getEtag(), storedFile.getUploadedBy(),
+                storedFile.getStatus(), storedFile.getUploadedAt()
+        );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,275 @@
+package kz.nu.pipeline.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a {@code multipart/form-data} body part by part straight from the request stream, without buffering
+ * parts in memory or on disk. Each {@link Part} is an input stream over the content of one part that ends at the
+ * next boundary; reading the next part skips whatever is left of the current one.
+ * <p>
+ * Memory use is one fixed buffer of about 64KB per body. Not thread-safe.
+ */
+public final class StreamingMultipartReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_SIZE = 8 * 1024;
+    private static final Pattern BOUNDARY = Pattern.compile("(?i);\\s*boundary=(?:\"([^\"]+)\"|([^;\\s]+))");
+
+    private final InputStream input;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    private boolean finished;
+    /** The part being read; the preamble before the first boundary is read as a part too. */
+    private Part current;
+
+    /**
+     * @param input    the request body, not closed by the reader
+     * @param boundary the boundary from the request content type, see {@link #boundary(String)}
+     */
+    public StreamingMultipartReader(InputStream input, String boundary) {
+        this.input = input;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[BUFFER_SIZE + delimiter.length];
+        // The first boundary is not preceded by a line break: start with one so that every boundary looks the same
+        this.buffer[0] = '\r';
+        this.buffer[1] = '\n';
+        this.limit = 2;
+        this.current = new Part(null, null, null);
+    }
+
+    /**
+     * Extract the boundary parameter of a {@code multipart/form-data} content type.
+     *
+     * @throws IllegalArgumentException if the content type has no boundary
+     */
+    public static String boundary(String contentType) {
+        Matcher matcher = contentType != null ? BOUNDARY.matcher(contentType) : null;
+        if (matcher == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/") || !matcher.find()) {
+            throw new IllegalArgumentException("Request is not multipart with a boundary");
+        }
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+
+    /**
+     * Skip the rest of the current part and read the headers of the next one.
+     *
+     * @return the next part, or null after the closing boundary
+     * @throws IOException if the body is malformed or ends early
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        current.skipRemaining();
+        if (!this.ensure(2)) {
+            throw new EOFException("Multipart body ended before the closing boundary");
+        }
+        if (buffer[position] == '-' && buffer[position + 1] == '-') {
+            finished = true;
+            current = null;
+            return null;
+        }
+        if (buffer[position] != '\r' || buffer[position + 1] != '\n') {
+            throw new IOException("Malformed multipart boundary");
+        }
+        position += 2;
+
+        Map<String, String> headers = this.readHeaders();
+        String disposition = headers.getOrDefault("content-disposition", "");
+        current = new Part(
+                dispositionParameter(disposition, "name"),
+                dispositionParameter(disposition, "filename"),
+                headers.get("content-type"));
+        return current;
+    }
+
+    /**
+     * The content of one part, ending at the next boundary.
+     */
+    public final class Part extends InputStream {
+
+        private final String name;
+        private final String filename;
+        private final String contentType;
+        private long bytesRead;
+        private boolean done;
+
+        private Part(String name, String filename, String contentType) {
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+        }
+
+        /** The form field name. */
+        public String name() {
+            return name;
+        }
+
+        /** The client filename, or null for a plain form field. */
+        public String filename() {
+            return filename;
+        }
+
+        /** The declared content type, or null. */
+        public String contentType() {
+            return contentType;
+        }
+
+        /** The number of content bytes read so far; the content size once the stream is at its end. */
+        public long bytesRead() {
+            return bytesRead;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return this.read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (done || current != this) {
+                return -1;
+            }
+            if (length == 0) {
+                return 0;
+            }
+            while (true) {
+                int boundary = indexOfDelimiter();
+                if (boundary == position) {
+                    position += delimiter.length;
+                    done = true;
+                    return -1;
+                }
+                // Without a boundary in the buffer, its last bytes may still be the start of one
+                int available = boundary >= 0 ? boundary - position : limit - position - (delimiter.length - 1);
+                if (available > 0) {
+                    int count = Math.min(length, available);
+                    System.arraycopy(buffer, position, target, offset, count);
+                    position += count;
+                    bytesRead += count;
+                    return count;
+                }
+                if (eof) {
+                    throw new EOFException("Multipart body ended inside a part");
+                }
+                fill();
+            }
+        }
+
+        /**
+         * Leaves the request stream open: the reader owns it.
+         */
+        @Override
+        public void close() {
+            // nothing to release
+        }
+
+        private void skipRemaining() throws IOException {
+            byte[] skipped = new byte[8192];
+            while (this.read(skipped, 0, skipped.length) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        int total = 0;
+        while (true) {
+            String line = this.readLine();
+            if (line.isEmpty()) {
+                return headers;
+            }
+            total += line.length();
+            if (total > MAX_HEADER_SIZE) {
+                throw new IOException("Multipart part headers are too large");
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        int scanned = 0;
+        while (true) {
+            for (int i = position + scanned; i + 1 < limit; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, position, i - position, StandardCharsets.UTF_8);
+                    position = i + 2;
+                    return line;
+                }
+            }
+            scanned = Math.max(0, limit - position - 1);
+            if (scanned > MAX_HEADER_SIZE) {
+                throw new IOException("Multipart part headers are too large");
+            }
+            if (eof) {
+                throw new EOFException("Multipart body ended inside part headers");
+            }
+            this.fill();
+        }
+    }
+
+    private int indexOfDelimiter() {
+        byte first = delimiter[0];
+        outer:
+        for (int i = position, last = limit - delimiter.length; i <= last; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private boolean ensure(int count) throws IOException {
+        while (limit - position < count && !eof) {
+            this.fill();
+        }
+        return limit - position >= count;
+    }
+
+    /**
+     * Move the unread bytes to the front of the buffer and read more after them.
+     */
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private static String dispositionParameter(String disposition, String name) {
+        Matcher matcher = Pattern.compile("(?i)(?:^|;)\\s*" + name + "\\s*=\\s*(?:\"([^\"]*)\"|([^;\\s]*))").matcher(disposition);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -16,6 +17,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
 
+    @Transactional(readOnly = true)
     public Optional<User> getUserByUsername(String username) {
         return userRepository.findByUsername(username);
     }
@@ -25,6 +27,7 @@ public class UserService {
      *
      * @return an Optional containing the current user if authenticated, or empty if not authenticated
      */
+    @Transactional(readOnly = true)
     public Optional<User> getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || authentication.getPrincipal() == null) {
@@ -36,10 +39,12 @@ public class UserService {
 
     /**
      * Authenticate a user with email and password.
+     * Reads the primary, so that a user can log in right after registering.
      *
      * @param username the email
      * @param password the password
      */
+    @Transactional
     public Optional<User> authenticate(String username, String password) {
         Optional<User> userOptional = this.getUserByUsername(username);
         return userOptional
@@ -53,6 +58,7 @@ public class UserService {
      * @param password the password
      * @return true if registration is successful, false otherwise
      */
+    @Transactional
     public boolean register(String username, String password) {
         if (this.getUserByUsername(username).isPresent()) {
             return false;
@@ -65,6 +71,7 @@ public class UserService {
         return true;
     }
 
+    @Transactional
     public boolean deleteUser(String username) {
         Optional<User> user = this.getUserByUsername(username);
         if (user.isPresent()) {
@@ -0,0 +1,79 @@
+package kz.nu.pipeline.storage;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the operations in flight without blocking: a caller beyond the limit gets a future that completes
+ * once a permit is released, and is refused with 503 once {@code maxPending} callers are already waiting.
+ * A caller that gives up cancels its future, which leaves the queue at once and is never handed a permit.
+ */
+final class ConcurrencyLimiter {
+
+    private final Semaphore permits;
+    private final int maxPending;
+    private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    ConcurrencyLimiter(int maxConcurrency, int maxPending) {
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * @return a future completing with a permit, which has to be given back with {@link #release()} exactly once;
+     * cancel it to stop waiting
+     */
+    CompletableFuture<Void> acquire() {
+        if (permits.tryAcquire()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            return CompletableFuture.failedFuture(
+                    new StorageException(503, "Too many storage requests in progress, try again later", null));
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        waiter.whenComplete((granted, error) -> {
+            // Whoever takes the waiter off the queue, here or in handOver, counts it as no longer pending
+            if (waiter.isCancelled() && waiters.remove(waiter)) {
+                pending.decrementAndGet();
+            }
+        });
+        // A permit may have been released after the tryAcquire above but before the waiter was queued
+        this.handOver();
+        return waiter;
+    }
+
+    void release() {
+        permits.release();
+        this.handOver();
+    }
+
+    int available() {
+        return permits.availablePermits();
+    }
+
+    int pending() {
+        return pending.get();
+    }
+
+    private void handOver() {
+        while (!waiters.isEmpty() && permits.tryAcquire()) {
+            CompletableFuture<Void> waiter = waiters.poll();
+            if (waiter == null) {
+                permits.release();
+                continue;
+            }
+            pending.decrementAndGet();
+            // A waiter cancelled meanwhile, e.g. by a request timeout, does not keep its permit
+            if (!waiter.complete(null)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package kz.nu.pipeline.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stores objects as files under {@code app.storage.local.root}, for on-prem sites, small deployments and tests.
+ * <p>
+ * Files are sharded into two directory levels by the SHA-256 of the key ({@code ab/cd/<key>.data}), so that no
+ * directory grows past a few thousand entries. The content type and ETag (the MD5 of the content, as S3 computes
+ * it for single-part uploads) are kept in a header at the start of the file, before the content. Puts are written
+ * to a temporary file, forced to disk and moved into place with one atomic rename, so readers see either the
+ * previous object or the new one, with its own metadata, and never partial content.
+ * Reads are copied from the file channel to the response stream with {@link FileChannel#transferTo}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+@Slf4j
+public class LocalObjectStorage implements ObjectStorage {
+
+    private static final String DATA_SUFFIX = ".data";
+    /** The header: length of the content type in bytes, or -1 if there is none, and the MD5 of the content. */
+    private static final int HEADER_FIXED_LENGTH = Integer.BYTES + 16;
+    private static final int MAX_FILENAME_LENGTH = 200;
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final Path root;
+    private final Path temporaryDirectory;
+
+    public LocalObjectStorage(@Value("${app.storage.local.root}") Path root) throws IOException {
+        this.root = root.toAbsolutePath();
+        this.temporaryDirectory = this.root.resolve(".tmp");
+        // Leftovers of puts interrupted by a crash
+        FileSystemUtils.deleteRecursively(temporaryDirectory);
+        Files.createDirectories(temporaryDirectory);
+        log.info("Local object storage at {}", this.root);
+    }
+
+    @Override
+    public ObjectMetadata put(String key, InputStream content, long size, String contentType) throws IOException {
+        Path data = this.dataPath(key);
+        Path temporary = Files.createTempFile(temporaryDirectory, "put-", DATA_SUFFIX);
+        try {
+            byte[] contentTypeBytes = contentType == null ? new byte[0] : contentType.getBytes(StandardCharsets.UTF_8);
+            long offset = HEADER_FIXED_LENGTH + contentTypeBytes.length;
+            MessageDigest md5 = md5();
+            long written = 0;
+            byte[] digest;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                // The digest is only known once the content is written: it is filled in last
+                ByteBuffer header = ByteBuffer.allocate((int) offset)
+                        .putInt(contentType == null ? -1 : contentTypeBytes.length)
+                        .put(new byte[16])
+                        .put(contentTypeBytes)
+                        .flip();
+                writeFully(channel, header, 0);
+                ReadableByteChannel source = Channels.newChannel(new DigestInputStream(content, md5));
+                for (long transferred; (transferred = channel.transferFrom(source, offset + written, TRANSFER_CHUNK)) > 0; ) {
+                    written += transferred;
+                }
+                if (size >= 0 && written != size) {
+                    throw new IOException("Expected " + size + " bytes for " + key + " but read " + written);
+                }
+                digest = md5.digest();
+                writeFully(channel, ByteBuffer.wrap(digest), Integer.BYTES);
+                channel.force(true);
+            }
+
+            Files.createDirectories(data.getParent());
+            Files.move(temporary, data, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            String eTag = eTag(digest);
+            log.info("File stored locally. Key: {}, size: {}, ETag: {}", key, written, eTag);
+            return new ObjectMetadata(written, contentType, eTag, Files.getLastModifiedTime(data).toInstant());
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public ObjectContent get(String key, String range, String ifNoneMatch, Instant ifModifiedSince) throws IOException {
+        Path data = this.dataPath(key);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(data, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new ObjectNotFoundException(key);
+        }
+        try {
+            StoredObject stored = readHeader(channel, data);
+            ObjectMetadata metadata = stored.metadata();
+            if (isNotModified(metadata, ifNoneMatch, ifModifiedSince)) {
+                throw new StorageException(304, "Not modified: " + key, metadata.eTag());
+            }
+
+            long size = metadata.size();
+            List<HttpRange> ranges = List.of();
+            if (range != null && range.startsWith("bytes=") && range.indexOf(',') < 0) {
+                try {
+                    ranges = HttpRange.parseRanges(range);
+                } catch (IllegalArgumentException e) {
+                    // Malformed ranges are ignored, as with S3
+                }
+            }
+            if (ranges.size() != 1) {
+                return new LocalObjectContent(channel, metadata, stored.offset(), size, null);
+            }
+            long start;
+            long end;
+            try {
+                start = ranges.get(0).getRangeStart(size);
+                end = ranges.get(0).getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                start = size;
+                end = size - 1;
+            }
+            if (start >= size || start > end) {
+                throw new StorageException(416, "Range not satisfiable: " + range, null, size);
+            }
+            return new LocalObjectContent(channel, metadata, stored.offset() + start, end - start + 1,
+                    "bytes " + start + "-" + end + "/" + size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<ObjectMetadata> head(String key) {
+        Path data = this.dataPath(key);
+        try (FileChannel channel = FileChannel.open(data, StandardOpenOption.READ)) {
+            return Optional.of(readHeader(channel, data).metadata());
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new StorageException("Failed to read " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        Path data = this.dataPath(key);
+        try {
+            Files.deleteIfExists(data);
+            log.info("File deleted locally. Key: {}", key);
+        } catch (IOException e) {
+            throw new StorageException("Failed to delete " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, String> deleteAll(List<String> keys) {
+        Map<String, String> errors = new HashMap<>();
+        for (String key : keys) {
+            try {
+                this.delete(key);
+            } catch (StorageException e) {
+                errors.put(key, e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    /**
+     * {@code <root>/ab/cd/<encoded key>.data}, where {@code abcd} starts the hex SHA-256 of the key.
+     * Keys too long for a filename are stored under their hash.
+     */
+    private Path dataPath(String key) {
+        String hash = HexFormat.of().formatHex(sha256(key));
+        String name = URLEncoder.encode(key, StandardCharsets.UTF_8);
+        if (name.length() > MAX_FILENAME_LENGTH || name.startsWith(".")) {
+            name = hash;
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(name + DATA_SUFFIX);
+    }
+
+    /**
+     * Where the content starts in an object file, and the metadata in its header.
+     */
+    private record StoredObject(long offset, ObjectMetadata metadata) {
+    }
+
+    private static StoredObject readHeader(FileChannel channel, Path data) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer fixed = ByteBuffer.allocate(HEADER_FIXED_LENGTH);
+        if (fileSize < HEADER_FIXED_LENGTH || readFully(channel, fixed, 0) < HEADER_FIXED_LENGTH) {
+            throw new IOException("Not an object file, header missing: " + data);
+        }
+        fixed.flip();
+        int contentTypeLength = fixed.getInt();
+        byte[] digest = new byte[16];
+        fixed.get(digest);
+        long offset = HEADER_FIXED_LENGTH + Math.max(contentTypeLength, 0);
+        if (contentTypeLength < -1 || offset > fileSize) {
+            throw new IOException("Not an object file, header corrupt: " + data);
+        }
+        String contentType = null;
+        if (contentTypeLength >= 0) {
+            ByteBuffer contentTypeBytes = ByteBuffer.allocate(contentTypeLength);
+            readFully(channel, contentTypeBytes, HEADER_FIXED_LENGTH);
+            contentType = new String(contentTypeBytes.array(), StandardCharsets.UTF_8);
+        }
+        return new StoredObject(offset, new ObjectMetadata(fileSize - offset, contentType, eTag(digest),
+                Files.getLastModifiedTime(data).toInstant()));
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static String eTag(byte[] md5) {
+        return "\"" + HexFormat.of().formatHex(md5) + "\"";
+    }
+
+    /**
+     * If-None-Match takes precedence over If-Modified-Since, as in RFC 9110.
+     */
+    private static boolean isNotModified(ObjectMetadata metadata, String ifNoneMatch, Instant ifModifiedSince) {
+        if (ifNoneMatch != null) {
+            if (metadata.eTag() == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String trimmed = candidate.trim();
+                if (trimmed.equals("*") || trimmed.replaceFirst("^W/", "").equals(metadata.eTag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return ifModifiedSince != null && metadata.lastModified() != null
+                && metadata.lastModified().getEpochSecond() <= ifModifiedSince.getEpochSecond();
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] sha256(String key) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * An open file, or a byte range of it. The channel stays readable even if the object is replaced or
+     * deleted meanwhile, so a download always completes with the content it started with.
+     */
+    private static final class LocalObjectContent implements ObjectContent {
+
+        private final FileChannel channel;
+        private final ObjectMetadata metadata;
+        private final long start;
+        private final long count;
+        private final String contentRange;
+
+        private LocalObjectContent(FileChannel channel, ObjectMetadata metadata, long start, long count, String contentRange) {
+            this.channel = channel;
+            this.metadata = metadata;
+            this.start = start;
+            this.count = count;
+            this.contentRange = contentRange;
+        }
+
+        @Override
+        public ObjectMetadata metadata() {
+            return metadata;
+        }
+
+        @Override
+        public long contentLength() {
+            return count;
+        }
+
+        @Override
+        public String contentRange() {
+            return contentRange;
+        }
+
+        @Override
+        public InputStream inputStream() throws IOException {
+            channel.position(start);
+            InputStream input = Channels.newInputStream(channel);
+            return new InputStream() {
+                private long remaining = count;
+
+                @Override
+                public int read() throws IOException {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int read = input.read();
+                    if (read >= 0) {
+                        remaining--;
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int read = input.read(buffer, offset, (int) Math.min(length, remaining));
+                    if (read > 0) {
+                        remaining -= read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            };
+        }
+
+        @Override
+        public void transferTo(OutputStream outputStream) throws IOException {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+
+        @Override
+        public void abort() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
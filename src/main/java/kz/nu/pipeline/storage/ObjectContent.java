@@ -0,0 +1,33 @@
+package kz.nu.pipeline.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The open content of an object or of a byte range of it, returned by {@link ObjectStorage#get}.
+ * Must be closed; read it either with {@link #inputStream()} or with {@link #transferTo(OutputStream)}.
+ */
+public interface ObjectContent extends Closeable {
+
+    ObjectMetadata metadata();
+
+    /** The number of bytes of this content: the range length for a range, else the object size. */
+    long contentLength();
+
+    /** The {@code Content-Range} value for a range, e.g. {@code bytes 0-99/1000}, or null for the whole object. */
+    String contentRange();
+
+    InputStream inputStream() throws IOException;
+
+    /**
+     * Write the content to a stream.
+     */
+    void transferTo(OutputStream outputStream) throws IOException;
+
+    /**
+     * Close without reading the rest, e.g. when the client went away.
+     */
+    void abort();
+}
@@ -0,0 +1,14 @@
+package kz.nu.pipeline.storage;
+
+import java.time.Instant;
+
+/**
+ * Metadata of a stored object.
+ *
+ * @param size         the full size in bytes
+ * @param contentType  the content type, or null
+ * @param eTag         the quoted entity tag, or null
+ * @param lastModified the time of the last put, or null
+ */
+public record ObjectMetadata(long size, String contentType, String eTag, Instant lastModified) {
+}
@@ -0,0 +1,11 @@
+package kz.nu.pipeline.storage;
+
+/**
+ * The requested object does not exist.
+ */
+public class ObjectNotFoundException extends StorageException {
+
+    public ObjectNotFoundException(String key) {
+        super(404, "Object not found: " + key, null);
+    }
+}
@@ -0,0 +1,97 @@
+package kz.nu.pipeline.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where file content lives. The backend is selected with {@code app.storage.type}: {@code s3} (default) stores
+ * objects in the S3 bucket, {@code local} on the local filesystem under {@code app.storage.local.root}.
+ * <p>
+ * Keys are opaque strings. A put replaces the object atomically: readers see either the old or the new content.
+ */
+public interface ObjectStorage {
+
+    /**
+     * Store an object, replacing any object with the same key.
+     *
+     * @param key         the object key
+     * @param content     the content, read to the end but not closed
+     * @param size        the exact content length, or -1 if unknown
+     * @param contentType the content type, may be null
+     * @return the metadata of the stored object; the size is -1 if it was not known up front
+     * @throws IOException if the content cannot be read or its length differs from {@code size}
+     */
+    ObjectMetadata put(String key, InputStream content, long size, String contentType) throws IOException;
+
+    /**
+     * Open an object, or a single byte range of it.
+     *
+     * @param key             the object key
+     * @param range           a single {@code bytes=} range, or null for the whole object; malformed ranges are ignored
+     * @param ifNoneMatch     the ETag(s) the client already has, or null
+     * @param ifModifiedSince the modification time the client already has, or null
+     * @return the content, which the caller must close
+     * @throws ObjectNotFoundException if the object does not exist
+     * @throws StorageException        with status 304 if the client copy is current, 416 with the object size if the range cannot be satisfied
+     */
+    ObjectContent get(String key, String range, String ifNoneMatch, Instant ifModifiedSince) throws IOException;
+
+    /**
+     * {@link #put} without holding the calling thread while the content is transferred.
+     * The content is read on a storage thread and closed once the future completes.
+     * The default implementation runs the blocking put in the calling thread.
+     *
+     * @return the metadata of the stored object; fails with a {@link StorageException} or {@link IOException}
+     */
+    default CompletableFuture<ObjectMetadata> putAsync(String key, InputStream content, long size, String contentType) {
+        try (content) {
+            return CompletableFuture.completedFuture(this.put(key, content, size, contentType));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * {@link #get} without holding the calling thread while the backend responds.
+     * The default implementation runs the blocking get in the calling thread.
+     *
+     * @return the content, which the caller must close; fails as {@link #get} throws. A caller that gives up
+     * cancels the future, and content that arrives afterwards is closed by the backend
+     */
+    default CompletableFuture<ObjectContent> getAsync(String key, String range, String ifNoneMatch, Instant ifModifiedSince) {
+        try {
+            return CompletableFuture.completedFuture(this.get(key, range, ifNoneMatch, ifModifiedSince));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return the metadata of an object, or empty if it does not exist
+     */
+    Optional<ObjectMetadata> head(String key);
+
+    /**
+     * Delete an object. Deleting a missing object succeeds.
+     */
+    void delete(String key);
+
+    /**
+     * Delete many objects, as efficiently as the backend allows. Deleting a missing object succeeds.
+     *
+     * @return the error of each key that could not be deleted
+     */
+    Map<String, String> deleteAll(List<String> keys);
+
+    /**
+     * Whether objects are already on the local disk, so that caching them locally gains nothing.
+     */
+    default boolean isLocal() {
+        return false;
+    }
+}
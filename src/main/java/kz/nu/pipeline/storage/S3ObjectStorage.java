@@ -0,0 +1,439 @@
+package kz.nu.pipeline.storage;
+
+import jakarta.annotation.PreDestroy;
+import kz.nu.pipeline.service.S3MultipartUploader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores objects in the S3 bucket {@code app.aws.s3.bucket-name}.
+ * Objects of unknown size or larger than {@code app.aws.s3.multipart.threshold} are uploaded in parallel parts;
+ * deletes of many keys are sent as {@code DeleteObjects} requests of up to 1000 keys.
+ * <p>
+ * The async operations run on {@link S3AsyncClient}, so no caller thread waits on S3. At most
+ * {@code app.aws.s3.async.max-concurrency} of them are in flight; a download holds its slot until its content
+ * is closed, since the connection stays open while the body is read. Further callers queue without blocking,
+ * up to {@code app.aws.s3.async.max-pending}, and are refused with 503 beyond that.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3", matchIfMissing = true)
+@Slf4j
+public class S3ObjectStorage implements ObjectStorage {
+
+    static final int MAX_DELETE_KEYS = 1000;
+    private static final Pattern ACTUAL_OBJECT_SIZE = Pattern.compile("<ActualObjectSize>(\\d+)</ActualObjectSize>");
+
+    private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final S3MultipartUploader multipartUploader;
+    private final String bucketName;
+    private final long multipartThreshold;
+    private final ConcurrencyLimiter limiter;
+    /** Reads upload bodies for the async client; one thread per permit at most. */
+    private final ExecutorService bodyExecutor;
+
+    public S3ObjectStorage(
+            S3Client s3Client,
+            S3AsyncClient s3AsyncClient,
+            S3MultipartUploader multipartUploader,
+            @Value("${app.aws.s3.bucket-name}") String bucketName,
+            @Value("${app.aws.s3.multipart.threshold:16MB}") DataSize multipartThreshold,
+            @Value("${app.aws.s3.async.max-concurrency:64}") int maxConcurrency,
+            @Value("${app.aws.s3.async.max-pending:1000}") int maxPending
+    ) {
+        this.s3Client = s3Client;
+        this.s3AsyncClient = s3AsyncClient;
+        this.multipartUploader = multipartUploader;
+        this.bucketName = bucketName;
+        this.multipartThreshold = multipartThreshold.toBytes();
+        this.limiter = new ConcurrencyLimiter(maxConcurrency, maxPending);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.bodyExecutor = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "s3-async-body-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public ObjectMetadata put(String key, InputStream content, long size, String contentType) throws IOException {
+        try {
+            if (size < 0 || size > multipartThreshold) {
+                // With the size unknown, parts are of the configured part size
+                String eTag = multipartUploader.upload(bucketName, key, contentType, content, Math.max(size, 0));
+                return new ObjectMetadata(size, contentType, eTag, Instant.now());
+            }
+
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .contentType(contentType)
+                    .contentLength(size)
+                    .build();
+            PutObjectResponse response = s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(content, size));
+            log.info("File uploaded successfully to S3. Key: {}, ETag: {}", key, response.eTag());
+            return new ObjectMetadata(size, contentType, response.eTag(), Instant.now());
+        } catch (SdkException e) {
+            throw new StorageException("Failed to upload " + key + " to S3: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ObjectContent get(String key, String range, String ifNoneMatch, Instant ifModifiedSince) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range(range)
+                .ifNoneMatch(ifNoneMatch)
+                .ifModifiedSince(ifModifiedSince)
+                .build();
+
+        ResponseInputStream<GetObjectResponse> response;
+        try {
+            response = s3Client.getObject(getObjectRequest);
+        } catch (SdkException e) {
+            StorageException failure = downloadFailure(key, e);
+            if (failure.getStatusCode() == 416 && failure.getObjectSize() < 0) {
+                // The error did not carry the size the 416 response has to state
+                throw this.head(key).map(head -> withObjectSize(failure, head.size())).orElse(failure);
+            }
+            throw failure;
+        }
+        return content(key, response, () -> { });
+    }
+
+    @Override
+    public CompletableFuture<ObjectMetadata> putAsync(String key, InputStream content, long size, String contentType) {
+        return limiter.acquire()
+                .thenCompose(permit -> this.withPermit(() -> this.startPut(key, content, size, contentType)))
+                .whenComplete((metadata, error) -> {
+                    try {
+                        content.close();
+                    } catch (IOException e) {
+                        log.warn("Failed to close upload body of {}: {}", key, e.getMessage());
+                    }
+                })
+                .exceptionallyCompose(error -> {
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof UncheckedIOException e) {
+                        cause = e.getCause();
+                    } else if (cause instanceof SdkException e) {
+                        cause = new StorageException("Failed to upload " + key + " to S3: " + e.getMessage(), e);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    @Override
+    public CompletableFuture<ObjectContent> getAsync(String key, String range, String ifNoneMatch, Instant ifModifiedSince) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range(range)
+                .ifNoneMatch(ifNoneMatch)
+                .ifModifiedSince(ifModifiedSince)
+                .build();
+
+        CompletableFuture<ObjectContent> result = new CompletableFuture<>();
+        CompletableFuture<Void> permit = limiter.acquire();
+        // The caller cancels the result when it gives up, e.g. on a request timeout: stop waiting for a permit
+        result.whenComplete((content, error) -> {
+            if (result.isCancelled()) {
+                permit.cancel(false);
+            }
+        });
+        permit.whenComplete((granted, permitError) -> {
+            if (permitError != null) {
+                result.completeExceptionally(unwrap(permitError));
+                return;
+            }
+            if (result.isDone()) {
+                limiter.release();
+                return;
+            }
+            CompletableFuture<ResponseInputStream<GetObjectResponse>> get;
+            try {
+                // Completes with the response headers; the body streams in as the caller reads it
+                get = s3AsyncClient.getObject(getObjectRequest, AsyncResponseTransformer.toBlockingInputStream());
+            } catch (RuntimeException e) {
+                get = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<ResponseInputStream<GetObjectResponse>> request = get;
+            result.whenComplete((content, error) -> {
+                if (result.isCancelled()) {
+                    request.cancel(true);
+                }
+            });
+            request.whenComplete((response, error) -> {
+                if (error != null) {
+                    limiter.release();
+                    this.failDownload(key, error, result);
+                    return;
+                }
+                AtomicBoolean released = new AtomicBoolean();
+                ObjectContent content = content(key, response, () -> {
+                    if (released.compareAndSet(false, true)) {
+                        limiter.release();
+                    }
+                });
+                if (!result.complete(content)) {
+                    // Cancelled while the response was on its way: nobody is going to read or close it
+                    content.abort();
+                }
+            });
+        });
+        return result;
+    }
+
+    private void failDownload(String key, Throwable error, CompletableFuture<ObjectContent> result) {
+        Throwable cause = unwrap(error);
+        if (!(cause instanceof SdkException e)) {
+            result.completeExceptionally(cause);
+            return;
+        }
+        StorageException failure = downloadFailure(key, e);
+        if (failure.getStatusCode() != 416 || failure.getObjectSize() >= 0) {
+            result.completeExceptionally(failure);
+            return;
+        }
+        // The error did not carry the size the 416 response has to state
+        s3AsyncClient.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build())
+                .whenComplete((head, headError) -> result.completeExceptionally(head != null && head.contentLength() != null
+                        ? withObjectSize(failure, head.contentLength())
+                        : failure));
+    }
+
+    @Override
+    public Optional<ObjectMetadata> head(String key) {
+        try {
+            HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            return Optional.of(new ObjectMetadata(head.contentLength(), head.contentType(), head.eTag(), head.lastModified()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (SdkException e) {
+            throw new StorageException("Failed to check " + key + " in S3: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            log.info("File deleted successfully from S3. Key: {}", key);
+        } catch (SdkException e) {
+            throw new StorageException("Failed to delete " + key + " from S3: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete objects in requests of at most {@value #MAX_DELETE_KEYS} keys.
+     */
+    @Override
+    public Map<String, String> deleteAll(List<String> keys) {
+        Map<String, String> errors = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += MAX_DELETE_KEYS) {
+            List<String> chunk = keys.subList(from, Math.min(from + MAX_DELETE_KEYS, keys.size()));
+            try {
+                // Quiet mode: only the keys that failed are listed in the response
+                DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder()
+                                .quiet(true)
+                                .objects(chunk.stream().map(key -> ObjectIdentifier.builder().key(key).build()).toList())
+                                .build())
+                        .build());
+                response.errors().forEach(error -> errors.put(error.key(), error.code() + ": " + error.message()));
+            } catch (SdkException e) {
+                log.error("Error deleting files from S3: {}", e.getMessage(), e);
+                chunk.forEach(key -> errors.put(key, e.getMessage()));
+            }
+        }
+        return errors;
+    }
+
+    private CompletableFuture<ObjectMetadata> startPut(String key, InputStream content, long size, String contentType) {
+        if (size < 0 || size > multipartThreshold) {
+            // The multipart uploader has a part pool of its own; only the caller is released here
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return this.put(key, content, size, contentType);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, bodyExecutor);
+        }
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(size)
+                .build();
+        return s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromInputStream(content, size, bodyExecutor))
+                .thenApply(response -> {
+                    log.info("File uploaded successfully to S3. Key: {}, ETag: {}", key, response.eTag());
+                    return new ObjectMetadata(size, contentType, response.eTag(), Instant.now());
+                });
+    }
+
+    /**
+     * Run an operation holding a permit, released when it completes.
+     */
+    private <T> CompletableFuture<T> withPermit(Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> future;
+        try {
+            future = operation.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> limiter.release());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bodyExecutor.shutdownNow();
+    }
+
+    /**
+     * @param onClose called when the content is closed or aborted, possibly more than once
+     */
+    private static ObjectContent content(String key, ResponseInputStream<GetObjectResponse> response, Runnable onClose) {
+        GetObjectResponse metadata = response.response();
+        log.info("File download started from S3. Key: {}, range: {}", key, metadata.contentRange());
+        long contentLength = metadata.contentLength() != null ? metadata.contentLength() : -1;
+        InputStream body = new FilterInputStream(response) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    onClose.run();
+                }
+            }
+        };
+        return new StreamObjectContent(
+                new ObjectMetadata(totalSize(metadata.contentRange(), contentLength), metadata.contentType(),
+                        metadata.eTag(), metadata.lastModified()),
+                contentLength, metadata.contentRange(), body, () -> {
+                    response.abort();
+                    onClose.run();
+                });
+    }
+
+    private static StorageException downloadFailure(String key, SdkException e) {
+        if (e instanceof NoSuchKeyException) {
+            return new ObjectNotFoundException(key);
+        }
+        if (e instanceof S3Exception s3Exception) {
+            String eTag = Optional.ofNullable(s3Exception.awsErrorDetails())
+                    .map(AwsErrorDetails::sdkHttpResponse)
+                    .flatMap(httpResponse -> httpResponse.firstMatchingHeader("ETag"))
+                    .orElse(null);
+            long objectSize = s3Exception.statusCode() == 416 ? unsatisfiedObjectSize(s3Exception) : -1;
+            return new StorageException(s3Exception.statusCode(), s3Exception.getMessage(), eTag, objectSize);
+        }
+        return new StorageException("Failed to download " + key + " from S3: " + e.getMessage(), e);
+    }
+
+    /**
+     * The object size of an {@code InvalidRange} error, from its {@code Content-Range: bytes *}{@code /size} header
+     * or the {@code ActualObjectSize} element S3 puts in the error body; -1 if neither is there.
+     */
+    private static long unsatisfiedObjectSize(S3Exception e) {
+        AwsErrorDetails details = e.awsErrorDetails();
+        if (details == null) {
+            return -1;
+        }
+        Optional<String> contentRange = details.sdkHttpResponse() != null
+                ? details.sdkHttpResponse().firstMatchingHeader("Content-Range")
+                : Optional.empty();
+        if (contentRange.isPresent() && contentRange.get().startsWith("bytes */")) {
+            try {
+                return Long.parseLong(contentRange.get().substring("bytes */".length()).trim());
+            } catch (NumberFormatException ignored) {
+                // Fall through to the body
+            }
+        }
+        if (details.rawResponse() != null) {
+            Matcher matcher = ACTUAL_OBJECT_SIZE.matcher(details.rawResponse().asUtf8String());
+            if (matcher.find()) {
+                return Long.parseLong(matcher.group(1));
+            }
+        }
+        return -1;
+    }
+
+    private static StorageException withObjectSize(StorageException failure, long objectSize) {
+        return new StorageException(failure.getStatusCode(), failure.getMessage(), failure.getETag(), objectSize);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * The object size: the total of a {@code bytes a-b/total} content range, else the content length.
+     */
+    private static long totalSize(String contentRange, long contentLength) {
+        if (contentRange != null) {
+            int slash = contentRange.lastIndexOf('/');
+            if (slash >= 0 && !contentRange.endsWith("*")) {
+                try {
+                    return Long.parseLong(contentRange.substring(slash + 1).trim());
+                } catch (NumberFormatException e) {
+                    // fall through to the content length
+                }
+            }
+        }
+        return contentLength;
+    }
+}
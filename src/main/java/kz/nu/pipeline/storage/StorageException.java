@@ -0,0 +1,35 @@
+package kz.nu.pipeline.storage;
+
+import lombok.Getter;
+
+/**
+ * A storage request that failed, with the HTTP status that describes it best:
+ * 304, 412 and 416 for conditional and range requests, 500 for backend failures.
+ */
+@Getter
+public class StorageException extends RuntimeException {
+
+    private final int statusCode;
+    /** The current ETag of the object for 304 responses, else null. */
+    private final String eTag;
+    /** The object size for 416 responses, for their {@code Content-Range: bytes *}{@code /size} header, else -1. */
+    private final long objectSize;
+
+    public StorageException(int statusCode, String message, String eTag) {
+        this(statusCode, message, eTag, -1);
+    }
+
+    public StorageException(int statusCode, String message, String eTag, long objectSize) {
+        super(message);
+        this.statusCode = statusCode;
+        this.eTag = eTag;
+        this.objectSize = objectSize;
+    }
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 500;
+        this.eTag = null;
+        this.objectSize = -1;
+    }
+}
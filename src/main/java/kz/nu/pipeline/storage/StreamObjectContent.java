@@ -0,0 +1,65 @@
+package kz.nu.pipeline.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Object content read from a stream, e.g. an HTTP response body.
+ */
+public class StreamObjectContent implements ObjectContent {
+
+    private final ObjectMetadata metadata;
+    private final long contentLength;
+    private final String contentRange;
+    private final InputStream inputStream;
+    private final Runnable abort;
+
+    /**
+     * @param abort drops the underlying connection instead of draining it; called by {@link #abort()}
+     */
+    public StreamObjectContent(
+            ObjectMetadata metadata, long contentLength, String contentRange, InputStream inputStream, Runnable abort
+    ) {
+        this.metadata = metadata;
+        this.contentLength = contentLength;
+        this.contentRange = contentRange;
+        this.inputStream = inputStream;
+        this.abort = abort;
+    }
+
+    @Override
+    public ObjectMetadata metadata() {
+        return metadata;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public String contentRange() {
+        return contentRange;
+    }
+
+    @Override
+    public InputStream inputStream() {
+        return inputStream;
+    }
+
+    @Override
+    public void transferTo(OutputStream outputStream) throws IOException {
+        inputStream.transferTo(outputStream);
+    }
+
+    @Override
+    public void abort() {
+        abort.run();
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
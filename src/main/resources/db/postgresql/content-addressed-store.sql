@@ -0,0 +1,29 @@
+-- Creates stored_blob for content-addressed uploads and adds the columns that came later to existing tables.
+-- Runs on every start of the prod profile, so every step is a no-op once applied. Statements end with @@.
+
+CREATE TABLE IF NOT EXISTS stored_blob (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    sha256 VARCHAR(64) NOT NULL UNIQUE,
+    object_key VARCHAR(255) NOT NULL,
+    size BIGINT,
+    content_type VARCHAR(255),
+    ref_count INTEGER NOT NULL,
+    state VARCHAR(16) NOT NULL,
+    generation INTEGER NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+)@@
+
+-- Blobs created before the state was tracked were written under their row lock, so they are all stored
+ALTER TABLE stored_blob ADD COLUMN IF NOT EXISTS state VARCHAR(16) NOT NULL DEFAULT 'STORED'@@
+
+ALTER TABLE stored_blob ALTER COLUMN state DROP DEFAULT@@
+
+ALTER TABLE stored_blob ADD COLUMN IF NOT EXISTS generation INTEGER NOT NULL DEFAULT 0@@
+
+DO $$
+BEGIN
+    IF to_regclass('stored_file') IS NOT NULL THEN
+        ALTER TABLE stored_file ADD COLUMN IF NOT EXISTS blob_id BIGINT REFERENCES stored_blob (id);
+    END IF;
+END
+$$@@
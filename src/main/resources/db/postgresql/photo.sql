@@ -0,0 +1,32 @@
+-- Extends photo, which held only its id, with the uploaded object and its generated derivatives.
+-- Runs on every start of the prod profile, so every step is a no-op once applied. Statements end with @@.
+
+CREATE TABLE IF NOT EXISTS photo (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY
+)@@
+
+DO $$
+BEGIN
+    ALTER TABLE photo ADD COLUMN IF NOT EXISTS object_key VARCHAR(255);
+    ALTER TABLE photo ADD COLUMN IF NOT EXISTS content_type VARCHAR(255);
+    ALTER TABLE photo ADD COLUMN IF NOT EXISTS width INTEGER;
+    ALTER TABLE photo ADD COLUMN IF NOT EXISTS height INTEGER;
+    ALTER TABLE photo ADD COLUMN IF NOT EXISTS thumbnail_key VARCHAR(255);
+    ALTER TABLE photo ADD COLUMN IF NOT EXISTS medium_key VARCHAR(255);
+    ALTER TABLE photo ADD COLUMN IF NOT EXISTS status VARCHAR(255);
+    ALTER TABLE photo ADD COLUMN IF NOT EXISTS created_at TIMESTAMP(6);
+    ALTER TABLE photo ADD COLUMN IF NOT EXISTS processed_at TIMESTAMP(6);
+
+    -- Rows from before photos had an object cannot be processed: they are kept, marked failed
+    UPDATE photo SET status = 'FAILED' WHERE status IS NULL;
+    UPDATE photo SET created_at = localtimestamp WHERE created_at IS NULL;
+    ALTER TABLE photo ALTER COLUMN status SET NOT NULL;
+    ALTER TABLE photo ALTER COLUMN created_at SET NOT NULL;
+    IF NOT EXISTS (SELECT 1 FROM photo WHERE object_key IS NULL) THEN
+        ALTER TABLE photo ALTER COLUMN object_key SET NOT NULL;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_photo_object_key') THEN
+        ALTER TABLE photo ADD CONSTRAINT uk_photo_object_key UNIQUE (object_key);
+    END IF;
+END
+$$@@
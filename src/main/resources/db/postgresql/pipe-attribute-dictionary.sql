@@ -0,0 +1,43 @@
+-- Moves the low-cardinality pipe attributes into pipe_attribute_value and keeps only their ids on pipe.
+-- Runs on every start of the prod profile, so every step is a no-op once applied. Statements end with @@.
+
+CREATE TABLE IF NOT EXISTS pipe_attribute_value (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    kind VARCHAR(32) NOT NULL,
+    attribute_value VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_pipe_attribute_value UNIQUE (kind, attribute_value)
+)@@
+
+DO $$
+DECLARE
+    attribute RECORD;
+BEGIN
+    IF to_regclass('pipe') IS NULL THEN
+        RETURN;
+    END IF;
+    FOR attribute IN
+        SELECT * FROM (VALUES
+            ('material', 'MATERIAL'),
+            ('grade', 'GRADE'),
+            ('manufacturer', 'MANUFACTURER'),
+            ('location', 'LOCATION'),
+            ('quality_class', 'QUALITY_CLASS'),
+            ('coating_type', 'COATING_TYPE')
+        ) AS columns (name, kind)
+    LOOP
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'pipe' AND column_name = attribute.name) THEN
+            EXECUTE format('INSERT INTO pipe_attribute_value (kind, attribute_value) '
+                           'SELECT DISTINCT %L, %I FROM pipe WHERE %I IS NOT NULL ON CONFLICT DO NOTHING',
+                           attribute.kind, attribute.name, attribute.name);
+            EXECUTE format('ALTER TABLE pipe ADD COLUMN IF NOT EXISTS %I INTEGER', attribute.name || '_id');
+            EXECUTE format('UPDATE pipe SET %I = v.id FROM pipe_attribute_value v '
+                           'WHERE v.kind = %L AND v.attribute_value = pipe.%I',
+                           attribute.name || '_id', attribute.kind, attribute.name);
+            EXECUTE format('ALTER TABLE pipe DROP COLUMN %I', attribute.name);
+        ELSE
+            EXECUTE format('ALTER TABLE pipe ADD COLUMN IF NOT EXISTS %I INTEGER', attribute.name || '_id');
+        END IF;
+    END LOOP;
+END
+$$@@
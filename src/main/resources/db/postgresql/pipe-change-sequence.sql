@@ -0,0 +1,28 @@
+-- Adds the change sequence that orders pipe changes and tombstones for delta sync, and the tombstone table.
+-- Runs on every start of the prod profile, so every step is a no-op once applied. Statements end with @@.
+
+CREATE SEQUENCE IF NOT EXISTS pipe_change_seq START WITH 1 INCREMENT BY 1@@
+
+CREATE TABLE IF NOT EXISTS pipe_tombstone (
+    change_seq BIGINT PRIMARY KEY,
+    pipe_id BIGINT NOT NULL,
+    pipe_number VARCHAR(255),
+    deleted_at TIMESTAMP(6) NOT NULL
+)@@
+
+CREATE INDEX IF NOT EXISTS idx_pipe_tombstone_deleted_at ON pipe_tombstone (deleted_at)@@
+
+DO $$
+BEGIN
+    IF to_regclass('pipe') IS NULL THEN
+        RETURN;
+    END IF;
+    ALTER TABLE pipe ADD COLUMN IF NOT EXISTS change_seq BIGINT;
+    -- Delta sync treats a pipe without a value as never changed: number the existing ones in id order
+    UPDATE pipe SET change_seq = numbered.seq
+    FROM (SELECT id, nextval('pipe_change_seq') AS seq
+          FROM (SELECT id FROM pipe WHERE change_seq IS NULL ORDER BY id) unnumbered) numbered
+    WHERE pipe.id = numbered.id;
+    CREATE INDEX IF NOT EXISTS idx_pipe_change_seq ON pipe (change_seq);
+END
+$$@@
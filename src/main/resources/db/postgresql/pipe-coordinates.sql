@@ -0,0 +1,12 @@
+-- Adds the WGS84 coordinates of a pipe. Existing pipes have none until they are updated.
+-- Runs on every start of the prod profile, so every step is a no-op once applied. Statements end with @@.
+
+DO $$
+BEGIN
+    IF to_regclass('pipe') IS NULL THEN
+        RETURN;
+    END IF;
+    ALTER TABLE pipe ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION;
+    ALTER TABLE pipe ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
+END
+$$@@
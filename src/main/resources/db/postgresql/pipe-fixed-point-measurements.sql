@@ -0,0 +1,29 @@
+-- Converts the decimal pipe measurements to the scaled longs of FixedPoint: value times 10^scale, rounded.
+-- The scales are those of the Pipe entity. Runs on every start of the prod profile; a column already stored
+-- as bigint is left alone, so each one is converted exactly once. Statements end with @@.
+
+DO $$
+DECLARE
+    measurement RECORD;
+BEGIN
+    IF to_regclass('pipe') IS NULL THEN
+        RETURN;
+    END IF;
+    FOR measurement IN
+        SELECT * FROM (VALUES
+            ('diameter', 2),
+            ('length', 3),
+            ('wall_thickness', 2),
+            ('weight', 3),
+            ('pressure_rating', 2)
+        ) AS columns (name, scale)
+    LOOP
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'pipe'
+                     AND column_name = measurement.name AND data_type <> 'bigint') THEN
+            EXECUTE format('ALTER TABLE pipe ALTER COLUMN %I TYPE BIGINT USING round(%I::numeric * power(10::numeric, %s))',
+                           measurement.name, measurement.name, measurement.scale);
+        END IF;
+    END LOOP;
+END
+$$@@
@@ -0,0 +1,14 @@
+-- Indexes behind the measurement range queries of GET /pipe/range, as declared on the Pipe entity.
+-- Runs after the measurements are converted to scaled longs; every step is a no-op once applied.
+-- Statements end with @@.
+
+DO $$
+BEGIN
+    IF to_regclass('pipe') IS NULL THEN
+        RETURN;
+    END IF;
+    CREATE INDEX IF NOT EXISTS idx_pipe_diameter ON pipe (diameter);
+    CREATE INDEX IF NOT EXISTS idx_pipe_pressure_rating ON pipe (pressure_rating);
+    CREATE INDEX IF NOT EXISTS idx_pipe_wall_thickness ON pipe (wall_thickness);
+END
+$$@@
@@ -0,0 +1,15 @@
+-- Creates stored_file, the metadata of objects uploaded to the bucket, e.g. through presigned URLs.
+-- Runs on every start of the prod profile, before the scripts that extend the table. Statements end with @@.
+
+CREATE TABLE IF NOT EXISTS stored_file (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    object_key VARCHAR(255) NOT NULL UNIQUE,
+    original_filename VARCHAR(255),
+    content_type VARCHAR(255),
+    size BIGINT,
+    etag VARCHAR(255),
+    uploaded_by VARCHAR(255),
+    status VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    uploaded_at TIMESTAMP(6)
+)@@
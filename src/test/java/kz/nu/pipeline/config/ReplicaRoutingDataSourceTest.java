@@ -0,0 +1,144 @@
+package kz.nu.pipeline.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routes through two H2 instances, each holding a {@code node} table with its own name.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private SwitchableDataSource replica;
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("primary");
+        replica = new SwitchableDataSource(h2("replica"));
+        routingDataSource = new ReplicaRoutingDataSource(
+                primary, List.of(replica), Duration.ofMinutes(1), Duration.ofHours(1));
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        routingDataSource.close();
+    }
+
+    @Test
+    void readOnlyTransaction_GoesToReplica() {
+        assertEquals("replica", readOnly.execute(status -> this.node()));
+    }
+
+    @Test
+    void readWriteTransaction_GoesToPrimary() {
+        assertEquals("primary", readWrite.execute(status -> this.node()));
+    }
+
+    @Test
+    void readOnlyTransaction_FallsBackToPrimaryWhenReplicaIsDown() {
+        replica.down = true;
+        routingDataSource.checkHealth();
+        assertEquals("primary", readOnly.execute(status -> this.node()));
+
+        replica.down = false;
+        routingDataSource.checkHealth();
+        assertEquals("replica", readOnly.execute(status -> this.node()));
+    }
+
+    @Test
+    void readOnlyTransaction_RoundRobinsOverReplicas() {
+        routingDataSource.close();
+        routingDataSource = new ReplicaRoutingDataSource(
+                primary, List.of(h2("replica-a"), h2("replica-b")), Duration.ofMinutes(1), Duration.ofHours(1));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+
+        String first = readOnly.execute(status -> this.node());
+        String second = readOnly.execute(status -> this.node());
+        String third = readOnly.execute(status -> this.node());
+
+        assertTrue(first.startsWith("replica-"));
+        assertTrue(second.startsWith("replica-"));
+        assertNotEquals(first, second);
+        assertEquals(first, third);
+    }
+
+    @Test
+    void readAfterOwnWrite_GoesToPrimary() {
+        authenticate("alice");
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+        assertEquals("primary", readOnly.execute(status -> this.node()));
+
+        authenticate("bob");
+        assertEquals("replica", readOnly.execute(status -> this.node()));
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private static DataSource h2(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS node");
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(32))");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static class SwitchableDataSource extends DelegatingDataSource {
+
+        private volatile boolean down;
+
+        SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Replica is down");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package kz.nu.pipeline.controller;
+
+import kz.nu.pipeline.dto.PipeBulkOperationDto;
+import kz.nu.pipeline.dto.PipeBulkRequestDto;
+import kz.nu.pipeline.dto.PipeBulkResponseDto;
+import kz.nu.pipeline.dto.PipeBulkResultDto;
+import kz.nu.pipeline.dto.PipeField;
+import kz.nu.pipeline.exception.GlobalExceptionHandler;
+import kz.nu.pipeline.index.PipeSuggestionIndex;
+import kz.nu.pipeline.repository.PipeJsonStreamer;
+import kz.nu.pipeline.service.PipeChangeFeed;
+import kz.nu.pipeline.service.PipeCreateCoalescer;
+import kz.nu.pipeline.service.PipeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Drives the pipe endpoints through Spring MVC, so that request binding, JSON mapping and the exception handler
+ * are covered, with the services mocked.
+ */
+@ExtendWith(MockitoExtension.class)
+class PipeControllerTest {
+
+    @Mock
+    private PipeService pipeService;
+
+    @Mock
+    private PipeChangeFeed pipeChangeFeed;
+
+    @Mock
+    private PipeSuggestionIndex pipeSuggestionIndex;
+
+    @Mock
+    private PipeJsonStreamer pipeJsonStreamer;
+
+    @Mock
+    private PipeCreateCoalescer pipeCreateCoalescer;
+
+    @InjectMocks
+    private PipeController pipeController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(pipeController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void applyBulk_ReturnsOneResultPerOperation() throws Exception {
+        // Arrange
+        when(pipeService.applyBulk(any())).thenReturn(PipeBulkResponseDto.of(List.of(
+                PipeBulkResultDto.success(0, PipeBulkOperationDto.OperationType.DELETE, 5L, null),
+                PipeBulkResultDto.failure(1, PipeBulkOperationDto.OperationType.UPDATE, 6L, "Pipe not found with id: 6"))));
+
+        // Act & Assert
+        mockMvc.perform(post("/pipe/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"atomic": true, "operations": [
+                                  {"type": "DELETE", "id": 5},
+                                  {"type": "UPDATE", "id": 6, "pipe": {"location": "Yard 2"}}
+                                ]}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].success").value(true))
+                .andExpect(jsonPath("$.results[0].error").doesNotExist())
+                .andExpect(jsonPath("$.results[1].index").value(1))
+                .andExpect(jsonPath("$.results[1].error").value("Pipe not found with id: 6"));
+
+        ArgumentCaptor<PipeBulkRequestDto> request = ArgumentCaptor.forClass(PipeBulkRequestDto.class);
+        verify(pipeService).applyBulk(request.capture());
+        assertTrue(request.getValue().isAtomic());
+        assertEquals(PipeBulkOperationDto.OperationType.UPDATE, request.getValue().getOperations().get(1).getType());
+        assertEquals("Yard 2", request.getValue().getOperations().get(1).getPipe().getLocation());
+    }
+
+    @Test
+    void applyBulk_TooManyOperations_BadRequest() throws Exception {
+        // Arrange
+        when(pipeService.applyBulk(any()))
+                .thenThrow(new IllegalArgumentException("At most 50000 operations can be applied in one request"));
+
+        // Act & Assert
+        mockMvc.perform(post("/pipe/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid argument: At most 50000 operations can be applied in one request"));
+    }
+
+    @Test
+    void getPipeById_Fields_ReturnsOnlyRequestedFieldsAndId() throws Exception {
+        // Arrange
+        when(pipeService.getPipeFields(any(), eq(List.of(PipeField.ID, PipeField.PIPE_NUMBER, PipeField.STATUS))))
+                .thenReturn(List.of(Map.of("id", 7L, "pipeNumber", "P-7", "status", "NEW")));
+
+        // Act & Assert
+        mockMvc.perform(get("/pipe/7").param("fields", "pipeNumber,status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(7))
+                .andExpect(jsonPath("$.pipeNumber").value("P-7"))
+                .andExpect(jsonPath("$.remarks").doesNotExist());
+        verify(pipeService, never()).getPipeById(any());
+    }
+
+    @Test
+    void getAllPipes_UnknownField_BadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/pipe").param("fields", "pipeNumber,secret"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid argument: Unknown pipe field: secret"));
+        verifyNoInteractions(pipeService);
+    }
+}
@@ -1,22 +1,43 @@
 package kz.nu.pipeline.controller;
 
+import kz.nu.pipeline.dto.PresignedUploadRequestDto;
+import kz.nu.pipeline.dto.PresignedUrlDto;
+import kz.nu.pipeline.dto.StoredFileDto;
+import kz.nu.pipeline.model.StoredFile;
+import kz.nu.pipeline.model.User;
+import kz.nu.pipeline.service.PhotoService;
+import kz.nu.pipeline.service.S3ObjectCache;
 import kz.nu.pipeline.service.S3Service;
+import kz.nu.pipeline.storage.ObjectContent;
+import kz.nu.pipeline.storage.ObjectMetadata;
+import kz.nu.pipeline.storage.ObjectNotFoundException;
+import kz.nu.pipeline.storage.StorageException;
+import kz.nu.pipeline.storage.StreamObjectContent;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayInputStream;
-import java.io.InputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +46,12 @@ class S3ControllerTest {
     @Mock
     private S3Service s3Service;
 
+    @Mock
+    private S3ObjectCache s3ObjectCache;
+
+    @Mock
+    private PhotoService photoService;
+
     @InjectMocks
     private S3Controller s3Controller;
 
@@ -38,10 +65,10 @@ class S3ControllerTest {
                 "Hello World".getBytes()
         );
         String expectedFilename = "unique-filename.txt";
-        when(s3Service.uploadFile(any())).thenReturn(expectedFilename);
+        when(s3Service.uploadFileAsync(any())).thenReturn(CompletableFuture.completedFuture(expectedFilename));
 
         // Act
-        ResponseEntity<Map<String, Object>> response = s3Controller.uploadFile(file);
+        ResponseEntity<Map<String, Object>> response = s3Controller.uploadFile(file).join();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -50,7 +77,7 @@ class S3ControllerTest {
         assertEquals(expectedFilename, response.getBody().get("filename"));
         assertEquals("test.txt", response.getBody().get("originalFilename"));
 
-        verify(s3Service, times(1)).uploadFile(file);
+        verify(s3Service, times(1)).uploadFileAsync(file);
     }
 
     @Test
@@ -64,7 +91,7 @@ class S3ControllerTest {
         );
 
         // Act
-        ResponseEntity<Map<String, Object>> response = s3Controller.uploadFile(emptyFile);
+        ResponseEntity<Map<String, Object>> response = s3Controller.uploadFile(emptyFile).join();
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -72,42 +99,177 @@ class S3ControllerTest {
         assertFalse((Boolean) response.getBody().get("success"));
         assertEquals("File cannot be empty", response.getBody().get("message"));
 
-        verify(s3Service, never()).uploadFile(any());
+        verify(s3Service, never()).uploadFileAsync(any());
+    }
+
+    @Test
+    void uploadFile_TooManyTransfers_ServiceUnavailable() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "Hello World".getBytes());
+        when(s3Service.uploadFileAsync(any())).thenReturn(CompletableFuture.failedFuture(
+                new StorageException(503, "Too many storage requests in progress, try again later", null)));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = s3Controller.uploadFile(file).join();
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertFalse((Boolean) response.getBody().get("success"));
     }
 
     @Test
-    void downloadFile_Success() {
+    void downloadFile_Success() throws Exception {
         // Arrange
         String filename = "test-file.txt";
-        InputStream mockInputStream = new ByteArrayInputStream("file content".getBytes());
-        when(s3Service.fileExists(filename)).thenReturn(true);
-        when(s3Service.downloadFile(filename)).thenReturn(mockInputStream);
+        ObjectMetadata metadata = new ObjectMetadata(12L, "text/plain", "\"abc123\"", null);
+        when(s3Service.downloadFileAsync(filename, null, null, null))
+                .thenReturn(CompletableFuture.completedFuture(object(metadata, null, "file content")));
 
         // Act
-        var response = s3Controller.downloadFile(filename);
+        var response = s3Controller.downloadFile(filename, null, null, null, null).join();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertNotNull(response.getBody());
+        assertEquals(12L, response.getHeaders().getContentLength());
+        assertEquals(MediaType.TEXT_PLAIN, response.getHeaders().getContentType());
+        assertEquals("\"abc123\"", response.getHeaders().getETag());
+        assertEquals("file content", body(response));
 
-        verify(s3Service, times(1)).fileExists(filename);
-        verify(s3Service, times(1)).downloadFile(filename);
+        verify(s3Service, never()).fileExists(anyString());
+        verify(s3Service, times(1)).downloadFileAsync(filename, null, null, null);
     }
 
     @Test
-    void downloadFile_NotFound() {
+    void downloadFile_ResponseCancelled_CancelsDownload() {
+        // Arrange
+        CompletableFuture<ObjectContent> download = new CompletableFuture<>();
+        when(s3Service.downloadFileAsync("test-file.txt", null, null, null)).thenReturn(download);
+        var response = s3Controller.downloadFile("test-file.txt", null, null, null, null);
+
+        // Act: as Spring does when the async request times out
+        response.cancel(false);
+
+        // Assert
+        assertTrue(download.isCancelled());
+    }
+
+    @Test
+    void downloadFile_Range() throws Exception {
+        // Arrange
+        String filename = "photo.jpg";
+        ObjectMetadata metadata = new ObjectMetadata(12L, "image/jpeg", null, null);
+        when(s3Service.downloadFileAsync(filename, "bytes=4-7", null, null))
+                .thenReturn(CompletableFuture.completedFuture(object(metadata, "bytes 4-7/12", "cont")));
+
+        // Act
+        var response = s3Controller.downloadFile(filename, null, "bytes=4-7", null, null).join();
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 4-7/12", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4L, response.getHeaders().getContentLength());
+        assertEquals("cont", body(response));
+    }
+
+    @Test
+    void downloadFile_ThumbnailSize_ServesDerivative() throws Exception {
+        // Arrange
+        String filename = "photo.jpg";
+        ObjectMetadata metadata = new ObjectMetadata(5L, "image/jpeg", null, null);
+        when(photoService.variantKey(filename, "thumbnail")).thenReturn("photo_thumbnail.jpg");
+        when(s3Service.downloadFileAsync("photo_thumbnail.jpg", null, null, null))
+                .thenReturn(CompletableFuture.completedFuture(object(metadata, null, "thumb")));
+
+        // Act
+        var response = s3Controller.downloadFile(filename, "thumbnail", null, null, null).join();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("thumb", body(response));
+        verify(s3Service, never()).downloadFileAsync(eq(filename), any(), any(), any());
+    }
+
+    @Test
+    void downloadFile_NotModified() throws Exception {
+        // Arrange
+        String filename = "photo.jpg";
+        when(s3Service.downloadFileAsync(filename, null, "\"abc123\"", null))
+                .thenReturn(CompletableFuture.failedFuture(new StorageException(304, "Not modified", "\"abc123\"")));
+
+        // Act
+        var response = s3Controller.downloadFile(filename, null, null, "\"abc123\"", null).join();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"abc123\"", response.getHeaders().getETag());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void downloadFile_RangeNotSatisfiable_StatesObjectSize() {
+        // Arrange
+        String filename = "photo.jpg";
+        when(s3Service.downloadFileAsync(filename, "bytes=100-", null, null))
+                .thenReturn(CompletableFuture.failedFuture(new StorageException(416, "Invalid range", null, 12)));
+
+        // Act
+        var response = s3Controller.downloadFile(filename, null, "bytes=100-", null, null).join();
+
+        // Assert
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */12", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void downloadFile_NotFound() throws Exception {
         // Arrange
         String filename = "non-existent-file.txt";
-        when(s3Service.fileExists(filename)).thenReturn(false);
+        when(s3Service.downloadFileAsync(filename, null, null, null))
+                .thenReturn(CompletableFuture.failedFuture(new ObjectNotFoundException(filename)));
 
         // Act
-        var response = s3Controller.downloadFile(filename);
+        var response = s3Controller.downloadFile(filename, null, null, null, null).join();
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
 
-        verify(s3Service, times(1)).fileExists(filename);
-        verify(s3Service, never()).downloadFile(anyString());
+        verify(s3Service, never()).fileExists(anyString());
+    }
+
+    @Test
+    void presignUpload_Success() throws Exception {
+        // Arrange
+        User user = User.builder().username("surveyor").build();
+        PresignedUploadRequestDto request = new PresignedUploadRequestDto("joint.jpg", "image/jpeg", 2_048_000L);
+        PresignedUrlDto presigned = new PresignedUrlDto("unique.jpg", "PUT", "https://bucket.s3/unique.jpg?X-Amz-Signature=x",
+                Map.of("content-type", "image/jpeg"), Instant.now().plusSeconds(900));
+        when(s3Service.presignUpload(request, "surveyor")).thenReturn(presigned);
+
+        // Act
+        ResponseEntity<PresignedUrlDto> response = s3Controller.presignUpload(request, user);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(presigned, response.getBody());
+
+        verify(s3Service, never()).uploadFile(any());
+    }
+
+    @Test
+    void completeUpload_Success() {
+        // Arrange
+        User user = User.builder().username("surveyor").build();
+        StoredFileDto storedFile = new StoredFileDto(1L, "unique.jpg", "joint.jpg", "image/jpeg", 2_048_000L,
+                "\"abc123\"", "surveyor", StoredFile.Status.UPLOADED, LocalDateTime.now());
+        when(s3Service.completeUpload("unique.jpg", "surveyor")).thenReturn(storedFile);
+
+        // Act
+        ResponseEntity<StoredFileDto> response = s3Controller.completeUpload("unique.jpg", user);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(StoredFile.Status.UPLOADED, response.getBody().getStatus());
     }
 
     @Test
@@ -182,4 +344,16 @@ class S3ControllerTest {
         verify(s3Service, times(1)).fileExists(filename);
         verify(s3Service, never()).deleteFile(anyString());
     }
+
+    private static ObjectContent object(ObjectMetadata metadata, String contentRange, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new StreamObjectContent(metadata, bytes.length, contentRange, new ByteArrayInputStream(bytes), () -> { });
+    }
+
+    private static String body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertNotNull(response.getBody());
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,54 @@
+package kz.nu.pipeline.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipeFieldTest {
+
+    @Test
+    void parse_KnownFields_IdFirstThenRequestOrderWithoutDuplicates() {
+        // Act
+        List<PipeField> fields = PipeField.parse(" status, pipeNumber,status ,,location");
+
+        // Assert
+        assertEquals(List.of(PipeField.ID, PipeField.STATUS, PipeField.PIPE_NUMBER, PipeField.LOCATION), fields);
+    }
+
+    @Test
+    void parse_IdRequested_IncludedOnce() {
+        // Act
+        List<PipeField> fields = PipeField.parse("pipeNumber,id");
+
+        // Assert
+        assertEquals(List.of(PipeField.ID, PipeField.PIPE_NUMBER), fields);
+        assertEquals(List.of(PipeField.ID), PipeField.parse("id"));
+    }
+
+    @Test
+    void parse_UnknownField_Rejected() {
+        // Act & Assert
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> PipeField.parse("pipeNumber,changeSeq"));
+        assertEquals("Unknown pipe field: changeSeq", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> PipeField.parse("PIPE_NUMBER"));
+    }
+
+    @Test
+    void parse_NoFieldNames_Rejected() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> PipeField.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> PipeField.parse(" , ,"));
+    }
+
+    @Test
+    void toApiValue_Measurement_ConvertedToDecimal() {
+        // Act & Assert
+        assertEquals(new BigDecimal("114.30"), PipeField.DIAMETER.toApiValue(11430L));
+        assertNull(PipeField.DIAMETER.toApiValue(null));
+        assertEquals("P-1", PipeField.PIPE_NUMBER.toApiValue("P-1"));
+    }
+}
@@ -0,0 +1,195 @@
+package kz.nu.pipeline.index;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.dto.PipeScanResultDto;
+import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.model.PipeAttributeValue;
+import kz.nu.pipeline.repository.JpaBenchmarkContext;
+import kz.nu.pipeline.repository.PipeRepository;
+import kz.nu.pipeline.repository.PipeSpecifications;
+import kz.nu.pipeline.service.PipeAttributeDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PipeColumnStore#scan} with the same filter and aggregates answered by the database through the
+ * {@link Pipe} entity, as the application would without the snapshot: a {@link PipeRepository} page of the first
+ * matching pipes with its count, plus one aggregate query. The H2 schema is generated from the entities.
+ * Not part of the test suite; run it through {@link #main} from the IDE or with the test classpath on the command line.
+ * The 10M case needs a few GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx8g"})
+public class PipeColumnStoreBenchmark {
+
+    private static final String[] MATERIALS = {"Steel", "Stainless Steel", "Cast Iron", "PVC", "HDPE", "Copper"};
+    private static final String[] MANUFACTURERS = {"KazTrubProm", "ArcelorMittal", "Tenaris", "Vallourec", "TMK"};
+    private static final String[] LOCATIONS = {"Almaty", "Astana", "Atyrau", "Aktau", "Shymkent", "Karaganda", "Pavlodar"};
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final int LIMIT = 100;
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    private PipeColumnStore store;
+    private PipeScanQuery query;
+    private ConfigurableApplicationContext context;
+    private PipeRepository pipeRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+    private Specification<Pipe> specification;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        store = new PipeColumnStore(null, null);
+        context = JpaBenchmarkContext.start("jdbc:h2:mem:scan-bench;DB_CLOSE_DELAY=-1", "sa", "");
+        pipeRepository = context.getBean(PipeRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        PipeAttributeDictionary dictionary = context.getBean(PipeAttributeDictionary.class);
+
+        // Rows go in over JDBC for speed; the string columns hold the dictionary ids the entity converters expect
+        SplittableRandom random = new SplittableRandom(42);
+        Pipe.PipeStatus[] statuses = Pipe.PipeStatus.values();
+        try (Connection connection = context.getBean(DataSource.class).getConnection();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO pipe (id, diameter, wall_thickness, "
+                     + "pressure_rating, production_date, status, material_id, manufacturer_id, location_id) "
+                     + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            for (int i = 1; i <= rows; i++) {
+                PipeDto pipe = new PipeDto();
+                pipe.setId((long) i);
+                pipe.setDiameter((long) random.nextInt(5_000, 150_000));
+                pipe.setWallThickness((long) random.nextInt(200, 4_000));
+                pipe.setPressureRating((long) random.nextInt(1_000, 25_000));
+                pipe.setProductionDate(FIRST_DAY.plusDays(random.nextInt(3_650)));
+                pipe.setStatus(statuses[random.nextInt(statuses.length)]);
+                pipe.setMaterial(MATERIALS[random.nextInt(MATERIALS.length)]);
+                pipe.setManufacturer(MANUFACTURERS[random.nextInt(MANUFACTURERS.length)]);
+                pipe.setLocation(LOCATIONS[random.nextInt(LOCATIONS.length)]);
+                store.upsert(pipe);
+
+                insert.setLong(1, pipe.getId());
+                insert.setLong(2, pipe.getDiameter());
+                insert.setLong(3, pipe.getWallThickness());
+                insert.setLong(4, pipe.getPressureRating());
+                insert.setDate(5, Date.valueOf(pipe.getProductionDate()));
+                insert.setString(6, pipe.getStatus().name());
+                insert.setInt(7, dictionary.intern(PipeAttributeValue.Kind.MATERIAL, pipe.getMaterial()));
+                insert.setInt(8, dictionary.intern(PipeAttributeValue.Kind.MANUFACTURER, pipe.getManufacturer()));
+                insert.setInt(9, dictionary.intern(PipeAttributeValue.Kind.LOCATION, pipe.getLocation()));
+                insert.addBatch();
+                if (i % 10_000 == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+
+        query = PipeScanQuery.builder()
+                .minDiameter(new BigDecimal("200.00"))
+                .maxDiameter(new BigDecimal("800.00"))
+                .minWallThickness(new BigDecimal("5.00"))
+                .maxWallThickness(new BigDecimal("20.00"))
+                .producedFrom(LocalDate.of(2018, 1, 1))
+                .producedTo(LocalDate.of(2022, 12, 31))
+                .statuses(EnumSet.of(Pipe.PipeStatus.IN_STOCK, Pipe.PipeStatus.IN_USE))
+                .material("Steel")
+                .build();
+        specification = Specification.allOf(
+                PipeSpecifications.measurementRanges(query.getMinDiameter(), query.getMaxDiameter(),
+                        null, null, query.getMinWallThickness(), query.getMaxWallThickness()),
+                (root, criteria, cb) -> cb.between(root.get("productionDate"), query.getProducedFrom(), query.getProducedTo()),
+                (root, criteria, cb) -> root.get("status").in(query.getStatuses()),
+                PipeSpecifications.hasMaterial(query.getMaterial())
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PipeScanResultDto columnar() {
+        return store.scan(query, LIMIT);
+    }
+
+    @Benchmark
+    public void entities(Blackhole blackhole) {
+        readOnly.executeWithoutResult(status -> {
+            Page<Pipe> page = pipeRepository.findAll(specification, PageRequest.of(0, LIMIT));
+            blackhole.consume(page.getTotalElements());
+            page.forEach(pipe -> blackhole.consume(pipe.getId()));
+            blackhole.consume(this.aggregate());
+        });
+    }
+
+    private Tuple aggregate() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> aggregate = cb.createTupleQuery();
+        Root<Pipe> root = aggregate.from(Pipe.class);
+        aggregate.multiselect(
+                cb.min(root.<Long>get("diameter")), cb.max(root.<Long>get("diameter")),
+                cb.sum(root.<Long>get("diameter")), cb.avg(root.<Long>get("diameter")),
+                cb.min(root.<Long>get("wallThickness")), cb.max(root.<Long>get("wallThickness")),
+                cb.sum(root.<Long>get("wallThickness")), cb.avg(root.<Long>get("wallThickness")),
+                cb.min(root.<Long>get("pressureRating")), cb.max(root.<Long>get("pressureRating")),
+                cb.sum(root.<Long>get("pressureRating")), cb.avg(root.<Long>get("pressureRating"))
+        );
+        aggregate.where(specification.toPredicate(root, aggregate, cb));
+        return entityManager.createQuery(aggregate).getSingleResult();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PipeColumnStoreBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,167 @@
+package kz.nu.pipeline.index;
+
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.dto.PipeScanResultDto;
+import kz.nu.pipeline.model.Pipe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipeColumnStoreTest {
+
+    private static final String[] MATERIALS = {"Steel", "Cast Iron", "PVC"};
+    private static final String[] LOCATIONS = {"Almaty", "Astana", "Atyrau"};
+
+    private PipeColumnStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new PipeColumnStore(null, null);
+    }
+
+    @Test
+    void scan_RandomRows_MatchesBruteForce() {
+        // Arrange: more rows than one scan chunk, with some nulls
+        SplittableRandom random = new SplittableRandom(7);
+        List<PipeDto> pipes = new ArrayList<>();
+        for (long id = 1; id <= 10_000; id++) {
+            PipeDto pipe = pipe(id, random.nextInt(10) == 0 ? null : (long) random.nextInt(5_000, 150_000),
+                    Pipe.PipeStatus.values()[random.nextInt(Pipe.PipeStatus.values().length)],
+                    random.nextInt(10) == 0 ? null : MATERIALS[random.nextInt(MATERIALS.length)],
+                    LOCATIONS[random.nextInt(LOCATIONS.length)]);
+            pipe.setWallThickness((long) random.nextInt(200, 4_000));
+            pipe.setProductionDate(LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3_650)));
+            pipes.add(pipe);
+            store.upsert(pipe);
+        }
+        PipeScanQuery query = PipeScanQuery.builder()
+                .minDiameter(new BigDecimal("200.00"))
+                .maxDiameter(new BigDecimal("800.00"))
+                .producedFrom(LocalDate.of(2018, 1, 1))
+                .statuses(EnumSet.of(Pipe.PipeStatus.IN_STOCK, Pipe.PipeStatus.IN_USE))
+                .material("Steel")
+                .build();
+
+        // Act
+        PipeScanResultDto result = store.scan(query, 20_000);
+
+        // Assert
+        List<PipeDto> expected = pipes.stream()
+                .filter(pipe -> pipe.getDiameter() != null && pipe.getDiameter() >= 20_000 && pipe.getDiameter() <= 80_000)
+                .filter(pipe -> !pipe.getProductionDate().isBefore(LocalDate.of(2018, 1, 1)))
+                .filter(pipe -> pipe.getStatus() == Pipe.PipeStatus.IN_STOCK || pipe.getStatus() == Pipe.PipeStatus.IN_USE)
+                .filter(pipe -> "Steel".equals(pipe.getMaterial()))
+                .toList();
+        assertTrue(expected.size() > 100);
+        assertEquals(expected.size(), result.getCount());
+        assertEquals(expected.stream().map(PipeDto::getId).toList(), result.getIds());
+        PipeScanResultDto.ColumnStats diameter = result.getStats().get("diameter");
+        assertEquals(expected.size(), diameter.getCount());
+        assertEquals(BigDecimal.valueOf(expected.stream().mapToLong(PipeDto::getDiameter).min().orElseThrow(), 2), diameter.getMin());
+        assertEquals(BigDecimal.valueOf(expected.stream().mapToLong(PipeDto::getDiameter).max().orElseThrow(), 2), diameter.getMax());
+        assertEquals(BigDecimal.valueOf(expected.stream().mapToLong(PipeDto::getDiameter).sum(), 2), diameter.getSum());
+    }
+
+    @Test
+    void scan_Limit_ReturnsFirstIdsAndFullCount() {
+        // Arrange
+        for (long id = 1; id <= 5_000; id++) {
+            store.upsert(pipe(id, 50_000L, Pipe.PipeStatus.NEW, "Steel", "Almaty"));
+        }
+
+        // Act
+        PipeScanResultDto result = store.scan(PipeScanQuery.builder().material("Steel").build(), 3);
+
+        // Assert
+        assertEquals(5_000, result.getCount());
+        assertEquals(List.of(1L, 2L, 3L), result.getIds());
+        assertEquals(new BigDecimal("500.00"), result.getStats().get("diameter").getAvg());
+    }
+
+    @Test
+    void scan_UnknownValueOrNoRows_NoMatches() {
+        // Arrange
+        PipeScanQuery unknownMaterial = PipeScanQuery.builder().material("Titanium").build();
+
+        // Act & Assert
+        assertEquals(0, store.scan(PipeScanQuery.builder().build(), 10).getCount());
+        store.upsert(pipe(1L, 50_000L, Pipe.PipeStatus.NEW, "Steel", "Almaty"));
+        PipeScanResultDto result = store.scan(unknownMaterial, 10);
+        assertEquals(0, result.getCount());
+        assertTrue(result.getIds().isEmpty());
+    }
+
+    @Test
+    void upsert_ExistingId_ReplacesRow() {
+        // Arrange
+        store.upsert(pipe(1L, 50_000L, Pipe.PipeStatus.NEW, "Steel", "Almaty"));
+        store.upsert(pipe(2L, 60_000L, Pipe.PipeStatus.NEW, "Steel", "Almaty"));
+
+        // Act
+        store.upsert(pipe(1L, 10_000L, Pipe.PipeStatus.IN_USE, "PVC", "Astana"));
+
+        // Assert
+        assertEquals(2, store.size());
+        assertEquals(List.of(2L), store.scan(PipeScanQuery.builder().material("Steel").build(), 10).getIds());
+        PipeScanResultDto moved = store.scan(PipeScanQuery.builder().location("Astana")
+                .statuses(EnumSet.of(Pipe.PipeStatus.IN_USE)).build(), 10);
+        assertEquals(List.of(1L), moved.getIds());
+        assertEquals(new BigDecimal("100.00"), moved.getStats().get("diameter").getMax());
+    }
+
+    @Test
+    void remove_MovesLastRowIntoGap() {
+        // Arrange
+        for (long id = 1; id <= 4; id++) {
+            store.upsert(pipe(id, id * 10_000, Pipe.PipeStatus.NEW, "Steel", "Almaty"));
+        }
+
+        // Act
+        store.remove(2L);
+        store.remove(42L);
+        // Row 4 now sits in the freed slot and must still be updated in place
+        store.upsert(pipe(4L, 90_000L, Pipe.PipeStatus.NEW, "Steel", "Almaty"));
+
+        // Assert
+        assertEquals(3, store.size());
+        PipeScanResultDto result = store.scan(PipeScanQuery.builder().build(), 10);
+        assertEquals(Set.of(1L, 3L, 4L), new HashSet<>(result.getIds()));
+        assertEquals(new BigDecimal("1300.00"), result.getStats().get("diameter").getSum());
+    }
+
+    @Test
+    void scan_FilteredColumn_ExcludesNulls() {
+        // Arrange
+        store.upsert(pipe(1L, null, Pipe.PipeStatus.NEW, "Steel", "Almaty"));
+        store.upsert(pipe(2L, 30_000L, Pipe.PipeStatus.NEW, null, "Almaty"));
+
+        // Act
+        PipeScanResultDto belowMax = store.scan(PipeScanQuery.builder().maxDiameter(new BigDecimal("500")).build(), 10);
+        PipeScanResultDto unfiltered = store.scan(PipeScanQuery.builder().build(), 10);
+
+        // Assert
+        assertEquals(List.of(2L), belowMax.getIds());
+        assertEquals(2, unfiltered.getCount());
+        assertEquals(1, unfiltered.getStats().get("diameter").getCount());
+    }
+
+    private static PipeDto pipe(Long id, Long diameter, Pipe.PipeStatus status, String material, String location) {
+        PipeDto pipe = new PipeDto();
+        pipe.setId(id);
+        pipe.setDiameter(diameter);
+        pipe.setStatus(status);
+        pipe.setMaterial(material);
+        pipe.setLocation(location);
+        return pipe;
+    }
+}
@@ -0,0 +1,113 @@
+package kz.nu.pipeline.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipeKeyTrieTest {
+
+    private static final String ALPHABET = "AB-Zab09ÄЖ";
+
+    private PipeKeyTrie trie;
+    private TreeMap<String, Integer> reference;
+
+    @BeforeEach
+    void setUp() {
+        trie = new PipeKeyTrie();
+        reference = new TreeMap<>();
+    }
+
+    @Test
+    void randomAddsAndRemoves_MatchTreeMap() {
+        // Arrange: a small alphabet and short keys, so keys share prefixes and repeat
+        SplittableRandom random = new SplittableRandom(7);
+        for (int step = 0; step < 20_000; step++) {
+            String key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                // Act
+                trie.remove(key);
+                reference.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+            } else {
+                trie.add(key);
+                reference.merge(key, 1, Integer::sum);
+            }
+
+            // Assert
+            if (step % 500 == 0) {
+                this.assertMatchesReference(random);
+            }
+        }
+        this.assertMatchesReference(random);
+    }
+
+    @Test
+    void startingWith_Limit_ReturnsFirstKeysInOrder() {
+        // Arrange
+        for (String key : List.of("P-10", "P-1", "P-100", "P-2", "P-1", "Q-1")) {
+            trie.add(key);
+        }
+
+        // Act & Assert
+        assertEquals(List.of(new PipeKeyTrie.Entry("P-1", 2), new PipeKeyTrie.Entry("P-10", 1)),
+                trie.startingWith("P-", 2));
+        assertEquals(List.of(new PipeKeyTrie.Entry("P-1", 2)), trie.startingWith("P-1", 1));
+        assertEquals(List.of(), trie.startingWith("P-1", 0));
+        assertEquals(List.of(), trie.startingWith("R", 10));
+        assertEquals(5, trie.startingWith("", 10).size());
+    }
+
+    @Test
+    void remove_LastCount_PrunesKeyButKeepsExtensions() {
+        // Arrange
+        trie.add("P-1");
+        trie.add("P-1");
+        trie.add("P-12");
+
+        // Act
+        trie.remove("P-1");
+        trie.remove("P-1");
+        trie.remove("P-1");
+        trie.remove("P-123");
+        trie.remove("X");
+
+        // Assert
+        assertEquals(1, trie.size());
+        assertEquals(List.of(new PipeKeyTrie.Entry("P-12", 1)), trie.startingWith("P", 10));
+
+        trie.remove("P-12");
+        assertEquals(0, trie.size());
+        assertEquals(List.of(), trie.startingWith("", 10));
+    }
+
+    private void assertMatchesReference(SplittableRandom random) {
+        assertEquals(reference.size(), trie.size());
+        List<String> prefixes = new ArrayList<>(List.of(""));
+        for (int i = 0; i < 20; i++) {
+            prefixes.add(randomKey(random).substring(0, random.nextInt(3)));
+        }
+        for (String prefix : prefixes) {
+            int limit = random.nextInt(0, 40);
+            List<PipeKeyTrie.Entry> expected = reference.tailMap(prefix, true).entrySet().stream()
+                    .takeWhile(entry -> entry.getKey().startsWith(prefix))
+                    .limit(limit)
+                    .map(entry -> new PipeKeyTrie.Entry(entry.getKey(), entry.getValue()))
+                    .toList();
+            assertEquals(expected, trie.startingWith(prefix, limit), () -> "prefix '" + prefix + "' limit " + limit);
+        }
+    }
+
+    private static String randomKey(SplittableRandom random) {
+        StringBuilder key = new StringBuilder();
+        int length = random.nextInt(2, 6);
+        for (int i = 0; i < length; i++) {
+            key.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return key.toString();
+    }
+}
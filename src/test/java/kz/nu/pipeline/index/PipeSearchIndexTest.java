@@ -0,0 +1,71 @@
+package kz.nu.pipeline.index;
+
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.event.PipeChangeEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipeSearchIndexTest {
+
+    @TempDir
+    Path parentDir;
+
+    @Test
+    void twoInstances_SameIndexDir_KeepSeparateIndexes() throws IOException {
+        // Arrange
+        PipeSearchIndex first = new PipeSearchIndex(null, null, parentDir, 60_000);
+        PipeSearchIndex second = new PipeSearchIndex(null, null, parentDir, 60_000);
+        try {
+            // Act
+            first.onPipeChange(change(1L, "Corrosion near the weld"));
+            second.onPipeChange(change(2L, "Dent on the coating"));
+            first.refresh();
+            second.refresh();
+
+            // Assert
+            assertEquals(List.of(1L), ids(first.search("corrosion", 0, 10)));
+            assertEquals(List.of(), ids(first.search("dent", 0, 10)));
+            assertEquals(List.of(2L), ids(second.search("dent", 0, 10)));
+        } finally {
+            first.close();
+            second.close();
+        }
+
+        try (Stream<Path> left = Files.list(parentDir)) {
+            assertEquals(0, left.count());
+        }
+    }
+
+    @Test
+    void search_PageOverflowsInt_RejectedAsInvalid() throws IOException {
+        // Arrange
+        PipeSearchIndex index = new PipeSearchIndex(null, null, parentDir, 60_000);
+        try {
+            // Act & Assert
+            assertThrows(IllegalArgumentException.class, () -> index.search("weld", Integer.MAX_VALUE / 10, 100));
+            assertThrows(IllegalArgumentException.class, () -> index.search("weld", Integer.MAX_VALUE, 1));
+            assertEquals(0, index.search("weld", 1_000, 100).total());
+        } finally {
+            index.close();
+        }
+    }
+
+    private static PipeChangeEvent change(Long id, String remarks) {
+        PipeDto pipe = new PipeDto();
+        pipe.setId(id);
+        pipe.setRemarks(remarks);
+        return new PipeChangeEvent(PipeChangeEvent.ChangeType.UPDATED, id, pipe);
+    }
+
+    private static List<Long> ids(PipeSearchIndex.Page page) {
+        return page.hits().stream().map(PipeSearchIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,210 @@
+package kz.nu.pipeline.index;
+
+import kz.nu.pipeline.dto.PipeDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipeSpatialIndexTest {
+
+    private record Point(long id, double lat, double lon) {
+    }
+
+    @Test
+    void withinRadius_MatchesBruteForce() {
+        for (double cellDegrees : new double[]{0.01, 1}) {
+            // Arrange
+            PipeSpatialIndex index = new PipeSpatialIndex(null, null, cellDegrees);
+            List<Point> points = load(index, cellDegrees);
+
+            for (double[] center : centers(cellDegrees)) {
+                for (double radius : new double[]{10, 1_500, 50_000, 600_000}) {
+                    // Act
+                    List<PipeSpatialIndex.Hit> hits = index.withinRadius(center[0], center[1], radius, Integer.MAX_VALUE);
+
+                    // Assert
+                    List<PipeSpatialIndex.Hit> expected = points.stream()
+                            .map(point -> new PipeSpatialIndex.Hit(point.id(),
+                                    PipeSpatialIndex.distanceMeters(center[0], center[1], point.lat(), point.lon())))
+                            .filter(hit -> hit.distanceMeters() <= radius)
+                            .sorted(Comparator.comparingDouble(PipeSpatialIndex.Hit::distanceMeters)
+                                    .thenComparingLong(PipeSpatialIndex.Hit::id))
+                            .toList();
+                    assertEquals(expected, sortedByDistanceThenId(hits),
+                            () -> "radius " + radius + " around " + center[0] + "," + center[1] + " with cells of " + cellDegrees);
+                }
+            }
+        }
+    }
+
+    @Test
+    void withinBox_MatchesBruteForce() {
+        for (double cellDegrees : new double[]{0.01, 1}) {
+            // Arrange
+            PipeSpatialIndex index = new PipeSpatialIndex(null, null, cellDegrees);
+            List<Point> points = load(index, cellDegrees);
+            List<double[]> boxes = new ArrayList<>(List.of(
+                    new double[]{-90, -180, 90, 180},
+                    new double[]{89, -180, 90, 180},
+                    new double[]{-90, -180, -89.5, 180},
+                    new double[]{-10, 179, 10, -179},
+                    new double[]{-10, 179.99, 10, -179.99},
+                    new double[]{0, 0, cellDegrees, cellDegrees},
+                    new double[]{43.2, 76.9, 43.3, 77}));
+            SplittableRandom random = new SplittableRandom(11);
+            for (int i = 0; i < 50; i++) {
+                double minLat = random.nextDouble(-90, 90);
+                double minLon = random.nextDouble(-180, 180);
+                boxes.add(new double[]{minLat, minLon, Math.min(90, minLat + random.nextDouble(0, 5)),
+                        wrapLon(minLon + random.nextDouble(0, 5))});
+            }
+
+            for (double[] box : boxes) {
+                // Act
+                List<PipeSpatialIndex.Hit> hits = index.withinBox(box[0], box[1], box[2], box[3], Integer.MAX_VALUE);
+
+                // Assert
+                boolean wraps = box[1] > box[3];
+                List<Long> expected = points.stream()
+                        .filter(point -> point.lat() >= box[0] && point.lat() <= box[2])
+                        .filter(point -> wraps
+                                ? point.lon() >= box[1] || point.lon() <= box[3]
+                                : point.lon() >= box[1] && point.lon() <= box[3])
+                        .map(Point::id)
+                        .sorted()
+                        .toList();
+                assertEquals(expected, hits.stream().map(PipeSpatialIndex.Hit::id).toList(),
+                        () -> "box " + box[0] + "," + box[1] + " to " + box[2] + "," + box[3] + " with cells of " + cellDegrees);
+            }
+        }
+    }
+
+    @Test
+    void nearest_MatchesBruteForce() {
+        for (double cellDegrees : new double[]{0.01, 1}) {
+            // Arrange
+            PipeSpatialIndex index = new PipeSpatialIndex(null, null, cellDegrees);
+            List<Point> points = load(index, cellDegrees);
+
+            for (double[] center : centers(cellDegrees)) {
+                for (int k : new int[]{1, 5, 40}) {
+                    // Act
+                    List<PipeSpatialIndex.Hit> hits = index.nearest(center[0], center[1], k);
+
+                    // Assert: equal distances may be returned in either order
+                    List<Double> expected = points.stream()
+                            .mapToDouble(point -> PipeSpatialIndex.distanceMeters(center[0], center[1], point.lat(), point.lon()))
+                            .sorted()
+                            .limit(k)
+                            .boxed()
+                            .toList();
+                    assertEquals(expected, hits.stream().map(PipeSpatialIndex.Hit::distanceMeters).toList(),
+                            () -> k + " nearest to " + center[0] + "," + center[1] + " with cells of " + cellDegrees);
+                }
+            }
+        }
+    }
+
+    @Test
+    void upsertAndRemove_MovePoints() {
+        // Arrange
+        PipeSpatialIndex index = new PipeSpatialIndex(null, null, 0.01);
+        index.upsert(pipe(1, 43.25, 76.95));
+        index.upsert(pipe(2, 43.25, 76.95));
+
+        // Act
+        index.upsert(pipe(1, -43.25, -76.95));
+        index.remove(2L);
+        index.upsert(pipe(3, null, null));
+
+        // Assert
+        assertEquals(1, index.size());
+        assertTrue(index.withinRadius(43.25, 76.95, 1_000, 10).isEmpty());
+        assertEquals(List.of(1L), index.nearest(43.25, 76.95, 5).stream().map(PipeSpatialIndex.Hit::id).toList());
+    }
+
+    @Test
+    void nearest_EmptyIndex_ReturnsNothing() {
+        PipeSpatialIndex index = new PipeSpatialIndex(null, null, 0.01);
+
+        assertTrue(index.nearest(0, 0, 3).isEmpty());
+        assertTrue(index.withinRadius(0, 0, 1_000, 3).isEmpty());
+    }
+
+    /**
+     * Random points worldwide, plus points exactly on cell borders, on the antimeridian and at the poles.
+     */
+    private static List<Point> load(PipeSpatialIndex index, double cellDegrees) {
+        SplittableRandom random = new SplittableRandom(7);
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            points.add(new Point(points.size() + 1, random.nextDouble(-90, 90), random.nextDouble(-180, 180)));
+        }
+        for (int i = 0; i < 300; i++) {
+            // Clusters around a few places, so the small radii find something
+            double[] center = i % 3 == 0 ? new double[]{43.25, 76.95} : i % 3 == 1 ? new double[]{0, 180} : new double[]{89.9, 0};
+            points.add(new Point(points.size() + 1,
+                    Math.max(-90, Math.min(90, center[0] + random.nextDouble(-0.5, 0.5))),
+                    wrapLon(center[1] + random.nextDouble(-0.5, 0.5))));
+        }
+        for (int i = -5; i <= 5; i++) {
+            double border = i * cellDegrees;
+            points.add(new Point(points.size() + 1, border, border));
+            points.add(new Point(points.size() + 1, 43 + border, 77 - border));
+            points.add(new Point(points.size() + 1, border, 180));
+            points.add(new Point(points.size() + 1, border, -180));
+            points.add(new Point(points.size() + 1, border, 180 - cellDegrees / 10));
+        }
+        for (double lon : new double[]{-180, -90, 0, 45, 180}) {
+            points.add(new Point(points.size() + 1, 90, lon));
+            points.add(new Point(points.size() + 1, -90, lon));
+            points.add(new Point(points.size() + 1, 90 - cellDegrees / 10, lon));
+        }
+        points.forEach(point -> index.upsert(pipe(point.id(), point.lat(), point.lon())));
+        return points;
+    }
+
+    private static List<double[]> centers(double cellDegrees) {
+        List<double[]> centers = new ArrayList<>(List.of(
+                new double[]{43.25, 76.95},
+                new double[]{0, 0},
+                new double[]{cellDegrees, cellDegrees},
+                new double[]{43, 77},
+                new double[]{0, 180},
+                new double[]{0, -180},
+                new double[]{0.3, 179.999},
+                new double[]{-0.3, -179.999},
+                new double[]{90, 0},
+                new double[]{-90, 0},
+                new double[]{89.95, 120},
+                new double[]{-89.99, -60}));
+        SplittableRandom random = new SplittableRandom(13);
+        for (int i = 0; i < 20; i++) {
+            centers.add(new double[]{random.nextDouble(-90, 90), random.nextDouble(-180, 180)});
+        }
+        return centers;
+    }
+
+    private static List<PipeSpatialIndex.Hit> sortedByDistanceThenId(List<PipeSpatialIndex.Hit> hits) {
+        return hits.stream()
+                .sorted(Comparator.comparingDouble(PipeSpatialIndex.Hit::distanceMeters).thenComparingLong(PipeSpatialIndex.Hit::id))
+                .toList();
+    }
+
+    private static double wrapLon(double lon) {
+        return lon > 180 ? lon - 360 : lon < -180 ? lon + 360 : lon;
+    }
+
+    private static PipeDto pipe(long id, Double lat, Double lon) {
+        PipeDto pipe = new PipeDto();
+        pipe.setId(id);
+        pipe.setLatitude(lat);
+        pipe.setLongitude(lon);
+        return pipe;
+    }
+}
@@ -0,0 +1,103 @@
+package kz.nu.pipeline.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointTest {
+
+    @Test
+    void fromDouble_RoundsHalfUpOnTheShownDecimal() {
+        // 0.285 and 1.005 are slightly below the decimal as doubles, so binary rounding goes down
+        assertEquals(29, FixedPoint.fromDouble(0.285, 2));
+        assertEquals(101, FixedPoint.fromDouble(1.005, 2));
+        assertEquals(-29, FixedPoint.fromDouble(-0.285, 2));
+        assertEquals(32550, FixedPoint.fromDouble(325.5, 2));
+        assertEquals(1234, FixedPoint.fromDouble(1.2344, 3));
+        assertEquals(0, FixedPoint.fromDouble(0.0, 2));
+    }
+
+    @Test
+    void fromDouble_NotFiniteOrTooLarge_Fails() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.fromDouble(Double.NaN, 2));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.fromDouble(Double.POSITIVE_INFINITY, 2));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.fromDouble(1e300, 2));
+    }
+
+    @Test
+    void fromDouble_RandomValues_MatchesBigDecimal() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 10_000; i++) {
+            double value = random.nextInt(-1_500_000, 1_500_000) / 1000.0;
+            long expected = new BigDecimal(Double.toString(value)).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            assertEquals(expected, FixedPoint.fromDouble(value, 2), () -> "value " + value);
+        }
+    }
+
+    @Test
+    void parse_PlainDecimals() {
+        assertEquals(32550, FixedPoint.parse("325.5", 2));
+        assertEquals(700, FixedPoint.parse("+7", 2));
+        assertEquals(50, FixedPoint.parse(".5", 2));
+        assertEquals(-1200, FixedPoint.parse("-12", 2));
+        assertEquals(5, FixedPoint.parse("5", 0));
+    }
+
+    @Test
+    void parse_ExtraFractionDigits_RoundsHalfUp() {
+        assertEquals(1235, FixedPoint.parse("12.345", 2));
+        assertEquals(1234, FixedPoint.parse("12.3449", 2));
+        assertEquals(-1235, FixedPoint.parse("-12.345", 2));
+        assertEquals(100, FixedPoint.parse("0.995", 2));
+        assertEquals(29, FixedPoint.parse("0.285", 2));
+    }
+
+    @Test
+    void parse_ExponentNotation_TakesSlowPath() {
+        assertEquals(10000, FixedPoint.parse("1e2", 2));
+        assertEquals(29, FixedPoint.parse("2.85E-1", 2));
+    }
+
+    @Test
+    void parse_Invalid_Fails() {
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("", 2));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("-", 2));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("abc", 2));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("1.2.3", 2));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.parse("99999999999999999999", 2));
+    }
+
+    @Test
+    void format_PadsFractionDigits() {
+        assertEquals("325.50", FixedPoint.format(32550, 2));
+        assertEquals("-0.05", FixedPoint.format(-5, 2));
+        assertEquals("0.000", FixedPoint.format(0, 3));
+        assertEquals("12.007", FixedPoint.format(12007, 3));
+        assertEquals("7", FixedPoint.format(7, 0));
+        assertEquals("-92233720368547758.08", FixedPoint.format(Long.MIN_VALUE, 2));
+    }
+
+    @Test
+    void format_ThenParse_Roundtrip() {
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 10_000; i++) {
+            long scaled = random.nextLong(-10_000_000_000L, 10_000_000_000L);
+            String text = FixedPoint.format(scaled, 3);
+            assertEquals(BigDecimal.valueOf(scaled, 3).toPlainString(), text);
+            assertEquals(scaled, FixedPoint.parse(text, 3));
+        }
+    }
+
+    @Test
+    void fromDecimal_NeedsRounding_FailsUnlessModeGiven() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.fromDecimal(new BigDecimal("1.234"), 2));
+        assertEquals(124, FixedPoint.fromDecimal(new BigDecimal("1.234"), 2, RoundingMode.CEILING));
+        assertNull(FixedPoint.fromDecimal(null, 2));
+        assertNull(FixedPoint.toDecimal(null, 2));
+        assertEquals(new BigDecimal("1.23"), FixedPoint.toDecimal(123L, 2));
+    }
+}
@@ -0,0 +1,47 @@
+package kz.nu.pipeline.repository;
+
+import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.service.PipeAttributeDictionary;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * The persistence layer alone, for benchmarks that measure queries through the entities and repositories the
+ * application uses: the schema is generated from the entities, so column types, converters and indexes match.
+ * The application's own configuration files are not read.
+ */
+@Configuration
+@ImportAutoConfiguration({
+        DataSourceAutoConfiguration.class,
+        HibernateJpaAutoConfiguration.class,
+        TransactionAutoConfiguration.class
+})
+@EntityScan(basePackageClasses = Pipe.class)
+@EnableJpaRepositories(basePackageClasses = PipeRepository.class)
+@Import({PipeAttributeDictionary.class, PipeChangeSequence.class})
+public class JpaBenchmarkContext {
+
+    public static ConfigurableApplicationContext start(String url, String username, String password) {
+        return new SpringApplicationBuilder(JpaBenchmarkContext.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.config.name=jpa-benchmark",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--spring.datasource.url=" + url,
+                        "--spring.datasource.username=" + username,
+                        "--spring.datasource.password=" + password,
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.jpa.open-in-view=false"
+                );
+    }
+}
@@ -0,0 +1,191 @@
+package kz.nu.pipeline.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.model.Pipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link PipeJsonRowWriter} path with the entity/DTO/list path of the list endpoints, reading the same
+ * H2 table. Scores are per row ({@link OperationsPerInvocation}); run {@link #main}, which attaches the GC profiler,
+ * to see {@code gc.alloc.rate.norm} as bytes allocated per row. The entity path here skips Hibernate's own
+ * per-row bookkeeping, so it understates the real difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipeJsonStreamBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final String[] ATTRIBUTES = {"Steel", "Stainless Steel", "KazTrubProm", "Almaty", "X52", "Epoxy", "A"};
+    private static final String SELECT = "SELECT " + PipeJsonRowWriter.COLUMNS + " FROM pipe ORDER BY id";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final PipeJsonRowWriter rowWriter = new PipeJsonRowWriter(id -> ATTRIBUTES[id]);
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:stream-bench;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS pipe");
+            statement.execute("""
+                    CREATE TABLE pipe (
+                        id BIGINT PRIMARY KEY, pipe_number VARCHAR(255), diameter BIGINT, length BIGINT,
+                        wall_thickness BIGINT, material_id INT, grade_id INT, manufacturer_id INT, production_date DATE,
+                        weight BIGINT, location_id INT, status VARCHAR(32), remarks VARCHAR(255), batch_number VARCHAR(255),
+                        quality_class_id INT, coating_type_id INT, pressure_rating BIGINT, created_date DATE,
+                        updated_date DATE, latitude DOUBLE PRECISION, longitude DOUBLE PRECISION
+                    )""");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO pipe (" + PipeJsonRowWriter.COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            Date today = Date.valueOf(LocalDate.of(2025, 6, 1));
+            for (int i = 1; i <= ROWS; i++) {
+                insert.setLong(1, i);
+                insert.setString(2, "P-" + i);
+                insert.setLong(3, 32_550 + i % 1000);
+                insert.setLong(4, 12_000 + i % 100);
+                insert.setLong(5, 950);
+                insert.setInt(6, i % 2);
+                insert.setInt(7, 4);
+                insert.setInt(8, 2);
+                insert.setDate(9, today);
+                insert.setLong(10, 1_250_500);
+                insert.setInt(11, 3);
+                insert.setString(12, Pipe.PipeStatus.IN_STOCK.name());
+                insert.setString(13, i % 10 == 0 ? "Minor corrosion at the joint" : null);
+                insert.setString(14, "B-" + i / 100);
+                insert.setInt(15, 6);
+                insert.setInt(16, 5);
+                insert.setLong(17, 1_600);
+                insert.setDate(18, today);
+                insert.setDate(19, today);
+                insert.setDouble(20, 43.2 + i * 1e-5);
+                insert.setDouble(21, 76.9 + i * 1e-5);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE pipe");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void resultSetToJson() throws SQLException, IOException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT);
+             ResultSet rs = statement.executeQuery();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            generator.writeStartArray();
+            while (rs.next()) {
+                rowWriter.write(rs, generator);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void entityToDtoList() throws SQLException, IOException {
+        List<PipeDto> pipes = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                pipes.add(toDto(toEntity(rs)));
+            }
+        }
+        objectMapper.writeValue(OutputStream.nullOutputStream(), pipes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PipeJsonStreamBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    private static Pipe toEntity(ResultSet rs) throws SQLException {
+        Pipe pipe = new Pipe();
+        pipe.setId(rs.getLong(1));
+        pipe.setPipeNumber(rs.getString(2));
+        pipe.setDiameter(rs.getObject(3, Long.class));
+        pipe.setLength(rs.getObject(4, Long.class));
+        pipe.setWallThickness(rs.getObject(5, Long.class));
+        pipe.setMaterial(ATTRIBUTES[rs.getInt(6)]);
+        pipe.setGrade(ATTRIBUTES[rs.getInt(7)]);
+        pipe.setManufacturer(ATTRIBUTES[rs.getInt(8)]);
+        pipe.setProductionDate(rs.getObject(9, LocalDate.class));
+        pipe.setWeight(rs.getObject(10, Long.class));
+        pipe.setLocation(ATTRIBUTES[rs.getInt(11)]);
+        pipe.setStatus(Pipe.PipeStatus.valueOf(rs.getString(12)));
+        pipe.setRemarks(rs.getString(13));
+        pipe.setBatchNumber(rs.getString(14));
+        pipe.setQualityClass(ATTRIBUTES[rs.getInt(15)]);
+        pipe.setCoatingType(ATTRIBUTES[rs.getInt(16)]);
+        pipe.setPressureRating(rs.getObject(17, Long.class));
+        pipe.setCreatedDate(rs.getObject(18, LocalDate.class));
+        pipe.setUpdatedDate(rs.getObject(19, LocalDate.class));
+        pipe.setLatitude(rs.getObject(20, Double.class));
+        pipe.setLongitude(rs.getObject(21, Double.class));
+        return pipe;
+    }
+
+    private static PipeDto toDto(Pipe pipe) {
+        return new PipeDto(
+                pipe.getId(), pipe.getPipeNumber(), pipe.getDiameter(), pipe.getLength(), pipe.getWallThickness(),
+                pipe.getMaterial(), pipe.getGrade(), pipe.getManufacturer(), pipe.getProductionDate(), pipe.getWeight(),
+                pipe.getLocation(), pipe.getStatus(), pipe.getRemarks(), pipe.getBatchNumber(), pipe.getQualityClass(),
+                pipe.getCoatingType(), pipe.getPressureRating(), pipe.getCreatedDate(), pipe.getUpdatedDate(),
+                pipe.getLatitude(), pipe.getLongitude()
+        );
+    }
+}
@@ -0,0 +1,213 @@
+package kz.nu.pipeline.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.index.PipeSearchIndex;
+import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.service.PipeAttributeDictionary;
+import kz.nu.pipeline.service.PipeService;
+import kz.nu.pipeline.service.PipeTombstoneSweeper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streams pipes stored through the entities on H2 and compares the output with the serialized DTOs of the
+ * list endpoints, using the application's Jackson configuration.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({PipeJsonStreamer.class, PipeService.class, PipeAttributeDictionary.class, PipeChangeSequence.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PipeJsonStreamerTest {
+
+    @MockitoBean
+    private PipeTombstoneSweeper pipeTombstoneSweeper;
+
+    @MockitoBean
+    private PipeSearchIndex pipeSearchIndex;
+
+    @Autowired
+    private PipeJsonStreamer pipeJsonStreamer;
+
+    @Autowired
+    private PipeService pipeService;
+
+    @Autowired
+    private PipeRepository pipeRepository;
+
+    @Autowired
+    private PipeAttributeDictionary pipeAttributeDictionary;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        pipeRepository.deleteAll();
+    }
+
+    @Test
+    void stream_AllFields_SameJsonAsDtoSerialization() throws IOException {
+        // Arrange
+        PipeDto full = new PipeDto();
+        full.setPipeNumber("P-1");
+        full.setDiameter(11430L);
+        full.setLength(12005L);
+        full.setWallThickness(1270L);
+        full.setMaterial("Steel");
+        full.setGrade("X52");
+        full.setManufacturer("KazTrubProm");
+        full.setProductionDate(LocalDate.of(2024, 3, 1));
+        full.setWeight(2500L);
+        full.setLocation("Almaty");
+        full.setStatus(Pipe.PipeStatus.NEW);
+        full.setRemarks("Line \"A\", joint 7");
+        full.setBatchNumber("B-7");
+        full.setQualityClass("A");
+        full.setCoatingType("Epoxy");
+        full.setPressureRating(1000L);
+        full.setLatitude(43.2389);
+        full.setLongitude(76.8897);
+        pipeService.createPipe(full);
+        PipeDto sparse = new PipeDto();
+        sparse.setPipeNumber("P-2");
+        sparse.setLocation("Almaty");
+        pipeService.createPipe(sparse);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        pipeJsonStreamer.stream(null, null, null, null, null, out);
+
+        // Assert
+        String dtoJson = objectMapper.writeValueAsString(pipeService.getAllPipes());
+        String streamed = out.toString(StandardCharsets.UTF_8);
+        assertEquals(objectMapper.readTree(dtoJson), objectMapper.readTree(streamed));
+        // Trees compare numbers by value; the scale of the measurements has to match in the text as well
+        for (String measurement : List.of("\"diameter\":114.30", "\"length\":12.005", "\"wallThickness\":12.70",
+                "\"weight\":2.500", "\"pressureRating\":10.00")) {
+            assertTrue(dtoJson.contains(measurement), measurement);
+            assertTrue(streamed.contains(measurement), measurement);
+        }
+    }
+
+    @Test
+    void stream_DictionaryFilter_OnlyMatchingPipesById() throws IOException {
+        // Arrange
+        PipeDto almaty = this.createPipe("P-1", "Almaty");
+        this.createPipe("P-2", "Astana");
+        PipeDto alsoAlmaty = this.createPipe("P-3", "Almaty");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        pipeJsonStreamer.stream(null, "Almaty", null, null, null, out);
+
+        // Assert
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(List.of(
+                        pipeService.getPipeById(almaty.getId()).orElseThrow(),
+                        pipeService.getPipeById(alsoAlmaty.getId()).orElseThrow()))),
+                objectMapper.readTree(out.toByteArray()));
+    }
+
+    @Test
+    void stream_ClientDisconnects_ResultSetAndConnectionClosed() {
+        // Arrange: enough rows to fill the generator's buffer several times over
+        IntStream.range(0, 300).forEach(i -> this.createPipe("P-" + i, "Almaty"));
+        Set<Object> opened = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Object> closed = Collections.newSetFromMap(new IdentityHashMap<>());
+        DataSource tracking = track(dataSource, DataSource.class, opened, closed);
+        PipeJsonStreamer streamer = new PipeJsonStreamer(new JdbcTemplate(tracking),
+                new DataSourceTransactionManager(tracking), pipeAttributeDictionary, objectMapper, 10);
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // Act
+        assertThrows(UncheckedIOException.class,
+                () -> streamer.stream(null, null, null, null, null, disconnected));
+
+        // Assert
+        assertTrue(opened.stream().anyMatch(ResultSet.class::isInstance));
+        assertTrue(opened.stream().anyMatch(Connection.class::isInstance));
+        assertEquals(opened, closed);
+    }
+
+    private PipeDto createPipe(String pipeNumber, String location) {
+        PipeDto pipe = new PipeDto();
+        pipe.setPipeNumber(pipeNumber);
+        pipe.setLocation(location);
+        pipe.setRemarks("Inspected, no defects found along the full length of the pipe");
+        return pipeService.createPipe(pipe);
+    }
+
+    /**
+     * Wrap a JDBC object so that the connections, statements and result sets it hands out are recorded,
+     * along with which of them get closed.
+     */
+    private static <T> T track(T target, Class<T> type, Set<Object> opened, Set<Object> closed) {
+        if (type != DataSource.class) {
+            opened.add(target);
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("close")) {
+                closed.add(target);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Connection connection) {
+                return track(connection, Connection.class, opened, closed);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return track(statement, PreparedStatement.class, opened, closed);
+            }
+            if (result instanceof ResultSet resultSet) {
+                return track(resultSet, ResultSet.class, opened, closed);
+            }
+            return result;
+        }));
+    }
+}
@@ -0,0 +1,140 @@
+package kz.nu.pipeline.repository;
+
+import kz.nu.pipeline.model.Pipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the combined range query behind {@code GET /pipe/range}
+ * ("diameter 500–800 and pressure ≥ 16 and wall thickness 8–12") on 1M pipes in PostgreSQL, the production database,
+ * with and without the measurement indexes declared on {@link Pipe}. The query goes through
+ * {@link PipeRepository#findAll(Specification)} with {@link PipeSpecifications#measurementRanges}, as
+ * {@code PipeService.getPipes} runs it, and the schema is generated from the entities.
+ * Not part of the test suite; needs Docker. Run it through {@link #main} from the IDE or with the test classpath
+ * on the command line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class PipeRangeQueryBenchmark {
+
+    private static final String[] MEASUREMENT_INDEXES = {
+            "idx_pipe_diameter", "idx_pipe_pressure_rating", "idx_pipe_wall_thickness"};
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private GenericContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private PipeRepository pipeRepository;
+    private TransactionTemplate readOnly;
+    private Specification<Pipe> specification;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        postgres = new GenericContainer<>("postgres:16-alpine")
+                .withEnv("POSTGRES_DB", "pipeline")
+                .withEnv("POSTGRES_USER", "pipeline")
+                .withEnv("POSTGRES_PASSWORD", "pipeline")
+                .withExposedPorts(5432)
+                // The server logs this once for the init run and once more when it is really up
+                .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*\\n", 2));
+        postgres.start();
+        context = JpaBenchmarkContext.start("jdbc:postgresql://" + postgres.getHost() + ":" + postgres.getMappedPort(5432)
+                + "/pipeline?reWriteBatchedInserts=true", "pipeline", "pipeline");
+        pipeRepository = context.getBean(PipeRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        // Rows go in over JDBC for speed, as the fixed-point longs the entity maps
+        SplittableRandom random = new SplittableRandom(42);
+        try (Connection connection = context.getBean(DataSource.class).getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO pipe (id, diameter, pressure_rating, wall_thickness, status) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= rows; i++) {
+                    insert.setLong(1, i);
+                    insert.setLong(2, random.nextLong(5_000, 150_000));
+                    insert.setLong(3, random.nextLong(600, 10_000));
+                    insert.setLong(4, random.nextLong(200, 4_000));
+                    insert.setString(5, Pipe.PipeStatus.IN_STOCK.name());
+                    insert.addBatch();
+                    if (i % 10_000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                if (!indexed) {
+                    for (String index : MEASUREMENT_INDEXES) {
+                        statement.execute("DROP INDEX " + index);
+                    }
+                }
+                statement.execute("VACUUM ANALYZE pipe");
+            }
+        }
+
+        specification = PipeSpecifications.measurementRanges(
+                new BigDecimal("500"), new BigDecimal("800"),
+                new BigDecimal("16"), null,
+                new BigDecimal("8"), new BigDecimal("12"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public void rangeQuery(Blackhole blackhole) {
+        List<Pipe> pipes = readOnly.execute(status -> pipeRepository.findAll(specification));
+        blackhole.consume(pipes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PipeRangeQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+package kz.nu.pipeline.repository;
+
+import kz.nu.pipeline.dto.PipeField;
+import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.service.PipeAttributeDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(PipeAttributeDictionary.class)
+class PipeRepositoryCustomImplTest {
+
+    @Autowired
+    private PipeRepository pipeRepository;
+
+    private Pipe yardPipe;
+
+    @BeforeEach
+    void setUp() {
+        yardPipe = pipeRepository.save(pipe("P-1", "Yard 1", 11430L));
+        pipeRepository.save(pipe("P-2", "Yard 2", 21900L));
+    }
+
+    @Test
+    void findFields_RequestedFields_OnlyThoseInRequestOrder() {
+        // Act
+        List<Map<String, Object>> rows = pipeRepository.findFields(
+                PipeSpecifications.hasLocation("Yard 1"), PipeField.parse("diameter,pipeNumber,location"));
+
+        // Assert
+        assertEquals(1, rows.size());
+        Map<String, Object> row = rows.get(0);
+        assertEquals(List.of("id", "diameter", "pipeNumber", "location"), List.copyOf(row.keySet()));
+        assertEquals(yardPipe.getId(), row.get("id"));
+        assertEquals(new BigDecimal("114.30"), row.get("diameter"));
+        assertEquals("P-1", row.get("pipeNumber"));
+        assertEquals("Yard 1", row.get("location"));
+    }
+
+    @Test
+    void findFields_NoSpecification_AllPipes() {
+        // Act
+        List<Map<String, Object>> rows = pipeRepository.findFields(null, List.of(PipeField.PIPE_NUMBER));
+
+        // Assert
+        assertEquals(List.of("P-1", "P-2"), rows.stream().map(row -> row.get("pipeNumber")).sorted().toList());
+        assertTrue(rows.stream().allMatch(row -> row.size() == 1));
+    }
+
+    private static Pipe pipe(String pipeNumber, String location, long diameter) {
+        Pipe pipe = new Pipe();
+        pipe.setPipeNumber(pipeNumber);
+        pipe.setLocation(location);
+        pipe.setDiameter(diameter);
+        pipe.setStatus(Pipe.PipeStatus.NEW);
+        pipe.setRemarks("not selected");
+        return pipe;
+    }
+}
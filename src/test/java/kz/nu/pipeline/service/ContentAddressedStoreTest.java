@@ -0,0 +1,216 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.model.StoredBlob;
+import kz.nu.pipeline.model.StoredFile;
+import kz.nu.pipeline.repository.StoredBlobRepository;
+import kz.nu.pipeline.repository.StoredFileRepository;
+import kz.nu.pipeline.storage.ObjectStorage;
+import kz.nu.pipeline.storage.StorageException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContentAddressedStoreTest {
+
+    private static final String HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @Mock
+    private ObjectStorage objectStorage;
+
+    @Mock
+    private StoredBlobRepository storedBlobRepository;
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ContentAddressedStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ContentAddressedStore(objectStorage, storedBlobRepository, storedFileRepository, transactionManager);
+    }
+
+    @Test
+    void sha256_HashesWholeStream() throws Exception {
+        // Act
+        String hash = ContentAddressedStore.sha256(new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertEquals(HASH, hash);
+    }
+
+    @Test
+    void store_KnownContent_SkipsWrite() throws Exception {
+        // Arrange
+        StoredBlob blob = blob(1, StoredBlob.State.STORED);
+        when(storedBlobRepository.lockBySha256(HASH)).thenReturn(Optional.of(blob));
+        StoredFile file = file("b.txt");
+
+        // Act
+        boolean deduplicated = store.store(file, HASH, key -> fail("content must not be written again"));
+
+        // Assert
+        assertTrue(deduplicated);
+        assertEquals(2, blob.getRefCount());
+        assertSame(blob, file.getBlob());
+        verify(storedFileRepository).save(file);
+    }
+
+    @Test
+    void store_NewContent_WritesBlobOutsideTransactionThenMarksItStored() throws Exception {
+        // Arrange
+        AtomicReference<StoredBlob> inserted = new AtomicReference<>();
+        when(storedBlobRepository.lockBySha256(HASH)).thenAnswer(invocation -> Optional.ofNullable(inserted.get()));
+        when(storedBlobRepository.saveAndFlush(any(StoredBlob.class))).thenAnswer(invocation -> {
+            inserted.set(invocation.getArgument(0));
+            return inserted.get();
+        });
+        StringBuilder written = new StringBuilder();
+        StoredFile file = file("a.txt");
+
+        // Act
+        boolean deduplicated = store.store(file, HASH, key -> {
+            assertEquals(StoredBlob.State.PENDING, inserted.get().getState());
+            verify(transactionManager).commit(any());
+            written.append(key);
+        });
+
+        // Assert
+        assertFalse(deduplicated);
+        assertEquals("blobs/sha256/" + HASH, written.toString());
+        assertEquals(StoredBlob.State.STORED, inserted.get().getState());
+        assertEquals(1, inserted.get().getRefCount());
+        assertSame(inserted.get(), file.getBlob());
+    }
+
+    @Test
+    void store_ContentBeingDeleted_WritesNewGenerationAndDropsOldObject() throws Exception {
+        // Arrange
+        StoredBlob blob = blob(0, StoredBlob.State.DELETING);
+        when(storedBlobRepository.lockBySha256(HASH)).thenReturn(Optional.of(blob));
+        StringBuilder written = new StringBuilder();
+
+        // Act
+        boolean deduplicated = store.store(file("a.txt"), HASH, written::append);
+
+        // Assert
+        assertFalse(deduplicated);
+        assertEquals("blobs/sha256/" + HASH + ".1", written.toString());
+        assertEquals(StoredBlob.State.STORED, blob.getState());
+        assertEquals("blobs/sha256/" + HASH + ".1", blob.getObjectKey());
+        assertEquals(1, blob.getRefCount());
+        verify(objectStorage).delete("blobs/sha256/" + HASH);
+    }
+
+    @Test
+    void storeExisting_ContentOfAnotherUser_NotLinked() {
+        // Arrange
+        StoredBlob blob = blob(1, StoredBlob.State.STORED);
+        when(storedBlobRepository.lockBySha256(HASH)).thenReturn(Optional.of(blob));
+        when(storedFileRepository.existsByBlobIdAndUploadedBy(1L, "mallory")).thenReturn(false);
+        StoredFile file = file("b.txt");
+        file.setUploadedBy("mallory");
+
+        // Act
+        boolean linked = store.storeExisting(file, HASH);
+
+        // Assert
+        assertFalse(linked);
+        assertEquals(1, blob.getRefCount());
+        verify(storedFileRepository, never()).save(any());
+    }
+
+    @Test
+    void storeExisting_OwnContent_LinksWithoutTransfer() {
+        // Arrange
+        StoredBlob blob = blob(1, StoredBlob.State.STORED);
+        when(storedBlobRepository.lockBySha256(HASH)).thenReturn(Optional.of(blob));
+        when(storedFileRepository.existsByBlobIdAndUploadedBy(1L, "alice")).thenReturn(true);
+        StoredFile file = file("b.txt");
+        file.setUploadedBy("alice");
+
+        // Act
+        boolean linked = store.storeExisting(file, HASH);
+
+        // Assert
+        assertTrue(linked);
+        assertEquals(2, blob.getRefCount());
+        verify(storedFileRepository).save(file);
+    }
+
+    @Test
+    void delete_LastReference_DeletesObjectAfterCommitThenRow() {
+        // Arrange
+        StoredBlob blob = blob(1, StoredBlob.State.STORED);
+        StoredFile file = file("a.txt");
+        file.setBlob(blob);
+        when(storedFileRepository.findByObjectKey("a.txt")).thenReturn(Optional.of(file));
+        when(storedBlobRepository.lockBySha256(HASH)).thenReturn(Optional.of(blob));
+
+        // Act
+        boolean deleted = store.delete("a.txt");
+
+        // Assert
+        assertTrue(deleted);
+        InOrder inOrder = inOrder(transactionManager, objectStorage, storedBlobRepository);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(objectStorage).delete("blobs/sha256/" + HASH);
+        inOrder.verify(storedBlobRepository).delete(blob);
+    }
+
+    @Test
+    void delete_ObjectDeleteFails_KeepsBlobMarkedDeleting() {
+        // Arrange
+        StoredBlob blob = blob(1, StoredBlob.State.STORED);
+        StoredFile file = file("a.txt");
+        file.setBlob(blob);
+        when(storedFileRepository.findByObjectKey("a.txt")).thenReturn(Optional.of(file));
+        when(storedBlobRepository.lockBySha256(HASH)).thenReturn(Optional.of(blob));
+        doThrow(new StorageException("unavailable", null)).when(objectStorage).delete("blobs/sha256/" + HASH);
+
+        // Act
+        boolean deleted = store.delete("a.txt");
+
+        // Assert
+        assertTrue(deleted);
+        assertEquals(StoredBlob.State.DELETING, blob.getState());
+        verify(storedFileRepository).delete(file);
+        verify(storedBlobRepository, never()).delete(any());
+    }
+
+    private static StoredBlob blob(int refCount, StoredBlob.State state) {
+        return StoredBlob.builder()
+                .id(1L)
+                .sha256(HASH)
+                .objectKey("blobs/sha256/" + HASH)
+                .size(5L)
+                .refCount(refCount)
+                .state(state)
+                .build();
+    }
+
+    private static StoredFile file(String key) {
+        return StoredFile.builder()
+                .objectKey(key)
+                .size(5L)
+                .status(StoredFile.Status.UPLOADED)
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.event.FileUploadedEvent;
+import kz.nu.pipeline.model.Photo;
+import kz.nu.pipeline.repository.PhotoRepository;
+import kz.nu.pipeline.storage.ObjectMetadata;
+import kz.nu.pipeline.storage.StreamObjectContent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoServiceTest {
+
+    @Mock
+    private S3Service s3Service;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    private PhotoService photoService;
+
+    @BeforeEach
+    void setUp() {
+        photoService = new PhotoService(s3Service, photoRepository, true, 1, 10, 256, 1280,
+                DataSize.ofMegabytes(50), 100_000_000L, 0.8f);
+    }
+
+    @AfterEach
+    void tearDown() {
+        photoService.shutdown();
+    }
+
+    @Test
+    void onFileUploaded_Image_StoresScaledDerivatives() throws Exception {
+        // Arrange
+        Photo photo = Photo.builder().id(1L).objectKey("joint.jpg").status(Photo.Status.PENDING).build();
+        when(photoRepository.findByObjectKey("joint.jpg")).thenReturn(Optional.empty());
+        when(photoRepository.save(any(Photo.class))).thenReturn(photo);
+        when(photoRepository.findById(1L)).thenReturn(Optional.of(photo));
+        byte[] original = jpeg(4000, 2000);
+        when(s3Service.downloadFile("joint.jpg", null, null, null)).thenReturn(new StreamObjectContent(
+                new ObjectMetadata(original.length, "image/jpeg", null, null),
+                original.length, null, new ByteArrayInputStream(original), () -> { }));
+
+        // Act
+        photoService.onFileUploaded(new FileUploadedEvent("joint.jpg", "image/jpeg", original.length));
+
+        // Assert
+        ArgumentCaptor<byte[]> medium = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<byte[]> thumbnail = ArgumentCaptor.forClass(byte[].class);
+        verify(s3Service, timeout(5000)).putObject(eq("joint_medium.jpg"), medium.capture(), eq("image/jpeg"));
+        verify(s3Service, timeout(5000)).putObject(eq("joint_thumbnail.jpg"), thumbnail.capture(), eq("image/jpeg"));
+        BufferedImage mediumImage = ImageIO.read(new ByteArrayInputStream(medium.getValue()));
+        BufferedImage thumbnailImage = ImageIO.read(new ByteArrayInputStream(thumbnail.getValue()));
+        assertEquals(1280, mediumImage.getWidth());
+        assertEquals(640, mediumImage.getHeight());
+        assertEquals(256, thumbnailImage.getWidth());
+        assertEquals(128, thumbnailImage.getHeight());
+        verify(photoRepository, timeout(5000).atLeastOnce()).save(photo);
+        assertEquals("joint_thumbnail.jpg", photo.keyOf(Photo.Variant.THUMBNAIL));
+    }
+
+    @Test
+    void onFileUploaded_NotAnImage_Ignored() {
+        // Act
+        photoService.onFileUploaded(new FileUploadedEvent("report.pdf", "application/pdf", 1024));
+
+        // Assert
+        verifyNoInteractions(photoRepository, s3Service);
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        return out.toByteArray();
+    }
+}
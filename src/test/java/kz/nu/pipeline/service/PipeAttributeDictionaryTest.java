@@ -0,0 +1,121 @@
+package kz.nu.pipeline.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.model.PipeAttributeValue.Kind;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipeAttributeDictionaryTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PipeAttributeDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        // A pool of one: anything needing a second connection inside a transaction times out
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(1);
+        dataSource.setConnectionTimeout(250);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE pipe_attribute_value (id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "kind VARCHAR(32) NOT NULL, attribute_value VARCHAR(255) NOT NULL, "
+                + "CONSTRAINT uk_pipe_attribute_value UNIQUE (kind, attribute_value))");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        dictionary = new PipeAttributeDictionary(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void intern_NewValue_InsertedOnceAndCanonical() {
+        // Act
+        int first = dictionary.intern(Kind.MATERIAL, "Steel");
+        int second = dictionary.intern(Kind.MATERIAL, new String("Steel"));
+
+        // Assert
+        assertEquals(first, second);
+        assertNotEquals(first, dictionary.intern(Kind.GRADE, "Steel"));
+        assertSame(dictionary.valueOf(first), dictionary.valueOf(first));
+        assertEquals("Steel", dictionary.valueOf(first));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pipe_attribute_value", Integer.class));
+    }
+
+    @Test
+    void idOf_AddedByAnotherInstance_FoundOnMiss() {
+        // Arrange
+        assertEquals(PipeAttributeDictionary.UNKNOWN_ID, dictionary.idOf(Kind.LOCATION, "Atyrau"));
+        jdbcTemplate.update("INSERT INTO pipe_attribute_value (kind, attribute_value) VALUES ('LOCATION', 'Atyrau')");
+        int id = jdbcTemplate.queryForObject("SELECT id FROM pipe_attribute_value WHERE attribute_value = 'Atyrau'",
+                Integer.class);
+
+        // Act & Assert
+        assertEquals(id, dictionary.idOf(Kind.LOCATION, "Atyrau"));
+        assertEquals("Atyrau", dictionary.valueOf(id));
+    }
+
+    @Test
+    void valueOf_AddedByAnotherInstance_FoundOnMiss() {
+        // Arrange
+        dictionary.idOf(Kind.LOCATION, "Almaty");
+        jdbcTemplate.update("INSERT INTO pipe_attribute_value (kind, attribute_value) VALUES ('LOCATION', 'Aktau')");
+        int id = jdbcTemplate.queryForObject("SELECT id FROM pipe_attribute_value WHERE attribute_value = 'Aktau'",
+                Integer.class);
+
+        // Act & Assert
+        assertEquals("Aktau", dictionary.valueOf(id));
+        assertThrows(IllegalStateException.class, () -> dictionary.valueOf(id + 1));
+    }
+
+    @Test
+    void intern_InsideTransaction_UsesTheTransactionConnection() {
+        // Arrange
+        Pipe pipe = new Pipe();
+        pipe.setMaterial("Steel");
+        pipe.setManufacturer("Tenaris");
+        pipe.setLocation("Astana");
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            dictionary.intern(pipe);
+            // Visible to the same transaction before commit
+            assertEquals("Tenaris", dictionary.valueOf(dictionary.idOf(Kind.MANUFACTURER, "Tenaris")));
+        });
+
+        // Assert
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pipe_attribute_value", Integer.class));
+        assertNotEquals(PipeAttributeDictionary.UNKNOWN_ID, dictionary.idOf(Kind.LOCATION, "Astana"));
+    }
+
+    @Test
+    void intern_TransactionRolledBack_ValueForgotten() {
+        // Arrange
+        transactionTemplate.executeWithoutResult(status -> {
+            dictionary.intern(Kind.COATING_TYPE, "Epoxy");
+            status.setRollbackOnly();
+        });
+
+        // Act
+        int unknown = dictionary.idOf(Kind.COATING_TYPE, "Epoxy");
+        int interned = dictionary.intern(Kind.COATING_TYPE, "Epoxy");
+
+        // Assert
+        assertEquals(PipeAttributeDictionary.UNKNOWN_ID, unknown);
+        assertEquals("Epoxy", dictionary.valueOf(interned));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pipe_attribute_value", Integer.class));
+    }
+}
@@ -0,0 +1,170 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.controller.PipeController;
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.event.PipeChangeEvent;
+import kz.nu.pipeline.index.PipeSuggestionIndex;
+import kz.nu.pipeline.repository.PipeJsonStreamer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Subscribes to the change feed through {@code /pipe/changes} and reads the Server-Sent Events it writes.
+ */
+@ExtendWith(MockitoExtension.class)
+class PipeChangeFeedTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+    @Mock
+    private PipeService pipeService;
+
+    @Mock
+    private PipeSuggestionIndex pipeSuggestionIndex;
+
+    @Mock
+    private PipeJsonStreamer pipeJsonStreamer;
+
+    @Mock
+    private PipeCreateCoalescer pipeCreateCoalescer;
+
+    private PipeChangeFeed feed;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        feed = new PipeChangeFeed(3, 16, 60_000, 60_000, 1);
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new PipeController(pipeService, feed, pipeSuggestionIndex, pipeJsonStreamer, pipeCreateCoalescer)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.shutdown();
+    }
+
+    @Test
+    void subscribe_LastEventIdInReplayLog_ReplaysOnlyLaterEvents() throws Exception {
+        // Arrange
+        MvcResult live = this.subscribe("/pipe/changes", null);
+        feed.onPipeChange(created(1L, "Yard 1"));
+        feed.onPipeChange(created(2L, "Yard 1"));
+        feed.onPipeChange(created(3L, "Yard 1"));
+        List<Long> ids = eventIds(awaitContent(live, "\"pipeId\":3"));
+
+        // Act
+        MvcResult resumed = this.subscribe("/pipe/changes", ids.get(0));
+
+        // Assert
+        String content = awaitContent(resumed, "\"pipeId\":3");
+        assertEquals(ids.subList(1, 3), eventIds(content));
+        assertFalse(content.contains("\"pipeId\":1"));
+        assertFalse(content.contains("event:reset"));
+    }
+
+    @Test
+    void subscribe_LastEventIdFromEarlierRun_SendsReset() throws Exception {
+        // Arrange
+        feed.onPipeChange(created(1L, "Yard 1"));
+
+        // Act
+        MvcResult resumed = this.subscribe("/pipe/changes", 42L);
+
+        // Assert
+        String content = awaitContent(resumed, "event:reset");
+        assertTrue(eventIds(content).isEmpty());
+    }
+
+    @Test
+    void subscribe_LastEventIdDroppedFromReplayLog_SendsReset() throws Exception {
+        // Arrange: the replay log keeps three events
+        MvcResult live = this.subscribe("/pipe/changes", null);
+        for (long pipeId = 1; pipeId <= 5; pipeId++) {
+            feed.onPipeChange(created(pipeId, "Yard 1"));
+        }
+        List<Long> ids = eventIds(awaitContent(live, "\"pipeId\":5"));
+
+        // Act
+        MvcResult resumed = this.subscribe("/pipe/changes", ids.get(0));
+
+        // Assert
+        assertTrue(awaitContent(resumed, "event:reset").contains("event:reset"));
+    }
+
+    @Test
+    void subscribe_LocationFilter_MatchesOldOrNewState() throws Exception {
+        // Arrange
+        MvcResult filtered = this.subscribe("/pipe/changes?location=Yard 1", null);
+
+        // Act
+        feed.onPipeChange(created(1L, "Yard 2"));
+        feed.onPipeChange(updated(2L, "Yard 1", "Yard 2"));
+        feed.onPipeChange(updated(3L, "Yard 3", "Yard 1"));
+        feed.onPipeChange(updated(4L, "Yard 3", "Yard 4"));
+        feed.onPipeChange(created(5L, "Yard 1"));
+
+        // Assert: pipes leaving and entering Yard 1 are both seen
+        String content = awaitContent(filtered, "\"pipeId\":5");
+        assertEquals(3, eventIds(content).size());
+        assertTrue(content.contains("\"pipeId\":2"));
+        assertTrue(content.contains("\"pipeId\":3"));
+        assertFalse(content.contains("\"pipeId\":1"));
+        assertFalse(content.contains("\"pipeId\":4"));
+    }
+
+    private MvcResult subscribe(String url, Long lastEventId) throws Exception {
+        var request = get(url);
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        assertTrue(content.contains(expected), "expected " + expected + " in " + content);
+        return content;
+    }
+
+    private static List<Long> eventIds(String content) {
+        Matcher matcher = EVENT_ID.matcher(content);
+        return matcher.results().map(match -> Long.parseLong(match.group(1))).toList();
+    }
+
+    private static PipeChangeEvent created(Long pipeId, String location) {
+        return new PipeChangeEvent(PipeChangeEvent.ChangeType.CREATED, pipeId, pipe(pipeId, location));
+    }
+
+    private static PipeChangeEvent updated(Long pipeId, String previousLocation, String location) {
+        return new PipeChangeEvent(PipeChangeEvent.ChangeType.UPDATED, pipeId,
+                pipe(pipeId, location), pipe(pipeId, previousLocation));
+    }
+
+    private static PipeDto pipe(Long id, String location) {
+        PipeDto pipe = new PipeDto();
+        pipe.setId(id);
+        pipe.setLocation(location);
+        return pipe;
+    }
+}
@@ -0,0 +1,114 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.config.ReplicaRoutingDataSource;
+import kz.nu.pipeline.dto.PipeBulkOperationDto;
+import kz.nu.pipeline.dto.PipeBulkResultDto;
+import kz.nu.pipeline.dto.PipeDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PipeCreateCoalescerTest {
+
+    @Mock
+    private PipeService pipeService;
+
+    @Mock
+    private ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+
+    @Mock
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    private PipeCreateCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        coalescer.shutdown();
+    }
+
+    @Test
+    void create_GroupThrowsError_FailsGroupAndKeepsDispatching() {
+        // Arrange
+        coalescer = new PipeCreateCoalescer(pipeService, replicaRouting, true, 200, 0, 100, 5_000);
+        PipeDto created = pipe("P-2");
+        when(pipeService.createPipes(anyList()))
+                .thenThrow(new StackOverflowError("mapping recursion"))
+                .thenReturn(List.of(PipeBulkResultDto.success(0, PipeBulkOperationDto.OperationType.CREATE, 2L, created)));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> coalescer.create(pipe("P-1")));
+        assertSame(created, coalescer.create(pipe("P-2")));
+    }
+
+    @Test
+    void create_GroupTooSlow_TimesOutAndSkipsQueuedCreate() throws InterruptedException {
+        // Arrange
+        coalescer = new PipeCreateCoalescer(pipeService, replicaRouting, true, 1, 0, 100, 200);
+        CountDownLatch dispatched = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(pipeService.createPipes(anyList())).thenAnswer(invocation -> {
+            dispatched.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(PipeBulkResultDto.success(0, PipeBulkOperationDto.OperationType.CREATE, 1L, pipe("P-1")));
+        });
+        Thread first = new Thread(() -> {
+            try {
+                coalescer.create(pipe("P-1"));
+            } catch (ResponseStatusException ignored) {
+                // Times out as well
+            }
+        });
+        first.start();
+        assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+
+        // Act: the second create waits behind the blocked group
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> coalescer.create(pipe("P-2")));
+        release.countDown();
+        first.join(5_000);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        verify(pipeService, after(300).times(1)).createPipes(anyList());
+    }
+
+    @Test
+    void create_Committed_RecordsWriteForCallerBeforeReturning() {
+        // Arrange
+        coalescer = new PipeCreateCoalescer(pipeService, replicaRouting, true, 200, 0, 100, 5_000);
+        when(replicaRouting.getIfAvailable()).thenReturn(replicaRoutingDataSource);
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated("inspector", null, List.of()));
+        PipeDto created = pipe("P-1");
+        when(pipeService.createPipes(anyList()))
+                .thenReturn(List.of(PipeBulkResultDto.success(0, PipeBulkOperationDto.OperationType.CREATE, 1L, created)));
+
+        // Act
+        coalescer.create(pipe("P-1"));
+
+        // Assert: the dispatcher thread has no security context of its own
+        verify(replicaRoutingDataSource).recordWrite("inspector");
+    }
+
+    private static PipeDto pipe(String pipeNumber) {
+        PipeDto pipe = new PipeDto();
+        pipe.setPipeNumber(pipeNumber);
+        return pipe;
+    }
+}
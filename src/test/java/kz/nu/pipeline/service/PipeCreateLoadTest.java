@@ -0,0 +1,99 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.dto.PipeDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput and p99 latency of {@code POST /pipe} creates under 500 concurrent writers, with and without
+ * {@link PipeCreateCoalescer}. Runs against the in-memory H2 database and only when asked for:
+ * {@code mvn test -Dtest=PipeCreateLoadTest -Dloadtest=true}.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.aws.s3.access-key=test",
+        "app.aws.s3.secret-key=test"
+})
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class PipeCreateLoadTest {
+
+    private static final int WRITERS = 500;
+    private static final int CREATES_PER_WRITER = 40;
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private PipeService pipeService;
+
+    @Autowired
+    private PipeCreateCoalescer pipeCreateCoalescer;
+
+    @Test
+    void coalescedCreates() throws Exception {
+        run("direct", pipeService::createPipe);
+        run("coalesced", pipeCreateCoalescer::create);
+    }
+
+    private void run(String name, UnaryOperator<PipeDto> create) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> writers = new ArrayList<>(WRITERS);
+        for (int w = 0; w < WRITERS; w++) {
+            writers.add(executor.submit(() -> {
+                long[] latencies = new long[CREATES_PER_WRITER];
+                start.await();
+                for (int i = 0; i < CREATES_PER_WRITER; i++) {
+                    long began = System.nanoTime();
+                    create.apply(newPipe());
+                    latencies[i] = System.nanoTime() - began;
+                }
+                return latencies;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        long[] latencies = new long[WRITERS * CREATES_PER_WRITER];
+        int offset = 0;
+        for (Future<long[]> writer : writers) {
+            long[] writerLatencies = writer.get();
+            System.arraycopy(writerLatencies, 0, latencies, offset, writerLatencies.length);
+            offset += writerLatencies.length;
+        }
+        long elapsed = System.nanoTime() - began;
+        executor.shutdown();
+
+        assertEquals(latencies.length, offset);
+        Arrays.sort(latencies);
+        System.out.printf("%-10s %8.0f creates/s   p50 %7.2f ms   p99 %7.2f ms%n",
+                name,
+                latencies.length / (elapsed / 1e9),
+                latencies[latencies.length / 2] / 1e6,
+                latencies[(int) (latencies.length * 0.99)] / 1e6);
+    }
+
+    private static PipeDto newPipe() {
+        PipeDto pipe = new PipeDto();
+        pipe.setPipeNumber("LOAD-" + SEQUENCE.incrementAndGet());
+        pipe.setDiameter(32_550L);
+        pipe.setLength(12_000L);
+        pipe.setMaterial("Steel");
+        pipe.setManufacturer("KazTrubProm");
+        pipe.setLocation("Almaty");
+        return pipe;
+    }
+}
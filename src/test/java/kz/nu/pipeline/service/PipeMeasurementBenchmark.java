@@ -0,0 +1,168 @@
+package kz.nu.pipeline.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.model.FixedPoint;
+import kz.nu.pipeline.model.Pipe;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares fixed-point measurements with the previous {@link BigDecimal} representation on the two hot paths:
+ * reading spreadsheet cells during import, through {@link PipeService#getCellValueAsScaled} as the import does,
+ * and serializing pipe lists. Run {@link #main}, which attaches the GC
+ * profiler so that {@code gc.alloc.rate.norm} shows the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipeMeasurementBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private XSSFWorkbook workbook;
+    private Cell[] numericCells;
+    private Cell[] textCells;
+    private List<PipeDto> pipes;
+    private List<DecimalPipe> decimalPipes;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        double[] cellValues = new double[ROWS * 5];
+        workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet();
+        numericCells = new Cell[cellValues.length];
+        textCells = new Cell[cellValues.length];
+        for (int i = 0; i < cellValues.length; i++) {
+            cellValues[i] = random.nextInt(100, 1_500_000) / 1000.0;
+            Row row = sheet.createRow(i);
+            numericCells[i] = row.createCell(0);
+            numericCells[i].setCellValue(cellValues[i]);
+            textCells[i] = row.createCell(1);
+            textCells[i].setCellValue(Double.toString(cellValues[i]));
+        }
+
+        pipes = new ArrayList<>(ROWS);
+        decimalPipes = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            PipeDto pipe = new PipeDto();
+            pipe.setId((long) i);
+            pipe.setPipeNumber("P-" + i);
+            pipe.setDiameter(FixedPoint.fromDouble(cellValues[i * 5], Pipe.DIAMETER_SCALE));
+            pipe.setLength(FixedPoint.fromDouble(cellValues[i * 5 + 1], Pipe.LENGTH_SCALE));
+            pipe.setWallThickness(FixedPoint.fromDouble(cellValues[i * 5 + 2], Pipe.WALL_THICKNESS_SCALE));
+            pipe.setWeight(FixedPoint.fromDouble(cellValues[i * 5 + 3], Pipe.WEIGHT_SCALE));
+            pipe.setPressureRating(FixedPoint.fromDouble(cellValues[i * 5 + 4], Pipe.PRESSURE_RATING_SCALE));
+            pipes.add(pipe);
+            decimalPipes.add(new DecimalPipe(
+                    pipe.getId(),
+                    pipe.getPipeNumber(),
+                    FixedPoint.toDecimal(pipe.getDiameter(), Pipe.DIAMETER_SCALE),
+                    FixedPoint.toDecimal(pipe.getLength(), Pipe.LENGTH_SCALE),
+                    FixedPoint.toDecimal(pipe.getWallThickness(), Pipe.WALL_THICKNESS_SCALE),
+                    FixedPoint.toDecimal(pipe.getWeight(), Pipe.WEIGHT_SCALE),
+                    FixedPoint.toDecimal(pipe.getPressureRating(), Pipe.PRESSURE_RATING_SCALE)
+            ));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public void importNumericCellsDecimal(Blackhole blackhole) {
+        for (Cell cell : numericCells) {
+            blackhole.consume(BigDecimal.valueOf(cell.getNumericCellValue()));
+        }
+    }
+
+    @Benchmark
+    public void importNumericCellsFixedPoint(Blackhole blackhole) {
+        for (Cell cell : numericCells) {
+            blackhole.consume(PipeService.getCellValueAsScaled(cell, Pipe.LENGTH_SCALE));
+        }
+    }
+
+    @Benchmark
+    public void importTextCellsDecimal(Blackhole blackhole) {
+        for (Cell cell : textCells) {
+            blackhole.consume(new BigDecimal(cell.getStringCellValue().trim()));
+        }
+    }
+
+    @Benchmark
+    public void importTextCellsFixedPoint(Blackhole blackhole) {
+        for (Cell cell : textCells) {
+            blackhole.consume(PipeService.getCellValueAsScaled(cell, Pipe.LENGTH_SCALE));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeListDecimal() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(decimalPipes);
+    }
+
+    @Benchmark
+    public byte[] serializeListFixedPoint() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(pipes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PipeMeasurementBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * The measurement part of {@link PipeDto} as it looked with {@link BigDecimal} fields.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class DecimalPipe {
+        private Long id;
+        private String pipeNumber;
+        private BigDecimal diameter;
+        private BigDecimal length;
+        private BigDecimal wallThickness;
+        private BigDecimal weight;
+        private BigDecimal pressureRating;
+    }
+}
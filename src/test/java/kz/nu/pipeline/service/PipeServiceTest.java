@@ -0,0 +1,274 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.dto.PipeBulkOperationDto;
+import kz.nu.pipeline.dto.PipeBulkOperationDto.OperationType;
+import kz.nu.pipeline.dto.PipeBulkRequestDto;
+import kz.nu.pipeline.dto.PipeBulkResponseDto;
+import kz.nu.pipeline.dto.PipeBulkResultDto;
+import kz.nu.pipeline.dto.PipeDto;
+import kz.nu.pipeline.dto.PipeLookupRequestDto;
+import kz.nu.pipeline.dto.PipeLookupResponseDto;
+import kz.nu.pipeline.event.PipeChangeEvent;
+import kz.nu.pipeline.index.PipeSearchIndex;
+import kz.nu.pipeline.model.Pipe;
+import kz.nu.pipeline.repository.PipeChangeSequence;
+import kz.nu.pipeline.repository.PipeRepository;
+import kz.nu.pipeline.repository.PipeTombstoneRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the pipe service against the entities on an in-memory H2 database. Tests are not wrapped in a
+ * transaction, so that the commits and rollbacks of the service itself are what gets observed.
+ */
+@DataJpaTest(properties = {
+        "app.pipe.bulk.chunk-size=3",
+        "app.pipe.bulk.max-operations=10",
+        "app.pipe.lookup.chunk-size=2",
+        "app.pipe.lookup.max-keys=10",
+        "spring.jpa.show-sql=false"
+})
+@Import({PipeService.class, PipeAttributeDictionary.class, PipeChangeSequence.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+class PipeServiceTest {
+
+    @MockitoBean
+    private PipeTombstoneSweeper pipeTombstoneSweeper;
+
+    @MockitoBean
+    private PipeSearchIndex pipeSearchIndex;
+
+    @Autowired
+    private PipeService pipeService;
+
+    @Autowired
+    private PipeRepository pipeRepository;
+
+    @Autowired
+    private PipeTombstoneRepository pipeTombstoneRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @AfterEach
+    void tearDown() {
+        pipeRepository.deleteAll();
+        pipeTombstoneRepository.deleteAll();
+    }
+
+    @Test
+    void applyBulk_MixedOperations_CreatesThenUpdatesThenDeletesWithResultsInRequestOrder() {
+        // Arrange
+        PipeDto kept = pipeService.createPipe(pipe("P-1", "Yard 1"));
+        PipeDto removed = pipeService.createPipe(pipe("P-2", "Yard 1"));
+        events.clear();
+
+        // Act: one chunk, listed in the reverse of the order it is applied in
+        PipeBulkResponseDto response = pipeService.applyBulk(new PipeBulkRequestDto(false, List.of(
+                delete(removed.getId()),
+                update(kept.getId(), pipe(null, "Yard 2")),
+                create(pipe("P-3", "Yard 3")))));
+
+        // Assert
+        assertEquals(3, response.getSucceeded());
+        assertEquals(List.of(OperationType.DELETE, OperationType.UPDATE, OperationType.CREATE),
+                response.getResults().stream().map(PipeBulkResultDto::getType).toList());
+        assertEquals(List.of(0, 1, 2), response.getResults().stream().map(PipeBulkResultDto::getIndex).toList());
+        assertEquals(List.of(PipeChangeEvent.ChangeType.CREATED, PipeChangeEvent.ChangeType.UPDATED,
+                        PipeChangeEvent.ChangeType.DELETED),
+                events.stream(PipeChangeEvent.class).map(PipeChangeEvent::getType).toList());
+        assertEquals("Yard 2", pipeRepository.findById(kept.getId()).orElseThrow().getLocation());
+        assertFalse(pipeRepository.existsById(removed.getId()));
+        assertEquals(1, pipeTombstoneRepository.count());
+        assertEquals(response.getResults().get(2).getId(), pipeRepository.findByPipeNumber("P-3").orElseThrow().getId());
+    }
+
+    @Test
+    void applyBulk_NotAtomic_FailedItemsReportedAndOthersCommitted() {
+        // Arrange
+        PipeDto existing = pipeService.createPipe(pipe("P-1", "Yard 1"));
+
+        // Act
+        PipeBulkResponseDto response = pipeService.applyBulk(new PipeBulkRequestDto(false, List.of(
+                create(pipe("P-1", "Yard 2")),
+                create(pipe("P-2", "Yard 2")),
+                update(999_999L, pipe(null, "Yard 2")),
+                delete(null),
+                new PipeBulkOperationDto(null, existing.getId(), null),
+                update(existing.getId(), pipe(null, "Yard 3")))));
+
+        // Assert
+        assertEquals(6, response.getTotal());
+        assertEquals(2, response.getSucceeded());
+        assertEquals(4, response.getFailed());
+        List<PipeBulkResultDto> results = response.getResults();
+        assertEquals("Pipe number already exists: P-1", results.get(0).getError());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("Pipe not found with id: 999999", results.get(2).getError());
+        assertEquals("Pipe id is required", results.get(3).getError());
+        assertEquals("Operation type is required", results.get(4).getError());
+        assertTrue(results.get(5).isSuccess());
+        assertTrue(pipeRepository.existsByPipeNumber("P-2"));
+        assertEquals("Yard 3", pipeRepository.findById(existing.getId()).orElseThrow().getLocation());
+    }
+
+    @Test
+    void applyBulk_NotAtomic_ChunkFailingInDatabase_OnlyThatChunkRolledBack() {
+        // Arrange
+        PipeDto existing = pipeService.createPipe(pipe("P-1", "Yard 1"));
+        PipeDto tooLong = pipe("P-5", "Yard 2");
+        tooLong.setRemarks("x".repeat(300));
+
+        // Act: chunks of three, the second one fails on insert
+        PipeBulkResponseDto response = pipeService.applyBulk(new PipeBulkRequestDto(false, List.of(
+                create(pipe("P-2", "Yard 2")),
+                create(pipe("P-3", "Yard 2")),
+                update(existing.getId(), pipe(null, "Yard 2")),
+                create(pipe("P-4", "Yard 2")),
+                create(tooLong),
+                delete(existing.getId()))));
+
+        // Assert
+        List<PipeBulkResultDto> results = response.getResults();
+        assertTrue(results.subList(0, 3).stream().allMatch(PipeBulkResultDto::isSuccess));
+        assertTrue(results.subList(3, 6).stream().allMatch(result -> result.getError().startsWith("Rolled back: ")));
+        assertTrue(pipeRepository.existsByPipeNumber("P-3"));
+        assertFalse(pipeRepository.existsByPipeNumber("P-4"));
+        assertEquals("Yard 2", pipeRepository.findById(existing.getId()).orElseThrow().getLocation());
+        assertEquals(0, pipeTombstoneRepository.count());
+    }
+
+    @Test
+    void applyBulk_AtomicWithFailureInLaterChunk_NothingApplied() {
+        // Arrange
+        PipeDto existing = pipeService.createPipe(pipe("P-1", "Yard 1"));
+
+        // Act: the first chunk succeeds on its own, the second holds a failing update
+        PipeBulkResponseDto response = pipeService.applyBulk(new PipeBulkRequestDto(true, List.of(
+                create(pipe("P-2", "Yard 2")),
+                update(existing.getId(), pipe(null, "Yard 2")),
+                create(pipe("P-3", "Yard 2")),
+                update(999_999L, pipe(null, "Yard 2")))));
+
+        // Assert
+        assertEquals(0, response.getSucceeded());
+        List<PipeBulkResultDto> results = response.getResults();
+        assertEquals("Rolled back: another operation failed", results.get(0).getError());
+        assertEquals("Rolled back: another operation failed", results.get(1).getError());
+        assertEquals("Rolled back: another operation failed", results.get(2).getError());
+        assertEquals("Pipe not found with id: 999999", results.get(3).getError());
+        assertEquals(1, pipeRepository.count());
+        assertEquals("Yard 1", pipeRepository.findById(existing.getId()).orElseThrow().getLocation());
+    }
+
+    @Test
+    void applyBulk_AtomicAllSucceed_AllCommitted() {
+        // Arrange
+        PipeDto existing = pipeService.createPipe(pipe("P-1", "Yard 1"));
+
+        // Act
+        PipeBulkResponseDto response = pipeService.applyBulk(new PipeBulkRequestDto(true, List.of(
+                create(pipe("P-2", "Yard 2")),
+                create(pipe("P-3", "Yard 2")),
+                create(pipe("P-4", "Yard 2")),
+                delete(existing.getId()))));
+
+        // Assert
+        assertEquals(4, response.getSucceeded());
+        assertEquals(3, pipeRepository.count());
+        assertFalse(pipeRepository.existsById(existing.getId()));
+    }
+
+    @Test
+    void applyBulk_TooManyOperations_Rejected() {
+        // Arrange
+        List<PipeBulkOperationDto> operations = IntStream.range(0, 11)
+                .mapToObj(i -> create(pipe("P-" + i, "Yard 1")))
+                .toList();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> pipeService.applyBulk(new PipeBulkRequestDto(false, operations)));
+        assertEquals(0, pipeRepository.count());
+    }
+
+    @Test
+    void lookupPipes_IdsAndPipeNumbers_FoundAndMissingInRequestOrder() {
+        // Arrange: more keys of each kind than fit in one chunk
+        PipeDto first = pipeService.createPipe(pipe("P-1", "Yard 1"));
+        PipeDto second = pipeService.createPipe(pipe("P-2", "Yard 1"));
+        PipeDto third = pipeService.createPipe(pipe("P-3", "Yard 1"));
+
+        // Act
+        PipeLookupResponseDto response = pipeService.lookupPipes(new PipeLookupRequestDto(
+                List.of(third.getId(), 999_999L, first.getId()),
+                List.of("P-2", "P-404", "P-3")));
+
+        // Assert
+        assertEquals(List.of(third.getId(), first.getId(), second.getId(), third.getId()),
+                response.getFound().stream().map(PipeDto::getId).toList());
+        assertEquals(List.of("999999", "P-404"), response.getMissing());
+    }
+
+    @Test
+    void lookupPipes_NullId_Rejected() {
+        // Arrange
+        PipeLookupRequestDto request = new PipeLookupRequestDto(Arrays.asList(1L, null), null);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> pipeService.lookupPipes(request));
+    }
+
+    @Test
+    void lookupPipes_BlankPipeNumber_Rejected() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> pipeService.lookupPipes(new PipeLookupRequestDto(null, List.of("P-1", " "))));
+        assertThrows(IllegalArgumentException.class,
+                () -> pipeService.lookupPipes(new PipeLookupRequestDto(null, Arrays.asList("P-1", null))));
+    }
+
+    @Test
+    void lookupPipes_TooManyKeys_Rejected() {
+        // Arrange
+        PipeLookupRequestDto request = new PipeLookupRequestDto(
+                List.of(1L, 2L, 3L, 4L, 5L, 6L), List.of("P-1", "P-2", "P-3", "P-4", "P-5"));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> pipeService.lookupPipes(request));
+    }
+
+    private static PipeDto pipe(String pipeNumber, String location) {
+        PipeDto pipe = new PipeDto();
+        pipe.setPipeNumber(pipeNumber);
+        pipe.setLocation(location);
+        return pipe;
+    }
+
+    private static PipeBulkOperationDto create(PipeDto pipe) {
+        return new PipeBulkOperationDto(OperationType.CREATE, null, pipe);
+    }
+
+    private static PipeBulkOperationDto update(Long id, PipeDto pipe) {
+        return new PipeBulkOperationDto(OperationType.UPDATE, id, pipe);
+    }
+
+    private static PipeBulkOperationDto delete(Long id) {
+        return new PipeBulkOperationDto(OperationType.DELETE, id, null);
+    }
+}
@@ -0,0 +1,155 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.dto.FileBatchResultDto;
+import kz.nu.pipeline.model.Photo;
+import kz.nu.pipeline.repository.PhotoRepository;
+import kz.nu.pipeline.storage.ObjectMetadata;
+import kz.nu.pipeline.storage.ObjectStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3BatchServiceTest {
+
+    @Mock
+    private ObjectStorage objectStorage;
+
+    @Mock
+    private ContentAddressedStore contentAddressedStore;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private S3ObjectCache s3ObjectCache;
+
+    private S3BatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        batchService = new S3BatchService(objectStorage, contentAddressedStore, photoRepository, s3ObjectCache, 5000, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchService.shutdown();
+    }
+
+    @Test
+    void deleteFiles_PhotosAndMissingKeys_DeletesDerivativesInOneCall() {
+        // Arrange
+        Photo photo = Photo.builder().objectKey("photo.jpg").thumbnailKey("derived/thumbnail/photo.jpg").build();
+        when(contentAddressedStore.delete(anyString())).thenReturn(false);
+        when(photoRepository.findByObjectKeyIn(anyList())).thenReturn(List.of(photo));
+        when(objectStorage.deleteAll(List.of("photo.jpg", "locked.jpg", "missing.jpg")))
+                .thenReturn(Map.of("locked.jpg", "AccessDenied: Access Denied"));
+        when(objectStorage.deleteAll(List.of("derived/thumbnail/photo.jpg"))).thenReturn(Map.of());
+
+        // Act
+        List<FileBatchResultDto> results = batchService.deleteFiles(List.of("photo.jpg", "locked.jpg", "missing.jpg"));
+
+        // Assert
+        verify(objectStorage).deleteAll(List.of("derived/thumbnail/photo.jpg"));
+        verify(photoRepository).deleteAll(List.of(photo));
+        assertEquals(List.of("photo.jpg", "locked.jpg", "missing.jpg"), results.stream().map(FileBatchResultDto::getFilename).toList());
+        assertTrue(results.get(0).getDeleted());
+        assertNull(results.get(1).getDeleted());
+        assertEquals("AccessDenied: Access Denied", results.get(1).getError());
+        assertTrue(results.get(2).getDeleted());
+    }
+
+    @Test
+    void deleteFiles_OriginalNotDeleted_KeepsDerivativesAndPhoto() {
+        // Arrange
+        Photo kept = Photo.builder().objectKey("locked.jpg")
+                .thumbnailKey("derived/thumbnail/locked.jpg").mediumKey("derived/medium/locked.jpg").build();
+        Photo deleted = Photo.builder().objectKey("photo.jpg").mediumKey("derived/medium/photo.jpg").build();
+        when(contentAddressedStore.delete(anyString())).thenReturn(false);
+        when(photoRepository.findByObjectKeyIn(anyList())).thenReturn(List.of(kept, deleted));
+        when(objectStorage.deleteAll(List.of("locked.jpg", "photo.jpg")))
+                .thenReturn(Map.of("locked.jpg", "AccessDenied: Access Denied"));
+        when(objectStorage.deleteAll(List.of("derived/medium/photo.jpg")))
+                .thenReturn(Map.of("derived/medium/photo.jpg", "InternalError: try again"));
+
+        // Act
+        List<FileBatchResultDto> results = batchService.deleteFiles(List.of("locked.jpg", "photo.jpg"));
+
+        // Assert: a failed derivative does not fail its deleted original
+        verify(objectStorage, times(2)).deleteAll(anyList());
+        verify(photoRepository).deleteAll(List.of(deleted));
+        assertNull(results.get(0).getDeleted());
+        assertTrue(results.get(1).getDeleted());
+    }
+
+    @Test
+    void filesExist_MixedKeys_ResultPerKeyInOrder() {
+        // Arrange
+        when(contentAddressedStore.resolve(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(objectStorage.head(anyString())).thenAnswer(invocation -> invocation.<String>getArgument(0).startsWith("missing")
+                ? Optional.empty()
+                : Optional.of(new ObjectMetadata(5, "image/jpeg", "\"etag\"", null)));
+
+        // Act
+        List<FileBatchResultDto> results = batchService.filesExist(List.of("a.jpg", "missing.jpg", "b.jpg", "a.jpg"));
+
+        // Assert
+        assertEquals(List.of("a.jpg", "missing.jpg", "b.jpg"), results.stream().map(FileBatchResultDto::getFilename).toList());
+        assertEquals(List.of(true, false, true), results.stream().map(FileBatchResultDto::getExists).toList());
+    }
+
+    @Test
+    void filesExist_TooManyKeys_Rejected() {
+        // Arrange
+        List<String> filenames = IntStream.range(0, 5001).mapToObj(i -> i + ".jpg").toList();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> batchService.filesExist(filenames));
+        verifyNoInteractions(objectStorage);
+    }
+
+    @Test
+    void deleteFiles_BlobKey_Rejected() {
+        // Arrange
+        List<String> filenames = List.of("photo.jpg", "blobs/sha256/" + "a".repeat(64));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> batchService.deleteFiles(filenames));
+        verifyNoInteractions(objectStorage, contentAddressedStore);
+    }
+
+    @Test
+    void filesExist_BlobKey_Rejected() {
+        // Arrange
+        List<String> filenames = List.of("blobs/sha256/" + "a".repeat(64));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> batchService.filesExist(filenames));
+        verifyNoInteractions(objectStorage, contentAddressedStore);
+    }
+
+    @Test
+    void deleteFiles_DerivativeKey_Rejected() {
+        // Arrange
+        List<String> filenames = List.of("photo.jpg", "photo_thumbnail.jpg");
+        when(photoRepository.existsByThumbnailKeyInOrMediumKeyIn(filenames, filenames)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> batchService.deleteFiles(filenames));
+        verifyNoInteractions(objectStorage, contentAddressedStore);
+        verify(photoRepository, never()).deleteAll(anyList());
+    }
+}
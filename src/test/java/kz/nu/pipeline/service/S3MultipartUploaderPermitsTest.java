@@ -0,0 +1,119 @@
+package kz.nu.pipeline.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks how the multipart uploader shares part buffers between uploads, against a mocked client.
+ */
+@ExtendWith(MockitoExtension.class)
+class S3MultipartUploaderPermitsTest {
+
+    @Mock
+    private S3Client s3Client;
+
+    private S3MultipartUploader uploader;
+
+    private final ExecutorService clients = Executors.newFixedThreadPool(4);
+
+    @BeforeEach
+    void setUp() {
+        uploader = new S3MultipartUploader(s3Client, DataSize.ofMegabytes(5), 1, 1, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploader.shutdown();
+        clients.shutdownNow();
+    }
+
+    @Test
+    void upload_OtherUploadsStalledOnTheirStreams_StillCompletes() throws Exception {
+        // Arrange: more stalled uploads than there are global part permits (two per thread)
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenReturn(UploadPartResponse.builder().eTag("\"part\"").build());
+        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(CompleteMultipartUploadResponse.builder().eTag("\"object\"").build());
+        CountDownLatch unstall = new CountDownLatch(1);
+        CountDownLatch stalled = new CountDownLatch(3);
+        List<CompletableFuture<String>> slowUploads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            InputStream slow = new InputStream() {
+                private boolean waited;
+
+                @Override
+                public int read() throws IOException {
+                    if (!waited) {
+                        waited = true;
+                        stalled.countDown();
+                        try {
+                            unstall.await();
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException();
+                        }
+                    }
+                    return -1;
+                }
+            };
+            slowUploads.add(this.uploadAsync("slow-" + i, slow, 0));
+        }
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        byte[] content = new byte[(int) DataSize.ofMegabytes(6).toBytes()];
+
+        try {
+            // Act
+            CompletableFuture<String> fast = this.uploadAsync("fast", new ByteArrayInputStream(content), content.length);
+
+            // Assert
+            assertEquals("\"object\"", fast.get(5, TimeUnit.SECONDS));
+            verify(s3Client, times(2)).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        } finally {
+            unstall.countDown();
+        }
+        for (CompletableFuture<String> slowUpload : slowUploads) {
+            assertEquals("\"object\"", slowUpload.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private CompletableFuture<String> uploadAsync(String key, InputStream input, long size) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return uploader.upload("bucket", key, null, input, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, clients);
+    }
+}
@@ -0,0 +1,100 @@
+package kz.nu.pipeline.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the multipart uploader against MinIO as a local S3 stand-in; skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class S3MultipartUploaderTest {
+
+    private static final String BUCKET = "pipeline-test";
+
+    @Container
+    private static final MinIOContainer MINIO = new MinIOContainer("minio/minio:RELEASE.2024-01-16T16-07-38Z");
+
+    private static S3Client s3Client;
+
+    private S3MultipartUploader uploader;
+
+    @BeforeAll
+    static void createBucket() {
+        s3Client = S3Client.builder()
+                .endpointOverride(URI.create(MINIO.getS3URL()))
+                .region(Region.US_EAST_1)
+                .forcePathStyle(true)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(MINIO.getUserName(), MINIO.getPassword())))
+                .build();
+        s3Client.createBucket(request -> request.bucket(BUCKET));
+    }
+
+    @BeforeEach
+    void setUp() {
+        uploader = new S3MultipartUploader(s3Client, DataSize.ofMegabytes(5), 4, 3, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploader.shutdown();
+    }
+
+    @Test
+    void upload_LargeStream_IsReassembledInOrder() throws IOException {
+        // Arrange
+        byte[] content = new byte[23 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+
+        // Act
+        String eTag = uploader.upload(BUCKET, "video.mp4", "video/mp4", new ByteArrayInputStream(content), content.length);
+
+        // Assert
+        assertTrue(eTag.endsWith("-5\""), "expected five parts, got ETag " + eTag);
+        assertArrayEquals(content, s3Client.getObjectAsBytes(request -> request.bucket(BUCKET).key("video.mp4")).asByteArray());
+    }
+
+    @Test
+    void upload_StreamFailsMidway_AbortsUpload() {
+        // Arrange
+        InputStream failing = new InputStream() {
+            private long remaining = 12L * 1024 * 1024;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining-- <= 0) {
+                    throw new IOException("Connection reset");
+                }
+                return 7;
+            }
+        };
+
+        // Act
+        assertThrows(IOException.class,
+                () -> uploader.upload(BUCKET, "broken.zip", "application/zip", failing, 20L * 1024 * 1024));
+
+        // Assert
+        assertTrue(s3Client.listMultipartUploads(request -> request.bucket(BUCKET)).uploads().isEmpty());
+        assertThrows(NoSuchKeyException.class,
+                () -> s3Client.headObject(request -> request.bucket(BUCKET).key("broken.zip")));
+    }
+}
@@ -0,0 +1,186 @@
+package kz.nu.pipeline.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.nu.pipeline.storage.ObjectContent;
+import kz.nu.pipeline.storage.ObjectMetadata;
+import kz.nu.pipeline.storage.ObjectStorage;
+import kz.nu.pipeline.storage.StorageException;
+import kz.nu.pipeline.storage.StreamObjectContent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3ObjectCacheTest {
+
+    @Mock
+    private S3Service s3Service;
+
+    @Mock
+    private ObjectStorage objectStorage;
+
+    @TempDir
+    private Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void get_ConcurrentMisses_FetchOnce() throws Exception {
+        // Arrange
+        S3ObjectCache cache = cache(DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        CountDownLatch fetching = new CountDownLatch(1);
+        when(s3Service.downloadFile("photo.jpg", null, null, null)).thenAnswer(invocation -> {
+            fetching.await(5, TimeUnit.SECONDS);
+            return object("\"e1\"", "joint photo");
+        });
+
+        // Act
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Optional<S3ObjectCache.CachedObject>>> readers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            readers.add(executor.submit(() -> cache.get("photo.jpg")));
+        }
+        Thread.sleep(100);
+        fetching.countDown();
+
+        // Assert
+        for (Future<Optional<S3ObjectCache.CachedObject>> reader : readers) {
+            S3ObjectCache.CachedObject cached = reader.get(5, TimeUnit.SECONDS).orElseThrow();
+            assertEquals("joint photo", read(cache, cached, 0, cached.size()));
+            cached.release();
+        }
+        executor.shutdown();
+        verify(s3Service, times(1)).downloadFile("photo.jpg", null, null, null);
+    }
+
+    @Test
+    void get_StaleEntry_RevalidatesWithETag() throws Exception {
+        // Arrange
+        S3ObjectCache cache = cache(DataSize.ofMegabytes(1), Duration.ZERO);
+        when(s3Service.downloadFile("photo.jpg", null, null, null)).thenAnswer(invocation -> object("\"e1\"", "joint photo"));
+        when(s3Service.downloadFile("photo.jpg", null, "\"e1\"", null)).thenThrow(new StorageException(304, "Not modified", "\"e1\""));
+        cache.get("photo.jpg").orElseThrow().release();
+
+        // Act
+        S3ObjectCache.CachedObject cached = cache.get("photo.jpg").orElseThrow();
+
+        // Assert
+        assertEquals("joint photo", read(cache, cached, 0, cached.size()));
+        cached.release();
+        assertEquals(1.0, meterRegistry.get("s3.cache.requests").tag("result", "hit").counter().count());
+        verify(s3Service, times(1)).downloadFile("photo.jpg", null, null, null);
+    }
+
+    @Test
+    void get_OverMaxSize_EvictsLeastRecentlyUsed() throws Exception {
+        // Arrange
+        S3ObjectCache cache = cache(DataSize.ofBytes(10), Duration.ofMinutes(1));
+        when(s3Service.downloadFile("a.jpg", null, null, null)).thenAnswer(invocation -> object("\"a\"", "aaaaaa"));
+        when(s3Service.downloadFile("b.jpg", null, null, null)).thenAnswer(invocation -> object("\"b\"", "bbbbbb"));
+
+        // Act
+        cache.get("a.jpg").orElseThrow().release();
+        cache.get("b.jpg").orElseThrow().release();
+        cache.get("a.jpg").orElseThrow().release();
+
+        // Assert
+        assertEquals(2.0, meterRegistry.get("s3.cache.evictions").counter().count());
+        assertEquals(6.0, meterRegistry.get("s3.cache.size").gauge().value());
+        verify(s3Service, times(2)).downloadFile("a.jpg", null, null, null);
+    }
+
+    @Test
+    void transferTo_Range_ServesSlice() throws Exception {
+        // Arrange
+        S3ObjectCache cache = cache(DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        when(s3Service.downloadFile("doc.pdf", null, null, null)).thenAnswer(invocation -> object("\"d\"", "0123456789"));
+
+        // Act
+        S3ObjectCache.CachedObject cached = cache.get("doc.pdf").orElseThrow();
+        String slice = read(cache, cached, 3, 4);
+        cached.release();
+
+        // Assert
+        assertEquals("3456", slice);
+        assertEquals(4.0, meterRegistry.get("s3.cache.bytes.served").counter().count());
+    }
+
+    @Test
+    void constructor_Restart_ClearsOnlyItsOwnSubdirectory() throws Exception {
+        // Arrange
+        S3ObjectCache cache = cache(DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        when(s3Service.downloadFile("doc.pdf", null, null, null)).thenAnswer(invocation -> object("\"d\"", "0123456789"));
+        cache.get("doc.pdf").orElseThrow().release();
+        Path unrelated = Files.writeString(directory.resolve("cache").resolve("keep.txt"), "not the cache's");
+
+        // Act
+        cache(DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+
+        // Assert
+        Path objects = directory.resolve("cache").resolve(S3ObjectCache.SUBDIRECTORY);
+        try (Stream<Path> files = Files.list(objects)) {
+            assertEquals(List.of(objects.resolve(S3ObjectCache.MARKER)), files.toList());
+        }
+        assertTrue(Files.exists(unrelated));
+    }
+
+    @Test
+    void constructor_ForeignSubdirectory_RefusesToClearIt() throws Exception {
+        // Arrange
+        Path objects = Files.createDirectories(directory.resolve("cache").resolve(S3ObjectCache.SUBDIRECTORY));
+        Files.writeString(objects.resolve("report.pdf"), "someone else's file");
+
+        // Act & Assert
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> cache(DataSize.ofMegabytes(1), Duration.ofMinutes(1)));
+        assertTrue(e.getCause().getMessage().startsWith("Refusing to clear"));
+        assertTrue(Files.exists(objects.resolve("report.pdf")));
+    }
+
+    private S3ObjectCache cache(DataSize maxSize, Duration revalidateAfter) {
+        try {
+            return new S3ObjectCache(s3Service, objectStorage, meterRegistry, true, directory.resolve("cache"),
+                    maxSize, DataSize.ofMegabytes(1), revalidateAfter);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String read(S3ObjectCache cache, S3ObjectCache.CachedObject cached, long position, long count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            cache.transferTo(cached, position, count, out);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ObjectContent object(String eTag, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new StreamObjectContent(new ObjectMetadata(bytes.length, "image/jpeg", eTag, null),
+                bytes.length, null, new ByteArrayInputStream(bytes), () -> { });
+    }
+}
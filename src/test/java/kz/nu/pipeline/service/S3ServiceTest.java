@@ -0,0 +1,97 @@
+package kz.nu.pipeline.service;
+
+import kz.nu.pipeline.repository.StoredFileRepository;
+import kz.nu.pipeline.storage.ObjectStorage;
+import kz.nu.pipeline.storage.StorageException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3ServiceTest {
+
+    @Mock
+    private ObjectStorage objectStorage;
+
+    @Mock
+    private ObjectProvider<S3Presigner> s3Presigner;
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
+
+    @Mock
+    private ContentAddressedStore contentAddressedStore;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private S3Service s3Service;
+
+    @BeforeEach
+    void setUp() {
+        s3Service = new S3Service(objectStorage, s3Presigner, storedFileRepository, contentAddressedStore, eventPublisher);
+        ReflectionTestUtils.setField(s3Service, "multipartThreshold", DataSize.ofBytes(8));
+        ReflectionTestUtils.setField(s3Service, "streamMaxSize", DataSize.ofBytes(16));
+    }
+
+    @Test
+    void uploadStream_UnknownLengthOverLimit_WrappedByBackend_PayloadTooLarge() throws IOException {
+        // Arrange: the backend reports the failed read as its own error
+        when(objectStorage.put(anyString(), any(InputStream.class), eq(-1L), any())).thenAnswer(invocation -> {
+            try {
+                invocation.getArgument(1, InputStream.class).readAllBytes();
+            } catch (IOException e) {
+                throw new StorageException("Multipart upload failed", e);
+            }
+            return null;
+        });
+
+        // Act
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> s3Service.uploadStream(new ByteArrayInputStream(new byte[17]), "a.bin", null, -1));
+
+        // Assert
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatusCode());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void uploadStream_SmallLengthAnnouncedButBodyOverLimit_PayloadTooLarge() {
+        // Act
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> s3Service.uploadStream(new ByteArrayInputStream(new byte[17]), "a.bin", null, 4));
+
+        // Assert
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatusCode());
+        verifyNoInteractions(objectStorage);
+    }
+
+    @Test
+    void uploadStream_BackendFails_NotReportedAsTooLarge() throws IOException {
+        // Arrange
+        when(objectStorage.put(anyString(), any(InputStream.class), eq(-1L), any()))
+                .thenThrow(new StorageException("Service unavailable", null));
+
+        // Act & Assert
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> s3Service.uploadStream(new ByteArrayInputStream(new byte[12]), "a.bin", null, -1));
+        assertFalse(e instanceof ResponseStatusException);
+    }
+}
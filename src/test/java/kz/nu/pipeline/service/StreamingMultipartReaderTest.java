@@ -0,0 +1,115 @@
+package kz.nu.pipeline.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingMultipartReaderTest {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    @Test
+    void nextPart_FieldsAndFile_ReadInOrder() throws IOException {
+        // Arrange
+        byte[] content = new byte[300_000];
+        new Random(42).nextBytes(content);
+        StreamingMultipartReader reader = reader(body(content, true), 4096);
+
+        // Act
+        StreamingMultipartReader.Part note = reader.nextPart();
+        String noteValue = new String(note.readAllBytes(), StandardCharsets.UTF_8);
+        StreamingMultipartReader.Part file = reader.nextPart();
+        byte[] fileContent = file.readAllBytes();
+
+        // Assert
+        assertEquals("note", note.name());
+        assertNull(note.filename());
+        assertEquals("joint inspection", noteValue);
+        assertEquals("file", file.name());
+        assertEquals("weld;01.jpg", file.filename());
+        assertEquals("image/jpeg", file.contentType());
+        assertArrayEquals(content, fileContent);
+        assertEquals(content.length, file.bytesRead());
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    void nextPart_UnreadPart_IsSkipped() throws IOException {
+        // Arrange
+        StreamingMultipartReader reader = reader(body(new byte[100_000], true), 1000);
+
+        // Act
+        reader.nextPart();
+        StreamingMultipartReader.Part file = reader.nextPart();
+
+        // Assert
+        assertEquals("weld;01.jpg", file.filename());
+        assertEquals(100_000, file.readAllBytes().length);
+    }
+
+    @Test
+    void read_BodyCutShort_Fails() throws IOException {
+        // Arrange
+        StreamingMultipartReader reader = reader(body(new byte[10_000], false), 512);
+        reader.nextPart();
+
+        // Act & Assert
+        StreamingMultipartReader.Part file = reader.nextPart();
+        assertThrows(EOFException.class, file::readAllBytes);
+    }
+
+    @Test
+    void boundary_QuotedOrPlain() {
+        assertEquals("abc", StreamingMultipartReader.boundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b", StreamingMultipartReader.boundary("multipart/form-data; charset=UTF-8; boundary=\"a b\""));
+        assertThrows(IllegalArgumentException.class, () -> StreamingMultipartReader.boundary("application/json"));
+    }
+
+    private static byte[] body(byte[] content, boolean complete) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"note\"\r\n\r\n"
+                + "joint inspection\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"weld;01.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(content);
+        if (complete) {
+            body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Delivers the body in small reads, as a network stream would, so that boundaries straddle buffer fills.
+     */
+    private static StreamingMultipartReader reader(byte[] body, int maxRead) {
+        InputStream input = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                return position < body.length ? body[position++] & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int length) {
+                if (position >= body.length) {
+                    return -1;
+                }
+                int count = Math.min(Math.min(length, maxRead), body.length - position);
+                System.arraycopy(body, position, target, offset, count);
+                position += count;
+                return count;
+            }
+        };
+        return new StreamingMultipartReader(input, BOUNDARY);
+    }
+}
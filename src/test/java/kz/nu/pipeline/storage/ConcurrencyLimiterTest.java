@@ -0,0 +1,82 @@
+package kz.nu.pipeline.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void acquire_OverLimit_WaitsForRelease() {
+        // Arrange
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 10);
+        limiter.acquire().join();
+        limiter.acquire().join();
+
+        // Act
+        CompletableFuture<Void> waiting = limiter.acquire();
+
+        // Assert
+        assertFalse(waiting.isDone());
+        assertEquals(1, limiter.pending());
+        limiter.release();
+        assertTrue(waiting.isDone());
+        assertEquals(0, limiter.pending());
+        assertEquals(0, limiter.available());
+    }
+
+    @Test
+    void acquire_QueueFull_RefusedWith503() {
+        // Arrange
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+        limiter.acquire().join();
+        limiter.acquire();
+
+        // Act
+        CompletableFuture<Void> refused = limiter.acquire();
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, refused::get);
+        assertEquals(503, assertInstanceOf(StorageException.class, e.getCause()).getStatusCode());
+    }
+
+    @Test
+    void release_CancelledWaiter_PassesPermitOn() {
+        // Arrange
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10);
+        limiter.acquire().join();
+        CompletableFuture<Void> cancelled = limiter.acquire();
+        CompletableFuture<Void> next = limiter.acquire();
+        cancelled.cancel(false);
+
+        // Act
+        limiter.release();
+
+        // Assert
+        assertTrue(next.isDone() && !next.isCompletedExceptionally());
+        assertEquals(0, limiter.available());
+    }
+
+    @Test
+    void acquire_WaiterCancelled_LeavesQueueAtOnce() {
+        // Arrange
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+        limiter.acquire().join();
+        CompletableFuture<Void> cancelled = limiter.acquire();
+
+        // Act
+        cancelled.cancel(false);
+        CompletableFuture<Void> next = limiter.acquire();
+
+        // Assert: the cancelled waiter neither holds the only pending slot nor takes the permit
+        assertEquals(1, limiter.pending());
+        assertFalse(next.isDone());
+        limiter.release();
+        assertTrue(next.isDone() && !next.isCompletedExceptionally());
+        assertEquals(0, limiter.pending());
+        assertEquals(0, limiter.available());
+    }
+}
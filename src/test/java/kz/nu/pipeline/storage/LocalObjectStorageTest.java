@@ -0,0 +1,73 @@
+package kz.nu.pipeline.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalObjectStorageTest extends ObjectStorageContractTest {
+
+    @TempDir
+    private Path root;
+
+    @Override
+    protected ObjectStorage createStorage() throws IOException {
+        return new LocalObjectStorage(root);
+    }
+
+    @Test
+    void put_LongAndDottedKeys_StoredShardedUnderRoot() throws IOException {
+        // Arrange
+        ObjectStorage storage = this.createStorage();
+        String longKey = "a/".repeat(150) + "photo.jpg";
+
+        // Act
+        storage.put(longKey, new ByteArrayInputStream("long".getBytes(StandardCharsets.UTF_8)), 4, "image/jpeg");
+        storage.put("../escape", new ByteArrayInputStream("dot".getBytes(StandardCharsets.UTF_8)), 3, "text/plain");
+
+        // Assert
+        assertEquals(4, storage.head(longKey).orElseThrow().size());
+        assertEquals(3, storage.head("../escape").orElseThrow().size());
+        try (Stream<Path> files = Files.walk(root)) {
+            assertTrue(files.filter(Files::isRegularFile)
+                    .filter(file -> file.toString().endsWith(".data"))
+                    .allMatch(file -> root.relativize(file).getNameCount() == 3));
+        }
+        try (Stream<Path> leftovers = Files.list(root.resolve(".tmp"))) {
+            assertEquals(0, leftovers.count());
+        }
+    }
+
+    @Test
+    void put_Replace_MetadataSwappedWithContentInOneFile() throws IOException {
+        // Arrange
+        ObjectStorage storage = this.createStorage();
+        ObjectMetadata first = storage.put("report", new ByteArrayInputStream("old".getBytes(StandardCharsets.UTF_8)), 3, "text/plain");
+        ObjectContent reading = storage.get("report", null, null, null);
+
+        // Act
+        ObjectMetadata second = storage.put("report", new ByteArrayInputStream("{\"new\":1}".getBytes(StandardCharsets.UTF_8)),
+                -1, null);
+
+        // Assert: a reader that started before keeps the old object, metadata included
+        try (InputStream input = reading.inputStream()) {
+            assertEquals("old", new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(first.eTag(), reading.metadata().eTag());
+        ObjectMetadata current = storage.head("report").orElseThrow();
+        assertEquals(9, current.size());
+        assertNull(current.contentType());
+        assertEquals(second.eTag(), current.eTag());
+        try (Stream<Path> files = Files.walk(root)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+}
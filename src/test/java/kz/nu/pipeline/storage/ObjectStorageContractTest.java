@@ -0,0 +1,266 @@
+package kz.nu.pipeline.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The behaviour every {@link ObjectStorage} backend has to share, so that the rest of the application does not
+ * depend on which one is configured. Each backend runs it through a subclass.
+ */
+abstract class ObjectStorageContractTest {
+
+    private ObjectStorage storage;
+    private String prefix;
+
+    protected abstract ObjectStorage createStorage() throws Exception;
+
+    @BeforeEach
+    void setUpStorage() throws Exception {
+        storage = this.createStorage();
+        // Backends may share a bucket between tests
+        prefix = UUID.randomUUID() + "/";
+    }
+
+    @Test
+    void put_ThenGet_ReturnsContentAndMetadata() throws IOException {
+        // Arrange
+        String key = prefix + "report.txt";
+
+        // Act
+        ObjectMetadata stored = put(key, "joint inspection", "text/plain");
+        ObjectContent content = storage.get(key, null, null, null);
+
+        // Assert
+        assertEquals("joint inspection", read(content));
+        assertEquals(16, content.contentLength());
+        assertNull(content.contentRange());
+        assertEquals(16, content.metadata().size());
+        assertEquals("text/plain", content.metadata().contentType());
+        assertEquals(stored.eTag(), content.metadata().eTag());
+        assertNotNull(content.metadata().lastModified());
+    }
+
+    @Test
+    void put_UnknownSize_StoresWholeStream() throws IOException {
+        // Arrange
+        String key = prefix + "scan.bin";
+        byte[] bytes = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(bytes);
+
+        // Act
+        storage.put(key, new ByteArrayInputStream(bytes), -1, "application/octet-stream");
+
+        // Assert
+        try (ObjectContent content = storage.get(key, null, null, null); InputStream input = content.inputStream()) {
+            assertArrayEquals(bytes, input.readAllBytes());
+        }
+        assertEquals(bytes.length, storage.head(key).orElseThrow().size());
+    }
+
+    @Test
+    void put_ExistingKey_ReplacesContent() throws IOException {
+        // Arrange
+        String key = prefix + "photo.jpg";
+        ObjectMetadata first = put(key, "first", "image/jpeg");
+
+        // Act
+        ObjectMetadata second = put(key, "second version", "image/jpeg");
+
+        // Assert
+        assertNotEquals(first.eTag(), second.eTag());
+        assertEquals("second version", read(storage.get(key, null, null, null)));
+    }
+
+    @Test
+    void get_Range_ReturnsSlice() throws IOException {
+        // Arrange
+        String key = prefix + "digits.txt";
+        put(key, "0123456789", "text/plain");
+
+        // Act
+        ObjectContent content = storage.get(key, "bytes=3-6", null, null);
+
+        // Assert
+        assertEquals("bytes 3-6/10", content.contentRange());
+        assertEquals(4, content.contentLength());
+        assertEquals(10, content.metadata().size());
+        assertEquals("3456", read(content));
+    }
+
+    @Test
+    void get_UnsatisfiableRange_Fails() throws IOException {
+        // Arrange
+        String key = prefix + "digits.txt";
+        put(key, "0123456789", "text/plain");
+
+        // Act & Assert
+        StorageException e = assertThrows(StorageException.class, () -> storage.get(key, "bytes=20-30", null, null));
+        assertEquals(416, e.getStatusCode());
+        assertEquals(10, e.getObjectSize());
+    }
+
+    @Test
+    void get_MatchingETag_NotModified() throws IOException {
+        // Arrange
+        String key = prefix + "photo.jpg";
+        ObjectMetadata stored = put(key, "joint photo", "image/jpeg");
+
+        // Act & Assert
+        StorageException e = assertThrows(StorageException.class, () -> storage.get(key, null, stored.eTag(), null));
+        assertEquals(304, e.getStatusCode());
+        assertEquals("joint photo", read(storage.get(key, null, "\"other\"", null)));
+    }
+
+    @Test
+    void get_MissingKey_NotFound() {
+        assertThrows(ObjectNotFoundException.class, () -> storage.get(prefix + "missing.jpg", null, null, null));
+    }
+
+    @Test
+    void head_ExistingAndMissing() throws IOException {
+        // Arrange
+        String key = prefix + "photo.jpg";
+        ObjectMetadata stored = put(key, "joint photo", "image/jpeg");
+
+        // Act
+        ObjectMetadata head = storage.head(key).orElseThrow();
+
+        // Assert
+        assertEquals(11, head.size());
+        assertEquals("image/jpeg", head.contentType());
+        assertEquals(stored.eTag(), head.eTag());
+        assertTrue(storage.head(prefix + "missing.jpg").isEmpty());
+    }
+
+    @Test
+    void delete_RemovesObject_AndIgnoresMissingKey() throws IOException {
+        // Arrange
+        String key = prefix + "photo.jpg";
+        put(key, "joint photo", "image/jpeg");
+
+        // Act
+        storage.delete(key);
+        storage.delete(prefix + "missing.jpg");
+
+        // Assert
+        assertTrue(storage.head(key).isEmpty());
+    }
+
+    @Test
+    void deleteAll_ManyKeys_RemovesAll() throws IOException {
+        // Arrange
+        List<String> keys = IntStream.range(0, 1001).mapToObj(i -> prefix + "photo-" + i + ".jpg").toList();
+        put(keys.get(0), "first", "image/jpeg");
+        put(keys.get(1000), "last", "image/jpeg");
+
+        // Act
+        Map<String, String> errors = storage.deleteAll(keys);
+
+        // Assert
+        assertTrue(errors.isEmpty());
+        assertTrue(storage.head(keys.get(0)).isEmpty());
+        assertTrue(storage.head(keys.get(1000)).isEmpty());
+    }
+
+    @Test
+    void transferTo_WritesRange() throws IOException {
+        // Arrange
+        String key = prefix + "digits.txt";
+        put(key, "0123456789", "text/plain");
+
+        // Act
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectContent content = storage.get(key, "bytes=5-", null, null)) {
+            content.transferTo(out);
+        }
+
+        // Assert
+        assertEquals("56789", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void putAsync_ThenGetAsync_Roundtrip() throws Exception {
+        // Arrange
+        String key = prefix + "async.txt";
+        byte[] bytes = "joint inspection".getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        ObjectMetadata stored = storage.putAsync(key, new ByteArrayInputStream(bytes), bytes.length, "text/plain")
+                .get(30, TimeUnit.SECONDS);
+        ObjectContent content = storage.getAsync(key, "bytes=6-", null, null).get(30, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("bytes 6-15/16", content.contentRange());
+        assertEquals(stored.eTag(), content.metadata().eTag());
+        assertEquals("inspection", read(content));
+    }
+
+    @Test
+    void putAsync_ManyConcurrent_AllStored() throws Exception {
+        // Arrange
+        List<String> keys = IntStream.range(0, 20).mapToObj(i -> prefix + "concurrent-" + i + ".txt").toList();
+
+        // Act
+        CompletableFuture.allOf(keys.stream()
+                .map(key -> {
+                    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                    return storage.putAsync(key, new ByteArrayInputStream(bytes), bytes.length, "text/plain");
+                })
+                .toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+
+        // Assert
+        for (String key : keys) {
+            assertEquals(key, read(storage.getAsync(key, null, null, null).get(30, TimeUnit.SECONDS)));
+        }
+    }
+
+    @Test
+    void getAsync_UnsatisfiableRange_FailsWithObjectSize() throws IOException {
+        // Arrange
+        String key = prefix + "digits.txt";
+        put(key, "0123456789", "text/plain");
+
+        // Act
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> storage.getAsync(key, "bytes=20-30", null, null).get(30, TimeUnit.SECONDS));
+
+        // Assert
+        StorageException cause = assertInstanceOf(StorageException.class, e.getCause());
+        assertEquals(416, cause.getStatusCode());
+        assertEquals(10, cause.getObjectSize());
+    }
+
+    @Test
+    void getAsync_MissingKey_FailsNotFound() {
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> storage.getAsync(prefix + "missing.jpg", null, null, null).get(30, TimeUnit.SECONDS));
+        assertInstanceOf(ObjectNotFoundException.class, e.getCause());
+    }
+
+    private ObjectMetadata put(String key, String content, String contentType) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return storage.put(key, new ByteArrayInputStream(bytes), bytes.length, contentType);
+    }
+
+    private static String read(ObjectContent content) throws IOException {
+        try (content; InputStream input = content.inputStream()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
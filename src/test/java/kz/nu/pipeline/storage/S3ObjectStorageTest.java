@@ -0,0 +1,158 @@
+package kz.nu.pipeline.storage;
+
+import kz.nu.pipeline.service.S3MultipartUploader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.util.unit.DataSize;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the storage contract against MinIO as a local S3 stand-in, and checks against a mocked async client that
+ * cancelled downloads give their permit back; skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class S3ObjectStorageTest extends ObjectStorageContractTest {
+
+    private static final String BUCKET = "pipeline-test";
+
+    @Container
+    private static final MinIOContainer MINIO = new MinIOContainer("minio/minio:RELEASE.2024-01-16T16-07-38Z");
+
+    private static S3Client s3Client;
+    private static S3AsyncClient s3AsyncClient;
+
+    private S3MultipartUploader uploader;
+    private S3ObjectStorage storage;
+
+    @BeforeAll
+    static void createBucket() {
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(MINIO.getUserName(), MINIO.getPassword()));
+        s3Client = S3Client.builder()
+                .endpointOverride(URI.create(MINIO.getS3URL()))
+                .region(Region.US_EAST_1)
+                .forcePathStyle(true)
+                .credentialsProvider(credentials)
+                .build();
+        s3AsyncClient = S3AsyncClient.builder()
+                .endpointOverride(URI.create(MINIO.getS3URL()))
+                .region(Region.US_EAST_1)
+                .forcePathStyle(true)
+                .credentialsProvider(credentials)
+                .build();
+        s3Client.createBucket(request -> request.bucket(BUCKET));
+    }
+
+    @Override
+    protected ObjectStorage createStorage() {
+        uploader = new S3MultipartUploader(s3Client, DataSize.ofMegabytes(5), 4, 3, 10);
+        storage = new S3ObjectStorage(s3Client, s3AsyncClient, uploader, BUCKET, DataSize.ofMegabytes(1), 4, 100);
+        return storage;
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploader.shutdown();
+        storage.shutdown();
+    }
+
+    @Test
+    void getAsync_CancelledWhileWaitingForPermit_NeverSendsRequest() {
+        // Arrange
+        S3AsyncClient client = mock(S3AsyncClient.class);
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> first = new CompletableFuture<>();
+        when(client.getObject(any(GetObjectRequest.class), ArgumentMatchers.<AsyncResponseTransformer<GetObjectResponse,
+                ResponseInputStream<GetObjectResponse>>>any())).thenReturn(first, new CompletableFuture<>());
+        ObjectStorage limited = this.createStorage(client, 1, 1);
+        limited.getAsync("a.txt", null, null, null);
+        CompletableFuture<ObjectContent> waiting = limited.getAsync("b.txt", null, null, null);
+
+        // Act
+        waiting.cancel(false);
+        CompletableFuture<ObjectContent> next = limited.getAsync("c.txt", null, null, null);
+        first.completeExceptionally(new IllegalStateException("connection reset"));
+
+        // Assert: the pending slot was freed for the next caller, which got the permit
+        assertFalse(next.isCompletedExceptionally());
+        verify(client, times(2)).getObject(any(GetObjectRequest.class), ArgumentMatchers.<AsyncResponseTransformer<GetObjectResponse,
+                ResponseInputStream<GetObjectResponse>>>any());
+    }
+
+    @Test
+    void getAsync_CancelledDuringRequest_CancelsRequestAndReleasesPermit() {
+        // Arrange
+        S3AsyncClient client = mock(S3AsyncClient.class);
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> inFlight = new CompletableFuture<>();
+        when(client.getObject(any(GetObjectRequest.class), ArgumentMatchers.<AsyncResponseTransformer<GetObjectResponse,
+                ResponseInputStream<GetObjectResponse>>>any())).thenReturn(inFlight, new CompletableFuture<>());
+        ObjectStorage limited = this.createStorage(client, 1, 10);
+        CompletableFuture<ObjectContent> download = limited.getAsync("a.txt", null, null, null);
+
+        // Act
+        download.cancel(false);
+        limited.getAsync("b.txt", null, null, null);
+
+        // Assert
+        assertTrue(inFlight.isCancelled());
+        verify(client, times(2)).getObject(any(GetObjectRequest.class), ArgumentMatchers.<AsyncResponseTransformer<GetObjectResponse,
+                ResponseInputStream<GetObjectResponse>>>any());
+    }
+
+    @Test
+    void getAsync_ResponseArrivesAfterCancel_AbortsItAndReleasesPermit() {
+        // Arrange: a request that can no longer be cancelled, as when its headers are already in
+        S3AsyncClient client = mock(S3AsyncClient.class);
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> uncancellable = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return false;
+            }
+        };
+        when(client.getObject(any(GetObjectRequest.class), ArgumentMatchers.<AsyncResponseTransformer<GetObjectResponse,
+                ResponseInputStream<GetObjectResponse>>>any())).thenReturn(uncancellable, new CompletableFuture<>());
+        ObjectStorage limited = this.createStorage(client, 1, 10);
+        CompletableFuture<ObjectContent> download = limited.getAsync("a.txt", null, null, null);
+        download.cancel(false);
+        AtomicBoolean aborted = new AtomicBoolean();
+
+        // Act
+        uncancellable.complete(new ResponseInputStream<>(GetObjectResponse.builder().contentLength(3L).build(),
+                AbortableInputStream.create(new ByteArrayInputStream(new byte[3]), () -> aborted.set(true))));
+        limited.getAsync("b.txt", null, null, null);
+
+        // Assert
+        assertTrue(aborted.get());
+        verify(client, times(2)).getObject(any(GetObjectRequest.class), ArgumentMatchers.<AsyncResponseTransformer<GetObjectResponse,
+                ResponseInputStream<GetObjectResponse>>>any());
+    }
+
+    private ObjectStorage createStorage(S3AsyncClient client, int maxConcurrency, int maxPending) {
+        S3Client syncClient = mock(S3Client.class);
+        uploader = new S3MultipartUploader(syncClient, DataSize.ofMegabytes(5), 4, 3, 10);
+        storage = new S3ObjectStorage(syncClient, client, uploader, BUCKET, DataSize.ofMegabytes(1), maxConcurrency, maxPending);
+        return storage;
+    }
+}